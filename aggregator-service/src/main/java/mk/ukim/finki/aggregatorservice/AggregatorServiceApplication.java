@@ -1,9 +1,14 @@
 package mk.ukim.finki.aggregatorservice;
 
+import mk.ukim.finki.aggregatorservice.config.SeriesProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling  // AggregatorService releases held readings of quiet series on a timer
+@EnableConfigurationProperties(SeriesProperties.class)
 public class AggregatorServiceApplication {
 
     public static void main(String[] args) {
@@ -14,9 +14,13 @@ import org.springframework.context.annotation.Configuration;
  *  - Exchange: readings.topic
  *  - Queue:    agg.readings
  *  - Binding:  reading.#
+ *  - Queue:    agg.summaries (per-poll area summaries from a pre-aggregating producer)
+ *  - Binding:  summary.#
  *
  * Output:
  *  - Exchange: alerts.topic
+ *  - alert.<area>.<level>  level transitions (AggregatorService)
+ *  - tick.<area>           periodic per-area aggregates (TickPublisher)
  */
 @Configuration
 public class RabbitConfig {
@@ -24,6 +28,7 @@ public class RabbitConfig {
     public static final String READINGS_EXCHANGE = "readings.topic";
     public static final String ALERTS_EXCHANGE   = "alerts.topic";
     public static final String AGG_QUEUE         = "agg.readings";
+    public static final String SUMMARY_QUEUE     = "agg.summaries";
 
     @Bean
     public TopicExchange readingsExchange() {
@@ -48,6 +53,19 @@ public class RabbitConfig {
                 .with("reading.#");
     }
 
+    @Bean
+    public Queue summaryQueue() {
+        return new Queue(SUMMARY_QUEUE, true);
+    }
+
+    @Bean
+    public Binding summaryBinding(Queue summaryQueue, TopicExchange readingsExchange) {
+        // One message per (area, metric) per producer poll
+        return BindingBuilder.bind(summaryQueue)
+                .to(readingsExchange)
+                .with("summary.#");
+    }
+
    @Bean
 public Jackson2JsonMessageConverter jsonMessageConverter() {
     Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter();
@@ -0,0 +1,103 @@
+package mk.ukim.finki.aggregatorservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * aggregator.series.* - per (area, metric) state kept by AggregatorService.
+ */
+@ConfigurationProperties(prefix = "aggregator.series")
+public class SeriesProperties {
+
+    /** Percentiles (p50/p90/p99) are over readings of this last period. */
+    private long sketchWindowMs = 3_600_000;
+
+    /** The sketch window is kept as this many slots; a slot's readings leave the window together. */
+    private int sketchSlots = 6;
+
+    /** Buckets per slot sketch; fixes the memory per series (slots x bins). */
+    private int sketchMaxBins = 256;
+
+    /**
+     * Statistic the alert level is decided on: mean (of the last readings, as before),
+     * p50, p90 or p99 (over the sketch window).
+     */
+    private String alertStatistic = "mean";
+
+    /**
+     * Readings are applied in event-time (reading timestamp) order: each one is held
+     * until every sensor of the series that reported in this long has got past it,
+     * or for this long at most. Sensors more than this far behind do not hold the others.
+     */
+    private long reorderDelayMs = 10_000;
+
+    /**
+     * A reading behind what was already applied is still counted (as late); it is only
+     * dropped if it is more than this far behind its own sensor's newest reading.
+     */
+    private long allowedLatenessMs = 600_000;
+
+    /** Readings held per series; when full the oldest is applied early. */
+    private int reorderBufferSize = 64;
+
+    /** How often held readings of quiet series are checked for release. */
+    private long reorderFlushMs = 1_000;
+
+    /** Single-threaded partitions series are hashed into; 0 = one per available processor. */
+    private int shards = 0;
+
+    /** Work queued per shard before the listener has to wait. */
+    private int shardMailboxCapacity = 10_000;
+
+    /** Most series held at once (split evenly across shards); one more evicts the least recently used. */
+    private int maxSeries = 5_000;
+
+    /** A series with no reading for this long is dropped (it starts over if it comes back). */
+    private long idleEvictMs = 86_400_000;
+
+    /** Metrics that are tracked at all (pulse.eco sensor types); empty = every metric. */
+    private List<String> allowedMetrics = new ArrayList<>(List.of(
+            "pm10", "pm25", "pm1", "temperature", "humidity", "pressure",
+            "noise", "noise_dba", "o3", "no2", "so2", "co"));
+
+    public long getSketchWindowMs() { return sketchWindowMs; }
+    public void setSketchWindowMs(long sketchWindowMs) { this.sketchWindowMs = sketchWindowMs; }
+
+    public int getSketchSlots() { return sketchSlots; }
+    public void setSketchSlots(int sketchSlots) { this.sketchSlots = sketchSlots; }
+
+    public int getSketchMaxBins() { return sketchMaxBins; }
+    public void setSketchMaxBins(int sketchMaxBins) { this.sketchMaxBins = sketchMaxBins; }
+
+    public String getAlertStatistic() { return alertStatistic; }
+    public void setAlertStatistic(String alertStatistic) { this.alertStatistic = alertStatistic; }
+
+    public long getReorderDelayMs() { return reorderDelayMs; }
+    public void setReorderDelayMs(long reorderDelayMs) { this.reorderDelayMs = reorderDelayMs; }
+
+    public long getAllowedLatenessMs() { return allowedLatenessMs; }
+    public void setAllowedLatenessMs(long allowedLatenessMs) { this.allowedLatenessMs = allowedLatenessMs; }
+
+    public int getReorderBufferSize() { return reorderBufferSize; }
+    public void setReorderBufferSize(int reorderBufferSize) { this.reorderBufferSize = reorderBufferSize; }
+
+    public long getReorderFlushMs() { return reorderFlushMs; }
+    public void setReorderFlushMs(long reorderFlushMs) { this.reorderFlushMs = reorderFlushMs; }
+
+    public int getShards() { return shards; }
+    public void setShards(int shards) { this.shards = shards; }
+
+    public int getShardMailboxCapacity() { return shardMailboxCapacity; }
+    public void setShardMailboxCapacity(int shardMailboxCapacity) { this.shardMailboxCapacity = shardMailboxCapacity; }
+
+    public int getMaxSeries() { return maxSeries; }
+    public void setMaxSeries(int maxSeries) { this.maxSeries = maxSeries; }
+
+    public long getIdleEvictMs() { return idleEvictMs; }
+    public void setIdleEvictMs(long idleEvictMs) { this.idleEvictMs = idleEvictMs; }
+
+    public List<String> getAllowedMetrics() { return allowedMetrics; }
+    public void setAllowedMetrics(List<String> allowedMetrics) { this.allowedMetrics = allowedMetrics; }
+}
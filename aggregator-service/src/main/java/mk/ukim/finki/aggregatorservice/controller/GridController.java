@@ -0,0 +1,95 @@
+package mk.ukim.finki.aggregatorservice.controller;
+
+import mk.ukim.finki.aggregatorservice.grid.GridAggregator;
+import mk.ukim.finki.aggregatorservice.model.GridCell;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heatmap cells for the map client (see GridAggregator).
+ *
+ * Endpoints:
+ * - GET /api/grid/{metric}?precision=5&bbox=minLat,minLon,maxLat,maxLon
+ *   Cells at one of aggregator.grid.precisions (default: the coarsest),
+ *   optionally limited to a bounding box.
+ * - GET /api/grid/{metric}/tiles/{z}/{x}/{y}?precision=6
+ *   Cells overlapping one slippy-map (Web Mercator) tile; the precision is
+ *   picked from the zoom unless given.
+ * - GET /api/grid/precisions
+ */
+@RestController
+@RequestMapping("/api/grid")
+public class GridController {
+
+    private final GridAggregator grid;
+
+    public GridController(GridAggregator grid) {
+        this.grid = grid;
+    }
+
+    @GetMapping("/precisions")
+    public Map<String, Object> precisions() {
+        return Map.of("precisions", grid.getPrecisions());
+    }
+
+    @GetMapping("/{metric}")
+    public ResponseEntity<List<GridCell>> cells(@PathVariable String metric,
+                                                @RequestParam(required = false) Integer precision,
+                                                @RequestParam(required = false) String bbox) {
+        double[] box = {-90, -180, 90, 180};
+        if (bbox != null) {
+            String[] parts = bbox.split(",");
+            if (parts.length != 4) {
+                return ResponseEntity.badRequest().build();
+            }
+            try {
+                for (int i = 0; i < 4; i++) {
+                    box[i] = Double.parseDouble(parts[i].trim());
+                }
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        int p = precision != null ? precision : grid.getPrecisions()[0];
+        return query(metric, p, box);
+    }
+
+    @GetMapping("/{metric}/tiles/{z}/{x}/{y}")
+    public ResponseEntity<List<GridCell>> tile(@PathVariable String metric,
+                                               @PathVariable int z,
+                                               @PathVariable int x,
+                                               @PathVariable int y,
+                                               @RequestParam(required = false) Integer precision) {
+        if (z < 0 || z > 22) {
+            return ResponseEntity.badRequest().build();
+        }
+        long n = 1L << z;
+        if (x < 0 || y < 0 || x >= n || y >= n) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        double minLon = x * 360.0 / n - 180;
+        double maxLon = (x + 1) * 360.0 / n - 180;
+        double maxLat = tileLat(y, n);
+        double minLat = tileLat(y + 1, n);
+
+        int p = precision != null ? precision : grid.precisionFor(maxLon - minLon);
+        return query(metric, p, new double[]{minLat, minLon, maxLat, maxLon});
+    }
+
+    private ResponseEntity<List<GridCell>> query(String metric, int precision, double[] box) {
+        try {
+            return ResponseEntity.ok(grid.cells(metric, precision, box[0], box[1], box[2], box[3]));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Latitude of a tile row's top edge (Web Mercator)
+    private static double tileLat(long y, long n) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2.0 * y / n))));
+    }
+}
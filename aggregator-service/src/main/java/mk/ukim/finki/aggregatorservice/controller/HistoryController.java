@@ -0,0 +1,48 @@
+package mk.ukim.finki.aggregatorservice.controller;
+
+import mk.ukim.finki.aggregatorservice.history.Resolution;
+import mk.ukim.finki.aggregatorservice.history.RollupStore;
+import mk.ukim.finki.aggregatorservice.model.HistoryResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Historical queries over the rollups kept by RollupStore.
+ *
+ * Endpoints:
+ * - GET /api/history/{area}/{metric}?from=2024-12-09T00:00:00Z&to=2024-12-10T00:00:00Z&resolution=hour
+ *   from defaults to 24h before to, to defaults to now; resolution (minute/hour/day)
+ *   defaults to the finest one that covers the range in aggregator.history.max-points rows.
+ */
+@RestController
+@RequestMapping("/api/history")
+public class HistoryController {
+
+    private final RollupStore rollupStore;
+
+    public HistoryController(RollupStore rollupStore) {
+        this.rollupStore = rollupStore;
+    }
+
+    @GetMapping("/{area}/{metric}")
+    public ResponseEntity<HistoryResponse> history(
+            @PathVariable String area,
+            @PathVariable String metric,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String resolution) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofHours(24));
+        try {
+            Resolution r = resolution == null ? null : Resolution.valueOf(resolution.toUpperCase());
+            return ResponseEntity.ok(rollupStore.query(area, metric, start, end, r));
+        } catch (IllegalArgumentException e) {
+            // Unknown resolution or from >= to
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package mk.ukim.finki.aggregatorservice.controller;
+
+import mk.ukim.finki.aggregatorservice.model.SeriesStats;
+import mk.ukim.finki.aggregatorservice.service.AggregatorService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Live state of the series AggregatorService is tracking.
+ *
+ * Endpoints:
+ * - GET /api/series/{area}/{metric}
+ *   Window mean, p50/p90/p99 over aggregator.series.sketch-window-ms and the
+ *   current alert level; 404 if nothing was received for the series.
+ */
+@RestController
+@RequestMapping("/api/series")
+public class SeriesController {
+
+    private final AggregatorService aggregatorService;
+
+    public SeriesController(AggregatorService aggregatorService) {
+        this.aggregatorService = aggregatorService;
+    }
+
+    @GetMapping("/{area}/{metric}")
+    public ResponseEntity<SeriesStats> stats(@PathVariable String area, @PathVariable String metric) {
+        SeriesStats stats = aggregatorService.stats(area, metric);
+        return stats == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,64 @@
+package mk.ukim.finki.aggregatorservice.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size Bloom filter over 64-bit key hashes (double hashing: h1 + i * h2).
+ * Sized for expectedKeys at falsePositiveRate; adding more keys still works,
+ * only the false-positive rate goes up. Not thread-safe.
+ */
+final class BloomFilter {
+
+    private final long[] words;
+    private final long bits;
+    private final int hashes;
+
+    BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("need expectedKeys >= 1 and 0 < falsePositiveRate < 1");
+        }
+        long m = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new long[(int) Math.max(1, (m + 63) / 64)];
+        this.bits = words.length * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedKeys * Math.log(2)));
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @return false if the key was (probably) already there
+     */
+    boolean add(long h1, long h2) {
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    /** @return true if the key was (probably) added before */
+    boolean mightContain(long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /** Heap held by the bit array. */
+    long sizeBytes() {
+        return words.length * 8L;
+    }
+}
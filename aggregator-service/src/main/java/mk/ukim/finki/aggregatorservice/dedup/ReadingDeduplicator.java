@@ -0,0 +1,212 @@
+package mk.ukim.finki.aggregatorservice.dedup;
+
+import io.micrometer.core.instrument.Gauge;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.SummaryMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Drops readings that were already consumed once.
+ *
+ * A reading is identified by (sensorId, metric, timestamp); a summary by
+ * its content (area, metric, timestamp, count, sum, min, max). Duplicates
+ * come from AMQP redelivery (listener retry after the window was already
+ * updated) and from the producer re-publishing a sensor's reading on every
+ * poll until the sensor reports again.
+ *
+ * WHAT THIS DOES:
+ * 1. Keys are hashed into one Bloom filter per event-time bucket
+ *    (aggregator.dedup.window-ms split into aggregator.dedup.buckets);
+ *    a bucket's filter is cleared and reused once it falls out of the window
+ * 2. A key already in its bucket's filter is a duplicate; keys are only added
+ *    (markReading / markSummary) after the message was processed
+ * 3. Between the check and the mark the key is claimed (claimReading /
+ *    claimSummary), under the same lock as the filter. Up to 5 listener
+ *    consumers run at once, so two copies of a message (an outbox re-publish,
+ *    a redelivery) can be consumed together: the second copy finds the claim
+ *    and is a duplicate too. Marking drops the claim; a failed attempt
+ *    releases it (releaseReading / releaseSummary) so the retry gets through
+ * 4. Memory is fixed: buckets x one filter sized for expected-keys-per-bucket
+ *    at false-positive-rate, plus one claim per message being processed
+ *
+ * Readings without a timestamp, or older than the window, cannot be checked
+ * and are let through. A false positive drops a genuine reading; the rate is
+ * false-positive-rate while a bucket holds at most expected-keys-per-bucket keys.
+ */
+@Component
+public class ReadingDeduplicator {
+
+    private final long bucketMs;
+    private final BloomFilter[] filters;
+    private final long[] bucketIds;
+    // Keys checked but not yet marked or released (guarded by this)
+    private final Set<Claim> claims = new HashSet<>();
+
+    public ReadingDeduplicator(AggregatorMetrics metrics,
+                               @Value("${aggregator.dedup.window-ms:3600000}") long windowMs,
+                               @Value("${aggregator.dedup.buckets:6}") int buckets,
+                               @Value("${aggregator.dedup.expected-keys-per-bucket:100000}") long expectedKeysPerBucket,
+                               @Value("${aggregator.dedup.false-positive-rate:0.001}") double falsePositiveRate) {
+        if (buckets < 1 || windowMs < buckets) {
+            throw new IllegalArgumentException("aggregator.dedup needs at least 1 bucket of 1ms: window-ms="
+                    + windowMs + ", buckets=" + buckets);
+        }
+        this.bucketMs = windowMs / buckets;
+        this.filters = new BloomFilter[buckets];
+        this.bucketIds = new long[buckets];
+        long bytes = 0;
+        for (int i = 0; i < buckets; i++) {
+            filters[i] = new BloomFilter(expectedKeysPerBucket, falsePositiveRate);
+            bucketIds[i] = Long.MIN_VALUE;
+            bytes += filters[i].sizeBytes();
+        }
+
+        long totalBytes = bytes;
+        Gauge.builder("aggregator.dedup.bytes", () -> totalBytes)
+                .description("Heap held by the de-duplication filters")
+                .baseUnit("bytes")
+                .register(metrics.getRegistry());
+    }
+
+    /**
+     * Claims a reading for processing. Does not record it as consumed: call
+     * markReading once it has been processed, or releaseReading if processing
+     * failed, so the listener's retry is not dropped as a duplicate.
+     *
+     * @return false if (sensorId, metric, timestamp) was already consumed or
+     *         is being processed by another consumer
+     */
+    public boolean claimReading(String sensorId, String metric, Instant timestamp) {
+        return sensorId == null || claim(readingKey(sensorId, metric), timestamp);
+    }
+
+    /** Records a processed reading and drops its claim. */
+    public void markReading(String sensorId, String metric, Instant timestamp) {
+        if (sensorId != null) {
+            mark(readingKey(sensorId, metric), timestamp);
+        }
+    }
+
+    /** Drops the claim of a reading whose processing failed. */
+    public void releaseReading(String sensorId, String metric, Instant timestamp) {
+        if (sensorId != null) {
+            release(readingKey(sensorId, metric), timestamp);
+        }
+    }
+
+    /**
+     * Same for a producer summary. Keyed on its content (area, metric,
+     * timestamp, count, sum, min, max): a summary with new data from other
+     * sensors can share the newest timestamp of the previous one.
+     */
+    public boolean claimSummary(SummaryMessage summary) {
+        return summary.getArea() == null || claim(summaryKey(summary), summary.getTimestamp());
+    }
+
+    /** Records a processed summary and drops its claim. */
+    public void markSummary(SummaryMessage summary) {
+        if (summary.getArea() != null) {
+            mark(summaryKey(summary), summary.getTimestamp());
+        }
+    }
+
+    /** Drops the claim of a summary whose processing failed. */
+    public void releaseSummary(SummaryMessage summary) {
+        if (summary.getArea() != null) {
+            release(summaryKey(summary), summary.getTimestamp());
+        }
+    }
+
+    /** Claims being processed right now (for tests and diagnostics). */
+    synchronized int claims() {
+        return claims.size();
+    }
+
+    private synchronized boolean claim(long key, Instant timestamp) {
+        if (timestamp == null) {
+            // Cannot be checked, so not claimed either
+            return true;
+        }
+        return !seen(key, timestamp, false) && claims.add(new Claim(key, timestamp.toEpochMilli()));
+    }
+
+    private synchronized void mark(long key, Instant timestamp) {
+        seen(key, timestamp, true);
+        release(key, timestamp);
+    }
+
+    private synchronized void release(long key, Instant timestamp) {
+        if (timestamp != null) {
+            claims.remove(new Claim(key, timestamp.toEpochMilli()));
+        }
+    }
+
+    private static long readingKey(String sensorId, String metric) {
+        return hash(hash('r', sensorId), metric);
+    }
+
+    private static long summaryKey(SummaryMessage summary) {
+        long h = hash(hash('s', summary.getArea()), summary.getMetric());
+        h = mix(h ^ summary.getCount());
+        h = mix(h ^ Double.doubleToLongBits(summary.getSum()));
+        h = mix(h ^ Double.doubleToLongBits(summary.getMin()));
+        return mix(h ^ Double.doubleToLongBits(summary.getMax()));
+    }
+
+    /**
+     * @param mark add the key (true) or only look it up (false)
+     * @return true if the key was already in its bucket's filter
+     */
+    private synchronized boolean seen(long key, Instant timestamp, boolean mark) {
+        if (timestamp == null) {
+            return false;
+        }
+        // A clock far ahead must not recycle buckets that still hold the present
+        long ts = Math.min(timestamp.toEpochMilli(), System.currentTimeMillis() + bucketMs);
+
+        long id = Math.floorDiv(ts, bucketMs);
+        int i = (int) Math.floorMod(id, (long) filters.length);
+        if (bucketIds[i] != id) {
+            if (bucketIds[i] > id) {
+                // Older than the window: nothing to compare against
+                return false;
+            }
+            if (!mark) {
+                // Bucket not started yet, so nothing in it
+                return false;
+            }
+            filters[i].clear();
+            bucketIds[i] = id;
+        }
+
+        long h1 = mix(key ^ ts);
+        long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+        return mark ? !filters[i].add(h1, h2) : filters[i].mightContain(h1, h2);
+    }
+
+    private record Claim(long key, long timestampMs) {}
+
+    // Length goes in first, so ("ab", "c") and ("a", "bc") differ
+    private static long hash(long h, String s) {
+        if (s == null) {
+            return mix(h * 31 - 1);
+        }
+        h = h * 31 + s.length();
+        for (int i = 0; i < s.length(); i++) {
+            h = h * 31 + s.charAt(i);
+        }
+        return mix(h);
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,101 @@
+package mk.ukim.finki.aggregatorservice.grid;
+
+/**
+ * Geohash encode/decode (base32, 5 bits per char, lon/lat bits interleaved).
+ *
+ * A geohash of precision p is a prefix of every longer geohash inside it,
+ * so one fine cell id per sensor gives all coarser resolutions by truncation:
+ *   precision 4 ~ 39 x 20 km, 5 ~ 4.9 x 4.9 km, 6 ~ 1.2 x 0.6 km
+ */
+public final class Geohash {
+
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int[] DECODE = new int[128];
+
+    static {
+        java.util.Arrays.fill(DECODE, -1);
+        for (int i = 0; i < BASE32.length; i++) {
+            DECODE[BASE32[i]] = i;
+        }
+    }
+
+    private Geohash() {
+    }
+
+    /**
+     * @param precision number of characters, 1..12
+     */
+    public static String encode(double lat, double lon, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be 1.." + MAX_PRECISION + ": " + precision);
+        }
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        char[] out = new char[precision];
+        boolean evenBit = true;
+        for (int c = 0; c < precision; c++) {
+            int idx = 0;
+            for (int b = 0; b < 5; b++) {
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (lon >= mid) {
+                        idx = (idx << 1) | 1;
+                        minLon = mid;
+                    } else {
+                        idx <<= 1;
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (lat >= mid) {
+                        idx = (idx << 1) | 1;
+                        minLat = mid;
+                    } else {
+                        idx <<= 1;
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+            out[c] = BASE32[idx];
+        }
+        return new String(out);
+    }
+
+    /**
+     * @return {minLat, minLon, maxLat, maxLon} of the cell
+     * @throws IllegalArgumentException for characters outside the geohash alphabet
+     */
+    public static double[] bounds(String hash) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        boolean evenBit = true;
+        for (int c = 0; c < hash.length(); c++) {
+            char ch = hash.charAt(c);
+            int idx = ch < 128 ? DECODE[ch] : -1;
+            if (idx < 0) {
+                throw new IllegalArgumentException("Not a geohash: " + hash);
+            }
+            for (int b = 4; b >= 0; b--) {
+                int bit = (idx >> b) & 1;
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (bit == 1) minLon = mid; else maxLon = mid;
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (bit == 1) minLat = mid; else maxLat = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[]{minLat, minLon, maxLat, maxLon};
+    }
+
+    /** Longitude span of a cell at this precision, in degrees. */
+    public static double cellWidthDegrees(int precision) {
+        int lonBits = (5 * precision + 1) / 2;
+        return 360.0 / (1L << lonBits);
+    }
+}
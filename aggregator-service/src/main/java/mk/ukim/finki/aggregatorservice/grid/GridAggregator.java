@@ -0,0 +1,255 @@
+package mk.ukim.finki.aggregatorservice.grid;
+
+import io.micrometer.core.instrument.Gauge;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.GridCell;
+import mk.ukim.finki.aggregatorservice.model.ReadingMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Heatmap grid: readings aggregated per geohash cell instead of per named area.
+ *
+ * Named areas only exist for Skopje; everywhere else the area is
+ * "unknown_area". Cells work for every city.
+ *
+ * WHAT THIS DOES:
+ * 1. Each sensor's position is turned into a geohash once (at the finest
+ *    configured precision) and cached by sensorId; only a changed position
+ *    is encoded again
+ * 2. Per metric, the latest value of every sensor is kept with its cell.
+ *    "Latest" is by event time: readings come straight from the listener
+ *    (several consumers, no reorder buffer), so an older reading that arrives
+ *    late does not replace a newer one
+ * 3. A query at precision p groups sensors by the first p chars of their cell
+ *    (geohash prefixes nest), so all configured resolutions come from one table
+ * 4. prune() drops latest values older than aggregator.grid.max-age-ms (and
+ *    the cached cells of sensors left with none), and cuts a metric that holds
+ *    more than aggregator.grid.max-sensors down to its most recent ones. It runs
+ *    on a schedule, and from record() as soon as a metric goes over the cap, so
+ *    the tables stay bounded between runs too.
+ *
+ * Fed by ReadingListener with raw readings. Summaries from a pre-aggregating
+ * producer carry no position and are not part of the grid.
+ */
+@Service
+public class GridAggregator {
+
+    private final int[] precisions;
+    private final int cellPrecision;
+    private final long maxAgeMs;
+    private final int maxSensors;
+
+    // sensorId -> position string + its cell
+    private final Map<String, SensorCell> cellBySensor = new ConcurrentHashMap<>();
+
+    // metric -> sensorId -> latest value
+    private final Map<String, Map<String, Latest>> latestByMetric = new ConcurrentHashMap<>();
+
+    public GridAggregator(AggregatorMetrics metrics,
+                          @Value("${aggregator.grid.precisions:4,5,6}") int[] precisions,
+                          @Value("${aggregator.grid.max-age-ms:7200000}") long maxAgeMs,
+                          @Value("${aggregator.grid.max-sensors:50000}") int maxSensors) {
+        if (precisions.length == 0) {
+            throw new IllegalArgumentException("aggregator.grid.precisions must not be empty");
+        }
+        this.precisions = precisions.clone();
+        Arrays.sort(this.precisions);
+        for (int p : this.precisions) {
+            if (p < 1 || p > Geohash.MAX_PRECISION) {
+                throw new IllegalArgumentException("aggregator.grid.precisions must be 1.." + Geohash.MAX_PRECISION + ": " + p);
+            }
+        }
+        this.cellPrecision = this.precisions[this.precisions.length - 1];
+        this.maxAgeMs = maxAgeMs;
+        if (maxSensors < 1) {
+            throw new IllegalArgumentException("aggregator.grid.max-sensors must be at least 1: " + maxSensors);
+        }
+        this.maxSensors = maxSensors;
+
+        Gauge.builder("aggregator.grid.sensors", cellBySensor, Map::size)
+                .description("Sensors placed on the heatmap grid")
+                .register(metrics.getRegistry());
+    }
+
+    /**
+     * Places one reading on the grid. Readings without sensorId or a parseable
+     * "lat,lon" position, or with a NaN/Infinite value, are ignored.
+     */
+    public void record(ReadingMessage reading) {
+        String sensorId = reading.getSensorId();
+        String metric = reading.getMetric();
+        double value = reading.getValue();
+        if (sensorId == null || metric == null || Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+
+        String cell = cellOf(sensorId, reading.getPosition());
+        if (cell == null) {
+            return;
+        }
+
+        Instant ts = reading.getTimestamp() != null ? reading.getTimestamp() : Instant.now();
+        long nowMs = System.currentTimeMillis();
+        Map<String, Latest> latest = latestByMetric.computeIfAbsent(metric.toLowerCase(), m -> new ConcurrentHashMap<>());
+        latest.merge(sensorId, new Latest(cell, value, ts, nowMs),
+                (old, n) -> n.timestamp().isBefore(old.timestamp()) ? old : n);
+        if (latest.size() > maxSensors) {
+            prune(latest, nowMs - maxAgeMs);
+        }
+    }
+
+    /**
+     * Drops sensors whose latest value is past max-age-ms (they are not on the
+     * heatmap anyway) and keeps at most max-sensors per metric.
+     */
+    @Scheduled(fixedDelayString = "${aggregator.grid.prune-ms:60000}")
+    public void prune() {
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        for (Map<String, Latest> latest : latestByMetric.values()) {
+            prune(latest, cutoff);
+        }
+        // A sensor's cached cell goes with its last value
+        cellBySensor.keySet().removeIf(sensorId ->
+                latestByMetric.values().stream().noneMatch(latest -> latest.containsKey(sensorId)));
+    }
+
+    /** Sensors with a latest value for this metric (for tests and diagnostics). */
+    int sensors(String metric) {
+        Map<String, Latest> latest = latestByMetric.get(metric.toLowerCase());
+        return latest == null ? 0 : latest.size();
+    }
+
+    /**
+     * Cells of one metric at one precision that overlap the box, sorted by cell id.
+     *
+     * @throws IllegalArgumentException if precision is not one of aggregator.grid.precisions
+     */
+    public List<GridCell> cells(String metric, int precision,
+                                double minLat, double minLon, double maxLat, double maxLon) {
+        if (Arrays.binarySearch(precisions, precision) < 0) {
+            throw new IllegalArgumentException("precision must be one of " + Arrays.toString(precisions));
+        }
+        Map<String, Latest> latest = latestByMetric.get(metric.toLowerCase());
+        if (latest == null) {
+            return List.of();
+        }
+
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        Map<String, CellStats> byCell = new HashMap<>();
+        for (Latest l : latest.values()) {
+            if (l.receivedAt() < cutoff) continue;
+            byCell.computeIfAbsent(l.cell().substring(0, precision), c -> new CellStats()).add(l);
+        }
+
+        List<GridCell> out = new ArrayList<>();
+        byCell.forEach((cell, stats) -> {
+            double[] b = Geohash.bounds(cell);
+            if (b[0] <= maxLat && b[2] >= minLat && b[1] <= maxLon && b[3] >= minLon) {
+                out.add(new GridCell(cell, b, stats.count, stats.sum / stats.count, stats.min, stats.max, stats.newest));
+            }
+        });
+        out.sort(Comparator.comparing(GridCell::getCell));
+        return out;
+    }
+
+    /**
+     * Picks the precision for a map tile: the coarsest configured one that
+     * still puts several cells across the tile, or the finest if none does.
+     *
+     * @param tileWidthDegrees longitude span of the tile
+     */
+    public int precisionFor(double tileWidthDegrees) {
+        for (int p : precisions) {
+            if (Geohash.cellWidthDegrees(p) <= tileWidthDegrees / 8) {
+                return p;
+            }
+        }
+        return cellPrecision;
+    }
+
+    public int[] getPrecisions() {
+        return precisions.clone();
+    }
+
+    private String cellOf(String sensorId, String position) {
+        SensorCell cached = cellBySensor.get(sensorId);
+        if (cached != null && cached.position().equals(position)) {
+            return cached.cell();
+        }
+        double[] latLon = parsePosition(position);
+        if (latLon == null) {
+            return null;
+        }
+        if (cellBySensor.size() >= maxSensors * 2) {
+            // Only reached if sensors keep moving faster than prune() runs; start over instead of growing
+            cellBySensor.clear();
+        }
+        String cell = Geohash.encode(latLon[0], latLon[1], cellPrecision);
+        cellBySensor.put(sensorId, new SensorCell(position, cell));
+        return cell;
+    }
+
+    // Removes entries older than cutoff, then the least recently received ones
+    // over the cap (down to 90% of it, so a full table is not sorted on every reading)
+    private void prune(Map<String, Latest> latest, long cutoff) {
+        latest.values().removeIf(l -> l.receivedAt() < cutoff);
+        if (latest.size() <= maxSensors) {
+            return;
+        }
+        int target = Math.max(1, maxSensors - maxSensors / 10);
+        latest.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().receivedAt()))
+                .limit(latest.size() - target)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(latest::remove);
+    }
+
+    // "lat,lon" as pulse.eco sends it
+    private static double[] parsePosition(String position) {
+        if (position == null) return null;
+        int comma = position.indexOf(',');
+        if (comma < 0) return null;
+        try {
+            double lat = Double.parseDouble(position.substring(0, comma).trim());
+            double lon = Double.parseDouble(position.substring(comma + 1).trim());
+            if (lat < -90 || lat > 90 || lon < -180 || lon > 180) return null;
+            return new double[]{lat, lon};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record SensorCell(String position, String cell) {}
+
+    private record Latest(String cell, double value, Instant timestamp, long receivedAt) {}
+
+    private static final class CellStats {
+        int count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        Instant newest;
+
+        void add(Latest l) {
+            count++;
+            sum += l.value();
+            min = Math.min(min, l.value());
+            max = Math.max(max, l.value());
+            if (newest == null || l.timestamp().isAfter(newest)) {
+                newest = l.timestamp();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package mk.ukim.finki.aggregatorservice.history;
+
+import java.time.ZoneId;
+
+/**
+ * Rollup bucket sizes kept by RollupStore, finest first.
+ */
+public enum Resolution {
+    MINUTE(60_000L),
+    HOUR(3_600_000L),
+    DAY(86_400_000L);
+
+    private final long millis;
+
+    Resolution(long millis) {
+        this.millis = millis;
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    /**
+     * Start of the bucket holding ts, aligned to local time in zone
+     * (so DAY buckets start at local midnight).
+     */
+    public long bucketStart(long ts, ZoneId zone) {
+        long offset = zone.getRules().getOffset(java.time.Instant.ofEpochMilli(ts)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(ts + offset, millis) * millis - offset;
+    }
+}
@@ -0,0 +1,55 @@
+package mk.ukim.finki.aggregatorservice.history;
+
+import mk.ukim.finki.aggregatorservice.sketch.QuantileSketch;
+
+/**
+ * count / sum / min / max / quantile sketch of one series over one bucket.
+ * Rollups merge exactly (the sketch within its relative accuracy). The sketch
+ * is capped at maxBins buckets, so one rollup never costs more than ~12 bytes
+ * per bin however many readings it covers. Not thread-safe.
+ */
+final class Rollup {
+
+    long count;
+    double sum;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    final QuantileSketch sketch;
+
+    Rollup(int maxBins) {
+        this.sketch = new QuantileSketch(QuantileSketch.DEFAULT_ACCURACY, maxBins);
+    }
+
+    void add(double value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sketch.add(value);
+    }
+
+    /**
+     * A producer summary: count/sum/min/max are exact, the sketch only gets
+     * the mean with weight count (the individual values were never sent).
+     */
+    void addSummary(long n, double total, double lo, double hi) {
+        count += n;
+        sum += total;
+        min = Math.min(min, lo);
+        max = Math.max(max, hi);
+        sketch.add(total / n, n);
+    }
+
+    void merge(Rollup other) {
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sketch.merge(other.sketch);
+    }
+
+    // Sketch estimates clamped to the exact extremes
+    double quantile(double q) {
+        return Math.max(min, Math.min(max, sketch.quantile(q)));
+    }
+}
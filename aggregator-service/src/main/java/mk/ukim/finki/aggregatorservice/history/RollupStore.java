@@ -0,0 +1,210 @@
+package mk.ukim.finki.aggregatorservice.history;
+
+import io.micrometer.core.instrument.Gauge;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.HistoryResponse;
+import mk.ukim.finki.aggregatorservice.model.RollupRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Locally retained history per (area, metric), as minute / hour / day rollups.
+ *
+ * WHAT THIS DOES:
+ * 1. Every reading is added to its minute, hour and day bucket on ingest
+ *    (count, sum, min, max and a QuantileSketch each), by reading timestamp,
+ *    so late readings land in the right bucket
+ * 2. Each resolution keeps its own retention (aggregator.history.*-retention-ms);
+ *    buckets past it are dropped whenever a series opens a new bucket
+ * 3. A range query reads rows of one resolution - by default the finest one
+ *    that covers the range in at most aggregator.history.max-points rows -
+ *    so a month is ~720 hour rows or 30 day rows, never the raw readings
+ *
+ * At most aggregator.history.max-series series are kept; readings of further
+ * series are not stored (aggregator.readings.rejected{reason=history_full}).
+ *
+ * Buckets are aligned to aggregator.history.zone, so a DAY is a local calendar day.
+ * History lives in memory and starts empty after a restart, so the default
+ * retentions are sized for the heap rather than for long-term storage: 6 h of
+ * minutes, 14 days of hours and 90 days of days is ~870 rows per series, and
+ * each row's sketch is capped at aggregator.history.sketch-max-bins buckets.
+ */
+@Service
+public class RollupStore {
+
+    private final ZoneId zone;
+    private final int maxPoints;
+    private final int maxSeries;
+    private final int sketchMaxBins;
+    private final AggregatorMetrics metrics;
+    private final Map<Resolution, Long> retentionMs = new EnumMap<>(Resolution.class);
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final AtomicLong rows = new AtomicLong();
+
+    public RollupStore(AggregatorMetrics metrics,
+                       @Value("${aggregator.history.zone:Europe/Skopje}") String zone,
+                       @Value("${aggregator.history.max-points:500}") int maxPoints,
+                       @Value("${aggregator.history.max-series:2000}") int maxSeries,
+                       @Value("${aggregator.history.sketch-max-bins:256}") int sketchMaxBins,
+                       @Value("${aggregator.history.minute-retention-ms:21600000}") long minuteRetentionMs,
+                       @Value("${aggregator.history.hour-retention-ms:1209600000}") long hourRetentionMs,
+                       @Value("${aggregator.history.day-retention-ms:7776000000}") long dayRetentionMs) {
+        this.zone = ZoneId.of(zone);
+        this.maxPoints = maxPoints;
+        this.maxSeries = maxSeries;
+        this.sketchMaxBins = sketchMaxBins;
+        this.metrics = metrics;
+        retentionMs.put(Resolution.MINUTE, minuteRetentionMs);
+        retentionMs.put(Resolution.HOUR, hourRetentionMs);
+        retentionMs.put(Resolution.DAY, dayRetentionMs);
+
+        Gauge.builder("aggregator.history.rows", rows, AtomicLong::get)
+                .description("Rollup rows held across all resolutions")
+                .register(metrics.getRegistry());
+    }
+
+    /** Adds one reading to its minute/hour/day rollups. */
+    public void record(String area, String metric, Instant timestamp, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        long ts = timestamp != null ? timestamp.toEpochMilli() : System.currentTimeMillis();
+        Series s = series(area, metric);
+        if (s == null) {
+            return;
+        }
+        synchronized (s) {
+            for (Resolution r : Resolution.values()) {
+                bucket(s, r, ts).add(value);
+            }
+        }
+    }
+
+    /** Adds a producer summary (count readings with this sum/min/max) to its rollups. */
+    public void recordSummary(String area, String metric, Instant timestamp, long count, double sum, double min, double max) {
+        if (count <= 0 || Double.isNaN(sum) || Double.isInfinite(sum)) {
+            return;
+        }
+        long ts = timestamp != null ? timestamp.toEpochMilli() : System.currentTimeMillis();
+        Series s = series(area, metric);
+        if (s == null) {
+            return;
+        }
+        synchronized (s) {
+            for (Resolution r : Resolution.values()) {
+                bucket(s, r, ts).addSummary(count, sum, min, max);
+            }
+        }
+    }
+
+    /**
+     * Rollup rows of one series in [from, to).
+     *
+     * @param resolution null = finest resolution still retained for from
+     *                   that needs at most max-points rows
+     */
+    public HistoryResponse query(String area, String metric, Instant from, Instant to, Resolution resolution) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        Resolution r = resolution != null ? resolution : pick(from.toEpochMilli(), to.toEpochMilli());
+        String a = normalize(area);
+        String m = normalize(metric);
+
+        List<RollupRow> out = new ArrayList<>();
+        Rollup total = new Rollup(sketchMaxBins);
+        Series s = series.get(a + "|" + m);
+        if (s != null) {
+            synchronized (s) {
+                long start = r.bucketStart(from.toEpochMilli(), zone);
+                for (Map.Entry<Long, Rollup> e : s.buckets.get(r).subMap(start, true, to.toEpochMilli(), false).entrySet()) {
+                    out.add(row(e.getKey(), e.getValue()));
+                    total.merge(e.getValue());
+                }
+            }
+        }
+        return new HistoryResponse(a, m, r.name().toLowerCase(), from, to, out,
+                total.count == 0 ? null : row(from.toEpochMilli(), total));
+    }
+
+    // Finest resolution whose retention reaches back to from and whose row count fits max-points
+    Resolution pick(long from, long to) {
+        long now = System.currentTimeMillis();
+        for (Resolution r : Resolution.values()) {
+            if (from >= now - retentionMs.get(r) && (to - from) / r.millis() <= maxPoints) {
+                return r;
+            }
+        }
+        return Resolution.DAY;
+    }
+
+    // null once max-series is reached and this is a new series
+    private Series series(String area, String metric) {
+        String key = normalize(area) + "|" + normalize(metric);
+        Series s = series.get(key);
+        if (s != null) {
+            return s;
+        }
+        if (series.size() >= maxSeries) {
+            metrics.readingRejected("history_full");
+            return null;
+        }
+        return series.computeIfAbsent(key, k -> new Series());
+    }
+
+    // Caller holds the series lock
+    private Rollup bucket(Series s, Resolution r, long ts) {
+        NavigableMap<Long, Rollup> buckets = s.buckets.get(r);
+        long start = r.bucketStart(ts, zone);
+        Rollup rollup = buckets.get(start);
+        if (rollup != null) {
+            return rollup;
+        }
+
+        // Buckets that ended before the cutoff are past retention
+        long lastExpiredStart = System.currentTimeMillis() - retentionMs.get(r) - r.millis();
+        if (start <= lastExpiredStart) {
+            // Reading older than this resolution keeps: not stored here
+            return new Rollup(sketchMaxBins);
+        }
+        NavigableMap<Long, Rollup> expired = buckets.headMap(lastExpiredStart, true);
+        rows.addAndGet(-expired.size());
+        expired.clear();
+
+        rollup = new Rollup(sketchMaxBins);
+        buckets.put(start, rollup);
+        rows.incrementAndGet();
+        return rollup;
+    }
+
+    private static RollupRow row(long start, Rollup r) {
+        return new RollupRow(Instant.ofEpochMilli(start), r.count, r.sum, r.min, r.max,
+                r.quantile(0.5), r.quantile(0.9), r.quantile(0.99));
+    }
+
+    private static String normalize(String s) {
+        return s == null || s.isBlank() ? "unknown" : s.toLowerCase();
+    }
+
+    private static final class Series {
+        final Map<Resolution, NavigableMap<Long, Rollup>> buckets = new EnumMap<>(Resolution.class);
+
+        Series() {
+            for (Resolution r : Resolution.values()) {
+                buckets.put(r, new TreeMap<>());
+            }
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package mk.ukim.finki.aggregatorservice.listener;
 import mk.ukim.finki.aggregatorservice.config.RabbitConfig;
+import mk.ukim.finki.aggregatorservice.dedup.ReadingDeduplicator;
+import mk.ukim.finki.aggregatorservice.grid.GridAggregator;
+import mk.ukim.finki.aggregatorservice.history.RollupStore;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
 import mk.ukim.finki.aggregatorservice.model.ReadingMessage;
+import mk.ukim.finki.aggregatorservice.model.SummaryMessage;
 import mk.ukim.finki.aggregatorservice.service.AggregatorService;
+import mk.ukim.finki.aggregatorservice.tracing.TraceContext;
+import mk.ukim.finki.common.logging.LogSampler;
+import mk.ukim.finki.common.tracing.LatencyTracker;
+import mk.ukim.finki.common.tracing.TraceHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
@@ -9,6 +18,8 @@ import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * RabbitMQ consumer for readings.
  *
@@ -17,6 +28,19 @@ import org.springframework.stereotype.Component;
  *
  * Example:
  *   reading.gazi_baba.pm10
+ *
+ * Summaries from a pre-aggregating producer arrive on agg.summaries:
+ *   summary.<area>.<metric>
+ *
+ * Trace headers from the producer (see TraceHeaders) are picked up here,
+ * queue dwell time is recorded, and the context is handed to AggregatorService.
+ * Readings are also placed on the geohash heatmap grid (GridAggregator) and
+ * added to the history rollups (RollupStore); summaries only to the rollups.
+ * Metrics outside aggregator.series.allowed-metrics are dropped here, before any
+ * of those stores (aggregator.readings.rejected{reason=metric}), and so are
+ * readings consumed before - redeliveries and re-polled sensor readings
+ * (ReadingDeduplicator, reason=duplicate). A NaN/Infinite value is dropped
+ * with a WARN every time (reason=invalid_value), never sampled.
  */
 @Component
 public class ReadingListener {
@@ -24,16 +48,41 @@ public class ReadingListener {
     private static final Logger log = LoggerFactory.getLogger(ReadingListener.class);
 
     private final AggregatorService aggregatorService;
+    private final ReadingDeduplicator deduplicator;
+    private final GridAggregator gridAggregator;
+    private final RollupStore rollupStore;
+    private final LatencyTracker latencyTracker;
+    private final AggregatorMetrics metrics;
 
-    public ReadingListener(AggregatorService aggregatorService) {
+    private final LogSampler receiveLogSampler = new LogSampler(100);
+
+    public ReadingListener(AggregatorService aggregatorService,
+                           ReadingDeduplicator deduplicator,
+                           GridAggregator gridAggregator,
+                           RollupStore rollupStore,
+                           LatencyTracker latencyTracker,
+                           AggregatorMetrics metrics) {
         this.aggregatorService = aggregatorService;
+        this.deduplicator = deduplicator;
+        this.gridAggregator = gridAggregator;
+        this.rollupStore = rollupStore;
+        this.latencyTracker = latencyTracker;
+        this.metrics = metrics;
     }
 
     @RabbitListener(queues = RabbitConfig.AGG_QUEUE)
     public void onReading(
             ReadingMessage reading,
-            @Header(AmqpHeaders.RECEIVED_ROUTING_KEY) String routingKey
+            @Header(AmqpHeaders.RECEIVED_ROUTING_KEY) String routingKey,
+            @Header(name = TraceHeaders.SENSOR_TS, required = false) Long sensorTs,
+            @Header(name = TraceHeaders.FETCHED_AT, required = false) Long fetchedAt,
+            @Header(name = TraceHeaders.PUBLISHED_AT, required = false) Long publishedAt
     ) {
+        long startNanos = System.nanoTime();
+        long receivedAt = System.currentTimeMillis();
+        latencyTracker.record("queue_dwell", publishedAt, receivedAt);
+        latencyTracker.record("sensor_to_aggregator", sensorTs, receivedAt);
+
         // expected routing key: reading.<area>.<metric>
         if (routingKey == null) {
             log.warn("Received message without routing key, ignoring");
@@ -57,14 +106,118 @@ public class ReadingListener {
             reading.setMetric(metric);
         }
 
-        log.info(
-                "Received reading: area={}, metric={}, value={}",
-                reading.getArea(),
-                reading.getMetric(),
-                reading.getValue()
-        );
+        if (!aggregatorService.acceptsMetric(reading.getMetric())) {
+            metrics.readingRejected("metric");
+            log.debug("Dropping reading of untracked metric: {}", reading.getMetric());
+            return;
+        }
+        if (!Double.isFinite(reading.getValue())) {
+            metrics.readingRejected("invalid_value");
+            log.warn("Dropping reading with invalid value: area={}, metric={}, sensorId={}, value={}",
+                    reading.getArea(), reading.getMetric(), reading.getSensorId(), reading.getValue());
+            return;
+        }
+        // Claimed here, only marked as seen once everything below succeeded, so a retried reading is not lost
+        // as a duplicate; a copy consumed at the same time by another consumer finds the claim
+        if (!deduplicator.claimReading(reading.getSensorId(), reading.getMetric(), reading.getTimestamp())) {
+            metrics.readingRejected("duplicate");
+            log.debug("Dropping duplicate reading: sensorId={} metric={} timestamp={}",
+                    reading.getSensorId(), reading.getMetric(), reading.getTimestamp());
+            return;
+        }
+
+        if (receiveLogSampler.sample()) {
+            log.info("Received reading (sampled 1/100): area={}, metric={}, value={}",
+                    reading.getArea(), reading.getMetric(), reading.getValue());
+        } else {
+            log.debug("Received reading: area={}, metric={}, value={}",
+                    reading.getArea(), reading.getMetric(), reading.getValue());
+        }
+
+        try {
+            // Pass to aggregator logic
+            TraceContext trace = new TraceContext(sensorTs, fetchedAt, publishedAt, receivedAt);
+            aggregatorService.process(reading.getArea(), reading.getMetric(), reading, trace);
+            // Same reading on the heatmap grid (by position, works outside Skopje too)
+            gridAggregator.record(reading);
+            rollupStore.record(reading.getArea(), reading.getMetric(), reading.getTimestamp(), reading.getValue());
+        } catch (RuntimeException e) {
+            deduplicator.releaseReading(reading.getSensorId(), reading.getMetric(), reading.getTimestamp());
+            throw e;
+        }
+        deduplicator.markReading(reading.getSensorId(), reading.getMetric(), reading.getTimestamp());
+
+        metrics.listenerTimer().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @RabbitListener(queues = RabbitConfig.SUMMARY_QUEUE)
+    public void onSummary(
+            SummaryMessage summary,
+            @Header(AmqpHeaders.RECEIVED_ROUTING_KEY) String routingKey,
+            @Header(name = TraceHeaders.SENSOR_TS, required = false) Long sensorTs,
+            @Header(name = TraceHeaders.FETCHED_AT, required = false) Long fetchedAt,
+            @Header(name = TraceHeaders.PUBLISHED_AT, required = false) Long publishedAt
+    ) {
+        long startNanos = System.nanoTime();
+        long receivedAt = System.currentTimeMillis();
+        latencyTracker.record("queue_dwell", publishedAt, receivedAt);
+        latencyTracker.record("sensor_to_aggregator", sensorTs, receivedAt);
+
+        // expected routing key: summary.<area>.<metric>
+        String[] parts = routingKey == null ? new String[0] : routingKey.split("\\.");
+        if (parts.length < 3 || !"summary".equals(parts[0])) {
+            log.warn("Ignoring summary with unexpected routing key: {}", routingKey);
+            return;
+        }
+        if (summary.getCount() <= 0) {
+            log.warn("Ignoring empty summary: routingKey={}", routingKey);
+            return;
+        }
+
+        if (summary.getArea() == null || summary.getArea().isBlank()) {
+            summary.setArea(parts[1]);
+        }
+        if (summary.getMetric() == null || summary.getMetric().isBlank()) {
+            summary.setMetric(parts[2]);
+        }
+
+        if (!aggregatorService.acceptsMetric(summary.getMetric())) {
+            metrics.readingRejected("metric");
+            log.debug("Dropping summary of untracked metric: {}", summary.getMetric());
+            return;
+        }
+        if (!Double.isFinite(summary.getSum())) {
+            metrics.readingRejected("invalid_value");
+            log.warn("Dropping summary with invalid sum: area={}, metric={}, count={}, sum={}",
+                    summary.getArea(), summary.getMetric(), summary.getCount(), summary.getSum());
+            return;
+        }
+        if (!deduplicator.claimSummary(summary)) {
+            metrics.readingRejected("duplicate");
+            log.debug("Dropping duplicate summary: area={} metric={} timestamp={}",
+                    summary.getArea(), summary.getMetric(), summary.getTimestamp());
+            return;
+        }
+
+        if (receiveLogSampler.sample()) {
+            log.info("Received summary (sampled 1/100): area={}, metric={}, count={}, mean={}",
+                    summary.getArea(), summary.getMetric(), summary.getCount(), summary.getSum() / summary.getCount());
+        } else {
+            log.debug("Received summary: area={}, metric={}, count={}, min={}, max={}",
+                    summary.getArea(), summary.getMetric(), summary.getCount(), summary.getMin(), summary.getMax());
+        }
+
+        try {
+            TraceContext trace = new TraceContext(sensorTs, fetchedAt, publishedAt, receivedAt);
+            aggregatorService.processSummary(summary.getArea(), summary.getMetric(), summary, trace);
+            rollupStore.recordSummary(summary.getArea(), summary.getMetric(), summary.getTimestamp(),
+                    summary.getCount(), summary.getSum(), summary.getMin(), summary.getMax());
+        } catch (RuntimeException e) {
+            deduplicator.releaseSummary(summary);
+            throw e;
+        }
+        deduplicator.markSummary(summary);
 
-        // Pass to aggregator logic
-        aggregatorService.process(reading.getArea(), reading.getMetric(), reading);
+        metrics.listenerTimer().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package mk.ukim.finki.aggregatorservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters for the aggregator hot path (see /actuator/metrics).
+ *
+ * METERS:
+ * - aggregator.listener.duration   time spent in ReadingListener per message
+ * - aggregator.alerts.emitted      level transitions published to alerts.topic
+ * - aggregator.alerts.suppressed   readings whose level did not change
+ * - aggregator.series.evicted      series dropped from memory, tagged reason=idle|lru
+ * - aggregator.readings.rejected   readings dropped before aggregation, tagged reason
+ * - aggregator.ticks.published     per-area aggregate ticks sent on tick.<area>
+ * - aggregator.readings.late       readings applied out of event-time order (within allowed lateness)
+ * - aggregator.shard.task.failed   shard tasks that threw (reading not applied / alert not sent), tagged exception
+ *
+ * Gauges over the window state (aggregator.series.active, aggregator.window.*)
+ * are registered by AggregatorService, which owns that state.
+ */
+@Component
+public class AggregatorMetrics {
+
+    private final MeterRegistry registry;
+    private final Timer listenerTimer;
+    private final Counter alertsEmitted;
+    private final Counter alertsSuppressed;
+    private final Counter readingsLate;
+    private final Counter ticksPublished;
+
+    public AggregatorMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.listenerTimer = Timer.builder("aggregator.listener.duration")
+                .description("Time spent processing one reading")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.alertsEmitted = Counter.builder("aggregator.alerts.emitted")
+                .description("Alerts published on a level change")
+                .register(registry);
+        this.alertsSuppressed = Counter.builder("aggregator.alerts.suppressed")
+                .description("Readings that did not change the level")
+                .register(registry);
+        this.readingsLate = Counter.builder("aggregator.readings.late")
+                .description("Readings applied behind the watermark, within allowed lateness")
+                .register(registry);
+        this.ticksPublished = Counter.builder("aggregator.ticks.published")
+                .description("Per-area aggregate ticks published")
+                .register(registry);
+    }
+
+    public MeterRegistry getRegistry() { return registry; }
+
+    public Timer listenerTimer() { return listenerTimer; }
+
+    public void alertEmitted() { alertsEmitted.increment(); }
+
+    public void alertSuppressed() { alertsSuppressed.increment(); }
+
+    public void readingLate() { readingsLate.increment(); }
+
+    public void tickPublished() { ticksPublished.increment(); }
+
+    public void seriesEvicted(String reason) {
+        registry.counter("aggregator.series.evicted", "reason", reason).increment();
+    }
+
+    public void readingRejected(String reason) {
+        registry.counter("aggregator.readings.rejected", "reason", reason).increment();
+    }
+
+    public void shardTaskFailed(Throwable error) {
+        registry.counter("aggregator.shard.task.failed", "exception", error.getClass().getSimpleName()).increment();
+    }
+}
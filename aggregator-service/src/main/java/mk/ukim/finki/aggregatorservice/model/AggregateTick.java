@@ -0,0 +1,37 @@
+package mk.ukim.finki.aggregatorservice.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Periodic snapshot of one area: the current window avg/min/max of every
+ * metric tracked there. Published on tick.<area> (see TickPublisher).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class AggregateTick {
+
+    private String area;
+    private Instant timestamp;
+
+    // metric -> current window values
+    private Map<String, MetricAggregate> metrics;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class MetricAggregate {
+        private double avg;
+        private double min;
+        private double max;
+        // Readings in the window
+        private long count;
+        // Event time of the newest reading applied
+        private Instant asOf;
+    }
+}
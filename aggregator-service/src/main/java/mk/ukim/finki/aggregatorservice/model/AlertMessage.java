@@ -19,4 +19,9 @@ public class AlertMessage {
     private double threshold; 
     private Instant timestamp;
     private String reason;
+
+    // Percentiles over the series' sketch window (aggregator.series.sketch-window-ms)
+    private double p50;
+    private double p90;
+    private double p99;
 }
@@ -0,0 +1,57 @@
+package mk.ukim.finki.aggregatorservice.model;
+
+import java.time.Instant;
+
+/**
+ * One geohash cell of a heatmap response (see GridController).
+ *
+ * Values are over the latest reading of each sensor in the cell;
+ * sensors whose latest reading is older than aggregator.grid.max-age-ms are left out.
+ */
+public class GridCell {
+    private final String cell;
+    private final double minLat;
+    private final double minLon;
+    private final double maxLat;
+    private final double maxLon;
+    private final int sensors;
+    private final double mean;
+    private final double min;
+    private final double max;
+    private final Instant updatedAt;
+
+    public GridCell(String cell, double[] bounds, int sensors, double mean, double min, double max, Instant updatedAt) {
+        this.cell = cell;
+        this.minLat = bounds[0];
+        this.minLon = bounds[1];
+        this.maxLat = bounds[2];
+        this.maxLon = bounds[3];
+        this.sensors = sensors;
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getCell() { return cell; }
+
+    public int getPrecision() { return cell.length(); }
+
+    public double getMinLat() { return minLat; }
+
+    public double getMinLon() { return minLon; }
+
+    public double getMaxLat() { return maxLat; }
+
+    public double getMaxLon() { return maxLon; }
+
+    public int getSensors() { return sensors; }
+
+    public double getMean() { return mean; }
+
+    public double getMin() { return min; }
+
+    public double getMax() { return max; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+}
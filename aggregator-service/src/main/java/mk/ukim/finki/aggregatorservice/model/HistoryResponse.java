@@ -0,0 +1,43 @@
+package mk.ukim.finki.aggregatorservice.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Result of /api/history: rollup rows of one series at one resolution,
+ * plus the whole range merged into one row (null when there is no data).
+ */
+public class HistoryResponse {
+    private final String area;
+    private final String metric;
+    private final String resolution;
+    private final Instant from;
+    private final Instant to;
+    private final List<RollupRow> rows;
+    private final RollupRow total;
+
+    public HistoryResponse(String area, String metric, String resolution, Instant from, Instant to,
+                           List<RollupRow> rows, RollupRow total) {
+        this.area = area;
+        this.metric = metric;
+        this.resolution = resolution;
+        this.from = from;
+        this.to = to;
+        this.rows = rows;
+        this.total = total;
+    }
+
+    public String getArea() { return area; }
+
+    public String getMetric() { return metric; }
+
+    public String getResolution() { return resolution; }
+
+    public Instant getFrom() { return from; }
+
+    public Instant getTo() { return to; }
+
+    public List<RollupRow> getRows() { return rows; }
+
+    public RollupRow getTotal() { return total; }
+}
@@ -0,0 +1,48 @@
+package mk.ukim.finki.aggregatorservice.model;
+
+import java.time.Instant;
+
+/**
+ * One rollup bucket of a history query (see HistoryController).
+ * Percentiles are estimates (1% relative error); count/sum/min/max are exact.
+ */
+public class RollupRow {
+    private final Instant start;
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+
+    public RollupRow(Instant start, long count, double sum, double min, double max,
+                     double p50, double p90, double p99) {
+        this.start = start;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+    }
+
+    public Instant getStart() { return start; }
+
+    public long getCount() { return count; }
+
+    public double getSum() { return sum; }
+
+    public double getMean() { return count == 0 ? Double.NaN : sum / count; }
+
+    public double getMin() { return min; }
+
+    public double getMax() { return max; }
+
+    public double getP50() { return p50; }
+
+    public double getP90() { return p90; }
+
+    public double getP99() { return p99; }
+}
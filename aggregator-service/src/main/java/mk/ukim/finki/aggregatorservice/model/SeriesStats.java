@@ -0,0 +1,50 @@
+package mk.ukim.finki.aggregatorservice.model;
+
+/**
+ * Current state of one (area, metric) series, returned by /api/series.
+ *
+ * mean is over the last window readings (what alerts used to be based on);
+ * the percentiles are over the sketch window and are estimates (1% relative error).
+ */
+public class SeriesStats {
+    private final String area;
+    private final String metric;
+    private final double mean;
+    private final long sketchCount;
+    private final long sketchWindowMs;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final String level;
+
+    public SeriesStats(String area, String metric, double mean, long sketchCount, long sketchWindowMs,
+                       double p50, double p90, double p99, String level) {
+        this.area = area;
+        this.metric = metric;
+        this.mean = mean;
+        this.sketchCount = sketchCount;
+        this.sketchWindowMs = sketchWindowMs;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.level = level;
+    }
+
+    public String getArea() { return area; }
+
+    public String getMetric() { return metric; }
+
+    public double getMean() { return mean; }
+
+    public long getSketchCount() { return sketchCount; }
+
+    public long getSketchWindowMs() { return sketchWindowMs; }
+
+    public double getP50() { return p50; }
+
+    public double getP90() { return p90; }
+
+    public double getP99() { return p99; }
+
+    public String getLevel() { return level; }
+}
@@ -0,0 +1,30 @@
+package mk.ukim.finki.aggregatorservice.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Incoming per-poll summary of one (area, metric) series.
+ *
+ * Compatible with producer-service AreaSummary JSON, published on
+ * summary.{area}.{metric} when the producer runs with producer.polling.pre-aggregate=true.
+ * sum / count is the mean of the readings it stands for.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class SummaryMessage {
+
+    private String city;
+    private String area;
+    private String metric;
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+    private double last;
+    private Instant timestamp;
+}
@@ -1,87 +1,446 @@
 package mk.ukim.finki.aggregatorservice.service;
 
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import mk.ukim.finki.aggregatorservice.config.RabbitConfig;
+import mk.ukim.finki.aggregatorservice.config.SeriesProperties;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.AggregateTick;
 import mk.ukim.finki.aggregatorservice.model.AlertMessage;
 import mk.ukim.finki.aggregatorservice.model.ReadingMessage;
+import mk.ukim.finki.aggregatorservice.model.SeriesStats;
+import mk.ukim.finki.aggregatorservice.model.SummaryMessage;
+import mk.ukim.finki.aggregatorservice.sketch.QuantileSketch;
+import mk.ukim.finki.aggregatorservice.sketch.WindowedSketch;
+import mk.ukim.finki.aggregatorservice.tracing.TraceContext;
+import mk.ukim.finki.common.logging.LogSampler;
+import mk.ukim.finki.common.tracing.LatencyTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Business logic: aggregates readings and publishes alerts.
  *
+ * Input is either single readings or per-poll summaries (count + sum) from a
+ * pre-aggregating producer; both go into the same window, a summary as one
+ * entry weighted by its count, so the average is over readings either way.
+ *
+ * Each series also keeps a WindowedSketch (fixed memory) for p50/p90/p99 over
+ * aggregator.series.sketch-window-ms. They go into every alert, and with
+ * aggregator.series.alert-statistic=p90 (etc.) the level is decided on that
+ * percentile instead of the mean, so short spikes are not averaged away.
+ *
+ * Series live in a bounded SeriesStore (LRU cap + idle eviction), and only
+ * metrics on aggregator.series.allowed-metrics are tracked at all, so heap use
+ * stays bounded whatever routing keys upstream produces.
+ *
+ * Readings are applied in event-time order (their own timestamp, not arrival):
+ * each series has a small ReorderBuffer that holds a reading until every sensor
+ * of the series that is reporting has got past it, for at most
+ * aggregator.series.reorder-delay-ms. A lone sensor, or sensors in step, are not
+ * held at all. Readings behind what was already applied (e.g. from a sensor
+ * whose clock runs behind the others) are applied straight away and counted as
+ * late; only one more than allowed-lateness-ms behind its own sensor's newest
+ * reading is dropped. The sketch slots and the alert timestamp follow event time too.
+ *
+ * Series are hashed by (area|metric) into aggregator.series.shards single-writer
+ * AggregatorShards. Each shard thread owns its SeriesStore outright (no locks);
+ * process() only hands the reading to its shard's mailbox, so listener
+ * concurrency can go up and throughput scales with cores while every series
+ * is still updated by one thread, in dispatch order. Errors while applying a
+ * reading (e.g. the alert publish) no longer reach the listener's retry: each
+ * one is logged on the shard and counted in aggregator.shard.task.failed, and
+ * a level change whose alert could not be published is tried again on the
+ * series' next reading.
+ *
  * Listener is in ReadingListener.java.
  */
 @Service
 public class AggregatorService {
 
-    private final RabbitTemplate rabbitTemplate;
+    private static final Logger log = LoggerFactory.getLogger(AggregatorService.class);
+
+    // Rough heap cost used for the aggregator.window.bytes gauge:
+    // map entry + key string + SeriesState + ArrayDeque(16) per series, Sample object + slot per value
+    private static final long BYTES_PER_SERIES = 250;
+    private static final long BYTES_PER_VALUE = 36;
 
-    // Window per (area|metric), last N values
-    private final Map<String, Deque<Double>> windows = new HashMap<>();
     private static final int WINDOW_SIZE = 10;
 
-    public AggregatorService(RabbitTemplate rabbitTemplate) {
+    // Reorder source of producer summaries (one per area and metric, no sensor)
+    private static final String SUMMARY_SOURCE = "summary";
+
+    // How long stats()/currentAggregates() wait on a shard before giving up
+    private static final long SHARD_CALL_TIMEOUT_MS = 5_000;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final LatencyTracker latencyTracker;
+    private final AggregatorMetrics metrics;
+    private final SeriesProperties props;
+
+    // Quantile the level is decided on, or NaN for the window mean
+    private final double alertQuantile;
+
+    // Lowercase allow-list, empty = every metric
+    private final Set<String> allowedMetrics;
+
+    private final LogSampler noChangeLogSampler = new LogSampler(100);
+
+    // Window, sketch and last level per (area|metric), partitioned by key hash
+    private final AggregatorShard[] shards;
+
+    // Total values across all windows (read by the window gauges)
+    private final AtomicLong windowValues = new AtomicLong();
+
+    // Readings held across all reorder buffers
+    private final AtomicLong reorderHeld = new AtomicLong();
+
+    public AggregatorService(RabbitTemplate rabbitTemplate, LatencyTracker latencyTracker, AggregatorMetrics metrics,
+                             SeriesProperties props) {
         this.rabbitTemplate = rabbitTemplate;
+        this.latencyTracker = latencyTracker;
+        this.metrics = metrics;
+        this.props = props;
+        this.alertQuantile = alertQuantile(props.getAlertStatistic());
+        this.allowedMetrics = props.getAllowedMetrics().stream()
+                .map(m -> m.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        int shardCount = props.getShards() > 0 ? props.getShards() : Runtime.getRuntime().availableProcessors();
+        int maxSeriesPerShard = Math.max(1, (props.getMaxSeries() + shardCount - 1) / shardCount);
+        this.shards = new AggregatorShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            SeriesStore store = new SeriesStore(maxSeriesPerShard, props.getIdleEvictMs(),
+                    () -> new SeriesState(
+                            new WindowedSketch(props.getSketchWindowMs(), props.getSketchSlots(), props.getSketchMaxBins()),
+                            new ReorderBuffer<>(props.getReorderDelayMs(), props.getAllowedLatenessMs(), props.getReorderBufferSize())),
+                    (state, reason) -> {
+                        windowValues.addAndGet(-state.window.size());
+                        reorderHeld.addAndGet(-state.reorder.size());
+                        metrics.seriesEvicted(reason);
+                    });
+            shards[i] = new AggregatorShard(i, props.getShardMailboxCapacity(), store, SHARD_CALL_TIMEOUT_MS,
+                    metrics::shardTaskFailed);
+        }
+
+        Gauge.builder("aggregator.series.active", this, s -> s.seriesCount())
+                .description("Number of (area, metric) series held in memory")
+                .register(metrics.getRegistry());
+        Gauge.builder("aggregator.window.values", windowValues, AtomicLong::get)
+                .description("Readings buffered across all windows")
+                .register(metrics.getRegistry());
+        Gauge.builder("aggregator.window.bytes", this,
+                        s -> s.seriesCount() * BYTES_PER_SERIES + s.windowValues.get() * BYTES_PER_VALUE)
+                .description("Estimated heap held by the windows")
+                .baseUnit("bytes")
+                .register(metrics.getRegistry());
+        Gauge.builder("aggregator.reorder.held", reorderHeld, AtomicLong::get)
+                .description("Readings waiting in reorder buffers for the watermark")
+                .register(metrics.getRegistry());
+        Gauge.builder("aggregator.shard.queued", this, s -> s.queued())
+                .description("Readings handed to shards and not yet applied")
+                .register(metrics.getRegistry());
+    }
+
+    @PostConstruct
+    public void start() {
+        for (AggregatorShard shard : shards) {
+            shard.start();
+        }
+    }
+
+    /** Applies what the shards already have queued, then stops them. */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (AggregatorShard shard : shards) {
+            shard.stop(5_000);
+        }
+    }
+
+    /**
+     * Whether readings of this metric are tracked (aggregator.series.allowed-metrics).
+     * ReadingListener drops everything else before it reaches any store.
+     */
+    public boolean acceptsMetric(String metric) {
+        return allowedMetrics.isEmpty()
+                || (metric != null && allowedMetrics.contains(metric.toLowerCase(Locale.ROOT)));
+    }
+
+    public void process(String area, String metric, ReadingMessage reading) {
+        process(area, metric, reading, TraceContext.none());
     }
 
-// add this field at the top of the class (under windows map)
-private final Map<String, String> lastLevelByKey = new HashMap<>();
+    /**
+     * Same as above, but carries the reading's trace stamps onto any alert it triggers.
+     *
+     * Returns once the reading is in its shard's mailbox; it is applied on the
+     * shard thread. Waits while that mailbox is full.
+     */
+    public void process(String area, String metric, ReadingMessage reading, TraceContext trace) {
+        dispatch(area, metric, reading.getSensorId(), reading.getTimestamp(),
+                new SeriesState.Sample(reading.getValue(), 1, reading.getValue(), reading.getValue()),
+                reading.getValue(), trace);
+    }
 
-public void process(String area, String metric, ReadingMessage reading) {
-    if (area == null || area.isBlank()) area = "unknown";
-    if (metric == null || metric.isBlank()) metric = "unknown";
+    /**
+     * Per-poll summary of one (area, metric) from a pre-aggregating producer.
+     * Counts as summary.count readings with mean sum / count.
+     */
+    public void processSummary(String area, String metric, SummaryMessage summary, TraceContext trace) {
+        dispatch(area, metric, SUMMARY_SOURCE, summary.getTimestamp(),
+                new SeriesState.Sample(summary.getSum(), summary.getCount(), summary.getMin(), summary.getMax()),
+                summary.getSum() / summary.getCount(), trace);
+    }
 
-    String key = area + "|" + metric;
+    /**
+     * Applies held readings of series that have gone quiet (no newer reading
+     * to move their watermark) once they have waited reorder-delay-ms.
+     */
+    @Scheduled(fixedDelayString = "${aggregator.series.reorder-flush-ms:1000}")
+    public void releaseHeldReadings() {
+        Consumer<SeriesStore> releaseAll = store -> {
+            long nowMs = System.currentTimeMillis();
+            store.forEach((key, state) -> {
+                if (!state.reorder.isEmpty()) {
+                    int bar = key.indexOf('|');
+                    release(key.substring(0, bar), key.substring(bar + 1), state, nowMs);
+                }
+            });
+        };
+        for (AggregatorShard shard : shards) {
+            shard.execute(releaseAll);
+        }
+    }
 
-    Deque<Double> window = windows.computeIfAbsent(key, k -> new ArrayDeque<>());
-    window.addLast(reading.getValue());
-    while (window.size() > WINDOW_SIZE) window.removeFirst();
+    /**
+     * Current window mean and percentiles of one series (for /api/series).
+     *
+     * @return null if the series has had no readings (or was evicted)
+     */
+    public SeriesStats stats(String area, String metric) {
+        String key = area + "|" + metric;
+        return shardFor(key).call(store -> {
+            SeriesState state = store.get(key);
+            if (state == null) {
+                return null;
+            }
+            QuantileSketch q = state.sketch.snapshot(state.eventTimeMs);
+            return new SeriesStats(area, metric, state.mean(), q.count(), props.getSketchWindowMs(),
+                    q.quantile(0.5), q.quantile(0.9), q.quantile(0.99), state.lastLevel);
+        });
+    }
 
-    double avg = window.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+    /**
+     * Current window avg/min/max of every series, grouped by area (for TickPublisher).
+     * Series whose readings are all still in the reorder buffer are left out, and
+     * so are series with no reading for more than maxIdleMs (their window is
+     * stale, but idle eviction keeps them much longer).
+     */
+    public Map<String, AggregateTick> currentAggregates(long nowMs, long maxIdleMs) {
+        Instant now = Instant.ofEpochMilli(nowMs);
+        long idleCutoff = nowMs - maxIdleMs;
+        Map<String, AggregateTick> byArea = new HashMap<>();
+        for (AggregatorShard shard : shards) {
+            List<Map.Entry<String, AggregateTick.MetricAggregate>> rows = shard.call(store -> {
+                List<Map.Entry<String, AggregateTick.MetricAggregate>> out = new ArrayList<>();
+                store.forEach((key, state) -> {
+                    if (!state.window.isEmpty() && state.lastSeenMs >= idleCutoff) {
+                        AggregateTick.MetricAggregate m = new AggregateTick.MetricAggregate();
+                        m.setAvg(state.mean());
+                        m.setMin(state.min());
+                        m.setMax(state.max());
+                        m.setCount(state.readings());
+                        m.setAsOf(Instant.ofEpochMilli(state.eventTimeMs));
+                        out.add(Map.entry(key, m));
+                    }
+                });
+                return out;
+            });
+            for (Map.Entry<String, AggregateTick.MetricAggregate> row : rows) {
+                int bar = row.getKey().indexOf('|');
+                AggregateTick tick = byArea.computeIfAbsent(row.getKey().substring(0, bar), area -> {
+                    AggregateTick t = new AggregateTick();
+                    t.setArea(area);
+                    t.setTimestamp(now);
+                    t.setMetrics(new HashMap<>());
+                    return t;
+                });
+                tick.getMetrics().put(row.getKey().substring(bar + 1), row.getValue());
+            }
+        }
+        return byArea;
+    }
 
-    // ✅ Your requirement: pm10 limit => red else green
-    // You can later extend to pm25/uv/etc.
-    String level;
-    double threshold;
+    private int seriesCount() {
+        int count = 0;
+        for (AggregatorShard shard : shards) {
+            count += shard.seriesCount();
+        }
+        return count;
+    }
 
-    if ("pm10".equalsIgnoreCase(metric)) {
-        threshold = 50.0;
-        level = (avg > threshold) ? "RED" : "GREEN";
-    } else {
-        // default behavior for other metrics (keep it simple)
-        threshold = 0.0;
-        level = "GREEN";
+    private int queued() {
+        int count = 0;
+        for (AggregatorShard shard : shards) {
+            count += shard.queued();
+        }
+        return count;
     }
 
-    String last = lastLevelByKey.get(key);
+    private AggregatorShard shardFor(String key) {
+        // Spread the String hash so similar keys don't pile up in one shard
+        int h = key.hashCode();
+        return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+    }
 
-    // ✅ publish only when state changes (including back to GREEN)
-    if (last == null || !last.equals(level)) {
-        lastLevelByKey.put(key, level);
+    // Runs on the caller's thread: everything needed from the message is copied out here. eventTime null = arrival time
+    private void dispatch(String rawArea, String rawMetric, String rawSource, Instant eventTime, SeriesState.Sample sample,
+                          double sketchValue, TraceContext trace) {
+        String area = rawArea == null || rawArea.isBlank() ? "unknown" : rawArea;
+        String metric = rawMetric == null || rawMetric.isBlank() ? "unknown" : rawMetric;
+        String source = rawSource == null ? "unknown" : rawSource;
+        String key = area + "|" + metric;
+        Long eventMs = eventTime == null ? null : eventTime.toEpochMilli();
+        shardFor(key).execute(store -> ingest(store, key, area, metric, source, eventMs, sample, sketchValue, trace));
+    }
 
-        AlertMessage alert = new AlertMessage();
-        alert.setArea(area);
-        alert.setMetric(metric);
-        alert.setLevel(level);
-        alert.setValue(avg);
-        alert.setThreshold(threshold);
-        alert.setTimestamp(Instant.now());
-        alert.setReason("Avg " + metric + " over last " + window.size() + " readings = " + avg);
+    // Shard thread
+    private void ingest(SeriesStore store, String key, String area, String metric, String source, Long eventMs,
+                        SeriesState.Sample sample, double sketchValue, TraceContext trace) {
+        long nowMs = System.currentTimeMillis();
+        // A sensor clock ahead of ours must not drag the watermark into the future
+        long eventTs = eventMs == null ? nowMs : Math.min(eventMs, nowMs);
+        SeriesState state = store.touch(key, nowMs);
+        SeriesState.Pending reading = new SeriesState.Pending(eventTs, sample, sketchValue, trace);
 
-        String routingKey = "alert." + area + "." + level;
+        switch (state.reorder.offer(source, eventTs, nowMs, reading, p -> applyHeld(area, metric, state, p))) {
+            case BUFFERED -> reorderHeld.incrementAndGet();
+            case LATE -> {
+                metrics.readingLate();
+                apply(area, metric, state, reading);
+            }
+            case DROPPED -> {
+                metrics.readingRejected("too_late");
+                log.debug("Dropping reading past allowed lateness: area={} metric={} source={} eventTs={}",
+                        area, metric, source, eventTs);
+            }
+        }
+        release(area, metric, state, nowMs);
+    }
 
-        rabbitTemplate.convertAndSend(RabbitConfig.ALERTS_EXCHANGE, routingKey, alert);
+    // Shard thread
+    private void release(String area, String metric, SeriesState state, long nowMs) {
+        state.reorder.release(nowMs, p -> applyHeld(area, metric, state, p));
+    }
 
-        System.out.println("[AGGREGATOR] Sent alert: routingKey=" + routingKey + " level=" + level + " avg=" + avg);
-    } else {
-        System.out.println("[AGGREGATOR] No change: area=" + area + " metric=" + metric + " level=" + level + " avg=" + avg);
+    private void applyHeld(String area, String metric, SeriesState state, SeriesState.Pending reading) {
+        reorderHeld.decrementAndGet();
+        apply(area, metric, state, reading);
     }
-}
 
+    // Shard thread
+    private void apply(String area, String metric, SeriesState state, SeriesState.Pending reading) {
+        SeriesState.Sample sample = reading.sample();
+        TraceContext trace = reading.trace();
+        state.eventTimeMs = Math.max(state.eventTimeMs, reading.eventTs());
+        long eventTimeMs = state.eventTimeMs;
+
+        state.window.addLast(sample);
+        windowValues.incrementAndGet();
+        while (state.window.size() > WINDOW_SIZE) {
+            state.window.removeFirst();
+            windowValues.decrementAndGet();
+        }
+        state.sketch.add(reading.sketchValue(), sample.count(), reading.eventTs());
+
+        double avg = state.mean();
+
+        // Snapshot only when a percentile is needed (percentile rule, or an alert goes out)
+        QuantileSketch percentiles = Double.isNaN(alertQuantile) ? null : state.sketch.snapshot(eventTimeMs);
+        double observed = percentiles == null ? avg : percentiles.quantile(alertQuantile);
+
+        // ✅ Your requirement: pm10 limit => red else green
+        // You can later extend to pm25/uv/etc.
+        String level;
+        double threshold;
+
+        if ("pm10".equalsIgnoreCase(metric)) {
+            threshold = 50.0;
+            level = (observed > threshold) ? "RED" : "GREEN";
+        } else {
+            // default behavior for other metrics (keep it simple)
+            threshold = 0.0;
+            level = "GREEN";
+        }
+
+        String last = state.lastLevel;
+
+        // ✅ publish only when state changes (including back to GREEN)
+        if (last == null || !last.equals(level)) {
+            AlertMessage alert = new AlertMessage();
+            alert.setArea(area);
+            alert.setMetric(metric);
+            alert.setLevel(level);
+            if (percentiles == null) {
+                percentiles = state.sketch.snapshot(eventTimeMs);
+            }
+            alert.setValue(avg);
+            alert.setThreshold(threshold);
+            // Event time of the newest data behind this level, not when we got to it
+            alert.setTimestamp(Instant.ofEpochMilli(eventTimeMs));
+            alert.setP50(percentiles.quantile(0.5));
+            alert.setP90(percentiles.quantile(0.9));
+            alert.setP99(percentiles.quantile(0.99));
+            alert.setReason(Double.isNaN(alertQuantile)
+                    ? "Avg " + metric + " over last " + state.readings() + " readings = " + avg
+                    : props.getAlertStatistic() + " " + metric + " over last "
+                            + props.getSketchWindowMs() / 60_000 + " min = " + observed);
+
+            String routingKey = "alert." + area + "." + level;
+
+            long emittedAt = System.currentTimeMillis();
+            rabbitTemplate.convertAndSend(RabbitConfig.ALERTS_EXCHANGE, routingKey, alert, message -> {
+                trace.writeTo(message.getMessageProperties(), emittedAt);
+                return message;
+            });
+            // Only once it is out: if the publish threw, the next reading tries this level change again
+            state.lastLevel = level;
+            latencyTracker.record("aggregator_processing", trace.getReceivedAt(), emittedAt);
+            metrics.alertEmitted();
+
+            log.info("Sent alert: routingKey={} level={} avg={}", routingKey, level, avg);
+        } else {
+            metrics.alertSuppressed();
+            if (noChangeLogSampler.sample()) {
+                log.info("No change (sampled 1/100): area={} metric={} level={} avg={}", area, metric, level, avg);
+            } else {
+                log.debug("No change: area={} metric={} level={} avg={}", area, metric, level, avg);
+            }
+        }
+    }
+
+    // "mean" -> NaN, "p90" -> 0.9
+    private static double alertQuantile(String statistic) {
+        if (statistic == null || statistic.equalsIgnoreCase("mean")) {
+            return Double.NaN;
+        }
+        if (statistic.matches("(?i)p\\d{1,2}")) {
+            return Integer.parseInt(statistic.substring(1)) / 100.0;
+        }
+        throw new IllegalArgumentException("aggregator.series.alert-statistic must be mean or pNN: " + statistic);
+    }
 }
@@ -0,0 +1,172 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * One single-writer partition of the aggregator's series.
+ *
+ * Owns a SeriesStore that only its own thread ("aggregator-shard-N") ever
+ * touches, so the store needs no locks. Other threads hand it work through a
+ * bounded mailbox: tasks run one at a time in the order they were put in,
+ * which keeps per-series order for readings dispatched from one thread.
+ * A full mailbox blocks the caller (back-pressure onto the AMQP listener)
+ * rather than growing.
+ *
+ * A task that throws is handed to onFailure (counted by AggregatorService) and
+ * logged at ERROR every time; the stack trace is only repeated when the
+ * exception type changes. After stop() no task is accepted, and every task
+ * that made it into the mailbox still runs before the thread exits.
+ */
+final class AggregatorShard {
+
+    private static final Logger log = LoggerFactory.getLogger(AggregatorShard.class);
+
+    private static final int BATCH = 256;
+
+    private final SeriesStore store;
+    private final BlockingQueue<Consumer<SeriesStore>> mailbox;
+    private final Thread thread;
+    private final Consumer<RuntimeException> onFailure;
+    private final long callTimeoutMs;
+
+    private volatile boolean running = true;
+
+    // Shard thread only: type of the last failure, whose stack trace was already logged
+    private Class<?> lastFailureType;
+
+    // Published after every batch, for the gauges
+    private volatile int seriesCount;
+
+    AggregatorShard(int index, int mailboxCapacity, SeriesStore store, long callTimeoutMs,
+                    Consumer<RuntimeException> onFailure) {
+        this.store = store;
+        this.callTimeoutMs = callTimeoutMs;
+        this.onFailure = onFailure;
+        this.mailbox = new ArrayBlockingQueue<>(mailboxCapacity);
+        this.thread = new Thread(this::run, "aggregator-shard-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues a task for the shard thread, waiting while the mailbox is full.
+     *
+     * @throws IllegalStateException if the shard is stopped (the task will not run)
+     */
+    void execute(Consumer<SeriesStore> task) {
+        if (!running) {
+            throw new IllegalStateException(thread.getName() + " is stopped");
+        }
+        try {
+            mailbox.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing work to " + thread.getName(), e);
+        }
+        // stop() may have come in between the check and the put, and the thread
+        // may already have made its last pass over the mailbox. If the task is
+        // still there, take it back; if not, the thread has it and runs it.
+        if (!running && mailbox.remove(task)) {
+            throw new IllegalStateException(thread.getName() + " is stopped");
+        }
+    }
+
+    /**
+     * Runs a read on the shard thread and waits for its result.
+     *
+     * @throws IllegalStateException if the shard is stopped or the read does not
+     *         finish within the call timeout (e.g. the mailbox is backed up)
+     */
+    <T> T call(Function<SeriesStore, T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(s -> {
+            try {
+                result.complete(query.apply(s));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                throw e;
+            }
+        });
+        try {
+            return result.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(thread.getName() + " did not answer within " + callTimeoutMs + " ms", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + thread.getName(), e);
+        }
+    }
+
+    int seriesCount() {
+        return seriesCount;
+    }
+
+    int queued() {
+        return mailbox.size();
+    }
+
+    /**
+     * Stops taking work, runs whatever is already queued and waits for the thread.
+     */
+    void stop(long timeoutMs) throws InterruptedException {
+        running = false;
+        thread.join(timeoutMs);
+    }
+
+    private void run() {
+        List<Consumer<SeriesStore>> batch = new ArrayList<>(BATCH);
+        while (running || !mailbox.isEmpty()) {
+            try {
+                Consumer<SeriesStore> first = mailbox.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                mailbox.drainTo(batch, BATCH - 1);
+                for (Consumer<SeriesStore> task : batch) {
+                    runTask(task);
+                }
+                batch.clear();
+                seriesCount = store.size();
+            } catch (InterruptedException e) {
+                // Interrupted = stop; what is already queued still runs
+                running = false;
+            }
+        }
+    }
+
+    private void runTask(Consumer<SeriesStore> task) {
+        try {
+            task.accept(store);
+        } catch (RuntimeException e) {
+            // One bad reading must not take the shard down, but every failure is counted and logged
+            onFailure.accept(e);
+            if (e.getClass() != lastFailureType) {
+                lastFailureType = e.getClass();
+                log.error("{} task failed", thread.getName(), e);
+            } else {
+                log.error("{} task failed: {}", thread.getName(), e.toString());
+            }
+        }
+    }
+}
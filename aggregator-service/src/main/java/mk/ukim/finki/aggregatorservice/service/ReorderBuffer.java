@@ -0,0 +1,184 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Small per-series buffer that hands readings on in event-time order.
+ *
+ * Readings come from several sources (sensors), each with its own clock.
+ * The watermark is the newest event time of the slowest active source:
+ * a reading is held until every source that reported in the last delayMs
+ * has got past it, or until it has waited delayMs of wall time, or until the
+ * buffer is full (oldest first). A single in-order sensor is never held.
+ * A source whose clock is more than delayMs behind the newest one does not
+ * hold the others back; its readings come in behind what was released.
+ *
+ * A reading older than what has already been released is late and is applied
+ * straight away, out of order. Lateness is judged per source: only a reading
+ * more than allowedLatenessMs behind its own source's newest is dropped, so a
+ * sensor whose clock is simply behind the others is never dropped for it.
+ *
+ * Kept sorted in a ring; readings that arrive in (or nearly in) order are
+ * inserted at the tail, so offer and release are O(1) amortized.
+ * Not thread-safe.
+ */
+final class ReorderBuffer<T> {
+
+    enum Admission { BUFFERED, LATE, DROPPED }
+
+    private final long delayMs;
+    private final long allowedLatenessMs;
+    private final int capacity;
+
+    // Ring sorted by eventTs; allocated on first use
+    private long[] eventTs;
+    private long[] arrivedMs;
+    private Object[] items;
+    private int head;
+    private int size;
+
+    private long maxEventTs = Long.MIN_VALUE;
+    private long releasedTs = Long.MIN_VALUE;
+
+    // source -> its newest event time and when it last reported
+    private final Map<String, SourceClock> sources = new HashMap<>();
+    private long lastPruneMs;
+
+    ReorderBuffer(long delayMs, long allowedLatenessMs, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        this.delayMs = delayMs;
+        this.allowedLatenessMs = allowedLatenessMs;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Takes one reading. BUFFERED readings come out of release();
+     * a LATE one is for the caller to apply now, a DROPPED one is past the allowed lateness.
+     *
+     * @param source   where the reading comes from (sensor id); lateness is per source
+     * @param overflow gets the oldest buffered reading when the buffer is full
+     */
+    Admission offer(String source, long ts, long nowMs, T item, Consumer<T> overflow) {
+        // Full: the oldest goes out early to make room
+        if (size == capacity) {
+            releaseHead(overflow);
+        }
+        SourceClock clock = sources.get(source);
+        if (clock != null && ts < clock.maxTs - allowedLatenessMs) {
+            return Admission.DROPPED;
+        }
+        if (clock == null) {
+            clock = new SourceClock();
+            sources.put(source, clock);
+        }
+        clock.maxTs = Math.max(clock.maxTs, ts);
+        clock.lastSeenMs = nowMs;
+        maxEventTs = Math.max(maxEventTs, ts);
+
+        if (releasedTs != Long.MIN_VALUE && ts < releasedTs) {
+            return Admission.LATE;
+        }
+        if (eventTs == null) {
+            eventTs = new long[capacity];
+            arrivedMs = new long[capacity];
+            items = new Object[capacity];
+        }
+
+        // Walk back from the tail to the insert position (usually zero steps)
+        int pos = size;
+        while (pos > 0 && eventTs[slot(pos - 1)] > ts) {
+            int from = slot(pos - 1);
+            int to = slot(pos);
+            eventTs[to] = eventTs[from];
+            arrivedMs[to] = arrivedMs[from];
+            items[to] = items[from];
+            pos--;
+        }
+        int at = slot(pos);
+        eventTs[at] = ts;
+        arrivedMs[at] = nowMs;
+        items[at] = item;
+        size++;
+        return Admission.BUFFERED;
+    }
+
+    /**
+     * Hands every reading that is due at nowMs to sink, in event-time order.
+     *
+     * @return how many were released
+     */
+    int release(long nowMs, Consumer<T> sink) {
+        pruneSources(nowMs);
+        int released = 0;
+        long watermark = watermark(nowMs);
+        while (size > 0) {
+            int i = slot(0);
+            if (eventTs[i] > watermark && arrivedMs[i] > nowMs - delayMs) {
+                break;
+            }
+            releaseHead(sink);
+            released++;
+        }
+        return released;
+    }
+
+    /**
+     * Newest event time of the slowest source that reported in the last delayMs
+     * and is within delayMs of the newest event time; readings up to here are released.
+     */
+    long watermark(long nowMs) {
+        long watermark = maxEventTs;
+        for (SourceClock clock : sources.values()) {
+            if (clock.lastSeenMs >= nowMs - delayMs && clock.maxTs >= maxEventTs - delayMs) {
+                watermark = Math.min(watermark, clock.maxTs);
+            }
+        }
+        return watermark;
+    }
+
+    int sources() {
+        return sources.size();
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void releaseHead(Consumer<T> sink) {
+        int i = slot(0);
+        T item = (T) items[i];
+        items[i] = null;
+        releasedTs = Math.max(releasedTs, eventTs[i]);
+        head = (head + 1) % capacity;
+        size--;
+        sink.accept(item);
+    }
+
+    private int slot(int index) {
+        return (head + index) % capacity;
+    }
+
+    // A source quiet for longer than the lateness horizon is forgotten (it starts over if it comes back)
+    private void pruneSources(long nowMs) {
+        long horizon = Math.max(delayMs, allowedLatenessMs);
+        if (nowMs - lastPruneMs < horizon) {
+            return;
+        }
+        lastPruneMs = nowMs;
+        sources.values().removeIf(clock -> clock.lastSeenMs < nowMs - horizon);
+    }
+
+    private static final class SourceClock {
+        long maxTs = Long.MIN_VALUE;
+        long lastSeenMs;
+    }
+}
@@ -0,0 +1,77 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import mk.ukim.finki.aggregatorservice.sketch.WindowedSketch;
+import mk.ukim.finki.aggregatorservice.tracing.TraceContext;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Everything AggregatorService keeps for one (area, metric) series.
+ * Guarded by whoever owns the SeriesStore it lives in.
+ */
+final class SeriesState {
+
+    /** One window entry: a single reading (count 1, min = max = value) or a producer summary. */
+    record Sample(double sum, long count, double min, double max) {}
+
+    /** A reading (or summary) waiting in the reorder buffer; sketchValue is what goes into the sketch. */
+    record Pending(long eventTs, Sample sample, double sketchValue, TraceContext trace) {}
+
+    /** Last N entries (a reading, or a summary of several). */
+    final Deque<Sample> window = new ArrayDeque<>();
+
+    /** Percentiles over the sketch window (slots by event time). */
+    final WindowedSketch sketch;
+
+    /** Readings not yet applied, released in event-time order. */
+    final ReorderBuffer<Pending> reorder;
+
+    /** Highest event time applied so far: the series' clock for the sketch and alerts. */
+    long eventTimeMs = Long.MIN_VALUE;
+
+    /** Level of the last alert sent, null before the first one. */
+    String lastLevel;
+
+    /** Wall-clock time of the last reading, for idle eviction. */
+    long lastSeenMs;
+
+    SeriesState(WindowedSketch sketch, ReorderBuffer<Pending> reorder) {
+        this.sketch = sketch;
+        this.reorder = reorder;
+    }
+
+    long readings() {
+        long count = 0;
+        for (Sample s : window) {
+            count += s.count();
+        }
+        return count;
+    }
+
+    double mean() {
+        double sum = 0;
+        long count = 0;
+        for (Sample s : window) {
+            sum += s.sum();
+            count += s.count();
+        }
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    double min() {
+        double min = Double.POSITIVE_INFINITY;
+        for (Sample s : window) {
+            min = Math.min(min, s.min());
+        }
+        return window.isEmpty() ? 0.0 : min;
+    }
+
+    double max() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (Sample s : window) {
+            max = Math.max(max, s.max());
+        }
+        return window.isEmpty() ? 0.0 : max;
+    }
+}
@@ -0,0 +1,99 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded map of series, so heap use does not depend on what upstream sends.
+ *
+ * - LRU cap: at most maxSeries series; adding one more evicts the least recently used
+ * - Idle eviction: series with no reading for idleEvictMs are dropped; checked
+ *   at most once per sweep interval, on ingest
+ *
+ * An evicted series that comes back starts over (new window, new sketch, and
+ * its first reading sends an alert again). Not thread-safe.
+ */
+final class SeriesStore {
+
+    static final String EVICTED_IDLE = "idle";
+    static final String EVICTED_LRU = "lru";
+
+    private final int maxSeries;
+    private final long idleEvictMs;
+    private final long sweepIntervalMs;
+    private final Supplier<SeriesState> factory;
+    private final BiConsumer<SeriesState, String> onEvict;
+
+    // Access order: iteration starts at the least recently used series
+    private final LinkedHashMap<String, SeriesState> series;
+    private long lastSweepMs;
+
+    /**
+     * @param onEvict called with each evicted series and the reason (EVICTED_IDLE / EVICTED_LRU)
+     */
+    SeriesStore(int maxSeries, long idleEvictMs, Supplier<SeriesState> factory, BiConsumer<SeriesState, String> onEvict) {
+        if (maxSeries < 1) {
+            throw new IllegalArgumentException("maxSeries must be at least 1: " + maxSeries);
+        }
+        this.maxSeries = maxSeries;
+        this.idleEvictMs = idleEvictMs;
+        this.sweepIntervalMs = Math.max(1_000, Math.min(60_000, idleEvictMs / 10));
+        this.factory = factory;
+        this.onEvict = onEvict;
+        this.series = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SeriesState> eldest) {
+                if (size() <= SeriesStore.this.maxSeries) {
+                    return false;
+                }
+                SeriesStore.this.onEvict.accept(eldest.getValue(), EVICTED_LRU);
+                return true;
+            }
+        };
+    }
+
+    /** The series for key (created if new), marked as seen at nowMs. */
+    SeriesState touch(String key, long nowMs) {
+        sweepIfDue(nowMs);
+        SeriesState state = series.get(key);
+        if (state == null) {
+            state = factory.get();
+            series.put(key, state);
+        }
+        state.lastSeenMs = nowMs;
+        return state;
+    }
+
+    /** Looks a series up without creating it (still counts as a use for LRU). */
+    SeriesState get(String key) {
+        return series.get(key);
+    }
+
+    int size() {
+        return series.size();
+    }
+
+    /** Visits every series (without counting as a use). */
+    void forEach(BiConsumer<String, SeriesState> action) {
+        series.forEach(action);
+    }
+
+    private void sweepIfDue(long nowMs) {
+        if (nowMs - lastSweepMs < sweepIntervalMs) {
+            return;
+        }
+        lastSweepMs = nowMs;
+        long cutoff = nowMs - idleEvictMs;
+        Iterator<SeriesState> it = series.values().iterator();
+        while (it.hasNext()) {
+            SeriesState state = it.next();
+            if (state.lastSeenMs < cutoff) {
+                it.remove();
+                onEvict.accept(state, EVICTED_IDLE);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import mk.ukim.finki.aggregatorservice.config.RabbitConfig;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.AggregateTick;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * Aggregate tick stream: live window values, not just level transitions.
+ *
+ * WHAT THIS DOES:
+ * 1. Every aggregator.tick.interval-ms, takes the current avg/min/max of every
+ *    series from AggregatorService, leaving out series with no reading for
+ *    aggregator.tick.max-idle-ms (a sensor that went quiet stops ticking
+ *    instead of repeating its last window until idle eviction)
+ * 2. Publishes one AggregateTick per area (all its metrics) to alerts.topic
+ *    with routing key tick.<area>
+ *
+ * The rate is fixed at (areas / interval) whatever the reading rate is, so
+ * dashboards can follow live values without polling pulse.eco through the
+ * producer. The gateway conflates them onto /topic/ticks/*.
+ */
+@Service
+public class TickPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(TickPublisher.class);
+
+    private final AggregatorService aggregatorService;
+    private final RabbitTemplate rabbitTemplate;
+    private final AggregatorMetrics metrics;
+    private final boolean enabled;
+    private final long maxIdleMs;
+
+    public TickPublisher(AggregatorService aggregatorService,
+                         RabbitTemplate rabbitTemplate,
+                         AggregatorMetrics metrics,
+                         @Value("${aggregator.tick.enabled:true}") boolean enabled,
+                         @Value("${aggregator.tick.max-idle-ms:1800000}") long maxIdleMs) {
+        this.aggregatorService = aggregatorService;
+        this.rabbitTemplate = rabbitTemplate;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.maxIdleMs = maxIdleMs;
+    }
+
+    @Scheduled(fixedRateString = "${aggregator.tick.interval-ms:5000}",
+            initialDelayString = "${aggregator.tick.interval-ms:5000}")
+    public void publishTicks() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, AggregateTick> ticks = aggregatorService.currentAggregates(System.currentTimeMillis(), maxIdleMs);
+        try {
+            for (AggregateTick tick : ticks.values()) {
+                rabbitTemplate.convertAndSend(RabbitConfig.ALERTS_EXCHANGE, routingKey(tick.getArea()), tick);
+                metrics.tickPublished();
+            }
+        } catch (AmqpException e) {
+            // Next tick carries the same (newer) values; nothing to retry
+            log.warn("Aggregate tick not published: {}", e.getMessage());
+            return;
+        }
+        log.debug("Published {} aggregate ticks", ticks.size());
+    }
+
+    static String routingKey(String area) {
+        return "tick." + area;
+    }
+}
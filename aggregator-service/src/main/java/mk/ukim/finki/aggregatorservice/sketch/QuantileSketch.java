@@ -0,0 +1,233 @@
+package mk.ukim.finki.aggregatorservice.sketch;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch with relative-error guarantees (DDSketch-style).
+ *
+ * A value v > 0 is counted in bucket ceil(log_gamma(v)), gamma = (1+a)/(1-a);
+ * every value in a bucket is within relative error a of the bucket's
+ * representative, so any quantile is within a of the true value.
+ * Negative values use a mirrored set of buckets, zeros are counted apart.
+ *
+ * Two sketches with the same accuracy merge by adding bucket counts, which is
+ * what lets minute rollups be combined into hours/days/ranges without the raw values.
+ *
+ * Buckets are kept as sorted (index, count) arrays: a minute rollup with a
+ * handful of readings costs a handful of slots. With maxBins set, memory is
+ * fixed: past that many buckets the ones closest to zero are collapsed into
+ * one, so low quantiles lose accuracy first and p90/p99 keep theirs.
+ * Not thread-safe.
+ */
+public final class QuantileSketch {
+
+    /** Relative accuracy used across the aggregator, so all sketches can be merged. */
+    public static final double DEFAULT_ACCURACY = 0.01;
+
+    // Values this close to 0 go to the zero bucket
+    private static final double MIN_INDEXABLE = 1e-9;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final int maxBins;
+
+    private final Buckets positive = new Buckets();
+    private final Buckets negative = new Buckets();
+    private long zeroCount;
+    private long count;
+
+    public QuantileSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    public QuantileSketch(double accuracy) {
+        this(accuracy, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxBins upper bound on buckets kept (fixed memory), at least 2
+     */
+    public QuantileSketch(double accuracy, int maxBins) {
+        if (maxBins < 2) {
+            throw new IllegalArgumentException("maxBins must be at least 2: " + maxBins);
+        }
+        if (accuracy <= 0 || accuracy >= 1) {
+            throw new IllegalArgumentException("accuracy must be in (0, 1): " + accuracy);
+        }
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+        this.maxBins = maxBins;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /** Adds one value with a weight (e.g. the mean of a summary standing for n readings). */
+    public void add(double value, long weight) {
+        if (weight <= 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (value > MIN_INDEXABLE) {
+            positive.add(index(value), weight);
+        } else if (value < -MIN_INDEXABLE) {
+            negative.add(index(-value), weight);
+        } else {
+            zeroCount += weight;
+        }
+        count += weight;
+        collapseIfNeeded();
+    }
+
+    /**
+     * Adds all of other's counts to this sketch.
+     *
+     * @throws IllegalArgumentException if the sketches use different accuracies
+     */
+    public void merge(QuantileSketch other) {
+        if (other.accuracy != accuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with accuracy " + accuracy + " and " + other.accuracy);
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        collapseIfNeeded();
+    }
+
+    /** Empties the sketch, keeping its allocated buckets. */
+    public void clear() {
+        positive.size = 0;
+        negative.size = 0;
+        zeroCount = 0;
+        count = 0;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /** Buckets in use (what memory grows with), never more than maxBins. */
+    public int bins() {
+        return positive.size + negative.size;
+    }
+
+    /**
+     * @param q quantile in [0, 1], e.g. 0.99
+     * @return estimated value, NaN if the sketch is empty
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(Math.max(0, Math.min(1, q)) * (count - 1));
+
+        // Ascending value order: negatives from the largest magnitude down, then zeros, then positives
+        long seen = 0;
+        for (int i = negative.size - 1; i >= 0; i--) {
+            seen += negative.counts[i];
+            if (seen > rank) return -value(negative.keys[i]);
+        }
+        seen += zeroCount;
+        if (seen > rank) return 0;
+        for (int i = 0; i < positive.size; i++) {
+            seen += positive.counts[i];
+            if (seen > rank) return value(positive.keys[i]);
+        }
+        return value(positive.keys[positive.size - 1]);
+    }
+
+    public QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch(accuracy, maxBins);
+        copy.merge(this);
+        return copy;
+    }
+
+    // Positive buckets closest to zero go first, then negative ones
+    private void collapseIfNeeded() {
+        int excess = positive.size + negative.size - maxBins;
+        if (excess <= 0) return;
+        if (positive.size > 1) {
+            excess -= positive.collapseLowest(Math.min(excess, positive.size - 1));
+        }
+        if (excess > 0 && negative.size > 1) {
+            negative.collapseLowest(Math.min(excess, negative.size - 1));
+        }
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    // Representative of bucket i: equally far (relatively) from both bucket edges
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    /** Sorted sparse bucket counts. */
+    private static final class Buckets {
+        int[] keys = new int[0];
+        long[] counts = new long[0];
+        int size;
+
+        void add(int key, long n) {
+            int pos = Arrays.binarySearch(keys, 0, size, key);
+            if (pos >= 0) {
+                counts[pos] += n;
+                return;
+            }
+            pos = -pos - 1;
+            if (size == keys.length) {
+                int capacity = Math.max(4, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+            System.arraycopy(counts, pos, counts, pos + 1, size - pos);
+            keys[pos] = key;
+            counts[pos] = n;
+            size++;
+        }
+
+        /**
+         * Folds the n+1 lowest buckets into the (n+1)-th.
+         *
+         * @return buckets removed (n)
+         */
+        int collapseLowest(int n) {
+            long folded = 0;
+            for (int i = 0; i <= n; i++) {
+                folded += counts[i];
+            }
+            System.arraycopy(keys, n, keys, 0, size - n);
+            System.arraycopy(counts, n, counts, 0, size - n);
+            counts[0] = folded;
+            size -= n;
+            return n;
+        }
+
+        void merge(Buckets other) {
+            if (other.size == 0) return;
+            int[] mergedKeys = new int[size + other.size];
+            long[] mergedCounts = new long[size + other.size];
+            int i = 0, j = 0, k = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                    mergedKeys[k] = keys[i];
+                    mergedCounts[k++] = counts[i++];
+                } else if (i == size || other.keys[j] < keys[i]) {
+                    mergedKeys[k] = other.keys[j];
+                    mergedCounts[k++] = other.counts[j++];
+                } else {
+                    mergedKeys[k] = keys[i];
+                    mergedCounts[k++] = counts[i++] + other.counts[j++];
+                }
+            }
+            keys = mergedKeys;
+            counts = mergedCounts;
+            size = k;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package mk.ukim.finki.aggregatorservice.sketch;
+
+/**
+ * Quantiles over a sliding time window, in fixed memory.
+ *
+ * The window is split into slots; each slot has its own QuantileSketch
+ * (capped at maxBins). A value goes into the slot for its time; a slot is
+ * reused once it falls out of the window. snapshot() merges the live slots,
+ * so memory is slots x maxBins buckets however many values arrive.
+ * Not thread-safe.
+ */
+public final class WindowedSketch {
+
+    private final long slotMs;
+    private final QuantileSketch[] slots;
+    private final long[] slotIds;
+
+    public WindowedSketch(long windowMs, int slots, int maxBins) {
+        if (slots < 1 || windowMs < slots) {
+            throw new IllegalArgumentException("need at least 1 slot of 1ms: windowMs=" + windowMs + ", slots=" + slots);
+        }
+        this.slotMs = windowMs / slots;
+        this.slots = new QuantileSketch[slots];
+        this.slotIds = new long[slots];
+        for (int i = 0; i < slots; i++) {
+            this.slots[i] = new QuantileSketch(QuantileSketch.DEFAULT_ACCURACY, maxBins);
+            this.slotIds[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /** Adds a value (with a weight, e.g. a summary's count) at time nowMs. */
+    public void add(double value, long weight, long nowMs) {
+        long id = Math.floorDiv(nowMs, slotMs);
+        int i = (int) Math.floorMod(id, (long) slots.length);
+        if (slotIds[i] != id) {
+            if (slotIds[i] > id) {
+                // Older than anything this slot holds: already outside the window
+                return;
+            }
+            slots[i].clear();
+            slotIds[i] = id;
+        }
+        slots[i].add(value, weight);
+    }
+
+    /** The slots still inside the window at nowMs, merged into one sketch. */
+    public QuantileSketch snapshot(long nowMs) {
+        long current = Math.floorDiv(nowMs, slotMs);
+        QuantileSketch merged = slots[0].copy();
+        merged.clear();
+        for (int i = 0; i < slots.length; i++) {
+            if (slotIds[i] > current - slots.length && slotIds[i] <= current) {
+                merged.merge(slots[i]);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,52 @@
+package mk.ukim.finki.aggregatorservice.tracing;
+
+import mk.ukim.finki.common.tracing.TraceHeaders;
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * Trace stamps carried by one reading through the aggregator.
+ *
+ * Built by ReadingListener from the incoming TraceHeaders and copied onto
+ * the alert that the reading triggers, so the gateway sees the full path.
+ * Any stamp may be null when the message was published without tracing.
+ */
+public class TraceContext {
+
+    private static final TraceContext NONE = new TraceContext(null, null, null, null);
+
+    private final Long sensorTs;
+    private final Long fetchedAt;
+    private final Long publishedAt;
+    private final Long receivedAt;
+
+    public TraceContext(Long sensorTs, Long fetchedAt, Long publishedAt, Long receivedAt) {
+        this.sensorTs = sensorTs;
+        this.fetchedAt = fetchedAt;
+        this.publishedAt = publishedAt;
+        this.receivedAt = receivedAt;
+    }
+
+    /** Empty context for callers outside the AMQP path. */
+    public static TraceContext none() {
+        return NONE;
+    }
+
+    public Long getSensorTs() { return sensorTs; }
+
+    public Long getFetchedAt() { return fetchedAt; }
+
+    public Long getPublishedAt() { return publishedAt; }
+
+    public Long getReceivedAt() { return receivedAt; }
+
+    /**
+     * Writes the upstream stamps plus the emit time onto an outgoing alert.
+     */
+    public void writeTo(MessageProperties props, long emittedAt) {
+        if (sensorTs != null) props.setHeader(TraceHeaders.SENSOR_TS, sensorTs);
+        if (fetchedAt != null) props.setHeader(TraceHeaders.FETCHED_AT, fetchedAt);
+        if (publishedAt != null) props.setHeader(TraceHeaders.PUBLISHED_AT, publishedAt);
+        if (receivedAt != null) props.setHeader(TraceHeaders.AGG_RECEIVED_AT, receivedAt);
+        props.setHeader(TraceHeaders.AGG_EMITTED_AT, emittedAt);
+    }
+}
@@ -0,0 +1,160 @@
+package mk.ukim.finki.aggregatorservice.dedup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.SummaryMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingDeduplicatorTests {
+
+    private static final long HOUR = 3_600_000L;
+
+    private final ReadingDeduplicator dedup = new ReadingDeduplicator(
+            new AggregatorMetrics(new SimpleMeterRegistry()), HOUR, 6, 10_000, 0.001);
+
+    /** Claim-then-mark, as ReadingListener does after processing succeeded. */
+    private boolean consume(String sensorId, String metric, Instant ts) {
+        if (!dedup.claimReading(sensorId, metric, ts)) {
+            return false;
+        }
+        dedup.markReading(sensorId, metric, ts);
+        return true;
+    }
+
+    private static SummaryMessage summary(long count, double sum, double min, double max, Instant ts) {
+        SummaryMessage s = new SummaryMessage();
+        s.setArea("centar");
+        s.setMetric("pm10");
+        s.setCount(count);
+        s.setSum(sum);
+        s.setMin(min);
+        s.setMax(max);
+        s.setTimestamp(ts);
+        return s;
+    }
+
+    @Test
+    void sameSensorMetricAndTimestampIsADuplicate() {
+        Instant ts = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+        assertTrue(consume("s1", "pm10", ts));
+        assertFalse(consume("s1", "pm10", ts));
+
+        assertTrue(consume("s1", "pm25", ts));
+        assertTrue(consume("s2", "pm10", ts));
+        assertTrue(consume("s1", "pm10", ts.plusSeconds(1)));
+    }
+
+    @Test
+    void releasedClaimLetsTheRetryThrough() {
+        Instant ts = Instant.now();
+
+        assertTrue(dedup.claimReading("s1", "pm10", ts));
+        // Still being processed
+        assertFalse(dedup.claimReading("s1", "pm10", ts));
+
+        // Processing failed before markReading: the retry must get through
+        dedup.releaseReading("s1", "pm10", ts);
+        assertTrue(dedup.claimReading("s1", "pm10", ts));
+
+        dedup.markReading("s1", "pm10", ts);
+        assertFalse(dedup.claimReading("s1", "pm10", ts));
+        assertEquals(0, dedup.claims());
+    }
+
+    @Test
+    void copiesConsumedAtTheSameTimeAreProcessedOnce() throws Exception {
+        Instant ts = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        int consumers = 5;
+        ExecutorService pool = Executors.newFixedThreadPool(consumers);
+        try {
+            for (int round = 0; round < 200; round++) {
+                String sensor = "s" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> processed = new ArrayList<>();
+                for (int c = 0; c < consumers; c++) {
+                    processed.add(pool.submit(() -> {
+                        start.await();
+                        if (!dedup.claimReading(sensor, "pm10", ts)) {
+                            return false;
+                        }
+                        // Window, grid and rollups are updated between the claim and the mark
+                        Thread.sleep(1);
+                        dedup.markReading(sensor, "pm10", ts);
+                        return true;
+                    }));
+                }
+                start.countDown();
+
+                int winners = 0;
+                for (Future<Boolean> f : processed) {
+                    if (f.get(5, TimeUnit.SECONDS)) {
+                        winners++;
+                    }
+                }
+                assertEquals(1, winners, sensor);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, dedup.claims());
+    }
+
+    @Test
+    void summariesAreKeyedOnTheirContent() {
+        Instant ts = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        SummaryMessage first = summary(3, 90, 20, 40, ts);
+        dedup.markSummary(first);
+
+        assertFalse(dedup.claimSummary(summary(3, 90, 20, 40, ts)));
+        // Same newest timestamp, but other sensors added data
+        assertTrue(dedup.claimSummary(summary(5, 150, 20, 45, ts)));
+    }
+
+    @Test
+    void lateReadingsInsideTheWindowAreStillChecked() {
+        Instant now = Instant.now();
+        consume("s1", "pm10", now);
+        Instant late = now.minus(40, ChronoUnit.MINUTES);
+
+        assertTrue(consume("s1", "pm10", late));
+        assertFalse(consume("s1", "pm10", late));
+    }
+
+    @Test
+    void uncheckableReadingsAreLetThrough() {
+        assertTrue(consume("s1", "pm10", null));
+        assertTrue(consume("s1", "pm10", null));
+
+        Instant now = Instant.now();
+        consume("s1", "pm10", now);
+        // Its bucket has been reused for the present
+        Instant old = now.minus(2, ChronoUnit.HOURS);
+        assertTrue(consume("s1", "pm10", old));
+        assertTrue(consume("s1", "pm10", old));
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        Instant ts = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        int duplicates = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (!consume("sensor-" + i, "pm10", ts)) {
+                duplicates++;
+            }
+        }
+        assertTrue(duplicates < 50, "false positives: " + duplicates);
+    }
+}
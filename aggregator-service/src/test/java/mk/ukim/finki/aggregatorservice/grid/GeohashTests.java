@@ -0,0 +1,30 @@
+package mk.ukim.finki.aggregatorservice.grid;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeohashTests {
+
+    @Test
+    void encodesKnownPoints() {
+        // Reference values from the original geohash.org examples
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("ezs42", Geohash.encode(42.605, -5.603, 5));
+    }
+
+    @Test
+    void coarserCellsArePrefixesAndBoundsContainThePoint() {
+        double lat = 41.9981, lon = 21.4254;
+        String fine = Geohash.encode(lat, lon, 6);
+        for (int p = 1; p <= 6; p++) {
+            String cell = Geohash.encode(lat, lon, p);
+            assertEquals(fine.substring(0, p), cell);
+
+            double[] b = Geohash.bounds(cell);
+            assertTrue(b[0] <= lat && lat <= b[2] && b[1] <= lon && lon <= b[3], cell);
+            assertEquals(Geohash.cellWidthDegrees(p), b[3] - b[1], 1e-9);
+        }
+        assertThrows(IllegalArgumentException.class, () -> Geohash.bounds("ua"));
+    }
+}
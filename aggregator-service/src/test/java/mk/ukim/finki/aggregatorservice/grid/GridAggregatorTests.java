@@ -0,0 +1,105 @@
+package mk.ukim.finki.aggregatorservice.grid;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.GridCell;
+import mk.ukim.finki.aggregatorservice.model.ReadingMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridAggregatorTests {
+
+    private final GridAggregator grid = new GridAggregator(new AggregatorMetrics(new SimpleMeterRegistry()),
+            new int[]{6, 4, 5}, 3_600_000, 50_000);
+
+    private static ReadingMessage reading(String sensor, String position, double value) {
+        ReadingMessage r = new ReadingMessage();
+        r.setSensorId(sensor);
+        r.setPosition(position);
+        r.setMetric("pm10");
+        r.setValue(value);
+        r.setTimestamp(Instant.now());
+        return r;
+    }
+
+    @Test
+    void keepsLatestValuePerSensorAndGroupsByPrefix() {
+        grid.record(reading("s1", "41.9981,21.4254", 10));
+        grid.record(reading("s1", "41.9981,21.4254", 30));   // replaces s1's 10
+        grid.record(reading("s2", "41.9985,21.4260", 50));
+        grid.record(reading("o1", "41.1231,20.8016", 5));     // Ohrid
+        grid.record(reading("bad", "n/a", 99));
+
+        List<GridCell> coarse = grid.cells("PM10", 4, -90, -180, 90, 180);
+        assertEquals(2, coarse.size());
+        GridCell skopje = coarse.stream().filter(c -> c.getCell().equals(Geohash.encode(41.9981, 21.4254, 4)))
+                .findFirst().orElseThrow();
+        assertEquals(2, skopje.getSensors());
+        assertEquals(40, skopje.getMean());
+        assertEquals(30, skopje.getMin());
+        assertEquals(50, skopje.getMax());
+
+        // Bounding box around Ohrid only
+        List<GridCell> ohrid = grid.cells("pm10", 5, 41.0, 20.7, 41.2, 20.9);
+        assertEquals(1, ohrid.size());
+        assertEquals(5, ohrid.get(0).getPrecision());
+
+        assertThrows(IllegalArgumentException.class, () -> grid.cells("pm10", 7, -90, -180, 90, 180));
+        assertTrue(grid.cells("noise", 4, -90, -180, 90, 180).isEmpty());
+    }
+
+    @Test
+    void olderReadingArrivingLateDoesNotReplaceANewerOne() {
+        Instant t1 = Instant.now().minusSeconds(120);
+        Instant t2 = t1.plusSeconds(60);
+        ReadingMessage newer = reading("s1", "41.9981,21.4254", 80);
+        newer.setTimestamp(t2);
+        ReadingMessage older = reading("s1", "41.9981,21.4254", 20);
+        older.setTimestamp(t1);
+
+        grid.record(newer);
+        grid.record(older);
+
+        GridCell cell = grid.cells("pm10", 6, -90, -180, 90, 180).get(0);
+        assertEquals(1, cell.getSensors());
+        assertEquals(80, cell.getMean());
+    }
+
+    @Test
+    void keepsAtMostMaxSensorsPerMetric() {
+        GridAggregator small = new GridAggregator(new AggregatorMetrics(new SimpleMeterRegistry()),
+                new int[]{4}, 3_600_000, 10);
+        for (int i = 0; i < 25; i++) {
+            small.record(reading("s" + i, "41.99" + i + ",21.42", i));
+        }
+
+        assertTrue(small.sensors("pm10") <= 10, "sensors: " + small.sensors("pm10"));
+        // The newest sensor is never the one dropped
+        assertEquals(24, small.cells("pm10", 4, -90, -180, 90, 180).get(0).getMax());
+    }
+
+    @Test
+    void pruneDropsSensorsPastMaxAge() throws InterruptedException {
+        GridAggregator shortLived = new GridAggregator(new AggregatorMetrics(new SimpleMeterRegistry()),
+                new int[]{4}, 50, 50_000);
+        shortLived.record(reading("s1", "41.9981,21.4254", 10));
+        assertEquals(1, shortLived.sensors("pm10"));
+
+        Thread.sleep(100);
+        shortLived.prune();
+
+        assertEquals(0, shortLived.sensors("pm10"));
+        assertTrue(shortLived.cells("pm10", 4, -90, -180, 90, 180).isEmpty());
+    }
+
+    @Test
+    void picksPrecisionFromTileWidth() {
+        assertEquals(4, grid.precisionFor(360.0 / (1 << 6)));
+        assertEquals(5, grid.precisionFor(360.0 / (1 << 10)));
+        assertEquals(6, grid.precisionFor(360.0 / (1 << 15)));
+    }
+}
@@ -0,0 +1,85 @@
+package mk.ukim.finki.aggregatorservice.history;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.HistoryResponse;
+import mk.ukim.finki.aggregatorservice.model.RollupRow;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupStoreTests {
+
+    private static final long DAY = 86_400_000L;
+
+    private final RollupStore store = new RollupStore(new AggregatorMetrics(new SimpleMeterRegistry()),
+            "UTC", 500, 2000, 256, DAY, 90 * DAY, 1825 * DAY);
+
+    @Test
+    void rollsReadingsUpPerResolution() {
+        Instant hour = Instant.now().truncatedTo(ChronoUnit.HOURS).minus(2, ChronoUnit.HOURS);
+        for (int minute = 0; minute < 60; minute++) {
+            store.record("Centar", "pm10", hour.plus(minute, ChronoUnit.MINUTES), minute);
+            store.record("centar", "PM10", hour.plus(minute, ChronoUnit.MINUTES).plusSeconds(30), minute + 100);
+        }
+
+        HistoryResponse minutes = store.query("centar", "pm10", hour, hour.plus(1, ChronoUnit.HOURS), Resolution.MINUTE);
+        assertEquals(60, minutes.getRows().size());
+        RollupRow first = minutes.getRows().get(0);
+        assertEquals(2, first.getCount());
+        assertEquals(0, first.getMin());
+        assertEquals(100, first.getMax());
+        assertEquals(50, first.getMean());
+
+        HistoryResponse hours = store.query("centar", "pm10", hour, hour.plus(1, ChronoUnit.HOURS), Resolution.HOUR);
+        assertEquals(1, hours.getRows().size());
+        RollupRow h = hours.getRows().get(0);
+        assertEquals(120, h.getCount());
+        assertEquals(0, h.getMin());
+        assertEquals(159, h.getMax());
+        assertEquals(h.getCount(), hours.getTotal().getCount());
+        assertEquals(59, h.getP50(), 59 * 0.02);
+    }
+
+    @Test
+    void summariesAndResolutionPick() {
+        Instant now = Instant.now();
+        store.recordSummary("aerodrom", "pm10", now, 4, 40, 5, 20);
+        RollupRow row = store.query("aerodrom", "pm10", now.minusSeconds(60), now.plusSeconds(60), null).getTotal();
+        assertEquals(4, row.getCount());
+        assertEquals(10, row.getMean());
+        assertEquals(5, row.getMin());
+        assertEquals(20, row.getMax());
+
+        long t = System.currentTimeMillis();
+        assertEquals(Resolution.MINUTE, store.pick(t - 3_600_000L, t));
+        assertEquals(Resolution.HOUR, store.pick(t - 2 * DAY, t));
+        // A month is 720 hour rows, over max-points
+        assertEquals(Resolution.DAY, store.pick(t - 30 * DAY, t));
+        assertEquals(Resolution.DAY, store.pick(t - 120 * DAY, t));
+        assertNull(store.query("nowhere", "pm10", now.minusSeconds(60), now, null).getTotal());
+    }
+
+    @Test
+    void rollupSketchStaysWithinItsBins() {
+        Rollup hour = new Rollup(256);
+        Rollup minute = new Rollup(256);
+        // ~700 distinct 1% buckets between 1 and 1000
+        for (int i = 0; i < 100_000; i++) {
+            double v = 1 + (i % 1000) * 0.999;
+            minute.add(v);
+            if (i % 1000 == 999) {
+                hour.merge(minute);
+                minute = new Rollup(256);
+            }
+        }
+
+        assertTrue(hour.sketch.bins() <= 256, "bins: " + hour.sketch.bins());
+        assertEquals(100_000, hour.count);
+        // The collapsed buckets are the low ones; the high quantiles keep their accuracy
+        assertEquals(990, hour.quantile(0.99), 990 * 0.02);
+    }
+}
@@ -0,0 +1,204 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.aggregatorservice.config.RabbitConfig;
+import mk.ukim.finki.aggregatorservice.config.SeriesProperties;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.AggregateTick;
+import mk.ukim.finki.aggregatorservice.model.AlertMessage;
+import mk.ukim.finki.aggregatorservice.model.ReadingMessage;
+import mk.ukim.finki.aggregatorservice.model.SeriesStats;
+import mk.ukim.finki.aggregatorservice.model.SummaryMessage;
+import mk.ukim.finki.aggregatorservice.tracing.TraceContext;
+import mk.ukim.finki.common.tracing.LatencyTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AggregatorServiceTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final List<AlertMessage> alerts = new CopyOnWriteArrayList<>();
+    private final Set<String> publishThreads = ConcurrentHashMap.newKeySet();
+    private AggregatorService service;
+
+    private AggregatorService newService() {
+        SeriesProperties props = new SeriesProperties();
+        props.setShards(4);
+        return new AggregatorService(rabbitTemplate, new LatencyTracker(registry), new AggregatorMetrics(registry),
+                props);
+    }
+
+    @BeforeEach
+    void setUp() {
+        service = newService();
+        doAnswer(inv -> {
+            publishThreads.add(Thread.currentThread().getName());
+            alerts.add(inv.getArgument(2));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(eq(RabbitConfig.ALERTS_EXCHANGE), anyString(), any(Object.class),
+                any(MessagePostProcessor.class));
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    private void reading(String area, double value, long epochSecond) {
+        reading(area, "s1", value, epochSecond);
+    }
+
+    private void reading(String area, String sensor, double value, long epochSecond) {
+        ReadingMessage r = new ReadingMessage();
+        r.setArea(area);
+        r.setSensorId(sensor);
+        r.setMetric("pm10");
+        r.setValue(value);
+        r.setTimestamp(Instant.ofEpochSecond(epochSecond));
+        service.process(area, "pm10", r);
+    }
+
+    private Map<String, List<String>> levelsByArea() {
+        return alerts.stream().collect(Collectors.groupingBy(AlertMessage::getArea,
+                Collectors.mapping(AlertMessage::getLevel, Collectors.toList())));
+    }
+
+    @Test
+    void seriesAreSpreadOverShardsAndEachKeepsItsOrder() {
+        long t0 = Instant.now().getEpochSecond() - 600;
+        // Mean over the window: 100 RED, 50 GREEN, 66 RED, 75, 80 (no change)
+        double[] values = {100, 0, 100, 100, 100};
+        for (int i = 0; i < values.length; i++) {
+            for (int a = 0; a < 40; a++) {
+                reading("area-" + a, values[i], t0 + i);
+            }
+        }
+
+        for (int a = 0; a < 40; a++) {
+            assertEquals(values.length, service.stats("area-" + a, "pm10").getSketchCount());
+        }
+        Map<String, List<String>> levels = levelsByArea();
+        assertEquals(40, levels.size());
+        levels.forEach((area, seq) -> assertEquals(List.of("RED", "GREEN", "RED"), seq, area));
+        assertTrue(publishThreads.size() > 1, "40 series should land on more than one shard: " + publishThreads);
+        assertTrue(publishThreads.stream().allMatch(t -> t.startsWith("aggregator-shard-")));
+    }
+
+    @Test
+    void failedAlertPublishIsCountedAndRetriedOnTheNextReading() {
+        long t0 = Instant.now().getEpochSecond() - 600;
+        doThrow(new AmqpException("broker down")).doAnswer(inv -> {
+            alerts.add(inv.getArgument(2));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(eq(RabbitConfig.ALERTS_EXCHANGE), anyString(), any(Object.class),
+                any(MessagePostProcessor.class));
+
+        reading("centar", 100, t0);
+        reading("centar", 100, t0 + 1);
+
+        assertEquals(2, service.stats("centar", "pm10").getSketchCount());
+        assertEquals(List.of("RED"), levelsByArea().get("centar"));
+        assertEquals(1.0, registry.counter("aggregator.shard.task.failed", "exception", "AmqpException").count());
+    }
+
+    @Test
+    void sensorsOnSkewedClocksAreAllCountedWithoutWaiting() {
+        long now = Instant.now().getEpochSecond();
+        // "slow" is 15 minutes behind, past the 10 minute allowed lateness
+        reading("centar", "fast", 100, now - 30);
+        // Applied straight away: no wait for the reorder delay or releaseHeldReadings
+        assertEquals("RED", service.stats("centar", "pm10").getLevel());
+
+        for (int i = 0; i < 10; i++) {
+            reading("centar", "slow", 100, now - 900 + i);
+            reading("centar", "fast", 100, now - 20 + i);
+        }
+
+        assertEquals(21, service.stats("centar", "pm10").getSketchCount());
+        assertEquals(0.0, registry.counter("aggregator.readings.rejected", "reason", "too_late").count());
+        assertEquals(10.0, registry.counter("aggregator.readings.late").count());
+        assertEquals(List.of("RED"), levelsByArea().get("centar"));
+    }
+
+    @Test
+    void stopAppliesWhatWasAlreadyDispatched() throws InterruptedException {
+        long t0 = Instant.now().getEpochSecond() - 600;
+        for (int a = 0; a < 200; a++) {
+            reading("area-" + a, 100, t0);
+        }
+
+        service.stop();
+
+        assertEquals(200, alerts.size());
+        assertThrows(IllegalStateException.class, () -> reading("centar", 100, t0));
+    }
+
+    @Test
+    void summariesOfAPollGiveTheSameSeriesAsItsRawReadings() throws InterruptedException {
+        AggregatorService summaries = newService();
+        summaries.start();
+        try {
+            long t0 = Instant.now().getEpochSecond() - 600;
+            // Three polls of three sensors; each summary is what the producer builds from that poll
+            double[][] polls = {{20, 30, 40}, {80, 90, 100}, {10, 15, 20}};
+            for (int poll = 0; poll < polls.length; poll++) {
+                long ts = t0 + 60L * poll;
+                double sum = 0;
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int s = 0; s < polls[poll].length; s++) {
+                    double value = polls[poll][s];
+                    reading("centar", "s" + s, value, ts);
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                SummaryMessage summary = new SummaryMessage();
+                summary.setArea("centar");
+                summary.setMetric("pm10");
+                summary.setCount(polls[poll].length);
+                summary.setSum(sum);
+                summary.setMin(min);
+                summary.setMax(max);
+                summary.setTimestamp(Instant.ofEpochSecond(ts));
+                summaries.processSummary("centar", "pm10", summary, TraceContext.none());
+
+                SeriesStats raw = service.stats("centar", "pm10");
+                SeriesStats folded = summaries.stats("centar", "pm10");
+                assertEquals(raw.getMean(), folded.getMean(), 1e-9, "poll " + poll);
+                assertEquals(raw.getSketchCount(), folded.getSketchCount(), "poll " + poll);
+                assertEquals(raw.getLevel(), folded.getLevel(), "poll " + poll);
+            }
+
+            long now = System.currentTimeMillis();
+            AggregateTick.MetricAggregate raw = service.currentAggregates(now, 60_000).get("centar").getMetrics().get("pm10");
+            AggregateTick.MetricAggregate folded = summaries.currentAggregates(now, 60_000).get("centar").getMetrics()
+                    .get("pm10");
+            assertEquals(9, folded.getCount());
+            assertEquals(raw.getCount(), folded.getCount());
+            assertEquals(raw.getAvg(), folded.getAvg(), 1e-9);
+            assertEquals(raw.getMin(), folded.getMin());
+            assertEquals(raw.getMax(), folded.getMax());
+        } finally {
+            summaries.stop();
+        }
+    }
+}
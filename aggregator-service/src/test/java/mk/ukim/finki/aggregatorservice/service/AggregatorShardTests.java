@@ -0,0 +1,146 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import mk.ukim.finki.aggregatorservice.sketch.WindowedSketch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregatorShardTests {
+
+    private final List<RuntimeException> failures = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AggregatorShard shard;
+
+    private AggregatorShard shard(int mailboxCapacity, long callTimeoutMs) {
+        SeriesStore store = new SeriesStore(100, 3_600_000L,
+                () -> new SeriesState(new WindowedSketch(60_000, 6, 16), new ReorderBuffer<>(0, 0, 4)),
+                (state, reason) -> { });
+        shard = new AggregatorShard(0, mailboxCapacity, store, callTimeoutMs, failures::add);
+        shard.start();
+        return shard;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        if (shard != null) {
+            shard.stop(1_000);
+        }
+    }
+
+    // Keeps the shard thread busy until release is counted down
+    private void block(CountDownLatch started) {
+        shard.execute(s -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @Test
+    void tasksRunInTheOrderTheyWereQueuedOnTheShardThread() {
+        shard(1_000, 1_000);
+        List<Integer> seen = new ArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int n = i;
+            shard.execute(s -> {
+                seen.add(n);
+                threads.add(Thread.currentThread().getName());
+            });
+        }
+
+        List<Integer> result = shard.call(s -> new ArrayList<>(seen));
+
+        assertEquals(500, result.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, result.get(i));
+        }
+        assertTrue(threads.stream().allMatch("aggregator-shard-0"::equals));
+    }
+
+    @Test
+    void fullMailboxMakesTheCallerWait() throws Exception {
+        shard(2, 1_000);
+        CountDownLatch started = new CountDownLatch(1);
+        block(started);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        shard.execute(s -> { });
+        shard.execute(s -> { });
+
+        CountDownLatch handedOff = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            shard.execute(s -> { });
+            handedOff.countDown();
+        });
+        producer.start();
+
+        assertFalse(handedOff.await(200, TimeUnit.MILLISECONDS), "mailbox is full, execute must wait");
+        release.countDown();
+        assertTrue(handedOff.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void stopRunsWhatIsQueuedAndRefusesNewWork() throws Exception {
+        shard(100, 1_000);
+        CountDownLatch started = new CountDownLatch(1);
+        block(started);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        List<Integer> ran = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int n = i;
+            shard.execute(s -> ran.add(n));
+        }
+
+        Thread stopper = new Thread(() -> {
+            try {
+                shard.stop(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stopper.start();
+        for (int i = 0; i < 100 && stopper.getState() != Thread.State.TIMED_WAITING; i++) {
+            Thread.sleep(10);
+        }
+
+        assertThrows(IllegalStateException.class, () -> shard.execute(s -> ran.add(-1)));
+        release.countDown();
+        stopper.join(5_000);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), ran);
+        assertThrows(IllegalStateException.class, () -> shard.call(s -> 1));
+    }
+
+    @Test
+    void failingTaskIsReportedAndTheShardCarriesOn() {
+        shard(100, 1_000);
+        shard.execute(s -> { throw new IllegalArgumentException("bad reading"); });
+        shard.execute(s -> { throw new IllegalArgumentException("bad reading"); });
+
+        assertEquals(Integer.valueOf(42), shard.<Integer>call(s -> 42));
+        assertEquals(2, failures.size());
+        assertInstanceOf(IllegalArgumentException.class, failures.get(0));
+    }
+
+    @Test
+    void callGivesUpWhenTheShardDoesNotAnswer() throws Exception {
+        shard(100, 100);
+        CountDownLatch started = new CountDownLatch(1);
+        block(started);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> shard.call(s -> 1));
+        assertTrue(e.getMessage().contains("did not answer"));
+    }
+}
@@ -0,0 +1,101 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReorderBufferTests {
+
+    private final List<Long> out = new ArrayList<>();
+
+    @Test
+    void releasesInEventTimeOrderOnceEverySensorHasPassed() {
+        ReorderBuffer<Long> buffer = new ReorderBuffer<>(10_000, 60_000, 8);
+        long now = 1_000_000_000L;
+        for (long ts : new long[]{100_000, 103_000}) {
+            assertEquals(ReorderBuffer.Admission.BUFFERED, buffer.offer("a", ts, now, ts, out::add));
+        }
+        buffer.offer("b", 101_000, now, 101_000L, out::add);
+        buffer.offer("b", 102_000, now, 102_000L, out::add);
+        assertEquals(102_000, buffer.watermark(now));
+
+        assertEquals(3, buffer.release(now, out::add));
+        assertEquals(List.of(100_000L, 101_000L, 102_000L), out);
+        assertEquals(1, buffer.size());
+
+        buffer.offer("b", 104_000, now, 104_000L, out::add);
+        assertEquals(1, buffer.release(now, out::add));
+        assertEquals(103_000L, out.get(3));
+    }
+
+    @Test
+    void aLoneSensorIsNotHeld() {
+        ReorderBuffer<Long> buffer = new ReorderBuffer<>(10_000, 60_000, 8);
+        long now = 1_000_000_000L;
+        buffer.offer("a", 100_000, now, 100_000L, out::add);
+
+        assertEquals(1, buffer.release(now, out::add));
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void aSensorThatWentQuietStopsHoldingTheOthersAfterTheDelay() {
+        ReorderBuffer<Long> buffer = new ReorderBuffer<>(10_000, 60_000, 8);
+        long now = 1_000_000_000L;
+        buffer.offer("b", 95_000, now, 95_000L, out::add);
+        buffer.offer("a", 100_000, now, 100_000L, out::add);
+
+        assertEquals(1, buffer.release(now, out::add));
+        assertEquals(0, buffer.release(now + 9_999, out::add));
+        assertEquals(1, buffer.release(now + 10_000, out::add));
+        assertEquals(List.of(95_000L, 100_000L), out);
+    }
+
+    @Test
+    void aSensorWithItsClockBehindIsLateButNotDropped() {
+        ReorderBuffer<Long> buffer = new ReorderBuffer<>(10_000, 60_000, 8);
+        long now = 1_000_000_000L;
+        long fast = 2_000_000;
+        long slow = fast - 900_000;   // 15 minutes behind, past the allowed lateness
+        buffer.offer("fast", fast, now, fast, out::add);
+        buffer.offer("slow", slow, now, slow, out::add);
+        // The slow sensor is too far behind to hold the fast one back
+        assertEquals(fast, buffer.watermark(now));
+        buffer.release(now, out::add);
+
+        assertEquals(ReorderBuffer.Admission.LATE, buffer.offer("slow", slow + 1_000, now, slow + 1_000, out::add));
+        // Behind its own newest by more than the allowed lateness
+        assertEquals(ReorderBuffer.Admission.DROPPED, buffer.offer("slow", slow - 60_001, now, slow - 60_001, out::add));
+        // Same event time as the last released one is still in order
+        assertEquals(ReorderBuffer.Admission.BUFFERED, buffer.offer("fast", fast, now, fast, out::add));
+    }
+
+    @Test
+    void fullBufferAppliesTheOldestEarly() {
+        ReorderBuffer<Long> buffer = new ReorderBuffer<>(60_000, 60_000, 3);
+        long now = 1_000_000_000L;
+        for (long ts = 4; ts >= 1; ts--) {
+            buffer.offer("a", ts, now, ts, out::add);
+        }
+        // 4, 3, 2 were held; adding 1 pushed out the oldest held (2), and 1 is now behind it
+        assertEquals(List.of(2L), out);
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    void quietSensorsAreForgotten() {
+        ReorderBuffer<Long> buffer = new ReorderBuffer<>(10_000, 60_000, 8);
+        long now = 1_000_000_000L;
+        buffer.offer("a", 100_000, now, 100_000L, out::add);
+        buffer.offer("b", 100_000, now, 100_000L, out::add);
+        buffer.release(now, out::add);
+
+        buffer.offer("a", 200_000, now + 60_001, 200_000L, out::add);
+        buffer.release(now + 120_002, out::add);
+
+        assertEquals(0, buffer.sources());
+    }
+}
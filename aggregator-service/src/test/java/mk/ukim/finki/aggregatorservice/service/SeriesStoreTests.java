@@ -0,0 +1,56 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import mk.ukim.finki.aggregatorservice.sketch.WindowedSketch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeriesStoreTests {
+
+    private static final long HOUR = 3_600_000L;
+
+    private final List<String> evicted = new ArrayList<>();
+
+    private SeriesStore store(int maxSeries, long idleEvictMs) {
+        return new SeriesStore(maxSeries, idleEvictMs,
+                () -> new SeriesState(new WindowedSketch(60_000, 6, 16), new ReorderBuffer<>(0, 0, 4)),
+                (state, reason) -> evicted.add(reason));
+    }
+
+    @Test
+    void leastRecentlyUsedSeriesIsEvictedAtTheCap() {
+        SeriesStore store = store(2, 24 * HOUR);
+        long t0 = 1_000_000_000L;
+        SeriesState a = store.touch("a|pm10", t0);
+        store.touch("b|pm10", t0);
+        // a is used again, so b is now the least recently used
+        assertSame(a, store.touch("a|pm10", t0));
+
+        store.touch("c|pm10", t0);
+
+        assertEquals(2, store.size());
+        assertNull(store.get("b|pm10"));
+        assertSame(a, store.get("a|pm10"));
+        assertEquals(List.of(SeriesStore.EVICTED_LRU), evicted);
+    }
+
+    @Test
+    void idleSeriesAreSweptOnIngest() {
+        SeriesStore store = store(100, HOUR);
+        long t0 = 1_000_000_000L;
+        store.touch("a|pm10", t0);
+        store.touch("b|pm10", t0);
+        store.touch("b|pm10", t0 + HOUR / 2);
+
+        // a has been idle for more than an hour, b for half an hour
+        store.touch("c|pm10", t0 + HOUR + 120_000);
+
+        assertNull(store.get("a|pm10"));
+        assertNotNull(store.get("b|pm10"));
+        assertEquals(2, store.size());
+        assertEquals(List.of(SeriesStore.EVICTED_IDLE), evicted);
+    }
+}
@@ -0,0 +1,107 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.aggregatorservice.config.RabbitConfig;
+import mk.ukim.finki.aggregatorservice.config.SeriesProperties;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.AggregateTick;
+import mk.ukim.finki.aggregatorservice.model.ReadingMessage;
+import mk.ukim.finki.common.tracing.LatencyTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TickPublisherTests {
+
+    private static final long MAX_IDLE_MS = 60_000;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final AggregatorMetrics metrics = new AggregatorMetrics(registry);
+    // routing key -> tick
+    private final Map<String, AggregateTick> sent = new ConcurrentHashMap<>();
+    private AggregatorService service;
+    private TickPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        SeriesProperties props = new SeriesProperties();
+        props.setShards(2);
+        service = new AggregatorService(rabbitTemplate, new LatencyTracker(registry), metrics, props);
+        service.start();
+        publisher = new TickPublisher(service, rabbitTemplate, metrics, true, MAX_IDLE_MS);
+        doAnswer(inv -> {
+            sent.put(inv.getArgument(1), inv.getArgument(2));
+            return null;
+        }).when(rabbitTemplate).convertAndSend(eq(RabbitConfig.ALERTS_EXCHANGE), startsWith("tick."), any(Object.class));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    private void reading(String area, String metric, double value) {
+        ReadingMessage r = new ReadingMessage();
+        r.setArea(area);
+        r.setSensorId("s1");
+        r.setMetric(metric);
+        r.setValue(value);
+        r.setTimestamp(Instant.now().minusSeconds(600));
+        service.process(area, metric, r);
+    }
+
+    @Test
+    void oneTickPerAreaOnItsRoutingKeyWithEveryMetric() {
+        reading("centar", "pm10", 20);
+        reading("centar", "pm10", 40);
+        reading("centar", "pm25", 10);
+        reading("karposh", "pm10", 30);
+
+        publisher.publishTicks();
+
+        assertEquals(2, sent.size());
+        AggregateTick centar = sent.get("tick.centar");
+        assertEquals("centar", centar.getArea());
+        AggregateTick.MetricAggregate pm10 = centar.getMetrics().get("pm10");
+        assertEquals(30.0, pm10.getAvg());
+        assertEquals(20.0, pm10.getMin());
+        assertEquals(40.0, pm10.getMax());
+        assertEquals(2, pm10.getCount());
+        assertEquals(1, centar.getMetrics().get("pm25").getCount());
+        assertEquals(1, sent.get("tick.karposh").getMetrics().get("pm10").getCount());
+        assertEquals(2.0, registry.counter("aggregator.ticks.published").count());
+    }
+
+    @Test
+    void seriesIdlePastTheLimitStopTicking() {
+        reading("centar", "pm10", 20);
+        long now = System.currentTimeMillis();
+
+        assertEquals(1, service.currentAggregates(now, MAX_IDLE_MS).size());
+        assertTrue(service.currentAggregates(now + MAX_IDLE_MS + 1_000, MAX_IDLE_MS).isEmpty());
+    }
+
+    @Test
+    void failedPublishIsNotRetried() {
+        reading("centar", "pm10", 20);
+        doThrow(new AmqpException("broker down")).when(rabbitTemplate)
+                .convertAndSend(eq(RabbitConfig.ALERTS_EXCHANGE), startsWith("tick."), any(Object.class));
+
+        publisher.publishTicks();
+
+        verify(rabbitTemplate, times(1))
+                .convertAndSend(eq(RabbitConfig.ALERTS_EXCHANGE), startsWith("tick."), any(Object.class));
+        assertEquals(0.0, registry.counter("aggregator.ticks.published").count());
+    }
+}
@@ -0,0 +1,49 @@
+package mk.ukim.finki.aggregatorservice.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTests {
+
+    @Test
+    void quantilesStayWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        double[] values = new double[10_000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 1.5 + 3);   // long-tailed, like PM readings
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[]{0.0, 0.5, 0.9, 0.99, 1.0}) {
+            double exact = values[(int) Math.floor(q * (values.length - 1))];
+            assertEquals(exact, sketch.quantile(q), exact * QuantileSketch.DEFAULT_ACCURACY * 1.01, "q=" + q);
+        }
+        assertEquals(values.length, sketch.count());
+    }
+
+    @Test
+    void mergeEqualsAddingEverythingToOneSketch() {
+        QuantileSketch a = new QuantileSketch();
+        QuantileSketch b = new QuantileSketch();
+        QuantileSketch all = new QuantileSketch();
+        for (int i = -50; i <= 200; i++) {
+            (i % 3 == 0 ? a : b).add(i * 0.5);
+            all.add(i * 0.5);
+        }
+        a.merge(b);
+
+        assertEquals(all.count(), a.count());
+        for (double q = 0; q <= 1.0; q += 0.05) {
+            assertEquals(all.quantile(q), a.quantile(q), 0.0, "q=" + q);
+        }
+        assertTrue(a.quantile(0) < 0);
+        assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> a.merge(new QuantileSketch(0.05)));
+    }
+}
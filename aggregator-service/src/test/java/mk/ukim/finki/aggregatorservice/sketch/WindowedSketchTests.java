@@ -0,0 +1,40 @@
+package mk.ukim.finki.aggregatorservice.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WindowedSketchTests {
+
+    @Test
+    void valuesLeaveTheWindowSlotBySlot() {
+        WindowedSketch sketch = new WindowedSketch(60_000, 6, 64);
+        long t0 = 1_000_000_000L;
+        for (int i = 0; i < 100; i++) {
+            sketch.add(10, 1, t0);
+        }
+        sketch.add(500, 1, t0 + 30_000);
+
+        QuantileSketch now = sketch.snapshot(t0 + 30_000);
+        assertEquals(101, now.count());
+        assertEquals(500, now.quantile(1.0), 5);
+        assertEquals(10, now.quantile(0.5), 0.1);
+
+        // t0's slot is out of the window, the spike is still in
+        QuantileSketch later = sketch.snapshot(t0 + 65_000);
+        assertEquals(1, later.count());
+
+        assertEquals(0, sketch.snapshot(t0 + 200_000).count());
+    }
+
+    @Test
+    void binsStayCappedAndHighQuantilesKeepAccuracy() {
+        QuantileSketch capped = new QuantileSketch(QuantileSketch.DEFAULT_ACCURACY, 32);
+        for (int i = 1; i <= 10_000; i++) {
+            capped.add(i * 0.1);
+        }
+        assertEquals(10_000, capped.count());
+        // 990.0 is the exact p99 of 0.1, 0.2 .. 1000
+        assertEquals(990.0, capped.quantile(0.99), 990.0 * 0.011);
+    }
+}
@@ -0,0 +1,107 @@
+package mk.ukim.finki.aggregatorservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.aggregatorservice.config.SeriesProperties;
+import mk.ukim.finki.aggregatorservice.metrics.AggregatorMetrics;
+import mk.ukim.finki.aggregatorservice.model.ReadingMessage;
+import mk.ukim.finki.common.tracing.LatencyTracker;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AggregatorService.process under single- and multi-threaded load.
+ *
+ * Readings cycle over AREAS x METRICS series with pm10 values around the
+ * 50.0 threshold, so a share of calls emits an alert. Publishing goes to a
+ * no-op RabbitTemplate, so this measures window/threshold work only.
+ * The threaded variant shows how the listener scales with max-concurrency.
+ *
+ * process() hands readings to the shard threads; once their mailboxes are
+ * full it waits, so the steady-state rate is what the shards apply.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AggregatorServiceBenchmark {
+
+    private static final String[] AREAS = {
+            "aerodrom", "kisela_voda", "centar", "cair", "suto_orizari",
+            "butel", "gazi_baba", "karposh", "gjorce_petrov", "saraj"
+    };
+    private static final String[] METRICS = {"pm10", "pm25", "temperature"};
+    private static final int READINGS = 4096;
+
+    private AggregatorService service;
+    private ReadingMessage[] readings;
+
+    @Setup
+    public void setup() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service = new AggregatorService(new NoOpRabbitTemplate(), new LatencyTracker(registry),
+                new AggregatorMetrics(registry), new SeriesProperties());
+        service.start();
+
+        Random random = new Random(42);
+        readings = new ReadingMessage[READINGS];
+        for (int i = 0; i < READINGS; i++) {
+            ReadingMessage r = new ReadingMessage();
+            r.setCity("SKOPJE");
+            r.setArea(AREAS[i % AREAS.length]);
+            r.setMetric(METRICS[(i / AREAS.length) % METRICS.length]);
+            r.setSensorId("sensor-" + (i % 200));
+            r.setTimestamp(Instant.ofEpochSecond(1_700_000_000L + i));
+            r.setValue(30 + random.nextDouble() * 40);
+            readings[i] = r;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        service.stop();
+    }
+
+    /** Per-thread cursor so threads don't contend on the index itself. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        @Setup
+        public void setup() {
+            next = (int) (Thread.currentThread().getId() * 997);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void processSingleThread(Cursor cursor) {
+        process(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void processFourThreads(Cursor cursor) {
+        process(cursor);
+    }
+
+    private void process(Cursor cursor) {
+        ReadingMessage r = readings[(cursor.next++ & Integer.MAX_VALUE) % READINGS];
+        service.process(r.getArea(), r.getMetric(), r);
+    }
+
+    /** Swallows alerts instead of talking to a broker. */
+    static class NoOpRabbitTemplate extends RabbitTemplate {
+        @Override
+        public void convertAndSend(String exchange, String routingKey, Object object,
+                                   MessagePostProcessor messagePostProcessor) throws AmqpException {
+        }
+    }
+}
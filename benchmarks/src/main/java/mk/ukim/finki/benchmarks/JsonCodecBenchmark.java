@@ -0,0 +1,57 @@
+package mk.ukim.finki.benchmarks;
+
+import mk.ukim.finki.aggregatorservice.config.RabbitConfig;
+import mk.ukim.finki.aggregatorservice.model.ReadingMessage;
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encode/decode of one reading, using the same message converters the
+ * services use: producer encodes CityMeasurement, aggregator decodes ReadingMessage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    private Jackson2JsonMessageConverter producerConverter;
+    private Jackson2JsonMessageConverter aggregatorConverter;
+
+    private CityMeasurement measurement;
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        // producer-service RabbitMQConfig.jsonMessageConverter()
+        producerConverter = new Jackson2JsonMessageConverter();
+        // aggregator-service RabbitConfig.jsonMessageConverter() (INFERRED type precedence)
+        aggregatorConverter = new RabbitConfig().jsonMessageConverter();
+
+        measurement = new CityMeasurement("SKOPJE", "gazi_baba", "41.998100,21.425400", "sensor-123",
+                Instant.parse("2024-12-10T20:00:00Z"), "pm10", 72.5);
+        body = producerConverter.toMessage(measurement, new MessageProperties()).getBody();
+    }
+
+    @Benchmark
+    public Message encodeCityMeasurement() {
+        return producerConverter.toMessage(measurement, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object decodeReadingMessage() {
+        MessageProperties props = new MessageProperties();
+        props.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        // What the listener adapter sets from the @RabbitListener parameter type
+        props.setInferredArgumentType(ReadingMessage.class);
+        return aggregatorConverter.fromMessage(new Message(body, props));
+    }
+}
@@ -0,0 +1,43 @@
+package mk.ukim.finki.producerservice.area;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SkopjeAreaResolver.resolve over points spread across (and just outside) Skopje,
+ * so every branch of the box cascade is exercised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SkopjeAreaResolverBenchmark {
+
+    private static final int POINTS = 1024;
+
+    private final SkopjeAreaResolver resolver = new SkopjeAreaResolver();
+    private final double[] lats = new double[POINTS];
+    private final double[] lons = new double[POINTS];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < POINTS; i++) {
+            lats[i] = 41.85 + random.nextDouble() * 0.30;
+            lons[i] = 21.15 + random.nextDouble() * 0.60;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void resolve(Blackhole bh) {
+        for (int i = 0; i < POINTS; i++) {
+            bh.consume(resolver.resolve(lats[i], lons[i]));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package mk.ukim.finki.producerservice.client;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MeasurementProducer routing-key building (normalization + String.format),
+ * with plain concatenation as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingKeyBenchmark {
+
+    private String area = "Gazi Baba";
+    private String metric = "pm10";
+
+    @Benchmark
+    public String producerRoutingKey() {
+        String areaKey = area.toLowerCase().replace(" ", "_");
+        String metricKey = metric.toLowerCase().replace(" ", "_");
+        return MeasurementProducer.routingKey(areaKey, metricKey);
+    }
+
+    @Benchmark
+    public String concatBaseline() {
+        String areaKey = area.toLowerCase().replace(" ", "_");
+        String metricKey = metric.toLowerCase().replace(" ", "_");
+        return "reading." + areaKey + "." + metricKey;
+    }
+}
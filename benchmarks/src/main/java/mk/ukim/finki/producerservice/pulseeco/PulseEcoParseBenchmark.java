@@ -0,0 +1,120 @@
+package mk.ukim.finki.producerservice.pulseeco;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mk.ukim.finki.producerservice.area.SkopjeAreaResolver;
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated /rest/current body parsed two ways:
+ * - databind: ObjectMapper -> RawDataView[] -> CityMeasurement, the way the
+ *   scheduler did it before PulseEcoResponseParser
+ * - streaming: PulseEcoResponseParser straight from the bytes
+ *
+ * Run with -prof gc to compare allocation per reading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PulseEcoParseBenchmark {
+
+    /** Readings per poll, roughly a dense Skopje /rest/current response. */
+    private static final int READINGS = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SkopjeAreaResolver resolver = new SkopjeAreaResolver();
+    private PulseEcoResponseParser parser;
+    private byte[] body;
+
+    @Setup
+    public void setup() throws IOException {
+        parser = new PulseEcoResponseParser(resolver);
+
+        Random random = new Random(42);
+        String[] types = {"pm10", "pm25", "temperature", "humidity", "noise"};
+        List<RawDataView> poll = new ArrayList<>(READINGS);
+        String position = null;
+        for (int i = 0; i < READINGS; i++) {
+            if (i % types.length == 0) {
+                position = String.format(Locale.ROOT, "%.6f,%.6f",
+                        41.95 + random.nextDouble() * 0.12, 21.30 + random.nextDouble() * 0.35);
+            }
+            RawDataView raw = new RawDataView();
+            raw.setSensorId("sensor-" + (i / types.length));
+            raw.setPosition(position);
+            // pulse.eco stamps repeat a lot within one poll
+            raw.setStamp("2024-12-10T21:" + String.format("%02d", i % 5) + ":00+01:00");
+            raw.setType(types[i % types.length]);
+            raw.setValue(String.format(Locale.ROOT, "%.1f", random.nextDouble() * 120));
+            poll.add(raw);
+        }
+        body = objectMapper.writeValueAsBytes(poll);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void databind(Blackhole bh) throws IOException {
+        for (RawDataView raw : objectMapper.readValue(body, RawDataView[].class)) {
+            bh.consume(toMeasurement("skopje", raw));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void streaming(Blackhole bh) throws IOException {
+        bh.consume(parser.parse("skopje", new ByteArrayInputStream(body)));
+    }
+
+    @Benchmark
+    public double parseDecimal() {
+        char[] buf = {'1', '0', '4', '.', '7'};
+        return PulseEcoResponseParser.parseDecimal(buf, 0, buf.length);
+    }
+
+    @Benchmark
+    public double parseDouble() {
+        return Double.parseDouble("104.7");
+    }
+
+    // The old CityProducerScheduler.toMeasurement, kept here as the baseline
+    private CityMeasurement toMeasurement(String city, RawDataView raw) {
+        Instant ts;
+        try {
+            ts = OffsetDateTime.parse(raw.getStamp(), DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant();
+        } catch (Exception e) {
+            ts = Instant.now();
+        }
+
+        double value;
+        try {
+            value = Double.parseDouble(raw.getValue());
+        } catch (NumberFormatException ex) {
+            value = Double.NaN;
+        }
+
+        String area = "unknown_area";
+        String pos = raw.getPosition();
+        if ("skopje".equalsIgnoreCase(city) && pos != null && pos.contains(",")) {
+            String[] parts = pos.split(",");
+            area = resolver.resolve(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()));
+        }
+
+        return new CityMeasurement(city.toUpperCase(), area, raw.getPosition(), raw.getSensorId(),
+                ts, raw.getType(), value);
+    }
+}
@@ -0,0 +1,65 @@
+#!/usr/bin/env python3
+"""Opens N idle STOMP connections to the gateway and holds them.
+
+usage: idle.py native|sockjs N [seconds] [port]
+
+native  -> /ws-native (plain WebSocket)
+sockjs  -> /ws/<server>/<session>/websocket (SockJS websocket transport)
+
+Each connection does the WebSocket handshake, sends one STOMP CONNECT with
+heart-beat:0,0 and then stays silent. Connections are opened 100 at a time.
+Standard library only.
+"""
+import asyncio
+import base64
+import json
+import os
+import random
+import sys
+
+MODE = sys.argv[1]
+N = int(sys.argv[2])
+HOLD_SECONDS = int(sys.argv[3]) if len(sys.argv) > 3 else 60
+PORT = int(sys.argv[4]) if len(sys.argv) > 4 else 8081
+
+
+def masked_text_frame(payload: bytes) -> bytes:
+    mask = os.urandom(4)
+    if len(payload) < 126:
+        header = bytes([0x81, 0x80 | len(payload)])
+    else:
+        header = bytes([0x81, 0x80 | 126]) + len(payload).to_bytes(2, "big")
+    return header + mask + bytes(b ^ mask[i % 4] for i, b in enumerate(payload))
+
+
+async def connect():
+    reader, writer = await asyncio.open_connection("127.0.0.1", PORT)
+    if MODE == "native":
+        path = "/ws-native"
+    else:
+        path = "/ws/%03d/%s/websocket" % (random.randint(0, 999), os.urandom(6).hex())
+    key = base64.b64encode(os.urandom(16)).decode()
+    writer.write((f"GET {path} HTTP/1.1\r\nHost: localhost\r\n"
+                  f"Upgrade: websocket\r\nConnection: Upgrade\r\n"
+                  f"Sec-WebSocket-Key: {key}\r\nSec-WebSocket-Version: 13\r\n"
+                  f"Sec-WebSocket-Protocol: v12.stomp\r\n\r\n").encode())
+    await writer.drain()
+    await reader.readuntil(b"\r\n\r\n")
+
+    frame = "CONNECT\naccept-version:1.2\nheart-beat:0,0\n\n\0"
+    if MODE == "sockjs":
+        frame = json.dumps([frame])
+    writer.write(masked_text_frame(frame.encode()))
+    await writer.drain()
+    return reader, writer
+
+
+async def main():
+    connections = []
+    for _ in range(0, N, 100):
+        connections += await asyncio.gather(*[connect() for _ in range(min(100, N - len(connections)))])
+    print("open", len(connections), flush=True)
+    await asyncio.sleep(HOLD_SECONDS)
+
+
+asyncio.run(main())
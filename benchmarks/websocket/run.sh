@@ -0,0 +1,47 @@
+#!/bin/bash
+# Heap and CPU of idle STOMP connections on the gateway.
+#
+# usage: benchmarks/websocket/run.sh native|sockjs [connections]
+#
+# Starts the packaged gateway (build it first: cd gateway-service && ./mvnw package -DskipTests),
+# takes a class histogram after a full GC, opens the idle connections (idle.py), takes another
+# one, then counts the gateway's CPU ticks over 20 idle seconds.
+# (after - before) / connections is the live heap per connection.
+# Needs a JDK (jcmd), python3 and curl (ss optional). RabbitMQ is not needed.
+
+set -u
+MODE=${1:?native or sockjs}
+CONNECTIONS=${2:-2000}
+HERE=$(cd "$(dirname "$0")" && pwd)
+JAR="$HERE/../../gateway-service/target/gateway-service-0.0.1-SNAPSHOT.jar"
+OUT="$HERE/out"
+mkdir -p "$OUT"
+
+java -Xmx512m -jar "$JAR" --logging.level.root=WARN > "$OUT/app-$MODE.log" 2>&1 &
+PID=$!
+for _ in $(seq 60); do
+    curl -s -o /dev/null localhost:8081/ws-native && break
+    sleep 1
+done
+sleep 3
+
+jcmd $PID GC.run > /dev/null; sleep 1
+BEFORE=$(jcmd $PID GC.class_histogram | tail -1)
+python3 "$HERE/idle.py" "$MODE" "$CONNECTIONS" 60 > "$OUT/py-$MODE.log" 2>&1 &
+PY=$!
+sleep 30
+
+jcmd $PID GC.run > /dev/null; sleep 1
+AFTER=$(jcmd $PID GC.class_histogram | tail -1)
+if command -v ss > /dev/null; then
+    ESTABLISHED=$(ss -tn state established "( sport = :8081 )" | tail -n +2 | wc -l)
+else
+    ESTABLISHED=n/a
+fi
+CPU1=$(awk '{print $14+$15}' /proc/$PID/stat)
+sleep 20
+CPU2=$(awk '{print $14+$15}' /proc/$PID/stat)
+
+echo "$MODE established=$ESTABLISHED before=[$BEFORE] after=[$AFTER] cpu_ticks_idle_20s=$((CPU2 - CPU1)) $(cat "$OUT/py-$MODE.log")"
+kill $PY $PID
+wait 2> /dev/null
@@ -2,8 +2,10 @@ package mk.ukim.finki.gatewayservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling  // TickForwarder flushes conflated ticks on a timer
 public class GatewayServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,80 @@
+package mk.ukim.finki.gatewayservice.compact;
+
+import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import mk.ukim.finki.gatewayservice.model.CompactFrame;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+/**
+ * Compact alert stream for mobile clients: /topic/compact/alerts
+ *
+ * Instead of full AlertMessage JSON per area (areaKey, alarm, pm10, reason...),
+ * one subscription carries every area as CompactFrames:
+ * 1. Right after SUBSCRIBE the session gets a snapshot ("t":"s") of all areas,
+ *    sent to that session only
+ * 2. Then every alert is broadcast as a delta ("t":"d") with only the fields
+ *    that changed and numeric codes for area, metric and level
+ *
+ * CLIENT RULES: keep deltas that arrive before the snapshot, then apply those
+ * with q > snapshot.q in order; if a delta's q is not last q + 1 (missed frame),
+ * unsubscribe and subscribe again for a fresh snapshot.
+ *
+ * Optional: the full-JSON /topic/alerts/* topics are unchanged, and
+ * gateway.compact.enabled=false turns this stream off.
+ */
+@Service
+public class CompactAlertPublisher {
+
+    public static final String DESTINATION = "/topic/compact/alerts";
+
+    private final SimpMessagingTemplate brokerTemplate;
+    private final SimpMessagingTemplate sessionTemplate;
+    private final boolean enabled;
+
+    private final CompactAlertState state = new CompactAlertState();
+
+    public CompactAlertPublisher(SimpMessagingTemplate brokerTemplate,
+                                 @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                                 @Value("${gateway.compact.enabled:true}") boolean enabled) {
+        this.brokerTemplate = brokerTemplate;
+        // Straight to one session, like an @SubscribeMapping reply; same JSON converter as the broker
+        this.sessionTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+        this.sessionTemplate.setMessageConverter(brokerTemplate.getMessageConverter());
+        this.enabled = enabled;
+    }
+
+    /** Records an alert and broadcasts the delta (called by AlertForwarder). */
+    public void onAlert(AlertMessage alert) {
+        if (!enabled) {
+            return;
+        }
+        // Built and sent under the state lock so deltas go out in q order
+        synchronized (state) {
+            CompactFrame delta = state.apply(alert);
+            if (delta != null) {
+                brokerTemplate.convertAndSend(DESTINATION, delta);
+            }
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor stomp = StompHeaderAccessor.wrap(event.getMessage());
+        if (!enabled || !DESTINATION.equals(stomp.getDestination())) {
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(stomp.getSessionId());
+        headers.setSubscriptionId(stomp.getSubscriptionId());
+        headers.setLeaveMutable(true);
+        sessionTemplate.convertAndSend(DESTINATION, state.snapshot(), headers.getMessageHeaders());
+    }
+}
@@ -0,0 +1,154 @@
+package mk.ukim.finki.gatewayservice.compact;
+
+import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import mk.ukim.finki.gatewayservice.model.CompactFrame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latest level/value of every (area, metric), and the codes the compact
+ * stream uses for area, metric and level names.
+ *
+ * Codes are handed out in order of first use and never change while the
+ * gateway runs; levels start pre-seeded as GREEN=0, YELLOW=1, ORANGE=2, RED=3.
+ * Every applied change bumps the sequence number, so a snapshot plus the
+ * deltas after its q always rebuild the current state.
+ */
+final class CompactAlertState {
+
+    private final Codes areas = new Codes();
+    private final Codes metrics = new Codes();
+    private final Codes levels = new Codes();
+
+    // (area code, metric code) -> latest state, in first-seen order
+    private final Map<Long, Entry> entries = new LinkedHashMap<>();
+    private long seq;
+
+    CompactAlertState() {
+        for (String level : List.of("GREEN", "YELLOW", "ORANGE", "RED")) {
+            levels.code(level, null);
+        }
+    }
+
+    /**
+     * Applies one alert.
+     *
+     * @return the delta frame to broadcast, or null if nothing visible changed
+     */
+    synchronized CompactFrame apply(AlertMessage alert) {
+        Map<Integer, String> newAreas = new HashMap<>();
+        Map<Integer, String> newMetrics = new HashMap<>();
+        Map<Integer, String> newLevels = new HashMap<>();
+        int a = areas.code(alert.getAreaKey(), newAreas);
+        int m = metrics.code(alert.getMetric() == null ? "unknown" : alert.getMetric().toLowerCase(), newMetrics);
+        int l = levels.code(alert.getLevel() == null ? "GREEN" : alert.getLevel().toUpperCase(), newLevels);
+        Double v = round(alert.getValue());
+        Long s = alert.getTimestamp() == null ? null : alert.getTimestamp().getEpochSecond();
+
+        Entry e = entries.get(key(a, m));
+        CompactFrame.Change change = new CompactFrame.Change();
+        change.setA(a);
+        change.setM(m);
+        if (e == null) {
+            e = new Entry();
+            entries.put(key(a, m), e);
+            change.setL(l);
+            change.setV(v);
+            change.setS(s);
+        } else {
+            if (e.level == l && equal(e.value, v) && equal(e.ts, s)) {
+                return null;
+            }
+            if (e.level != l) change.setL(l);
+            if (!equal(e.value, v)) change.setV(v);
+            if (!equal(e.ts, s)) change.setS(s);
+        }
+        e.level = l;
+        e.value = v;
+        e.ts = s;
+
+        CompactFrame frame = new CompactFrame();
+        frame.setT("d");
+        frame.setQ(++seq);
+        frame.setNa(newAreas.isEmpty() ? null : newAreas);
+        frame.setNm(newMetrics.isEmpty() ? null : newMetrics);
+        frame.setNl(newLevels.isEmpty() ? null : newLevels);
+        frame.setC(List.of(change));
+        return frame;
+    }
+
+    /** Every (area, metric) with all its fields, plus all codes, as of the current q. */
+    synchronized CompactFrame snapshot() {
+        List<CompactFrame.Change> all = new ArrayList<>(entries.size());
+        for (Map.Entry<Long, Entry> me : entries.entrySet()) {
+            CompactFrame.Change c = new CompactFrame.Change();
+            c.setA((int) (me.getKey() >>> 32));
+            c.setM((int) (long) me.getKey());
+            c.setL(me.getValue().level);
+            c.setV(me.getValue().value);
+            c.setS(me.getValue().ts);
+            all.add(c);
+        }
+        CompactFrame frame = new CompactFrame();
+        frame.setT("s");
+        frame.setQ(seq);
+        frame.setNa(areas.all());
+        frame.setNm(metrics.all());
+        frame.setNl(levels.all());
+        frame.setC(all);
+        return frame;
+    }
+
+    private static long key(int area, int metric) {
+        return ((long) area << 32) | (metric & 0xFFFFFFFFL);
+    }
+
+    // 1 decimal is plenty for a map colour and keeps the JSON short
+    private static Double round(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static final class Entry {
+        int level;
+        Double value;
+        Long ts;
+    }
+
+    /** name <-> code, codes 0, 1, 2, ... in order of first use. */
+    private static final class Codes {
+        private final Map<String, Integer> byName = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        int code(String name, Map<Integer, String> added) {
+            Integer code = byName.get(name);
+            if (code == null) {
+                code = names.size();
+                byName.put(name, code);
+                names.add(name);
+                if (added != null) {
+                    added.put(code, name);
+                }
+            }
+            return code;
+        }
+
+        Map<Integer, String> all() {
+            Map<Integer, String> out = new LinkedHashMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                out.put(i, names.get(i));
+            }
+            return out;
+        }
+    }
+}
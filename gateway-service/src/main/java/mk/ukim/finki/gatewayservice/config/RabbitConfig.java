@@ -2,12 +2,19 @@ package mk.ukim.finki.gatewayservice.config;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.retry.RejectAndDontRequeueRecoverer;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+
+import java.util.Map;
 
 /**
  * Gateway service RabbitMQ configuration.
@@ -16,7 +23,11 @@ import org.springframework.context.annotation.Configuration;
  * 1. Declares alerts.topic exchange (receives alerts from aggregator)
  * 2. Creates queue "gw.alerts" bound with pattern "alert.*.*"
  * 3. Sets up Dead Letter Queue for failed WebSocket forwarding
- * 4. Configures listener factory for proper message handling
+ * 4. Configures listener factory for proper message handling, including the
+ *    retry of spring.rabbitmq.listener.simple.retry (a custom factory does not
+ *    get it from Spring Boot, so it is applied here)
+ * 5. Creates queue "gw.ticks" bound with "tick.*" for the aggregate tick stream
+ *    (no DLQ: a lost tick is replaced by the next one)
  *
  * RABBITMQ CONCEPTS:
  *
@@ -28,6 +39,9 @@ import org.springframework.context.annotation.Configuration;
  * DEAD LETTER QUEUE:
  * - If WebSocket forwarding fails, message goes to DLQ
  * - Prevents alert loss if WebSocket connection is down
+ * - Drained and replayed via POST /api/dlq/replay (DlqReplayService)
+ * - AmqpRejectAndDontRequeueException (e.g. AlertForwarder's handoff timeout)
+ *   is not retried: it goes to the DLQ on the first attempt
  *
  * Gateway service listens on queue gw.alerts,
  * bound to alerts.topic with routing key alert.*.*
@@ -37,6 +51,7 @@ public class RabbitConfig {
 
     public static final String ALERTS_EXCHANGE = "alerts.topic";
     public static final String GW_ALERTS_QUEUE = "gw.alerts";
+    public static final String GW_TICKS_QUEUE = "gw.ticks";
     
     // Dead Letter Exchange and Queue
     public static final String DLX = "dlx";
@@ -91,6 +106,30 @@ public class RabbitConfig {
                 .with("alert.*.*");
     }
 
+    /**
+     * Aggregate ticks queue. Only the latest tick per area matters, so
+     * old ones expire quickly and a backlog is capped (oldest dropped).
+     */
+    @Bean
+    public Queue gatewayTicksQueue() {
+        return QueueBuilder.durable(GW_TICKS_QUEUE)
+                .withArgument("x-message-ttl", 30000) // 30 seconds TTL
+                .withArgument("x-max-length", 1000)
+                .build();
+    }
+
+    /**
+     * Binds ticks queue to alerts exchange.
+     * Pattern "tick.*" receives the aggregate tick of every area
+     */
+    @Bean
+    public Binding gatewayTicksBinding(Queue gatewayTicksQueue,
+                                       TopicExchange alertsExchange) {
+        return BindingBuilder.bind(gatewayTicksQueue)
+                .to(alertsExchange)
+                .with("tick.*");
+    }
+
     /**
      * Binds Dead Letter Queue to Dead Letter Exchange
      */
@@ -116,12 +155,34 @@ public class RabbitConfig {
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter converter) {
+            Jackson2JsonMessageConverter converter,
+            RabbitProperties rabbitProperties) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(converter);
         // Don't requeue rejected messages - send to DLQ
         factory.setDefaultRequeueRejected(false);
+
+        RabbitProperties.ListenerRetry retry = rabbitProperties.getListener().getSimple().getRetry();
+        if (retry.isEnabled()) {
+            factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                    .retryPolicy(listenerRetryPolicy(retry.getMaxAttempts()))
+                    .backOffOptions(retry.getInitialInterval().toMillis(), retry.getMultiplier(),
+                            retry.getMaxInterval().toMillis())
+                    // Out of attempts: reject without requeue -> DLQ
+                    .recoverer(new RejectAndDontRequeueRecoverer())
+                    .build());
+        }
         return factory;
     }
+
+    /**
+     * Retries a failed delivery up to maxAttempts, except when the listener
+     * already decided to reject it (looked up through the
+     * ListenerExecutionFailedException wrapper).
+     */
+    static SimpleRetryPolicy listenerRetryPolicy(int maxAttempts) {
+        return new SimpleRetryPolicy(maxAttempts,
+                Map.of(AmqpRejectAndDontRequeueException.class, false), true, true);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package mk.ukim.finki.gatewayservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mk.ukim.finki.common.tracing.LatencyTracker;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pipeline latency timers (weather.pipeline.latency), shared with the other
+ * services through weather-common.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public LatencyTracker latencyTracker(MeterRegistry registry) {
+        return new LatencyTracker(registry);
+    }
+}
@@ -1,25 +1,173 @@
 package mk.ukim.finki.gatewayservice.config;
 
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.standard.TomcatRequestUpgradeStrategy;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+
+/**
+ * STOMP over WebSocket.
+ *
+ * ENDPOINTS:
+ * - /ws         SockJS (browser fallback transports, SockJS framing and heartbeat frames)
+ * - /ws-native  plain ws:// for the Flutter app and other native clients; no SockJS
+ *               session, framing or polling fallbacks, so less memory and CPU per idle connection
+ *
+ * Both endpoints:
+ * - permessage-deflate is offered when gateway.websocket.permessage-deflate=true
+ *   (negotiated per connection; only used if the client asks for it). When it is
+ *   false, the client's Sec-WebSocket-Extensions header is hidden from Tomcat:
+ *   given no extensions, Tomcat would fall back to negotiating its own installed
+ *   ones, deflate included
+ * - STOMP heartbeats every gateway.websocket.heartbeat-ms, so dead connections
+ *   are noticed without SockJS heartbeats
+ * - a slow client is dropped once a send has been blocked for send-time-limit-ms
+ *   or send-buffer-size-limit bytes are queued for it, instead of holding memory
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+
+    private final boolean permessageDeflate;
+    private final long heartbeatMs;
+    private final long sockJsHeartbeatMs;
+    private final int sendTimeLimitMs;
+    private final int sendBufferSizeLimit;
+    private final int messageSizeLimit;
+    private final int inboundBufferSize;
+    private final long idleTimeoutMs;
+    private final TaskScheduler heartbeatScheduler;
+
+    public WebSocketConfig(@Value("${gateway.websocket.permessage-deflate:true}") boolean permessageDeflate,
+                           @Value("${gateway.websocket.heartbeat-ms:20000}") long heartbeatMs,
+                           @Value("${gateway.websocket.sockjs-heartbeat-ms:25000}") long sockJsHeartbeatMs,
+                           @Value("${gateway.websocket.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                           @Value("${gateway.websocket.send-buffer-size-limit:262144}") int sendBufferSizeLimit,
+                           @Value("${gateway.websocket.message-size-limit:16384}") int messageSizeLimit,
+                           @Value("${gateway.websocket.inbound-buffer-size:4096}") int inboundBufferSize,
+                           @Value("${gateway.websocket.idle-timeout-ms:120000}") long idleTimeoutMs,
+                           @Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler heartbeatScheduler) {
+        this.permessageDeflate = permessageDeflate;
+        this.heartbeatMs = heartbeatMs;
+        this.sockJsHeartbeatMs = sockJsHeartbeatMs;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.messageSizeLimit = messageSizeLimit;
+        this.inboundBufferSize = inboundBufferSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.heartbeatScheduler = heartbeatScheduler;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
+                .setHandshakeHandler(handshakeHandler())
                 .setAllowedOriginPatterns("*")
-                .withSockJS();
+                .withSockJS()
+                .setHeartbeatTime(sockJsHeartbeatMs);
+
+        registry.addEndpoint("/ws-native")
+                .setHandshakeHandler(handshakeHandler())
+                .setAllowedOriginPatterns("*");
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");
+        registry.enableSimpleBroker("/topic")
+                .setHeartbeatValue(new long[]{heartbeatMs, heartbeatMs})
+                .setTaskScheduler(heartbeatScheduler);
         registry.setApplicationDestinationPrefixes("/app");
+        // Frames reach each session in publish order (compact deltas rely on it)
+        registry.setPreservePublishOrder(true);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    /**
+     * Container-level limits (Tomcat). Each session allocates its inbound text
+     * and binary buffers up front, and those dominate the heap of an idle
+     * connection (2 x 8 KB by default, text counted in chars). Clients only send
+     * small STOMP frames (CONNECT, SUBSCRIBE), so inbound-buffer-size keeps them
+     * small. Idle sessions are closed after idle-timeout-ms (heartbeats keep live
+     * ones busy).
+     * Same as ServletServerContainerFactoryBean, but skipped when there is no
+     * real container (mock servlet environment in tests).
+     */
+    @Bean
+    public InitializingBean webSocketContainerLimits(ServletContext servletContext) {
+        return () -> {
+            if (servletContext.getAttribute(ServerContainer.class.getName()) instanceof ServerContainer container) {
+                container.setDefaultMaxTextMessageBufferSize(inboundBufferSize);
+                container.setDefaultMaxBinaryMessageBufferSize(inboundBufferSize);
+                container.setDefaultMaxSessionIdleTimeout(idleTimeoutMs);
+                container.setAsyncSendTimeout(sendTimeLimitMs);
+            }
+        };
+    }
+
+    private DefaultHandshakeHandler handshakeHandler() {
+        if (permessageDeflate) {
+            return new DefaultHandshakeHandler();
+        }
+        return new DefaultHandshakeHandler(new TomcatRequestUpgradeStrategy() {
+            @Override
+            protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+                                                  ServerEndpointConfig endpointConfig,
+                                                  Map<String, String> pathParams) throws Exception {
+                super.upgradeHttpToWebSocket(new WithoutExtensionsHeader(request), response, endpointConfig, pathParams);
+            }
+        });
+    }
+
+    /** The handshake request as if the client had asked for no extensions. */
+    private static final class WithoutExtensionsHeader extends HttpServletRequestWrapper {
+
+        WithoutExtensionsHeader(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return EXTENSIONS_HEADER.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                    .filter(h -> !EXTENSIONS_HEADER.equalsIgnoreCase(h))
+                    .toList());
+        }
     }
 }
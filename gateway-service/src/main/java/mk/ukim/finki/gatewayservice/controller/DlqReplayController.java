@@ -0,0 +1,50 @@
+package mk.ukim.finki.gatewayservice.controller;
+
+import mk.ukim.finki.gatewayservice.service.DlqReplayService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operator endpoint for recovering dead-lettered alerts.
+ *
+ * Endpoints:
+ * - POST /api/dlq/replay?batchSize=100&ratePerSecond=500&maxMessages=50000
+ *   Starts draining dlq.gw.alerts in the background and republishing the
+ *   latest alert per area/metric; 202 when started, 409 if one is running.
+ *   All parameters are optional (defaults come from gateway.dlq-replay.*).
+ * - GET /api/dlq/replay/status
+ *   Whether a replay is running, and the report of the last finished one.
+ */
+@RestController
+@RequestMapping("/api/dlq")
+public class DlqReplayController {
+
+    private final DlqReplayService replayService;
+
+    public DlqReplayController(DlqReplayService replayService) {
+        this.replayService = replayService;
+    }
+
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Object>> replay(@RequestParam(required = false) Integer batchSize,
+                                                      @RequestParam(required = false) Integer ratePerSecond,
+                                                      @RequestParam(required = false) Integer maxMessages) {
+        if (!replayService.start(batchSize, ratePerSecond, maxMessages)) {
+            // Another replay is draining the DLQ
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().body(Map.of("running", true));
+    }
+
+    @GetMapping("/replay/status")
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", replayService.isRunning());
+        status.put("lastReport", replayService.lastReport());
+        return status;
+    }
+}
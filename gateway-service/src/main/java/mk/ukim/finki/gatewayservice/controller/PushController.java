@@ -0,0 +1,55 @@
+package mk.ukim.finki.gatewayservice.controller;
+
+import mk.ukim.finki.gatewayservice.model.DeviceRegistration;
+import mk.ukim.finki.gatewayservice.push.DeviceRegistry;
+import mk.ukim.finki.gatewayservice.push.RegistryFullException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Device registration for push notifications.
+ *
+ * Endpoints:
+ * - POST /api/push/devices   {"token":"...","platform":"android","areas":["centar","karposh"]}
+ *   Registers a device (or replaces its areas). 400 without a token or areas,
+ *   507 when gateway.push.max-devices other devices are registered.
+ * - DELETE /api/push/devices/{token}
+ * - GET /api/push/status
+ */
+@RestController
+@RequestMapping("/api/push")
+public class PushController {
+
+    private final DeviceRegistry registry;
+
+    public PushController(DeviceRegistry registry) {
+        this.registry = registry;
+    }
+
+    @PostMapping("/devices")
+    public ResponseEntity<Void> register(@RequestBody DeviceRegistration registration) {
+        try {
+            registry.register(registration.getToken(), registration.getAreas());
+            return ResponseEntity.noContent().build();
+        } catch (RegistryFullException e) {
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/devices/{token}")
+    public ResponseEntity<Void> unregister(@PathVariable String token) {
+        return registry.unregister(token)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/status")
+    public Map<String, Object> status() {
+        return Map.of("devices", registry.size());
+    }
+}
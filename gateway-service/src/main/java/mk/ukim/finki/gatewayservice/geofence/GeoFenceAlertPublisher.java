@@ -0,0 +1,133 @@
+package mk.ukim.finki.gatewayservice.geofence;
+
+import mk.ukim.finki.gatewayservice.metrics.GatewayMetrics;
+import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.List;
+
+/**
+ * Geo-fenced alert subscriptions: /topic/geo/alerts
+ *
+ * The client puts its fence in the SUBSCRIBE frame:
+ *
+ *   SUBSCRIBE
+ *   id:home
+ *   destination:/topic/geo/alerts
+ *   lat:41.9981
+ *   lon:21.4254
+ *   radius-km:3
+ *
+ * and then gets every alert (full AlertMessage JSON) whose area overlaps the
+ * circle, sent to that subscription only. A session may hold several fences
+ * (one per subscription, up to gateway.geofence.max-per-session); UNSUBSCRIBE
+ * or disconnect removes them. A fence with missing/invalid headers, a radius
+ * above gateway.geofence.max-radius-km, or no known area inside it is ignored.
+ *
+ * Nothing is published to the broker on this destination, so a plain
+ * subscription without a fence receives nothing.
+ */
+@Service
+public class GeoFenceAlertPublisher {
+
+    public static final String DESTINATION = "/topic/geo/alerts";
+
+    private static final Logger log = LoggerFactory.getLogger(GeoFenceAlertPublisher.class);
+
+    private final SimpMessagingTemplate sessionTemplate;
+    private final GatewayMetrics metrics;
+    private final double maxRadiusKm;
+    private final int maxPerSession;
+
+    private final GeoFenceIndex index = new GeoFenceIndex();
+
+    public GeoFenceAlertPublisher(SimpMessagingTemplate brokerTemplate,
+                                  @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                                  GatewayMetrics metrics,
+                                  @Value("${gateway.geofence.max-radius-km:25}") double maxRadiusKm,
+                                  @Value("${gateway.geofence.max-per-session:5}") int maxPerSession) {
+        // Straight to one session (see CompactAlertPublisher); same JSON converter as the broker
+        this.sessionTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+        this.sessionTemplate.setMessageConverter(brokerTemplate.getMessageConverter());
+        this.metrics = metrics;
+        this.maxRadiusKm = maxRadiusKm;
+        this.maxPerSession = maxPerSession;
+        metrics.gauge("gateway.geofence.fences", "Registered geo-fence subscriptions", index, GeoFenceIndex::size);
+    }
+
+    /** Sends the alert to every fence its area touches (called by AlertForwarder). */
+    public void onAlert(AlertMessage alert) {
+        for (GeoFenceIndex.Fence fence : index.match(alert.getAreaKey())) {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(fence.sessionId());
+            headers.setSubscriptionId(fence.subscriptionId());
+            headers.setLeaveMutable(true);
+            sessionTemplate.convertAndSend(DESTINATION, alert, headers.getMessageHeaders());
+            metrics.geofenceDelivered();
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor stomp = StompHeaderAccessor.wrap(event.getMessage());
+        if (!DESTINATION.equals(stomp.getDestination())) {
+            return;
+        }
+        String sessionId = stomp.getSessionId();
+        Double lat = parse(stomp.getFirstNativeHeader("lat"));
+        Double lon = parse(stomp.getFirstNativeHeader("lon"));
+        Double radiusKm = parse(stomp.getFirstNativeHeader("radius-km"));
+        if (sessionId == null || stomp.getSubscriptionId() == null || lat == null || lon == null || radiusKm == null
+                || Math.abs(lat) > 90 || Math.abs(lon) > 180 || radiusKm <= 0 || radiusKm > maxRadiusKm) {
+            log.debug("Ignoring geo-fence subscription of session {}: lat={} lon={} radius-km={}",
+                    sessionId, lat, lon, radiusKm);
+            return;
+        }
+        List<String> areas = index.add(new GeoFenceIndex.Fence(sessionId, stomp.getSubscriptionId(), lat, lon, radiusKm),
+                maxPerSession);
+        if (areas.isEmpty()) {
+            log.debug("Ignoring geo-fence subscription of session {}: no known area inside it or already {} fences",
+                    sessionId, maxPerSession);
+            return;
+        }
+        log.debug("Geo-fence {}/{} ({}, {}, {} km) covers {}", sessionId, stomp.getSubscriptionId(), lat, lon, radiusKm, areas);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor stomp = StompHeaderAccessor.wrap(event.getMessage());
+        if (stomp.getSessionId() != null && stomp.getSubscriptionId() != null) {
+            index.remove(stomp.getSessionId(), stomp.getSubscriptionId());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        index.removeSession(event.getSessionId());
+    }
+
+    private static Double parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            double d = Double.parseDouble(value.trim());
+            return Double.isFinite(d) ? d : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package mk.ukim.finki.gatewayservice.geofence;
+
+import mk.ukim.finki.common.area.SkopjeAreas;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Geo-fences of connected sessions, indexed by the areas they touch.
+ *
+ * A fence is resolved to its areas once, when it is registered (circle vs.
+ * area box). The boxes are SkopjeAreas from weather-common, the same ones
+ * producer-service assigns sensors with, since alerts only carry the area.
+ * The index then keeps areaKey -> fences, so matching an alert is one map
+ * lookup and costs only the fences of that area, however many sessions are
+ * connected. Registering and removing are O(areas).
+ *
+ * A fence that touches no known area is rejected (nothing could ever match it).
+ */
+final class GeoFenceIndex {
+
+    /** One registered fence: a STOMP subscription of a session. */
+    record Fence(String sessionId, String subscriptionId, double lat, double lon, double radiusKm) {
+    }
+
+    // areaKey -> fences touching it
+    private final Map<String, Set<Fence>> byArea = new ConcurrentHashMap<>();
+    // sessionId -> its fences (for UNSUBSCRIBE / DISCONNECT)
+    private final Map<String, Set<Fence>> bySession = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the fence unless its session already holds maxPerSession fences.
+     * The count check and the insert happen in one compute on the session, so
+     * concurrent SUBSCRIBEs of a session cannot overshoot the limit.
+     *
+     * @return the areas the fence touches; empty if it touches none or the
+     *         session is at its limit, and it was not added
+     */
+    List<String> add(Fence fence, int maxPerSession) {
+        List<String> areas = new ArrayList<>();
+        for (Map.Entry<String, SkopjeAreas.Box> e : SkopjeAreas.all().entrySet()) {
+            if (e.getValue().distanceKm(fence.lat(), fence.lon()) <= fence.radiusKm()) {
+                areas.add(e.getKey());
+            }
+        }
+        if (areas.isEmpty()) {
+            return areas;
+        }
+        boolean[] added = new boolean[1];
+        bySession.compute(fence.sessionId(), (k, fences) -> {
+            if (fences == null) {
+                fences = ConcurrentHashMap.newKeySet();
+            }
+            if (fences.size() < maxPerSession && fences.add(fence)) {
+                for (String area : areas) {
+                    byArea.computeIfAbsent(area, a -> ConcurrentHashMap.newKeySet()).add(fence);
+                }
+                added[0] = true;
+            }
+            return fences.isEmpty() ? null : fences;
+        });
+        return added[0] ? areas : List.of();
+    }
+
+    /** Removes the fence of one subscription. */
+    void remove(String sessionId, String subscriptionId) {
+        bySession.computeIfPresent(sessionId, (k, fences) -> {
+            for (Fence fence : List.copyOf(fences)) {
+                if (fence.subscriptionId().equals(subscriptionId)) {
+                    fences.remove(fence);
+                    unindex(fence);
+                }
+            }
+            return fences.isEmpty() ? null : fences;
+        });
+    }
+
+    /** Removes every fence of a session. */
+    void removeSession(String sessionId) {
+        Set<Fence> fences = bySession.remove(sessionId);
+        if (fences != null) {
+            fences.forEach(this::unindex);
+        }
+    }
+
+    /** Fences an alert for the area touches (live view, do not modify). */
+    Collection<Fence> match(String areaKey) {
+        Set<Fence> fences = byArea.get(areaKey);
+        return fences == null ? List.of() : fences;
+    }
+
+    int sessionFenceCount(String sessionId) {
+        Set<Fence> fences = bySession.get(sessionId);
+        return fences == null ? 0 : fences.size();
+    }
+
+    int size() {
+        int n = 0;
+        for (Set<Fence> fences : bySession.values()) {
+            n += fences.size();
+        }
+        return n;
+    }
+
+    private void unindex(Fence fence) {
+        for (Set<Fence> fences : byArea.values()) {
+            fences.remove(fence);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package mk.ukim.finki.gatewayservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer meters for the gateway (see /actuator/metrics).
+ *
+ * METERS:
+ * - gateway.alerts.forwarded           alerts pushed to WebSocket topics
+ * - gateway.alerts.dispatch.queue      alerts received but still waiting for a dispatch thread
+ * - gateway.alerts.dispatch.rejected   alerts dead-lettered because the dispatch queue stayed full
+ * - gateway.websocket.sessions         connected STOMP sessions
+ * - gateway.websocket.outbound.queue   frames waiting in clientOutboundChannel
+ * - gateway.ticks.forwarded            aggregate ticks pushed to /topic/ticks/*
+ * - gateway.ticks.conflated            ticks replaced by a newer one before they were pushed
+ * - gateway.geofence.fences            registered geo-fence subscriptions
+ * - gateway.geofence.delivered         alerts sent to a geo-fence subscription
+ * - gateway.push.sent                  push notifications accepted by the transport
+ * - gateway.push.failed                push notifications in batches the transport failed
+ * - gateway.push.dropped               alerts not pushed because the push queue was full
+ * - gateway.push.devices / .queue      registered devices / alerts waiting to be pushed
+ */
+@Component
+public class GatewayMetrics {
+
+    private final Counter alertsForwarded;
+    private final Counter alertHandoffsRejected;
+    private final Counter ticksForwarded;
+    private final Counter ticksConflated;
+    private final Counter geofenceDelivered;
+    private final Counter pushSent;
+    private final Counter pushFailed;
+    private final Counter pushDropped;
+    private final MeterRegistry registry;
+
+    // Session ids rather than a counter: Spring may publish SessionDisconnectEvent more than once
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+
+    public GatewayMetrics(MeterRegistry registry,
+                          @Qualifier("clientOutboundChannelExecutor") TaskExecutor outboundExecutor) {
+        this.registry = registry;
+        this.alertsForwarded = Counter.builder("gateway.alerts.forwarded")
+                .description("Alerts forwarded to WebSocket topics")
+                .register(registry);
+        this.alertHandoffsRejected = Counter.builder("gateway.alerts.dispatch.rejected")
+                .description("Alerts rejected because the dispatch queue stayed full")
+                .register(registry);
+        this.ticksForwarded = Counter.builder("gateway.ticks.forwarded")
+                .description("Aggregate ticks pushed to WebSocket topics")
+                .register(registry);
+        this.ticksConflated = Counter.builder("gateway.ticks.conflated")
+                .description("Aggregate ticks superseded before they were pushed")
+                .register(registry);
+        this.geofenceDelivered = Counter.builder("gateway.geofence.delivered")
+                .description("Alerts sent to geo-fence subscriptions")
+                .register(registry);
+        this.pushSent = Counter.builder("gateway.push.sent")
+                .description("Push notifications accepted by the push transport")
+                .register(registry);
+        this.pushFailed = Counter.builder("gateway.push.failed")
+                .description("Push notifications in batches the push transport failed")
+                .register(registry);
+        this.pushDropped = Counter.builder("gateway.push.dropped")
+                .description("Alerts not pushed because the push queue was full")
+                .register(registry);
+        Gauge.builder("gateway.websocket.sessions", sessions, Set::size)
+                .description("Connected STOMP sessions")
+                .register(registry);
+        if (outboundExecutor instanceof ThreadPoolTaskExecutor pool) {
+            Gauge.builder("gateway.websocket.outbound.queue", pool,
+                            e -> e.getThreadPoolExecutor().getQueue().size())
+                    .description("Messages queued for delivery to WebSocket clients")
+                    .register(registry);
+        }
+    }
+
+    public void alertForwarded() { alertsForwarded.increment(); }
+
+    public void alertHandoffRejected() { alertHandoffsRejected.increment(); }
+
+    public void tickForwarded() { ticksForwarded.increment(); }
+
+    public void tickConflated() { ticksConflated.increment(); }
+
+    public void geofenceDelivered() { geofenceDelivered.increment(); }
+
+    public void pushSent(int devices) { pushSent.increment(devices); }
+
+    public void pushFailed(int devices) { pushFailed.increment(devices); }
+
+    public void pushDropped() { pushDropped.increment(); }
+
+    /** Gauge on state owned by another component (index sizes, queue depths). */
+    public <T> void gauge(String name, String description, T obj, ToDoubleFunction<T> value) {
+        Gauge.builder(name, obj, value)
+                .description(description)
+                .register(registry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = (String) event.getMessage().getHeaders().get("simpSessionId");
+        if (sessionId != null) sessions.add(sessionId);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+}
@@ -0,0 +1,52 @@
+package mk.ukim.finki.gatewayservice.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Periodic per-area aggregate from the aggregator (routing key tick.<area>),
+ * forwarded to /topic/ticks/*.
+ * Must match aggregator-service AggregateTick JSON.
+ */
+public class AggregateTick {
+    private String area;
+    private Instant timestamp;
+    private Map<String, MetricAggregate> metrics;
+
+    public AggregateTick() {}
+
+    public String getArea() { return area; }
+    public void setArea(String area) { this.area = area; }
+
+    public Instant getTimestamp() { return timestamp; }
+    public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+
+    public Map<String, MetricAggregate> getMetrics() { return metrics; }
+    public void setMetrics(Map<String, MetricAggregate> metrics) { this.metrics = metrics; }
+
+    /** Current window values of one metric. */
+    public static class MetricAggregate {
+        private double avg;
+        private double min;
+        private double max;
+        private long count;
+        private Instant asOf;
+
+        public MetricAggregate() {}
+
+        public double getAvg() { return avg; }
+        public void setAvg(double avg) { this.avg = avg; }
+
+        public double getMin() { return min; }
+        public void setMin(double min) { this.min = min; }
+
+        public double getMax() { return max; }
+        public void setMax(double max) { this.max = max; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+
+        public Instant getAsOf() { return asOf; }
+        public void setAsOf(Instant asOf) { this.asOf = asOf; }
+    }
+}
@@ -14,6 +14,9 @@ public class AlertMessage {
     private double threshold;
     private Instant timestamp;
     private String reason;
+    private double p50;
+    private double p90;
+    private double p99;
 
     public AlertMessage() {}
 
@@ -37,6 +40,15 @@ public class AlertMessage {
 
     public String getReason() { return reason; }
     public void setReason(String reason) { this.reason = reason; }
+
+    public double getP50() { return p50; }
+    public void setP50(double p50) { this.p50 = p50; }
+
+    public double getP90() { return p90; }
+    public void setP90(double p90) { this.p90 = p90; }
+
+    public double getP99() { return p99; }
+    public void setP99(double p99) { this.p99 = p99; }
 // Convenience fields for frontend (Flutter)
 
 public String getAreaKey() {
@@ -0,0 +1,79 @@
+package mk.ukim.finki.gatewayservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Frame of the compact alert stream (/topic/compact/alerts).
+ *
+ *   {"t":"s","q":41,"na":{"0":"centar"},"nm":{"0":"pm10"},"nl":{"0":"GREEN",...},
+ *    "c":[{"a":0,"m":0,"l":3,"v":61.2,"s":1734000000}]}
+ *
+ * t   "s" = snapshot (every area), "d" = delta (only what changed)
+ * q   sequence number; deltas are q+1, q+2, ... after the snapshot's q
+ * na/nm/nl  code -> name for areas / metrics / levels; all of them in a
+ *     snapshot, only codes introduced by this frame in a delta
+ * c   changes: a = area code, m = metric code, l = level code,
+ *     v = value (1 decimal), s = event time (epoch seconds);
+ *     in a delta only the fields that changed are present
+ *
+ * Null fields are left out of the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CompactFrame {
+    private String t;
+    private long q;
+    private Map<Integer, String> na;
+    private Map<Integer, String> nm;
+    private Map<Integer, String> nl;
+    private List<Change> c;
+
+    public CompactFrame() {}
+
+    public String getT() { return t; }
+    public void setT(String t) { this.t = t; }
+
+    public long getQ() { return q; }
+    public void setQ(long q) { this.q = q; }
+
+    public Map<Integer, String> getNa() { return na; }
+    public void setNa(Map<Integer, String> na) { this.na = na; }
+
+    public Map<Integer, String> getNm() { return nm; }
+    public void setNm(Map<Integer, String> nm) { this.nm = nm; }
+
+    public Map<Integer, String> getNl() { return nl; }
+    public void setNl(Map<Integer, String> nl) { this.nl = nl; }
+
+    public List<Change> getC() { return c; }
+    public void setC(List<Change> c) { this.c = c; }
+
+    /** State of one (area, metric); unchanged fields are null in a delta. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Change {
+        private int a;
+        private int m;
+        private Integer l;
+        private Double v;
+        private Long s;
+
+        public Change() {}
+
+        public int getA() { return a; }
+        public void setA(int a) { this.a = a; }
+
+        public int getM() { return m; }
+        public void setM(int m) { this.m = m; }
+
+        public Integer getL() { return l; }
+        public void setL(Integer l) { this.l = l; }
+
+        public Double getV() { return v; }
+        public void setV(Double v) { this.v = v; }
+
+        public Long getS() { return s; }
+        public void setS(Long s) { this.s = s; }
+    }
+}
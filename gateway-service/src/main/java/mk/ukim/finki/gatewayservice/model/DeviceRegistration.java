@@ -0,0 +1,24 @@
+package mk.ukim.finki.gatewayservice.model;
+
+import java.util.List;
+
+/**
+ * Body of POST /api/push/devices: a device's push token and the areas
+ * (area keys, e.g. "gazi_baba") it wants alerts for.
+ */
+public class DeviceRegistration {
+    private String token;
+    private String platform;
+    private List<String> areas;
+
+    public DeviceRegistration() {}
+
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
+
+    public String getPlatform() { return platform; }
+    public void setPlatform(String platform) { this.platform = platform; }
+
+    public List<String> getAreas() { return areas; }
+    public void setAreas(List<String> areas) { this.areas = areas; }
+}
@@ -0,0 +1,51 @@
+package mk.ukim.finki.gatewayservice.model;
+
+import java.time.Instant;
+
+/**
+ * One push notification, sent to a batch of device tokens by a PushTransport.
+ */
+public class PushNotification {
+    private String area;
+    private String metric;
+    private String level;
+    private double value;
+    private Instant timestamp;
+    private String title;
+    private String body;
+
+    public PushNotification() {}
+
+    public static PushNotification from(AlertMessage alert) {
+        PushNotification n = new PushNotification();
+        n.setArea(alert.getAreaKey());
+        n.setMetric(alert.getMetric());
+        n.setLevel(alert.getLevel());
+        n.setValue(alert.getValue());
+        n.setTimestamp(alert.getTimestamp());
+        n.setTitle(alert.getLevel() + " air quality alert: " + alert.getArea());
+        n.setBody(alert.getReason());
+        return n;
+    }
+
+    public String getArea() { return area; }
+    public void setArea(String area) { this.area = area; }
+
+    public String getMetric() { return metric; }
+    public void setMetric(String metric) { this.metric = metric; }
+
+    public String getLevel() { return level; }
+    public void setLevel(String level) { this.level = level; }
+
+    public double getValue() { return value; }
+    public void setValue(double value) { this.value = value; }
+
+    public Instant getTimestamp() { return timestamp; }
+    public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getBody() { return body; }
+    public void setBody(String body) { this.body = body; }
+}
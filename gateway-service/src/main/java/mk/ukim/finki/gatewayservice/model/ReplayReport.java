@@ -0,0 +1,46 @@
+package mk.ukim.finki.gatewayservice.model;
+
+/**
+ * Result of one DLQ replay run, returned by /api/dlq/replay/status.
+ *
+ * superseded = skipped because a newer live alert for the series was already
+ * delivered; requeued = left in the DLQ because republishing them failed.
+ */
+public class ReplayReport {
+    private final int drained;
+    private final int duplicates;
+    private final int stale;
+    private final int superseded;
+    private final int unreadable;
+    private final int republished;
+    private final int requeued;
+    private final long durationMs;
+
+    public ReplayReport(int drained, int duplicates, int stale, int superseded, int unreadable,
+                        int republished, int requeued, long durationMs) {
+        this.drained = drained;
+        this.duplicates = duplicates;
+        this.stale = stale;
+        this.superseded = superseded;
+        this.unreadable = unreadable;
+        this.republished = republished;
+        this.requeued = requeued;
+        this.durationMs = durationMs;
+    }
+
+    public int getDrained() { return drained; }
+
+    public int getDuplicates() { return duplicates; }
+
+    public int getStale() { return stale; }
+
+    public int getSuperseded() { return superseded; }
+
+    public int getUnreadable() { return unreadable; }
+
+    public int getRepublished() { return republished; }
+
+    public int getRequeued() { return requeued; }
+
+    public long getDurationMs() { return durationMs; }
+}
@@ -0,0 +1,142 @@
+package mk.ukim.finki.gatewayservice.push;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Push tokens of mobile devices and the areas each one follows.
+ *
+ * Kept both ways: token -> areas for (re-)registration and removal, and
+ * areaKey -> tokens so an alert finds its subscribers with one lookup,
+ * however many devices follow other areas.
+ *
+ * In memory only: devices re-register when the app starts, which also picks
+ * up token rotation by the push provider.
+ *
+ * Bounded: a token counts once however often it re-registers, and at most
+ * gateway.push.max-devices tokens are kept. A token that has not registered
+ * again within gateway.push.device-ttl-ms is dropped (uninstalled apps never
+ * unregister), both on the gateway.push.expire-ms timer and before a new
+ * device is refused because the registry is full.
+ */
+@Component
+public class DeviceRegistry {
+
+    private final int maxAreasPerDevice;
+    private final int maxDevices;
+    private final long deviceTtlMs;
+
+    private final Map<String, Set<String>> areasByToken = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> tokensByArea = new ConcurrentHashMap<>();
+    private final Map<String, Long> registeredAtByToken = new ConcurrentHashMap<>();
+
+    public DeviceRegistry(@Value("${gateway.push.max-areas-per-device:20}") int maxAreasPerDevice,
+                          @Value("${gateway.push.max-devices:200000}") int maxDevices,
+                          @Value("${gateway.push.device-ttl-ms:2592000000}") long deviceTtlMs) {
+        if (maxDevices < 1 || deviceTtlMs < 1) {
+            throw new IllegalArgumentException("gateway.push.max-devices and device-ttl-ms must be positive");
+        }
+        this.maxAreasPerDevice = maxAreasPerDevice;
+        this.maxDevices = maxDevices;
+        this.deviceTtlMs = deviceTtlMs;
+    }
+
+    /**
+     * Registers a device, replacing the areas it followed before.
+     *
+     * @throws IllegalArgumentException if the token is blank or there are no / too many areas
+     * @throws RegistryFullException if the token is new and max-devices are registered
+     */
+    public void register(String token, Collection<String> areas) {
+        register(token, areas, System.currentTimeMillis());
+    }
+
+    synchronized void register(String token, Collection<String> areas, long nowMs) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("token is required");
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        if (areas != null) {
+            for (String area : areas) {
+                if (area != null && !area.isBlank()) {
+                    keys.add(area.trim().toLowerCase().replace(" ", "_"));
+                }
+            }
+        }
+        if (keys.isEmpty() || keys.size() > maxAreasPerDevice) {
+            throw new IllegalArgumentException("between 1 and " + maxAreasPerDevice + " areas are required");
+        }
+        if (!areasByToken.containsKey(token) && areasByToken.size() >= maxDevices
+                && (expireStale(nowMs) == 0 || areasByToken.size() >= maxDevices)) {
+            throw new RegistryFullException(maxDevices);
+        }
+        registeredAtByToken.put(token, nowMs);
+        if (keys.equals(areasByToken.get(token))) {
+            return;
+        }
+        removeAreas(token);
+        areasByToken.put(token, keys);
+        for (String area : keys) {
+            tokensByArea.computeIfAbsent(area, k -> ConcurrentHashMap.newKeySet()).add(token);
+        }
+    }
+
+    /** @return true if the token was registered */
+    public synchronized boolean unregister(String token) {
+        registeredAtByToken.remove(token);
+        return removeAreas(token);
+    }
+
+    /** Drops devices that have not registered again within the TTL. */
+    @Scheduled(fixedDelayString = "${gateway.push.expire-ms:3600000}")
+    public void expireStale() {
+        expireStale(System.currentTimeMillis());
+    }
+
+    /** @return the number of devices dropped */
+    synchronized int expireStale(long nowMs) {
+        long cutoff = nowMs - deviceTtlMs;
+        int expired = 0;
+        for (Map.Entry<String, Long> e : registeredAtByToken.entrySet()) {
+            if (e.getValue() < cutoff && unregister(e.getKey())) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private boolean removeAreas(String token) {
+        Set<String> areas = areasByToken.remove(token);
+        if (areas == null) {
+            return false;
+        }
+        for (String area : areas) {
+            Set<String> tokens = tokensByArea.get(area);
+            if (tokens != null) {
+                tokens.remove(token);
+                if (tokens.isEmpty()) {
+                    tokensByArea.remove(area);
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Copy of the tokens following the area, safe to iterate while devices (un)register. */
+    public List<String> subscribers(String areaKey) {
+        Set<String> tokens = tokensByArea.get(areaKey);
+        return tokens == null ? List.of() : List.copyOf(tokens);
+    }
+
+    public int size() {
+        return areasByToken.size();
+    }
+}
@@ -0,0 +1,51 @@
+package mk.ukim.finki.gatewayservice.push;
+
+import mk.ukim.finki.common.logging.LogSampler;
+import mk.ukim.finki.gatewayservice.model.PushNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a push provider, for development and load tests.
+ *
+ * Nothing leaves the gateway: batches are counted and logged (sampled).
+ * Tokens starting with "invalid-" are reported back as unregistered, so the
+ * registry cleanup path can be exercised without a real provider.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.push.transport", havingValue = "fake", matchIfMissing = true)
+public class FakePushTransport implements PushTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(FakePushTransport.class);
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final LogSampler logSampler = new LogSampler(100);
+
+    @Override
+    public List<String> send(List<String> tokens, PushNotification notification) {
+        List<String> invalid = new ArrayList<>();
+        for (String token : tokens) {
+            if (token.startsWith("invalid-")) {
+                invalid.add(token);
+            }
+        }
+        batches.incrementAndGet();
+        delivered.addAndGet(tokens.size() - invalid.size());
+        if (logSampler.sample()) {
+            log.info("Fake push (sampled 1/100): {} devices, {} {} in {}",
+                    tokens.size(), notification.getLevel(), notification.getMetric(), notification.getArea());
+        }
+        return invalid;
+    }
+
+    public long getBatches() { return batches.get(); }
+
+    public long getDelivered() { return delivered.get(); }
+}
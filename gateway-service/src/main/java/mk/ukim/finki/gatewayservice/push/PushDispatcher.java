@@ -0,0 +1,166 @@
+package mk.ukim.finki.gatewayservice.push;
+
+import jakarta.annotation.PreDestroy;
+import mk.ukim.finki.gatewayservice.metrics.GatewayMetrics;
+import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import mk.ukim.finki.gatewayservice.model.PushNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Push notifications for devices that have no WebSocket session (app in the
+ * background).
+ *
+ * HOW IT WORKS:
+ * 1. AlertForwarder hands every alert to onAlert() on its alert-dispatch
+ *    thread; alerts below gateway.push.min-level are ignored, the rest become
+ *    one job on a bounded queue. onAlert never blocks: when the queue is full
+ *    the job is dropped and counted (gateway.push.dropped)
+ * 2. gateway.push.workers threads ("push-dispatch-N") take jobs, look up the
+ *    devices following the alert's area (DeviceRegistry) and send the
+ *    notification in batches of gateway.push.batch-size through the
+ *    PushTransport
+ * 3. All workers share one rate limit (gateway.push.rate-per-second devices),
+ *    so a large fan-out is spread out instead of hitting the provider at once;
+ *    tens of thousands of devices per alert just take a few seconds
+ * 4. Tokens the provider reports as unregistered are removed from the registry
+ *
+ * A failed batch is counted (gateway.push.failed) and not retried: the next
+ * level change produces a new alert anyway.
+ */
+@Service
+public class PushDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PushDispatcher.class);
+
+    private static final List<String> LEVELS = List.of("GREEN", "YELLOW", "ORANGE", "RED");
+
+    private final DeviceRegistry registry;
+    private final PushTransport transport;
+    private final GatewayMetrics metrics;
+    private final boolean enabled;
+    private final int minLevel;
+    private final int batchSize;
+    private final RateLimiter rateLimiter;
+
+    private final ThreadPoolExecutor executor;
+
+    public PushDispatcher(DeviceRegistry registry,
+                          PushTransport transport,
+                          GatewayMetrics metrics,
+                          @Value("${gateway.push.enabled:true}") boolean enabled,
+                          @Value("${gateway.push.min-level:RED}") String minLevel,
+                          @Value("${gateway.push.batch-size:500}") int batchSize,
+                          @Value("${gateway.push.rate-per-second:5000}") int ratePerSecond,
+                          @Value("${gateway.push.workers:2}") int workers,
+                          @Value("${gateway.push.queue-capacity:1000}") int queueCapacity) {
+        this.registry = registry;
+        this.transport = transport;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.minLevel = LEVELS.indexOf(minLevel.trim().toUpperCase());
+        if (this.minLevel < 0) {
+            throw new IllegalArgumentException("gateway.push.min-level must be one of " + LEVELS + ", was " + minLevel);
+        }
+        this.batchSize = Math.max(1, batchSize);
+        this.rateLimiter = new RateLimiter(Math.max(1, ratePerSecond));
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "push-dispatch-" + threadIndex.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (job, pool) -> metrics.pushDropped());
+
+        metrics.gauge("gateway.push.devices", "Devices registered for push notifications",
+                registry, DeviceRegistry::size);
+        metrics.gauge("gateway.push.queue", "Alerts waiting to be pushed",
+                executor, e -> e.getQueue().size());
+    }
+
+    /** Queues a push for the alert if it is at or above min-level; never blocks. */
+    public void onAlert(AlertMessage alert) {
+        if (!enabled || alert.getLevel() == null || LEVELS.indexOf(alert.getLevel().toUpperCase()) < minLevel) {
+            return;
+        }
+        String areaKey = alert.getAreaKey();
+        PushNotification notification = PushNotification.from(alert);
+        executor.execute(() -> fanOut(areaKey, notification));
+    }
+
+    private void fanOut(String areaKey, PushNotification notification) {
+        List<String> tokens = registry.subscribers(areaKey);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        for (int from = 0; from < tokens.size(); from += batchSize) {
+            List<String> batch = tokens.subList(from, Math.min(tokens.size(), from + batchSize));
+            if (!rateLimiter.acquire(batch.size())) {
+                return;
+            }
+            try {
+                List<String> invalid = transport.send(batch, notification);
+                invalid.forEach(registry::unregister);
+                metrics.pushSent(batch.size() - invalid.size());
+            } catch (RuntimeException e) {
+                metrics.pushFailed(batch.size());
+                log.warn("Push batch of {} devices for {} failed: {}", batch.size(), areaKey, e.getMessage());
+            }
+        }
+        log.info("Pushed {} alert for {} to {} devices in {} ms",
+                notification.getLevel(), areaKey, tokens.size(), System.currentTimeMillis() - started);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Spaces permits evenly at the configured rate, shared by all workers.
+     * Each acquire reserves its slot and sleeps until it starts.
+     */
+    private static final class RateLimiter {
+
+        private final double nanosPerPermit;
+        private long nextFreeNanos = System.nanoTime();
+
+        RateLimiter(int permitsPerSecond) {
+            this.nanosPerPermit = 1_000_000_000.0 / permitsPerSecond;
+        }
+
+        /** @return false if interrupted while waiting (gateway shutting down) */
+        boolean acquire(int permits) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextFreeNanos);
+                nextFreeNanos = start + (long) (permits * nanosPerPermit);
+                waitNanos = start - now;
+            }
+            if (waitNanos <= 0) {
+                return true;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package mk.ukim.finki.gatewayservice.push;
+
+import mk.ukim.finki.gatewayservice.model.PushNotification;
+
+import java.util.List;
+
+/**
+ * Sends one notification to a batch of device tokens (FCM, APNs, ...).
+ *
+ * Exactly one PushTransport bean is used by PushDispatcher; the default is
+ * FakePushTransport (gateway.push.transport=fake). A real provider is another
+ * implementation enabled with its own gateway.push.transport value.
+ */
+public interface PushTransport {
+
+    /**
+     * Sends the notification to every token of the batch. Called from the push
+     * dispatch threads, never from a RabbitMQ listener, so it may block on I/O.
+     *
+     * @param tokens at most gateway.push.batch-size tokens
+     * @return tokens the provider reported as no longer registered; they are removed
+     *         from the DeviceRegistry
+     * @throws RuntimeException if the whole batch failed (counted, not retried)
+     */
+    List<String> send(List<String> tokens, PushNotification notification);
+}
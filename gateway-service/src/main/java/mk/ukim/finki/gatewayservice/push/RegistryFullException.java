@@ -0,0 +1,11 @@
+package mk.ukim.finki.gatewayservice.push;
+
+/** A new device could not be registered: gateway.push.max-devices are already registered. */
+public class RegistryFullException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RegistryFullException(int maxDevices) {
+        super("push registry is full (" + maxDevices + " devices)");
+    }
+}
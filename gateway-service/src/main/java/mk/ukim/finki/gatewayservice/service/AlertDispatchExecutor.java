@@ -0,0 +1,113 @@
+package mk.ukim.finki.gatewayservice.service;
+
+import jakarta.annotation.PreDestroy;
+import mk.ukim.finki.gatewayservice.metrics.GatewayMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands alerts from the RabbitMQ listener to dedicated delivery threads.
+ *
+ * HOW IT WORKS:
+ * - gateway.dispatch.threads lanes, each one thread ("alert-dispatch-N") with
+ *   its own bounded queue of gateway.dispatch.queue-capacity alerts
+ * - the lane is picked by area, so alerts of one area are delivered in the
+ *   order they were received (the compact stream relies on it)
+ * - submit() waits at most gateway.dispatch.handoff-timeout-ms for room in a
+ *   full lane, then gives up; the caller rejects the message (-> DLQ) rather
+ *   than holding the consumer indefinitely
+ *
+ * An alert is acked once it is in a lane, so the lanes (bounded) are all that
+ * is lost if the gateway dies. On shutdown the lanes are drained first; an
+ * alert that arrives while they shut down is refused, never left in a lane
+ * that no thread will run.
+ */
+@Component
+public class AlertDispatchExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertDispatchExecutor.class);
+
+    private final ThreadPoolExecutor[] lanes;
+    private final long handoffTimeoutMs;
+
+    public AlertDispatchExecutor(GatewayMetrics metrics,
+                                 @Value("${gateway.dispatch.threads:2}") int threads,
+                                 @Value("${gateway.dispatch.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${gateway.dispatch.handoff-timeout-ms:5000}") long handoffTimeoutMs) {
+        this.handoffTimeoutMs = handoffTimeoutMs;
+        this.lanes = new ThreadPoolExecutor[Math.max(1, threads)];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "alert-dispatch-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> new Thread(r, name));
+            // Only submit() adds to a lane, and it goes through the queue directly
+            lanes[i].prestartAllCoreThreads();
+        }
+        metrics.gauge("gateway.alerts.dispatch.queue", "Alerts received but not yet pushed to WebSocket clients",
+                this, AlertDispatchExecutor::queued);
+    }
+
+    /**
+     * Queues the task on the lane of the key, waiting for room if the lane is full.
+     *
+     * @return false if there was no room within the handoff timeout, the lane is
+     *         shut down (or we were interrupted); the task will not run
+     */
+    public boolean submit(String key, Runnable task) {
+        ThreadPoolExecutor lane = lanes[Math.floorMod(key.hashCode(), lanes.length)];
+        if (lane.isShutdown()) {
+            return false;
+        }
+        Runnable guarded = () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // Already acked; log it and keep the lane running
+                log.warn("Alert dispatch failed for {}: {}", key, e.getMessage(), e);
+            }
+        };
+        try {
+            if (!lane.getQueue().offer(guarded, handoffTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        // stop() may have shut the lane down while we were offering, and its thread
+        // may already have exited. If the task is still queued, take it back so the
+        // caller rejects the message; if it is gone, the lane thread is running it.
+        if (lane.isShutdown() && lane.getQueue().remove(guarded)) {
+            return false;
+        }
+        return true;
+    }
+
+    public int queued() {
+        int n = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            n += lane.getQueue().size();
+        }
+        return n;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Alert dispatch lane still had {} alerts at shutdown", lane.getQueue().size());
+                lane.shutdownNow();
+            }
+        }
+    }
+}
@@ -1,8 +1,19 @@
 package mk.ukim.finki.gatewayservice.service;
 
+import mk.ukim.finki.common.logging.LogSampler;
+import mk.ukim.finki.common.tracing.LatencyTracker;
+import mk.ukim.finki.common.tracing.TraceHeaders;
+import mk.ukim.finki.gatewayservice.compact.CompactAlertPublisher;
 import mk.ukim.finki.gatewayservice.config.RabbitConfig;
+import mk.ukim.finki.gatewayservice.geofence.GeoFenceAlertPublisher;
+import mk.ukim.finki.gatewayservice.metrics.GatewayMetrics;
 import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import mk.ukim.finki.gatewayservice.push.PushDispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
@@ -11,30 +22,106 @@ import org.springframework.stereotype.Service;
  *   /topic/alerts/<area>
  *
  * Example: /topic/alerts/gazi_baba
+ *
+ * and, as snapshot + field-level deltas, to /topic/compact/alerts
+ * (CompactAlertPublisher), and to the geo-fenced subscriptions of
+ * /topic/geo/alerts whose circle overlaps the area (GeoFenceAlertPublisher).
+ * RED alerts are also queued as push notifications for devices following
+ * the area (PushDispatcher), which reach apps without a WebSocket session.
+ *
+ * INTAKE vs DELIVERY: the RabbitMQ listener thread only hands the alert to
+ * AlertDispatchExecutor and returns, so the message is acked right after the
+ * handoff and consumption does not slow down with the number of WebSocket
+ * clients. Delivery (convertAndSend into clientOutboundChannel, compact,
+ * geo-fence, push) runs on the alert-dispatch threads. If the handoff times
+ * out the message is rejected and dead-lettered at once (the listener retry
+ * skips AmqpRejectAndDontRequeueException; recoverable with the DLQ replay)
+ * instead of blocking the consumer until gw.alerts' TTL expires.
+ *
+ * This is the last hop of the pipeline, so it records the end-to-end
+ * latency stages from the TraceHeaders set by producer and aggregator
+ * (gateway_queue = time spent waiting in the dispatch lane).
  */
 @Service
 public class AlertForwarder {
 
+    private static final Logger log = LoggerFactory.getLogger(AlertForwarder.class);
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final CompactAlertPublisher compactPublisher;
+    private final GeoFenceAlertPublisher geoFencePublisher;
+    private final PushDispatcher pushDispatcher;
+    private final AlertDispatchExecutor dispatchExecutor;
+    private final DeliveredAlerts deliveredAlerts;
+    private final LatencyTracker latencyTracker;
+    private final GatewayMetrics metrics;
+
+    private final LogSampler forwardLogSampler = new LogSampler(100);
 
-    public AlertForwarder(SimpMessagingTemplate messagingTemplate) {
+    public AlertForwarder(SimpMessagingTemplate messagingTemplate,
+                          CompactAlertPublisher compactPublisher,
+                          GeoFenceAlertPublisher geoFencePublisher,
+                          PushDispatcher pushDispatcher,
+                          AlertDispatchExecutor dispatchExecutor,
+                          DeliveredAlerts deliveredAlerts,
+                          LatencyTracker latencyTracker,
+                          GatewayMetrics metrics) {
         this.messagingTemplate = messagingTemplate;
+        this.compactPublisher = compactPublisher;
+        this.geoFencePublisher = geoFencePublisher;
+        this.pushDispatcher = pushDispatcher;
+        this.dispatchExecutor = dispatchExecutor;
+        this.deliveredAlerts = deliveredAlerts;
+        this.latencyTracker = latencyTracker;
+        this.metrics = metrics;
     }
 
     @RabbitListener(queues = RabbitConfig.GW_ALERTS_QUEUE)
-    public void onAlert(AlertMessage alert) {
-    String area = alert.getArea();
-    if (area == null || area.isBlank()) area = "unknown";
+    public void onAlert(AlertMessage alert,
+                        @Header(name = TraceHeaders.SENSOR_TS, required = false) Long sensorTs,
+                        @Header(name = TraceHeaders.PUBLISHED_AT, required = false) Long publishedAt,
+                        @Header(name = TraceHeaders.AGG_EMITTED_AT, required = false) Long emittedAt) {
+        long receivedAt = System.currentTimeMillis();
+        latencyTracker.record("alert_dwell", emittedAt, receivedAt);
+
+        String area = alert.getArea();
+        if (area == null || area.isBlank()) area = "unknown";
 
-    String areaKey = area.toLowerCase().replace(" ", "_");
+        String areaKey = area.toLowerCase().replace(" ", "_");
 
-    String destinationArea = "/topic/alerts/" + areaKey;
-    String destinationAll  = "/topic/alerts/all";
+        boolean handedOff = dispatchExecutor.submit(areaKey,
+                () -> forward(alert, areaKey, receivedAt, sensorTs, publishedAt));
+        if (!handedOff) {
+            metrics.alertHandoffRejected();
+            throw new AmqpRejectAndDontRequeueException("Alert dispatch queue full, dead-lettering alert for " + areaKey);
+        }
+    }
 
-    messagingTemplate.convertAndSend(destinationArea, alert);
-    messagingTemplate.convertAndSend(destinationAll, alert);
+    private void forward(AlertMessage alert, String areaKey, long receivedAt, Long sensorTs, Long publishedAt) {
+        long dispatchedAt = System.currentTimeMillis();
+        latencyTracker.record("gateway_queue", receivedAt, dispatchedAt);
 
-    System.out.println("[GATEWAY] Forwarded alert to " + destinationArea + " and " + destinationAll +
-            ": " + alert.getLevel());
-}
+        String destinationArea = "/topic/alerts/" + areaKey;
+        String destinationAll  = "/topic/alerts/all";
+
+        messagingTemplate.convertAndSend(destinationArea, alert);
+        messagingTemplate.convertAndSend(destinationAll, alert);
+        deliveredAlerts.record(alert);
+        compactPublisher.onAlert(alert);
+        geoFencePublisher.onAlert(alert);
+        // Only queues the push; sending happens on the push-dispatch threads
+        pushDispatcher.onAlert(alert);
+
+        long forwardedAt = System.currentTimeMillis();
+        latencyTracker.record("gateway_forward", receivedAt, forwardedAt);
+        latencyTracker.record("publish_to_client", publishedAt, forwardedAt);
+        latencyTracker.record("sensor_to_client", sensorTs, forwardedAt);
+        metrics.alertForwarded();
+
+        if (forwardLogSampler.sample()) {
+            log.info("Forwarded alert (sampled 1/100) to {} and {}: {}", destinationArea, destinationAll, alert.getLevel());
+        } else {
+            log.debug("Forwarded alert to {} and {}: {}", destinationArea, destinationAll, alert.getLevel());
+        }
+    }
 }
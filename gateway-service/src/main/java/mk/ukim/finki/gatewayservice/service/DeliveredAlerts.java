@@ -0,0 +1,46 @@
+package mk.ukim.finki.gatewayservice.service;
+
+import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Event time of the newest alert delivered to clients per (area, metric).
+ *
+ * AlertForwarder records every delivered alert; DlqReplayService uses it to
+ * skip dead-lettered alerts that a newer live alert has already superseded
+ * (replaying them would flip clients back to an old level).
+ *
+ * One entry per series, so memory is bounded by the number of series.
+ */
+@Component
+public class DeliveredAlerts {
+
+    private final Map<String, Instant> latest = new ConcurrentHashMap<>();
+
+    public void record(AlertMessage alert) {
+        Instant ts = alert.getTimestamp();
+        if (ts == null) {
+            return;
+        }
+        latest.merge(seriesKey(alert), ts, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /**
+     * @return true if an alert for the same series with the same or a later
+     *         event time was already delivered (alerts without a timestamp never are)
+     */
+    public boolean isSuperseded(AlertMessage alert) {
+        Instant ts = alert.getTimestamp();
+        Instant delivered = latest.get(seriesKey(alert));
+        return ts != null && delivered != null && !ts.isAfter(delivered);
+    }
+
+    static String seriesKey(AlertMessage alert) {
+        String metric = alert.getMetric() == null ? "unknown" : alert.getMetric().toLowerCase();
+        return alert.getAreaKey() + "|" + metric;
+    }
+}
@@ -0,0 +1,343 @@
+package mk.ukim.finki.gatewayservice.service;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+import jakarta.annotation.PreDestroy;
+import mk.ukim.finki.gatewayservice.config.RabbitConfig;
+import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import mk.ukim.finki.gatewayservice.model.ReplayReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.amqp.support.converter.SmartMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains dlq.gw.alerts and republishes what is still worth delivering.
+ *
+ * HOW IT WORKS:
+ * 1. Runs on its own "dlq-replay" thread; start() returns immediately and
+ *    the outcome is available from lastReport()
+ * 2. Pulls messages from the DLQ in batches (basic.get without auto-ack),
+ *    sleeping between batches so the drain never exceeds the configured rate
+ * 3. De-duplicates by (area, metric, timestamp) and keeps only the latest
+ *    alert per (area, metric); older ones are stale level transitions
+ * 4. Skips alerts a newer live alert has already superseded (DeliveredAlerts),
+ *    so a replay never flips clients back to an old level
+ * 5. Republishes the batch's survivors to alerts.topic, waits for the broker
+ *    to confirm them, and only then acks the batch in the DLQ. If a republish
+ *    fails the batch is nacked back into the DLQ and the replay stops, so a
+ *    crash or broker error at any point loses nothing
+ *
+ * Memory stays bounded by the batch size and the number of series, not by
+ * the DLQ depth.
+ */
+@Service
+public class DlqReplayService {
+
+    private static final Logger log = LoggerFactory.getLogger(DlqReplayService.class);
+
+    private static final ParameterizedTypeReference<AlertMessage> ALERT_TYPE = new ParameterizedTypeReference<>() {};
+
+    private final RabbitTemplate rabbitTemplate;
+    private final DeliveredAlerts deliveredAlerts;
+    private final int defaultBatchSize;
+    private final int defaultRatePerSecond;
+    private final int defaultMaxMessages;
+    private final long confirmTimeoutMs;
+
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "dlq-replay");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Only one drain at a time - two concurrent drains would split the DLQ
+    // and each republish its own "latest" alert
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile ReplayReport lastReport;
+
+    public DlqReplayService(RabbitTemplate rabbitTemplate,
+                            DeliveredAlerts deliveredAlerts,
+                            @Value("${gateway.dlq-replay.batch-size:100}") int defaultBatchSize,
+                            @Value("${gateway.dlq-replay.rate-per-second:500}") int defaultRatePerSecond,
+                            @Value("${gateway.dlq-replay.max-messages:50000}") int defaultMaxMessages,
+                            @Value("${gateway.dlq-replay.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.deliveredAlerts = deliveredAlerts;
+        this.defaultBatchSize = defaultBatchSize;
+        this.defaultRatePerSecond = defaultRatePerSecond;
+        this.defaultMaxMessages = defaultMaxMessages;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /** Report of the last finished replay, or null if none has run yet. */
+    public ReplayReport lastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Starts a replay on the dlq-replay thread (parameters as in replay()).
+     *
+     * @return false if a replay is already running
+     */
+    public boolean start(Integer batchSize, Integer ratePerSecond, Integer maxMessages) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    drain(batchSize, ratePerSecond, maxMessages);
+                } catch (RuntimeException e) {
+                    log.error("DLQ replay failed: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Drains the DLQ on the calling thread and republishes the latest alert per series.
+     *
+     * @param batchSize     messages pulled per batch (null = configured default)
+     * @param ratePerSecond max messages drained per second (null = configured default)
+     * @param maxMessages   stop after this many messages (null = configured default)
+     * @return report of what was drained and republished
+     * @throws IllegalStateException if a replay is already running
+     */
+    public ReplayReport replay(Integer batchSize, Integer ratePerSecond, Integer maxMessages) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("DLQ replay already in progress");
+        }
+        try {
+            return drain(batchSize, ratePerSecond, maxMessages);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReplayReport drain(Integer batchSize, Integer ratePerSecond, Integer maxMessages) {
+        int batch = positiveOrDefault(batchSize, defaultBatchSize);
+        int rate = positiveOrDefault(ratePerSecond, defaultRatePerSecond);
+        int max = positiveOrDefault(maxMessages, defaultMaxMessages);
+
+        long started = System.currentTimeMillis();
+        Run run = new Run();
+
+        // Minimum time one batch may take to stay under the rate limit
+        long batchBudgetMs = Math.max(1L, (batch * 1000L) / rate);
+
+        while (!run.empty && !run.failed && run.drained < max && !Thread.currentThread().isInterrupted()) {
+            long batchStart = System.currentTimeMillis();
+            int limit = Math.min(batch, max - run.drained);
+            rabbitTemplate.execute(channel -> {
+                replayBatch(channel, limit, run);
+                return null;
+            });
+
+            long elapsed = System.currentTimeMillis() - batchStart;
+            if (!run.empty && !run.failed && elapsed < batchBudgetMs) {
+                sleep(batchBudgetMs - elapsed);
+            }
+        }
+
+        ReplayReport report = new ReplayReport(run.drained, run.duplicates, run.stale, run.superseded,
+                run.unreadable, run.republished, run.requeued, System.currentTimeMillis() - started);
+        lastReport = report;
+
+        log.info("DLQ replay finished: drained={}, duplicates={}, stale={}, superseded={}, unreadable={}, "
+                        + "republished={}, requeued={}, took={}ms",
+                report.getDrained(), report.getDuplicates(), report.getStale(), report.getSuperseded(),
+                report.getUnreadable(), report.getRepublished(), report.getRequeued(), report.getDurationMs());
+        return report;
+    }
+
+    /**
+     * Pulls up to limit messages, republishes the survivors and acks (or, if the
+     * republish failed, requeues) all of them. Runs on one channel so the
+     * delivery tags stay valid until the ack.
+     */
+    private void replayBatch(Channel channel, int limit, Run run) throws IOException {
+        Map<String, AlertMessage> latestInBatch = new LinkedHashMap<>();
+        long lastTag = -1;
+        int pulled = 0;
+
+        while (pulled < limit) {
+            GetResponse response = channel.basicGet(RabbitConfig.DLQ, false);
+            if (response == null) {
+                run.empty = true;
+                break;
+            }
+            lastTag = response.getEnvelope().getDeliveryTag();
+            pulled++;
+
+            AlertMessage alert;
+            try {
+                alert = convert(response);
+            } catch (RuntimeException e) {
+                // Poison message - acked with the batch, nothing can ever deliver it
+                run.unreadable++;
+                log.warn("Dropping unreadable DLQ message: {}", e.getMessage());
+                continue;
+            }
+
+            String key = DeliveredAlerts.seriesKey(alert);
+            AlertMessage current = latestInBatch.get(key);
+            Instant republished = run.republishedTs.get(key);
+            if (sameTimestamp(current, alert) || (republished != null && republished.equals(alert.getTimestamp()))) {
+                run.duplicates++;
+            } else if (deliveredAlerts.isSuperseded(alert)) {
+                run.superseded++;
+            } else if (republished != null && !isNewer(alert, republished)) {
+                run.stale++;
+            } else if (current == null) {
+                latestInBatch.put(key, alert);
+            } else {
+                run.stale++;
+                if (isNewer(alert, current.getTimestamp())) {
+                    latestInBatch.put(key, alert);
+                }
+            }
+        }
+        if (pulled == 0) {
+            return;
+        }
+
+        List<AlertMessage> survivors = new ArrayList<>(latestInBatch.values());
+        if (!republishConfirmed(survivors)) {
+            channel.basicNack(lastTag, true, true);
+            run.requeued += pulled;
+            run.failed = true;
+            return;
+        }
+        channel.basicAck(lastTag, true);
+        run.drained += pulled;
+        run.republished += survivors.size();
+        for (AlertMessage alert : survivors) {
+            if (alert.getTimestamp() != null) {
+                run.republishedTs.put(DeliveredAlerts.seriesKey(alert), alert.getTimestamp());
+            }
+        }
+    }
+
+    /** Publishes the alerts and waits for the broker to confirm every one of them. */
+    private boolean republishConfirmed(List<AlertMessage> alerts) {
+        List<CorrelationData> confirms = new ArrayList<>(alerts.size());
+        try {
+            for (AlertMessage alert : alerts) {
+                CorrelationData correlation = new CorrelationData();
+                rabbitTemplate.convertAndSend(RabbitConfig.ALERTS_EXCHANGE, routingKey(alert), alert, correlation);
+                confirms.add(correlation);
+            }
+            long deadline = System.currentTimeMillis() + confirmTimeoutMs;
+            for (CorrelationData correlation : confirms) {
+                long left = Math.max(1L, deadline - System.currentTimeMillis());
+                CorrelationData.Confirm confirm = correlation.getFuture().get(left, TimeUnit.MILLISECONDS);
+                if (!confirm.isAck()) {
+                    log.warn("Broker refused a replayed alert ({}), leaving the batch in the DLQ", confirm.getReason());
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("Republishing replayed alerts failed, leaving the batch in the DLQ: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private AlertMessage convert(GetResponse response) {
+        Message message = new Message(response.getBody(),
+                propertiesConverter.toMessageProperties(response.getProps(), response.getEnvelope(), "UTF-8"));
+        MessageConverter converter = rabbitTemplate.getMessageConverter();
+        // The __TypeId__ header names the aggregator's class; convert by target type instead
+        Object converted = converter instanceof SmartMessageConverter smart
+                ? smart.fromMessage(message, ALERT_TYPE)
+                : converter.fromMessage(message);
+        if (!(converted instanceof AlertMessage alert)) {
+            throw new IllegalArgumentException("not an AlertMessage: " + converted);
+        }
+        return alert;
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private static String routingKey(AlertMessage alert) {
+        String level = alert.getLevel() == null ? "GREEN" : alert.getLevel();
+        return "alert." + alert.getAreaKey() + "." + level;
+    }
+
+    private static boolean sameTimestamp(AlertMessage a, AlertMessage b) {
+        if (a == null) return false;
+        Instant ta = a.getTimestamp();
+        Instant tb = b.getTimestamp();
+        return ta == null ? tb == null : ta.equals(tb);
+    }
+
+    private static boolean isNewer(AlertMessage candidate, Instant current) {
+        if (candidate.getTimestamp() == null) return false;
+        if (current == null) return true;
+        return candidate.getTimestamp().isAfter(current);
+    }
+
+    private static int positiveOrDefault(Integer value, int fallback) {
+        return (value == null || value <= 0) ? fallback : value;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Counters and per-series state of one replay run. */
+    private static final class Run {
+        final Map<String, Instant> republishedTs = new HashMap<>();
+        int drained;
+        int duplicates;
+        int stale;
+        int superseded;
+        int unreadable;
+        int republished;
+        int requeued;
+        boolean empty;
+        boolean failed;
+    }
+}
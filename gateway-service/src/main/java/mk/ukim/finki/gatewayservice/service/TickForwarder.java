@@ -0,0 +1,77 @@
+package mk.ukim.finki.gatewayservice.service;
+
+import mk.ukim.finki.gatewayservice.config.RabbitConfig;
+import mk.ukim.finki.gatewayservice.metrics.GatewayMetrics;
+import mk.ukim.finki.gatewayservice.model.AggregateTick;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Forwards aggregate ticks from RabbitMQ to conflating WebSocket topics:
+ *   /topic/ticks/<area>   latest tick of one area
+ *   /topic/ticks/all      latest ticks of every area that changed, as one list
+ *
+ * Ticks are not pushed as they arrive. The listener only keeps the newest
+ * tick per area; every gateway.ticks.flush-ms the areas that got a new tick
+ * are pushed once. A tick that is replaced before the flush is never sent,
+ * so clients see at most one frame per area per flush however fast ticks come.
+ */
+@Service
+public class TickForwarder {
+
+    private static final Logger log = LoggerFactory.getLogger(TickForwarder.class);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final GatewayMetrics metrics;
+
+    // areaKey -> newest tick not pushed yet
+    private final Map<String, AggregateTick> pending = new ConcurrentHashMap<>();
+
+    public TickForwarder(SimpMessagingTemplate messagingTemplate, GatewayMetrics metrics) {
+        this.messagingTemplate = messagingTemplate;
+        this.metrics = metrics;
+    }
+
+    @RabbitListener(queues = RabbitConfig.GW_TICKS_QUEUE)
+    public void onTick(AggregateTick tick) {
+        String area = tick.getArea();
+        if (area == null || area.isBlank()) area = "unknown";
+
+        AggregateTick replaced = pending.put(areaKey(area), tick);
+        if (replaced != null) {
+            metrics.tickConflated();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.ticks.flush-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<AggregateTick> batch = new ArrayList<>(pending.size());
+        for (String areaKey : List.copyOf(pending.keySet())) {
+            AggregateTick tick = pending.remove(areaKey);
+            if (tick == null) {
+                continue;
+            }
+            messagingTemplate.convertAndSend("/topic/ticks/" + areaKey, tick);
+            metrics.tickForwarded();
+            batch.add(tick);
+        }
+        messagingTemplate.convertAndSend("/topic/ticks/all", batch);
+        log.debug("Flushed {} aggregate ticks", batch.size());
+    }
+
+    static String areaKey(String area) {
+        return area.toLowerCase().replace(" ", "_");
+    }
+}
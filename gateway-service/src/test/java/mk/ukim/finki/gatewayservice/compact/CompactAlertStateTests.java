@@ -0,0 +1,77 @@
+package mk.ukim.finki.gatewayservice.compact;
+
+import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import mk.ukim.finki.gatewayservice.model.CompactFrame;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactAlertStateTests {
+
+    private final CompactAlertState state = new CompactAlertState();
+
+    private static AlertMessage alert(String area, String level, double value, long epochSecond) {
+        AlertMessage a = new AlertMessage();
+        a.setArea(area);
+        a.setMetric("pm10");
+        a.setLevel(level);
+        a.setValue(value);
+        a.setTimestamp(Instant.ofEpochSecond(epochSecond));
+        a.setReason("Avg pm10 over last 10 readings = " + value);
+        return a;
+    }
+
+    @Test
+    void firstAlertOfASeriesIsAFullChangeWithNewCodes() {
+        CompactFrame d = state.apply(alert("Gazi Baba", "RED", 61.234, 1_000));
+
+        assertEquals("d", d.getT());
+        assertEquals(1, d.getQ());
+        assertEquals(Map.of(0, "gazi_baba"), d.getNa());
+        assertEquals(Map.of(0, "pm10"), d.getNm());
+        assertNull(d.getNl());
+        CompactFrame.Change c = d.getC().get(0);
+        assertEquals(0, c.getA());
+        assertEquals(3, c.getL());
+        assertEquals(61.2, c.getV());
+        assertEquals(1_000L, c.getS());
+    }
+
+    @Test
+    void laterAlertsOnlyCarryWhatChanged() {
+        state.apply(alert("centar", "RED", 61.2, 1_000));
+
+        CompactFrame d = state.apply(alert("centar", "RED", 63.0, 1_000));
+        assertNull(d.getNa());
+        CompactFrame.Change c = d.getC().get(0);
+        assertNull(c.getL());
+        assertNull(c.getS());
+        assertEquals(63.0, c.getV());
+
+        // Same values after rounding: nothing to send
+        assertNull(state.apply(alert("centar", "RED", 63.04, 1_000)));
+        assertEquals(2, state.snapshot().getQ());
+    }
+
+    @Test
+    void snapshotHasEverySeriesAndAllCodes() {
+        state.apply(alert("centar", "RED", 61.2, 1_000));
+        state.apply(alert("aerodrom", "GREEN", 12.0, 1_060));
+        state.apply(alert("centar", "GREEN", 40.0, 1_120));
+
+        CompactFrame s = state.snapshot();
+        assertEquals("s", s.getT());
+        assertEquals(3, s.getQ());
+        assertEquals(Map.of(0, "centar", 1, "aerodrom"), s.getNa());
+        assertEquals("RED", s.getNl().get(3));
+        assertEquals(2, s.getC().size());
+        CompactFrame.Change centar = s.getC().get(0);
+        assertEquals(0, centar.getA());
+        assertEquals(0, centar.getL());
+        assertEquals(40.0, centar.getV());
+        assertEquals(1_120L, centar.getS());
+    }
+}
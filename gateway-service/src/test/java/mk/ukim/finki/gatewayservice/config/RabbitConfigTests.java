@@ -0,0 +1,33 @@
+package mk.ukim.finki.gatewayservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RabbitConfigTests {
+
+    private static int attempts(RuntimeException failure) {
+        RetryTemplate template = new RetryTemplate();
+        template.setRetryPolicy(RabbitConfig.listenerRetryPolicy(3));
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(RuntimeException.class, () -> template.execute(ctx -> {
+            attempts.incrementAndGet();
+            throw failure;
+        }));
+        return attempts.get();
+    }
+
+    @Test
+    void listenerFailuresAreRetriedButRejectionsAreNot() {
+        assertEquals(3, attempts(new ListenerExecutionFailedException("listener threw",
+                new IllegalStateException("channel closed"))));
+        // What AlertForwarder throws when the dispatch handoff times out, as the container wraps it
+        assertEquals(1, attempts(new ListenerExecutionFailedException("listener threw",
+                new AmqpRejectAndDontRequeueException("Alert dispatch queue full"))));
+    }
+}
@@ -0,0 +1,208 @@
+package mk.ukim.finki.gatewayservice.config;
+
+import jakarta.websocket.server.ServerContainer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.NestedTestConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * /ws-native against the real embedded Tomcat, with a hand-rolled client so
+ * the handshake headers and raw frames (heartbeats, close) are visible.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "gateway.websocket.heartbeat-ms=300",
+        "gateway.websocket.message-size-limit=1024",
+        "gateway.websocket.inbound-buffer-size=2048",
+        "gateway.websocket.idle-timeout-ms=60000"})
+class WebSocketConfigTests {
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ServletWebServerApplicationContext context;
+
+    @Test
+    void nativeEndpointSpeaksStompAndNegotiatesDeflate() throws IOException {
+        try (RawWebSocket ws = RawWebSocket.open(port, "/ws-native", true)) {
+            assertTrue(ws.handshake.startsWith("HTTP/1.1 101"), ws.handshake);
+            assertTrue(ws.handshake.toLowerCase().contains("sec-websocket-protocol: v12.stomp"), ws.handshake);
+            assertTrue(ws.handshake.toLowerCase().contains("permessage-deflate"), ws.handshake);
+        }
+    }
+
+    @Test
+    void brokerSendsStompHeartbeats() throws IOException {
+        try (RawWebSocket ws = RawWebSocket.open(port, "/ws-native", false)) {
+            ws.sendText("CONNECT\naccept-version:1.2\nheart-beat:0,300\n\n\0");
+            String connected = ws.readText();
+            assertTrue(connected.startsWith("CONNECTED"), connected);
+            assertTrue(connected.contains("heart-beat:300,300"), connected);
+
+            // A heartbeat is a lone EOL
+            assertEquals("\n", ws.readText());
+        }
+    }
+
+    @Test
+    void frameOverTheMessageSizeLimitClosesTheSession() throws IOException {
+        try (RawWebSocket ws = RawWebSocket.open(port, "/ws-native", false)) {
+            ws.sendText("CONNECT\naccept-version:1.2\nheart-beat:0,0\n\n\0");
+            assertTrue(ws.readText().startsWith("CONNECTED"));
+
+            ws.sendText("SEND\ndestination:/app/x\n\n" + "x".repeat(1_500) + "\0");
+
+            int closeCode = ws.readUntilClose();
+            assertNotEquals(1000, closeCode);
+        }
+    }
+
+    @Test
+    void containerLimitsAreApplied() {
+        ServerContainer container = (ServerContainer) context.getServletContext()
+                .getAttribute(ServerContainer.class.getName());
+
+        assertEquals(2048, container.getDefaultMaxTextMessageBufferSize());
+        assertEquals(2048, container.getDefaultMaxBinaryMessageBufferSize());
+        assertEquals(60_000, container.getDefaultMaxSessionIdleTimeout());
+    }
+
+    @Nested
+    @NestedTestConfiguration(NestedTestConfiguration.EnclosingConfiguration.OVERRIDE)
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = "gateway.websocket.permessage-deflate=false")
+    class DeflateOff {
+
+        @LocalServerPort
+        int port;
+
+        @Test
+        void deflateIsNotNegotiatedEvenWhenAskedFor() throws IOException {
+            try (RawWebSocket ws = RawWebSocket.open(port, "/ws-native", true)) {
+                assertTrue(ws.handshake.startsWith("HTTP/1.1 101"), ws.handshake);
+                assertFalse(ws.handshake.toLowerCase().contains("permessage-deflate"), ws.handshake);
+            }
+        }
+    }
+
+    /** Minimal RFC 6455 client: masked text frames out, unmasked frames in, no extensions. */
+    static final class RawWebSocket implements AutoCloseable {
+
+        final String handshake;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final OutputStream out;
+
+        private RawWebSocket(Socket socket, String handshake) throws IOException {
+            this.socket = socket;
+            this.handshake = handshake;
+            this.in = new DataInputStream(socket.getInputStream());
+            this.out = socket.getOutputStream();
+        }
+
+        /** Asks for v12.stomp, and for permessage-deflate if askDeflate (frames are then not readable here). */
+        static RawWebSocket open(int port, String path, boolean askDeflate) throws IOException {
+            Socket socket = new Socket("127.0.0.1", port);
+            socket.setSoTimeout(5_000);
+            byte[] key = new byte[16];
+            ThreadLocalRandom.current().nextBytes(key);
+            String request = "GET " + path + " HTTP/1.1\r\n"
+                    + "Host: localhost:" + port + "\r\n"
+                    + "Upgrade: websocket\r\nConnection: Upgrade\r\n"
+                    + "Sec-WebSocket-Key: " + Base64.getEncoder().encodeToString(key) + "\r\n"
+                    + "Sec-WebSocket-Version: 13\r\n"
+                    + "Sec-WebSocket-Protocol: v12.stomp\r\n"
+                    + (askDeflate ? "Sec-WebSocket-Extensions: permessage-deflate; client_max_window_bits\r\n" : "")
+                    + "\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            var in = socket.getInputStream();
+            while (!head.toString(StandardCharsets.US_ASCII).endsWith("\r\n\r\n")) {
+                int b = in.read();
+                if (b < 0) {
+                    break;
+                }
+                head.write(b);
+            }
+            return new RawWebSocket(socket, head.toString(StandardCharsets.US_ASCII));
+        }
+
+        void sendText(String text) throws IOException {
+            byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            frame.write(0x81);
+            if (payload.length < 126) {
+                frame.write(0x80 | payload.length);
+            } else {
+                frame.write(0x80 | 126);
+                frame.write(payload.length >>> 8);
+                frame.write(payload.length & 0xff);
+            }
+            byte[] mask = new byte[4];
+            ThreadLocalRandom.current().nextBytes(mask);
+            frame.write(mask);
+            for (int i = 0; i < payload.length; i++) {
+                frame.write(payload[i] ^ mask[i % 4]);
+            }
+            out.write(frame.toByteArray());
+            out.flush();
+        }
+
+        /** Payload of the next text frame. */
+        String readText() throws IOException {
+            Frame frame = readFrame();
+            assertEquals(0x1, frame.opcode(), "expected a text frame");
+            return new String(frame.payload(), StandardCharsets.UTF_8);
+        }
+
+        /** Skips frames until the server closes; returns its close code (1005 if none). */
+        int readUntilClose() throws IOException {
+            while (true) {
+                Frame frame = readFrame();
+                if (frame.opcode() == 0x8) {
+                    return frame.payload().length >= 2
+                            ? ((frame.payload()[0] & 0xff) << 8) | (frame.payload()[1] & 0xff)
+                            : 1005;
+                }
+            }
+        }
+
+        private Frame readFrame() throws IOException {
+            int first = in.readUnsignedByte();
+            int second = in.readUnsignedByte();
+            long length = second & 0x7f;
+            if (length == 126) {
+                length = in.readUnsignedShort();
+            } else if (length == 127) {
+                length = in.readLong();
+            }
+            byte[] payload = new byte[(int) length];
+            in.readFully(payload);
+            return new Frame(first & 0x0f, payload);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+
+        private record Frame(int opcode, byte[] payload) {
+        }
+    }
+}
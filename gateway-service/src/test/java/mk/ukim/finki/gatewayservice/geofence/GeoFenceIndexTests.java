@@ -0,0 +1,89 @@
+package mk.ukim.finki.gatewayservice.geofence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoFenceIndexTests {
+
+    private static final int MAX = 5;
+
+    private final GeoFenceIndex index = new GeoFenceIndex();
+
+    private static GeoFenceIndex.Fence fence(String session, String sub, double lat, double lon, double radiusKm) {
+        return new GeoFenceIndex.Fence(session, sub, lat, lon, radiusKm);
+    }
+
+    @Test
+    void smallFenceInsideAnAreaOnlyMatchesThatArea() {
+        // Middle of Karposh, well away from its neighbours
+        List<String> areas = index.add(fence("s1", "home", 42.03, 21.37, 0.5), MAX);
+
+        assertEquals(List.of("karposh"), areas);
+        assertEquals(1, index.match("karposh").size());
+        assertTrue(index.match("centar").isEmpty());
+        assertTrue(index.match("unknown").isEmpty());
+    }
+
+    @Test
+    void largerFenceReachesNeighbouringAreas() {
+        // Near the Karposh/Centar edge
+        List<String> areas = index.add(fence("s1", "home", 42.00, 21.425, 2), MAX);
+
+        assertTrue(areas.containsAll(List.of("karposh", "centar")));
+        assertFalse(areas.contains("gjorce_petrov"));
+        assertEquals(1, index.match("centar").size());
+    }
+
+    @Test
+    void fenceOutsideEveryAreaIsNotAdded() {
+        assertTrue(index.add(fence("s1", "far", 41.10, 20.80, 5), MAX).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void unsubscribeAndDisconnectRemoveFences() {
+        index.add(fence("s1", "home", 42.03, 21.37, 0.5), MAX);
+        index.add(fence("s1", "work", 42.00, 21.44, 0.5), MAX);
+        index.add(fence("s2", "home", 42.03, 21.37, 0.5), MAX);
+        assertEquals(3, index.size());
+
+        index.remove("s1", "home");
+        assertEquals(1, index.match("karposh").size());
+        assertEquals(1, index.sessionFenceCount("s1"));
+
+        index.removeSession("s1");
+        assertTrue(index.match("centar").isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void concurrentSubscribesOfASessionStayWithinTheLimit() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 64; i++) {
+            String sub = "sub-" + i;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                index.add(fence("s1", sub, 42.03, 21.37, 0.5), MAX);
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(MAX, index.sessionFenceCount("s1"));
+        assertEquals(MAX, index.match("karposh").size());
+        assertTrue(index.add(fence("s1", "one-more", 42.03, 21.37, 0.5), MAX).isEmpty());
+    }
+}
@@ -0,0 +1,56 @@
+package mk.ukim.finki.gatewayservice.push;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceRegistryTests {
+
+    private static final long TTL = 60_000;
+
+    private final DeviceRegistry registry = new DeviceRegistry(20, 2, TTL);
+
+    @Test
+    void reRegisteringATokenCountsOnceAndReplacesItsAreas() {
+        registry.register("device-1", List.of("Centar"), 0);
+        registry.register("device-1", List.of("Centar"), 1_000);
+        registry.register("device-1", List.of("karposh"), 2_000);
+
+        assertEquals(1, registry.size());
+        assertEquals(List.of(), registry.subscribers("centar"));
+        assertEquals(List.of("device-1"), registry.subscribers("karposh"));
+    }
+
+    @Test
+    void newDevicesAreRefusedWhenFullButKnownOnesMayReRegister() {
+        registry.register("device-1", List.of("centar"), 0);
+        registry.register("device-2", List.of("centar"), 0);
+
+        assertThrows(RegistryFullException.class, () -> registry.register("device-3", List.of("centar"), 1_000));
+        registry.register("device-2", List.of("aerodrom"), 1_000);
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    void devicesThatStopReRegisteringExpire() {
+        registry.register("device-1", List.of("centar"), 0);
+        registry.register("device-2", List.of("centar"), 0);
+        registry.register("device-2", List.of("centar"), TTL);
+
+        assertEquals(1, registry.expireStale(TTL + 1));
+        assertEquals(List.of("device-2"), registry.subscribers("centar"));
+    }
+
+    @Test
+    void aFullRegistryMakesRoomByDroppingExpiredDevices() {
+        registry.register("device-1", List.of("centar"), 0);
+        registry.register("device-2", List.of("centar"), TTL);
+
+        registry.register("device-3", List.of("centar"), TTL + 1);
+
+        assertEquals(2, registry.size());
+        assertFalse(registry.unregister("device-1"));
+    }
+}
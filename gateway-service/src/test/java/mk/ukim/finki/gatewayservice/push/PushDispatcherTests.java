@@ -0,0 +1,104 @@
+package mk.ukim.finki.gatewayservice.push;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.gatewayservice.metrics.GatewayMetrics;
+import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushDispatcherTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DeviceRegistry registry = new DeviceRegistry(20, 1_000, 60_000);
+    private final FakePushTransport transport = new FakePushTransport();
+    private final PushDispatcher dispatcher = new PushDispatcher(registry, transport,
+            new GatewayMetrics(meterRegistry, new SyncTaskExecutor()),
+            true, "RED", 100, 1_000_000, 1, 10);
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    private static AlertMessage alert(String area, String level) {
+        AlertMessage a = new AlertMessage();
+        a.setArea(area);
+        a.setMetric("pm10");
+        a.setLevel(level);
+        a.setValue(80);
+        return a;
+    }
+
+    private void awaitSent(double expected) throws InterruptedException {
+        for (int i = 0; i < 200 && meterRegistry.counter("gateway.push.sent").count() < expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, meterRegistry.counter("gateway.push.sent").count());
+    }
+
+    @Test
+    void redAlertIsPushedInBatchesToDevicesFollowingTheArea() throws InterruptedException {
+        for (int i = 0; i < 250; i++) {
+            registry.register("device-" + i, List.of("Gazi Baba"));
+        }
+        registry.register("other", List.of("centar"));
+
+        dispatcher.onAlert(alert("Gazi Baba", "GREEN"));
+        dispatcher.onAlert(alert("Gazi Baba", "RED"));
+
+        awaitSent(250);
+        assertEquals(3, transport.getBatches());
+        assertEquals(250, transport.getDelivered());
+    }
+
+    @Test
+    void tokensReportedInvalidAreUnregistered() throws InterruptedException {
+        registry.register("device-1", List.of("centar"));
+        registry.register("invalid-2", List.of("centar"));
+
+        dispatcher.onAlert(alert("centar", "RED"));
+
+        awaitSent(1);
+        for (int i = 0; i < 200 && registry.size() > 1; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("device-1"), registry.subscribers("centar"));
+    }
+
+    @Test
+    void unknownMinLevelFailsAtStartup() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new PushDispatcher(registry,
+                transport, new GatewayMetrics(meterRegistry, new SyncTaskExecutor()), true, "CRITICAL", 100, 1_000_000,
+                1, 10));
+        assertTrue(e.getMessage().contains("CRITICAL"));
+    }
+
+    @Test
+    void fullQueueDropsInsteadOfBlocking() throws InterruptedException {
+        PushDispatcher slow = new PushDispatcher(registry, (tokens, n) -> {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        }, new GatewayMetrics(meterRegistry, new SyncTaskExecutor()), true, "RED", 100, 1_000_000, 1, 1);
+        try {
+            registry.register("device-1", List.of("centar"));
+            long started = System.currentTimeMillis();
+            for (int i = 0; i < 5; i++) {
+                slow.onAlert(alert("centar", "RED"));
+            }
+            // One running, one queued, the rest dropped - without waiting for the transport
+            assertTrue(System.currentTimeMillis() - started < 500);
+            assertEquals(3, meterRegistry.counter("gateway.push.dropped").count());
+        } finally {
+            slow.stop();
+        }
+    }
+}
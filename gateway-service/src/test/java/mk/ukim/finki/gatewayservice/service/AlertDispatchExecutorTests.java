@@ -0,0 +1,100 @@
+package mk.ukim.finki.gatewayservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.gatewayservice.metrics.GatewayMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertDispatchExecutorTests {
+
+    private final GatewayMetrics metrics = new GatewayMetrics(new SimpleMeterRegistry(), new SyncTaskExecutor());
+
+    @Test
+    void tasksOfOneKeyRunInSubmitOrderOffTheCallerThread() throws InterruptedException {
+        AlertDispatchExecutor executor = new AlertDispatchExecutor(metrics, 4, 100, 1000);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int n = i;
+            assertTrue(executor.submit("centar", () -> {
+                order.add(n);
+                threads.add(Thread.currentThread().getName());
+            }));
+        }
+        executor.stop();
+
+        assertEquals(50, order.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertTrue(threads.stream().allMatch(t -> t.startsWith("alert-dispatch-")));
+    }
+
+    @Test
+    void fullLaneRejectsAfterTheHandoffTimeout() throws InterruptedException {
+        AlertDispatchExecutor executor = new AlertDispatchExecutor(metrics, 1, 1, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        try {
+            assertTrue(executor.submit("a", () -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(running.await(1, TimeUnit.SECONDS));
+            assertTrue(executor.submit("a", () -> { }));
+            assertEquals(1, executor.queued());
+
+            long started = System.currentTimeMillis();
+            assertFalse(executor.submit("a", () -> { }));
+            assertTrue(System.currentTimeMillis() - started >= 40);
+        } finally {
+            release.countDown();
+            executor.stop();
+        }
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheLane() throws InterruptedException {
+        AlertDispatchExecutor executor = new AlertDispatchExecutor(metrics, 1, 10, 1000);
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.submit("a", () -> { throw new IllegalStateException("broker channel closed"); });
+        executor.submit("a", ran::countDown);
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        executor.stop();
+    }
+
+    @Test
+    void everyAcceptedTaskRunsEvenWhenStopRacesTheSubmit() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            AlertDispatchExecutor executor = new AlertDispatchExecutor(metrics, 2, 10_000, 1000);
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger ran = new AtomicInteger();
+            Thread submitter = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    if (executor.submit("area-" + (i % 7), ran::incrementAndGet)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            submitter.start();
+            Thread.sleep(round % 3);
+            executor.stop();
+            submitter.join();
+
+            assertEquals(accepted.get(), ran.get(), "round " + round);
+            assertFalse(executor.submit("centar", () -> { }));
+        }
+    }
+}
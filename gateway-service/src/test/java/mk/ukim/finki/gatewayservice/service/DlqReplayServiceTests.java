@@ -0,0 +1,160 @@
+package mk.ukim.finki.gatewayservice.service;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import mk.ukim.finki.gatewayservice.config.RabbitConfig;
+import mk.ukim.finki.gatewayservice.model.AlertMessage;
+import mk.ukim.finki.gatewayservice.model.ReplayReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DlqReplayServiceTests {
+
+    private final RabbitTemplate template = mock(RabbitTemplate.class);
+    private final Channel channel = mock(Channel.class);
+    private final DeliveredAlerts deliveredAlerts = new DeliveredAlerts();
+    private final DlqReplayService service = new DlqReplayService(template, deliveredAlerts, 10, 100_000, 1000, 1000);
+
+    private final Deque<GetResponse> dlq = new ArrayDeque<>();
+    private final List<AlertMessage> republished = new CopyOnWriteArrayList<>();
+    private final List<String> executeThreads = new CopyOnWriteArrayList<>();
+    private boolean brokerAcks = true;
+    private long nextTag = 1;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(template.getMessageConverter()).thenReturn(new Jackson2JsonMessageConverter());
+        when(template.execute(any())).thenAnswer(inv -> {
+            executeThreads.add(Thread.currentThread().getName());
+            return inv.<ChannelCallback<?>>getArgument(0).doInRabbit(channel);
+        });
+        when(channel.basicGet(eq(RabbitConfig.DLQ), eq(false))).thenAnswer(inv -> dlq.poll());
+        doAnswer(inv -> {
+            republished.add(inv.getArgument(2));
+            inv.<CorrelationData>getArgument(3).getFuture()
+                    .complete(new CorrelationData.Confirm(brokerAcks, brokerAcks ? null : "nack"));
+            return null;
+        }).when(template).convertAndSend(eq(RabbitConfig.ALERTS_EXCHANGE), anyString(), any(Object.class),
+                any(CorrelationData.class));
+    }
+
+    private void dead(String area, String level, long epochSecond) {
+        String json = "{\"area\":\"" + area + "\",\"metric\":\"pm10\",\"level\":\"" + level
+                + "\",\"value\":60.0,\"timestamp\":" + epochSecond + "}";
+        AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().contentType("application/json").build();
+        dlq.add(new GetResponse(new Envelope(nextTag++, false, "dlx", RabbitConfig.DLQ), props,
+                json.getBytes(StandardCharsets.UTF_8), dlq.size()));
+    }
+
+    private static AlertMessage alert(String area, String level, long epochSecond) {
+        AlertMessage a = new AlertMessage();
+        a.setArea(area);
+        a.setMetric("pm10");
+        a.setLevel(level);
+        a.setTimestamp(Instant.ofEpochSecond(epochSecond));
+        return a;
+    }
+
+    @Test
+    void republishesLatestPerSeriesAndAcksOnlyAfterTheBrokerConfirmed() throws Exception {
+        dead("centar", "YELLOW", 1_000);
+        dead("centar", "RED", 1_060);
+        dead("centar", "RED", 1_060);
+        dead("karposh", "GREEN", 1_000);
+
+        ReplayReport report = service.replay(null, null, null);
+
+        assertEquals(4, report.getDrained());
+        assertEquals(1, report.getDuplicates());
+        assertEquals(1, report.getStale());
+        assertEquals(2, report.getRepublished());
+        List<String> levels = new ArrayList<>();
+        republished.forEach(a -> levels.add(a.getAreaKey() + "=" + a.getLevel()));
+        assertEquals(List.of("centar=RED", "karposh=GREEN"), levels);
+
+        InOrder order = inOrder(template, channel);
+        order.verify(template, times(2)).convertAndSend(anyString(), anyString(), any(Object.class),
+                any(CorrelationData.class));
+        order.verify(channel).basicAck(4L, true);
+    }
+
+    @Test
+    void failedRepublishLeavesTheBatchInTheDlq() throws Exception {
+        brokerAcks = false;
+        dead("centar", "RED", 1_000);
+        dead("aerodrom", "RED", 1_000);
+
+        ReplayReport report = service.replay(null, null, null);
+
+        verify(channel).basicNack(2L, true, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        assertEquals(0, report.getDrained());
+        assertEquals(2, report.getRequeued());
+    }
+
+    @Test
+    void alertsSupersededByALiveAlertAreNotReplayed() throws Exception {
+        deliveredAlerts.record(alert("centar", "GREEN", 2_000));
+        dead("centar", "RED", 1_000);
+        dead("centar", "RED", 2_000);
+        dead("karposh", "RED", 1_000);
+
+        ReplayReport report = service.replay(null, null, null);
+
+        assertEquals(2, report.getSuperseded());
+        assertEquals(1, republished.size());
+        assertEquals("karposh", republished.get(0).getAreaKey());
+        verify(channel).basicAck(3L, true);
+    }
+
+    @Test
+    void unreadableMessagesAreDroppedWithTheirBatch() throws Exception {
+        AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().contentType("application/json").build();
+        dlq.add(new GetResponse(new Envelope(nextTag++, false, "dlx", RabbitConfig.DLQ), props,
+                "not json".getBytes(StandardCharsets.UTF_8), 0));
+        dead("centar", "RED", 1_000);
+
+        ReplayReport report = service.replay(null, null, null);
+
+        assertEquals(1, report.getUnreadable());
+        assertEquals(1, report.getRepublished());
+        verify(channel).basicAck(2L, true);
+    }
+
+    @Test
+    void startDrainsOnTheReplayThreadAndRejectsASecondRun() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            dead("centar", "RED", 1_000 + i);
+        }
+
+        assertTrue(service.start(null, 50, null));
+        assertFalse(service.start(null, null, null));
+        for (int i = 0; i < 300 && service.isRunning(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(service.isRunning());
+        assertEquals(25, service.lastReport().getDrained());
+        assertTrue(executeThreads.stream().allMatch("dlq-replay"::equals));
+        service.stop();
+    }
+}
@@ -0,0 +1,70 @@
+package mk.ukim.finki.gatewayservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.gatewayservice.metrics.GatewayMetrics;
+import mk.ukim.finki.gatewayservice.model.AggregateTick;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TickForwarderTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final TickForwarder forwarder = new TickForwarder(messagingTemplate,
+            new GatewayMetrics(meterRegistry, new SyncTaskExecutor()));
+
+    private static AggregateTick tick(String area, long epochSecond) {
+        AggregateTick t = new AggregateTick();
+        t.setArea(area);
+        t.setTimestamp(Instant.ofEpochSecond(epochSecond));
+        return t;
+    }
+
+    @Test
+    void onlyTheLastTickOfEachAreaIsPushedPerFlush() {
+        AggregateTick centarLast = tick("Centar", 3);
+        forwarder.onTick(tick("Centar", 1));
+        forwarder.onTick(tick("Centar", 2));
+        forwarder.onTick(centarLast);
+        AggregateTick gaziBaba = tick("Gazi Baba", 1);
+        forwarder.onTick(gaziBaba);
+
+        forwarder.flush();
+
+        verify(messagingTemplate).convertAndSend("/topic/ticks/centar", (Object) centarLast);
+        verify(messagingTemplate).convertAndSend("/topic/ticks/gazi_baba", (Object) gaziBaba);
+        ArgumentCaptor<Object> all = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/ticks/all"), all.capture());
+        assertEquals(2, ((List<?>) all.getValue()).size());
+        assertTrue(((List<?>) all.getValue()).containsAll(List.of(centarLast, gaziBaba)));
+        assertEquals(2.0, meterRegistry.counter("gateway.ticks.conflated").count());
+        assertEquals(2.0, meterRegistry.counter("gateway.ticks.forwarded").count());
+    }
+
+    @Test
+    void flushOnlyPushesAreasWithANewTick() {
+        forwarder.onTick(tick("centar", 1));
+        forwarder.flush();
+        clearInvocations(messagingTemplate);
+
+        forwarder.flush();
+        verifyNoInteractions(messagingTemplate);
+
+        AggregateTick karposh = tick("karposh", 2);
+        forwarder.onTick(karposh);
+        forwarder.flush();
+
+        verify(messagingTemplate).convertAndSend("/topic/ticks/karposh", (Object) karposh);
+        verify(messagingTemplate).convertAndSend("/topic/ticks/all", (Object) List.of(karposh));
+        verify(messagingTemplate, never()).convertAndSend(eq("/topic/ticks/centar"), any(Object.class));
+    }
+}
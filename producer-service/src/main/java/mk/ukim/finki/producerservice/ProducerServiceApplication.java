@@ -3,9 +3,12 @@ package mk.ukim.finki.producerservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
-import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import mk.ukim.finki.producerservice.config.PollingProperties;
 import mk.ukim.finki.producerservice.config.PulseEcoProperties;
+import mk.ukim.finki.producerservice.config.UpstreamResilienceProperties;
+import mk.ukim.finki.producerservice.loadgen.LoadGenProperties;
+import mk.ukim.finki.producerservice.outbox.OutboxProperties;
 
 /**
  * Main Spring Boot Application Class
@@ -19,12 +22,11 @@ import mk.ukim.finki.producerservice.config.PulseEcoProperties;
  * Key Features:
  * - @EnableScheduling: Enables scheduled tasks (like periodic data fetching)
  * - @EnableConfigurationProperties: Allows reading configuration from application.properties
- * - @EnableRetry: Enables automatic retry for @Retryable methods
  */
 @SpringBootApplication
-@EnableScheduling  // Allows @Scheduled methods to run (e.g., CityProducerScheduler)
-@EnableConfigurationProperties(PulseEcoProperties.class)  // Loads pulseeco.* properties
-@EnableRetry  // Enables @Retryable annotation for automatic retries
+@EnableScheduling  // Provides the TaskScheduler that AdaptivePollingScheduler polls cities on
+@EnableConfigurationProperties({PulseEcoProperties.class, UpstreamResilienceProperties.class, PollingProperties.class,
+        OutboxProperties.class, LoadGenProperties.class})  // Loads pulseeco.* / producer.* / loadgen.* properties
 public class ProducerServiceApplication {
 
     /**
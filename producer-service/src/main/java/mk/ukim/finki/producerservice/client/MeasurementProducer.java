@@ -1,24 +1,32 @@
 package mk.ukim.finki.producerservice.client;
 
-import mk.ukim.finki.producerservice.config.RabbitMQConfig;
+import mk.ukim.finki.common.logging.LogSampler;
+import mk.ukim.finki.producerservice.metrics.ProducerMetrics;
+import mk.ukim.finki.producerservice.model.AreaSummary;
 import mk.ukim.finki.producerservice.model.CityMeasurement;
+import mk.ukim.finki.producerservice.outbox.Outbox;
+import mk.ukim.finki.producerservice.outbox.OutboundReading;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.stereotype.Service;
 
 /**
  * RabbitMQ Message Producer
  *
  * WHAT THIS DOES:
- * - Publishes CityMeasurement objects to RabbitMQ exchange
+ * - Converts CityMeasurement objects to JSON messages for the RabbitMQ exchange
  * - Uses topic routing keys: reading.{area}.{metric}
- * - Automatically retries on failure (3 attempts with exponential backoff)
+ * - Or, with producer.polling.pre-aggregate=true, one AreaSummary per
+ *   (area, metric) per poll on summary.{area}.{metric}
+ * - Hands them to the Outbox, which publishes them on its own thread and
+ *   spools them to disk while RabbitMQ is down or slow (no retries here,
+ *   so polling never waits for the broker)
  *
  * RABBITMQ PUBLISHING:
- * - convertAndSend() = fire-and-forget (async, no confirmation)
  * - Routing key determines which queues receive the message
  * - Exchange routes message to queues based on bindings
  *
@@ -26,36 +34,45 @@ import org.springframework.stereotype.Service;
  *   reading.gazi_baba.pm10
  *   reading.centar.temperature
  *   reading.ohrid.pm25
+ *
+ * TRACING:
+ * - Every message carries TraceHeaders (sensor stamp, fetch time, publish time)
+ *   so downstream services can measure end-to-end latency; the Outbox sets
+ *   the publish time when the message is actually sent
  */
 @Service
 public class MeasurementProducer {
 
     private static final Logger log = LoggerFactory.getLogger(MeasurementProducer.class);
 
-    private final RabbitTemplate rabbitTemplate;
+    // Per-message logs: 1 in 100 at INFO, the rest at DEBUG (invalid values always WARN)
+    private final LogSampler publishLogSampler = new LogSampler(100);
+
+    private final MessageConverter messageConverter;
+    private final Outbox outbox;
+    private final ProducerMetrics metrics;
 
-    public MeasurementProducer(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public MeasurementProducer(RabbitTemplate rabbitTemplate,
+                               Outbox outbox,
+                               ProducerMetrics metrics) {
+        this.messageConverter = rabbitTemplate.getMessageConverter();
+        this.outbox = outbox;
+        this.metrics = metrics;
     }
 
     /**
-     * Publishes a measurement to RabbitMQ.
+     * Publishes a measurement to RabbitMQ (through the Outbox).
      *
-     * RETRY MECHANISM:
-     * - @Retryable automatically retries on failure
-     * - 3 attempts with exponential backoff (1s, 2s, 4s)
-     * - If all retries fail, exception is thrown
+     * Returns as soon as the reading is queued or spooled; broker failures
+     * are handled by the Outbox, not thrown here.
      *
      * ROUTING KEY FORMAT:
      * - reading.{area}.{metric}
      * - Area and metric are normalized (lowercase, spaces to underscores)
+     *
+     * @param fetchedAt epoch millis when the pulse.eco response was received
      */
-    @Retryable(
-            retryFor = {Exception.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void publishMeasurement(CityMeasurement measurement) {
+    public void publishMeasurement(CityMeasurement measurement, long fetchedAt) {
         try {
             // Validate and normalize area
             String area = measurement.getArea();
@@ -76,40 +93,100 @@ public class MeasurementProducer {
             String metricKey = metric.toLowerCase().replace(" ", "_");
 
             // Build routing key: reading.{area}.{metric}
-            String routingKey = String.format("reading.%s.%s", areaKey, metricKey);
+            String routingKey = routingKey(areaKey, metricKey);
 
             // Validate value before publishing
             if (Double.isNaN(measurement.getValue()) || Double.isInfinite(measurement.getValue())) {
+                metrics.rejected();
                 log.warn("Skipping measurement with invalid value: area={}, metric={}, value={}",
                         areaKey, metricKey, measurement.getValue());
                 return;
             }
 
-            // Publish to RabbitMQ exchange
-            rabbitTemplate.convertAndSend(
-                    RabbitMQConfig.EXCHANGE_NAME,
-                    routingKey,
-                    measurement
-            );
+            Long sensorTs = measurement.getTimestamp() == null ? null : measurement.getTimestamp().toEpochMilli();
+            submit(routingKey, measurement, sensorTs, fetchedAt);
 
-            log.info("✅ Published measurement: routingKey={}, area={}, city={}, metric={}, value={}, sensor={}",
-                    routingKey,
-                    areaKey,
-                    measurement.getCity(),
-                    metricKey,
-                    measurement.getValue(),
-                    measurement.getSensorId()
-            );
+            if (publishLogSampler.sample()) {
+                log.info("✅ Queued measurement (sampled 1/100): routingKey={}, city={}, value={}, sensor={}",
+                        routingKey, measurement.getCity(), measurement.getValue(), measurement.getSensorId());
+            } else {
+                log.debug("Queued measurement: routingKey={}, city={}, value={}, sensor={}",
+                        routingKey, measurement.getCity(), measurement.getValue(), measurement.getSensorId());
+            }
 
         } catch (Exception e) {
-            log.error("❌ Failed to publish measurement after retries: area={}, city={}, sensorId={}, error={}",
+            log.error("❌ Failed to queue measurement: area={}, city={}, sensorId={}, error={}",
                     measurement.getArea(),
                     measurement.getCity(),
                     measurement.getSensorId(),
                     e.getMessage(),
                     e);
-            // Re-throw to trigger retry mechanism
-            throw new RuntimeException("Failed to publish measurement to RabbitMQ", e);
+            throw new RuntimeException("Failed to queue measurement for RabbitMQ", e);
         }
     }
+
+    /**
+     * Publishes one per-poll summary of an (area, metric) series (through the Outbox).
+     *
+     * ROUTING KEY FORMAT:
+     * - summary.{area}.{metric}, normalized like reading keys
+     * - The summary's newest reading timestamp is sent as the sensor stamp
+     *
+     * @param fetchedAt epoch millis when the pulse.eco response was received
+     */
+    public void publishSummary(AreaSummary summary, long fetchedAt) {
+        String areaKey = normalize(summary.getArea());
+        String metricKey = normalize(summary.getMetric());
+        String routingKey = summaryRoutingKey(areaKey, metricKey);
+        Long sensorTs = summary.getTimestamp() == null ? null : summary.getTimestamp().toEpochMilli();
+
+        try {
+            submit(routingKey, summary, sensorTs, fetchedAt);
+        } catch (Exception e) {
+            log.error("❌ Failed to queue summary: routingKey={}, city={}, count={}, error={}",
+                    routingKey, summary.getCity(), summary.getCount(), e.getMessage(), e);
+            throw new RuntimeException("Failed to queue summary for RabbitMQ", e);
+        }
+
+        if (publishLogSampler.sample()) {
+            log.info("✅ Queued summary (sampled 1/100): routingKey={}, city={}, count={}, mean={}",
+                    routingKey, summary.getCity(), summary.getCount(), summary.getSum() / summary.getCount());
+        } else {
+            log.debug("Queued summary: routingKey={}, city={}, count={}, min={}, max={}",
+                    routingKey, summary.getCity(), summary.getCount(), summary.getMin(), summary.getMax());
+        }
+    }
+
+    // Convert once here; the Outbox (and its spool) only deal with bytes
+    private void submit(String routingKey, Object payload, Long sensorTs, long fetchedAt) {
+        Message message = messageConverter.toMessage(payload, new MessageProperties());
+        MessageProperties properties = message.getMessageProperties();
+        Object typeId = properties.getHeader("__TypeId__");
+
+        outbox.submit(new OutboundReading(
+                routingKey,
+                properties.getContentType(),
+                typeId == null ? null : typeId.toString(),
+                sensorTs,
+                fetchedAt,
+                message.getBody()));
+    }
+
+    // Lowercase, spaces to underscores, "unknown" for null/blank
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? "unknown" : value.toLowerCase().replace(" ", "_");
+    }
+
+    /**
+     * Builds reading.{area}.{metric} from already normalized keys.
+     * Package-private for benchmarks/ (RoutingKeyBenchmark).
+     */
+    static String routingKey(String areaKey, String metricKey) {
+        return String.format("reading.%s.%s", areaKey, metricKey);
+    }
+
+    /** Builds summary.{area}.{metric} from already normalized keys. */
+    static String summaryRoutingKey(String areaKey, String metricKey) {
+        return "summary." + areaKey + "." + metricKey;
+    }
 }
@@ -0,0 +1,62 @@
+package mk.ukim.finki.producerservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * producer.polling.* - per-city poll schedule (see AdaptivePollingScheduler).
+ *
+ * The first poll interval of every city is still producer.poll-interval-ms;
+ * with adaptive=true it is then learned from how often the city's stamps change.
+ * pre-aggregate decides what a poll publishes (see CityProducerScheduler).
+ */
+@ConfigurationProperties(prefix = "producer.polling")
+public class PollingProperties {
+
+    /** Learn each city's cadence; false = fixed producer.poll-interval-ms (backoff still applies). */
+    private boolean adaptive = true;
+
+    /**
+     * Publish one AreaSummary per (area, metric) per poll instead of every reading,
+     * so broker load follows the number of areas, not sensors. A summary only
+     * holds readings that are new since the previous poll of the city.
+     */
+    private boolean preAggregate = false;
+
+    // Bounds for the learned interval
+    private long minIntervalMs = 30_000;
+    private long maxIntervalMs = 900_000;
+
+    /** Weight of the newest observed stamp gap in the cadence average (0..1). */
+    private double smoothing = 0.3;
+
+    /** Each delay is randomized by +/- this fraction so cities don't poll in lockstep. */
+    private double jitter = 0.1;
+
+    // Exponential backoff after HTTP errors / 429 (Retry-After wins when it is longer)
+    private long backoffInitialMs = 30_000;
+    private long backoffMaxMs = 1_800_000;
+
+    public boolean isAdaptive() { return adaptive; }
+    public void setAdaptive(boolean adaptive) { this.adaptive = adaptive; }
+
+    public boolean isPreAggregate() { return preAggregate; }
+    public void setPreAggregate(boolean preAggregate) { this.preAggregate = preAggregate; }
+
+    public long getMinIntervalMs() { return minIntervalMs; }
+    public void setMinIntervalMs(long minIntervalMs) { this.minIntervalMs = minIntervalMs; }
+
+    public long getMaxIntervalMs() { return maxIntervalMs; }
+    public void setMaxIntervalMs(long maxIntervalMs) { this.maxIntervalMs = maxIntervalMs; }
+
+    public double getSmoothing() { return smoothing; }
+    public void setSmoothing(double smoothing) { this.smoothing = smoothing; }
+
+    public double getJitter() { return jitter; }
+    public void setJitter(double jitter) { this.jitter = jitter; }
+
+    public long getBackoffInitialMs() { return backoffInitialMs; }
+    public void setBackoffInitialMs(long backoffInitialMs) { this.backoffInitialMs = backoffInitialMs; }
+
+    public long getBackoffMaxMs() { return backoffMaxMs; }
+    public void setBackoffMaxMs(long backoffMaxMs) { this.backoffMaxMs = backoffMaxMs; }
+}
@@ -0,0 +1,75 @@
+package mk.ukim.finki.producerservice.config;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration for the pulse.eco HTTP client
+ *
+ * java.net.http.HttpClient is used to make non-blocking HTTP requests to pulse.eco
+ * (PulseEcoClientImpl.getCurrentDataAsync / getCurrentMeasurementsAsync).
+ *
+ * How it works:
+ * 1. Requests are sent with sendAsync, so no thread waits while pulse.eco answers
+ * 2. Responses are completed (and parsed) on a small "pulseeco-http-" pool
+ *    (pulseeco.http-threads), not on the scheduler or Tomcat threads
+ * 3. What callers do with a response (publishing a poll, building a REST
+ *    response) runs on the "pulseeco-work-" pool (pulseeco.work-threads), so a
+ *    slow publish never holds up the threads that complete other responses
+ * 4. Connect timeout is pulseeco.connect-timeout-ms; PulseEcoClientImpl sets
+ *    pulseeco.read-timeout-ms as the per-request timeout
+ *
+ * Basic Authentication is added per request by PulseEcoClientImpl
+ * (HttpClient has no interceptors like RestTemplate had).
+ */
+@Configuration
+public class PulseEcoHttpClientConfig {
+
+    private ExecutorService executor;
+    private ExecutorService workExecutor;
+
+    /**
+     * Creates the HttpClient bean used for all pulse.eco calls
+     *
+     * @param props Configuration properties with timeouts and pool size
+     * @return shared HttpClient (thread-safe, keeps connections alive between polls)
+     */
+    @Bean
+    public HttpClient pulseEcoHttpClient(PulseEcoProperties props) {
+        executor = Executors.newFixedThreadPool(props.getHttpThreads(), new CustomizableThreadFactory("pulseeco-http-"));
+
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(props.getConnectTimeoutMs()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Runs the continuations of pulse.eco responses (thenApplyAsync / handleAsync),
+     * off the HttpClient's own threads.
+     */
+    @Bean
+    public Executor pulseEcoWorkExecutor(PulseEcoProperties props) {
+        workExecutor = Executors.newFixedThreadPool(props.getWorkThreads(), new CustomizableThreadFactory("pulseeco-work-"));
+        return workExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (workExecutor != null) {
+            workExecutor.shutdownNow();
+        }
+    }
+}
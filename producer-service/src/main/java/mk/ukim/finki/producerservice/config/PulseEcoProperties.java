@@ -13,6 +13,16 @@ public class PulseEcoProperties {
     // list of citieas
     private List<String> cities;
 
+    // HTTP timeouts, so a hanging subdomain can't block a poll forever
+    private int connectTimeoutMs = 5_000;
+    private int readTimeoutMs = 15_000;
+
+    // threads that complete (and parse) pulse.eco responses
+    private int httpThreads = 2;
+
+    // threads that run what is done with a response (publish a poll, build a REST reply)
+    private int workThreads = 4;
+
     public String getUsername() { return username; }
     public void setUsername(String username) { this.username = username; }
 
@@ -21,4 +31,16 @@ public class PulseEcoProperties {
 
     public List<String> getCities() { return cities; }
     public void setCities(List<String> cities) { this.cities = cities; }
+
+    public int getConnectTimeoutMs() { return connectTimeoutMs; }
+    public void setConnectTimeoutMs(int connectTimeoutMs) { this.connectTimeoutMs = connectTimeoutMs; }
+
+    public int getReadTimeoutMs() { return readTimeoutMs; }
+    public void setReadTimeoutMs(int readTimeoutMs) { this.readTimeoutMs = readTimeoutMs; }
+
+    public int getHttpThreads() { return httpThreads; }
+    public void setHttpThreads(int httpThreads) { this.httpThreads = httpThreads; }
+
+    public int getWorkThreads() { return workThreads; }
+    public void setWorkThreads(int workThreads) { this.workThreads = workThreads; }
 }
\ No newline at end of file
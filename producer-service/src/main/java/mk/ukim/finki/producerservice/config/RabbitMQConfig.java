@@ -1,5 +1,6 @@
 package mk.ukim.finki.producerservice.config;
 
+import mk.ukim.finki.producerservice.metrics.ProducerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.core.TopicExchange;
@@ -23,6 +24,8 @@ import org.springframework.context.annotation.Configuration;
  * - Routing Key: Pattern like "reading.area.metric" that determines message routing
  * - Publisher Confirms: Ensures messages are received by the exchange
  * - Return Callbacks: Handles messages that couldn't be routed to any queue
+ * - Correlation Data: Outbox sends every reading with an id, so a confirm/return
+ *   can be matched to the reading and that reading republished
  *
  * Producer publishes messages to the topic exchange:
  *   readings.topic
@@ -67,25 +70,31 @@ public class RabbitMQConfig {
      * - Usually means no queue is bound to the exchange with matching routing key
      */
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, ProducerMetrics metrics) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(jsonMessageConverter());
         
         // Enable mandatory flag - messages must be routed to at least one queue
         template.setMandatory(true);
         
-        // Publisher confirm callback - called when RabbitMQ confirms message receipt
+        // Publisher confirm callback - called when RabbitMQ confirms message receipt.
+        // Only metrics and logging here: Outbox tracks each send by its CorrelationData
+        // and republishes nacked / returned readings itself.
         template.setConfirmCallback((correlationData, ack, cause) -> {
+            String id = correlationData != null ? correlationData.getId() : null;
             if (ack) {
-                log.debug("Message confirmed by RabbitMQ exchange");
+                metrics.confirmed();
+                log.debug("Message confirmed by RabbitMQ exchange: correlationId={}", id);
             } else {
-                log.error("Message NOT confirmed by RabbitMQ. Cause: {}", cause);
+                metrics.nacked();
+                log.warn("Message NOT confirmed by RabbitMQ: correlationId={}, cause={}", id, cause);
             }
         });
         
         // Return callback - called when message can't be routed to any queue
         template.setReturnsCallback((returned) -> {
-            log.error("Message returned (not routed to any queue): routingKey={}, replyCode={}, replyText={}",
+            metrics.returned();
+            log.warn("Message returned (not routed to any queue): routingKey={}, replyCode={}, replyText={}",
                     returned.getRoutingKey(),
                     returned.getReplyCode(),
                     returned.getReplyText());
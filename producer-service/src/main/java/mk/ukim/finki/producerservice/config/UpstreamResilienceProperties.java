@@ -0,0 +1,54 @@
+package mk.ukim.finki.producerservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * pulseeco.resilience.* - per-city circuit breaker and bulkhead (see PulseEcoGuard).
+ */
+@ConfigurationProperties(prefix = "pulseeco.resilience")
+public class UpstreamResilienceProperties {
+
+    // ---- bulkhead ----
+    /** Concurrent calls allowed to one city's subdomain. */
+    private int maxConcurrentCalls = 2;
+    /** How long a caller may wait for a free slot before being rejected. */
+    private long maxWaitMs = 0;
+    /** Retry hint for a caller rejected by a full bulkhead (pulse.eco itself did not fail). */
+    private long bulkheadRetryMs = 5_000;
+
+    // ---- circuit breaker ----
+    /** Number of most recent calls the failure rate is computed over. */
+    private int windowSize = 10;
+    /** Calls needed in the window before the breaker may open. */
+    private int minimumCalls = 5;
+    /** Failure rate (0..1) that opens the breaker. */
+    private double failureRateThreshold = 0.5;
+    /** How long an open breaker rejects calls before letting probes through. */
+    private long openDurationMs = 60_000;
+    /** Probe calls let through while half-open; all must succeed to close. */
+    private int halfOpenProbes = 1;
+
+    public int getMaxConcurrentCalls() { return maxConcurrentCalls; }
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) { this.maxConcurrentCalls = maxConcurrentCalls; }
+
+    public long getMaxWaitMs() { return maxWaitMs; }
+    public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+
+    public long getBulkheadRetryMs() { return bulkheadRetryMs; }
+    public void setBulkheadRetryMs(long bulkheadRetryMs) { this.bulkheadRetryMs = bulkheadRetryMs; }
+
+    public int getWindowSize() { return windowSize; }
+    public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+
+    public int getMinimumCalls() { return minimumCalls; }
+    public void setMinimumCalls(int minimumCalls) { this.minimumCalls = minimumCalls; }
+
+    public double getFailureRateThreshold() { return failureRateThreshold; }
+    public void setFailureRateThreshold(double failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+
+    public long getOpenDurationMs() { return openDurationMs; }
+    public void setOpenDurationMs(long openDurationMs) { this.openDurationMs = openDurationMs; }
+
+    public int getHalfOpenProbes() { return halfOpenProbes; }
+    public void setHalfOpenProbes(int halfOpenProbes) { this.halfOpenProbes = halfOpenProbes; }
+}
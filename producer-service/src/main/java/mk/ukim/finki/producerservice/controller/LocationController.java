@@ -1,10 +1,14 @@
 package mk.ukim.finki.producerservice.controller;
 
 import mk.ukim.finki.producerservice.model.CityMeasurement;
+import mk.ukim.finki.producerservice.pulseeco.AsyncResults;
 import mk.ukim.finki.producerservice.pulseeco.PulseEcoClient;
 import mk.ukim.finki.producerservice.pulseeco.RawDataView;
+import mk.ukim.finki.producerservice.pulseeco.UpstreamUnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,6 +16,8 @@ import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -24,6 +30,10 @@ import java.util.stream.Collectors;
  * - Get all available positions in a city
  * 
  * All endpoints are prefixed with "/api/location"
+ *
+ * Endpoints return CompletableFuture (Spring MVC async), so a Tomcat thread
+ * is not held while pulse.eco answers; multi-city lookups fetch all cities at once.
+ * Filtering and building the response run on the pulseeco-work- pool.
  */
 @RestController
 @RequestMapping("/api/location")
@@ -34,11 +44,16 @@ public class LocationController {
     /** Client for fetching data from pulse.eco APIs */
     private final PulseEcoClient pulseEcoClient;
 
+    /** Runs the continuations, off the HTTP client's threads */
+    private final Executor workExecutor;
+
     /**
-     * Constructor - Spring automatically injects PulseEcoClient
+     * Constructor - Spring automatically injects PulseEcoClient and the work executor
      */
-    public LocationController(PulseEcoClient pulseEcoClient) {
+    public LocationController(PulseEcoClient pulseEcoClient,
+                              @Qualifier("pulseEcoWorkExecutor") Executor workExecutor) {
         this.pulseEcoClient = pulseEcoClient;
+        this.workExecutor = workExecutor;
     }
 
     /**
@@ -57,25 +72,25 @@ public class LocationController {
      * @return List of measurements matching the position
      */
     @GetMapping("/{position}")
-    public ResponseEntity<List<CityMeasurement>> getMeasurementsByPosition(
+    public CompletableFuture<ResponseEntity<List<CityMeasurement>>> getMeasurementsByPosition(
             @PathVariable String position,
             @RequestParam(required = false) String city) {
-        try {
-            List<CityMeasurement> measurements;
-
-            if (city != null && !city.isEmpty()) {
-                // If city parameter is provided, search only in that city
-                measurements = getMeasurementsForCityAndPosition(city, position);
-            } else {
-                // If no city specified, search across all default cities
-                measurements = getMeasurementsForPosition(position);
-            }
+        CompletableFuture<List<CityMeasurement>> measurements;
 
-            return ResponseEntity.ok(measurements);
-        } catch (Exception e) {
-            log.error("Error fetching measurements for position {}: {}", position, e.getMessage(), e);
-            return ResponseEntity.internalServerError().build();
+        if (city != null && !city.isEmpty()) {
+            // If city parameter is provided, search only in that city
+            measurements = getMeasurementsForCityAndPosition(city, position);
+        } else {
+            // If no city specified, search across all default cities
+            measurements = getMeasurementsForPosition(position);
         }
+
+        return measurements.handleAsync((list, error) -> {
+            if (error == null) {
+                return ResponseEntity.ok(list);
+            }
+            return errorResponse(AsyncResults.unwrap(error), "position " + position);
+        }, workExecutor);
     }
 
     /**
@@ -91,17 +106,16 @@ public class LocationController {
      * @return List of measurements for that city and position
      */
     @GetMapping("/city/{cityName}/position/{position}")
-    public ResponseEntity<List<CityMeasurement>> getMeasurementsByCityAndPosition(
+    public CompletableFuture<ResponseEntity<List<CityMeasurement>>> getMeasurementsByCityAndPosition(
             @PathVariable String cityName,
             @PathVariable String position) {
-        try {
-            List<CityMeasurement> measurements = getMeasurementsForCityAndPosition(cityName, position);
-            return ResponseEntity.ok(measurements);
-        } catch (Exception e) {
-            log.error("Error fetching measurements for city {} position {}: {}", 
-                    cityName, position, e.getMessage(), e);
-            return ResponseEntity.internalServerError().build();
-        }
+        return getMeasurementsForCityAndPosition(cityName, position)
+                .handleAsync((measurements, error) -> {
+                    if (error == null) {
+                        return ResponseEntity.ok(measurements);
+                    }
+                    return errorResponse(AsyncResults.unwrap(error), "city " + cityName + " position " + position);
+                }, workExecutor);
     }
 
     /**
@@ -119,23 +133,36 @@ public class LocationController {
      * @return List of unique position identifiers (coordinates) in that city
      */
     @GetMapping("/city/{cityName}/positions")
-    public ResponseEntity<List<String>> getPositionsForCity(@PathVariable String cityName) {
-        try {
-            // Fetch all current data for the city
-            List<RawDataView> rawList = pulseEcoClient.getCurrentData(cityName);
-            
-            // Extract unique positions from the data
-            List<String> positions = rawList.stream()
-                    .map(RawDataView::getPosition)           // Get position field
-                    .filter(pos -> pos != null && !pos.isEmpty())  // Filter out null/empty
-                    .distinct()                              // Remove duplicates
-                    .collect(Collectors.toList());          // Collect to list
-            
-            return ResponseEntity.ok(positions);
-        } catch (Exception e) {
-            log.error("Error fetching positions for city {}: {}", cityName, e.getMessage(), e);
-            return ResponseEntity.internalServerError().build();
+    public CompletableFuture<ResponseEntity<List<String>>> getPositionsForCity(@PathVariable String cityName) {
+        // Fetch all current data for the city (the request thread is released while waiting)
+        return pulseEcoClient.getCurrentDataAsync(cityName)
+                .handleAsync((rawList, error) -> {
+                    if (error != null) {
+                        return errorResponse(AsyncResults.unwrap(error), "positions of city " + cityName);
+                    }
+
+                    // Extract unique positions from the data
+                    List<String> positions = rawList.stream()
+                            .map(RawDataView::getPosition)           // Get position field
+                            .filter(pos -> pos != null && !pos.isEmpty())  // Filter out null/empty
+                            .distinct()                              // Remove duplicates
+                            .collect(Collectors.toList());          // Collect to list
+
+                    return ResponseEntity.ok(positions);
+                }, workExecutor);
+    }
+
+    /**
+     * Maps a failed fetch to a response: 503 when the city's circuit is open
+     * (or its bulkhead full) and nothing is cached yet, 500 otherwise.
+     */
+    private <T> ResponseEntity<T> errorResponse(Throwable error, String what) {
+        if (error instanceof UpstreamUnavailableException) {
+            log.warn("Unavailable while fetching {}: {}", what, error.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
+        log.error("Error fetching {}: {}", what, error.getMessage(), error);
+        return ResponseEntity.internalServerError().build();
     }
 
     /**
@@ -145,15 +172,14 @@ public class LocationController {
      * @param position Position identifier
      * @return List of measurements matching the criteria
      */
-    private List<CityMeasurement> getMeasurementsForCityAndPosition(String cityName, String position) {
+    private CompletableFuture<List<CityMeasurement>> getMeasurementsForCityAndPosition(String cityName, String position) {
         // Fetch all data for the city
-        List<RawDataView> rawList = pulseEcoClient.getCurrentData(cityName);
-        
-        // Filter by position (case-insensitive) and convert to CityMeasurement
-        return rawList.stream()
-                .filter(raw -> position.equalsIgnoreCase(raw.getPosition()))  // Match position
-                .map(raw -> toMeasurement(cityName, raw))                     // Convert format
-                .collect(Collectors.toList());                               // Collect results
+        return pulseEcoClient.getCurrentDataAsync(cityName)
+                // Filter by position (case-insensitive) and convert to CityMeasurement
+                .thenApplyAsync(rawList -> rawList.stream()
+                        .filter(raw -> position.equalsIgnoreCase(raw.getPosition()))  // Match position
+                        .map(raw -> toMeasurement(cityName, raw))                     // Convert format
+                        .collect(Collectors.toList()), workExecutor);                // Collect results
     }
 
     /**
@@ -165,25 +191,25 @@ public class LocationController {
      * @param position Position identifier
      * @return List of measurements from all cities matching the position
      */
-    private List<CityMeasurement> getMeasurementsForPosition(String position) {
+    private CompletableFuture<List<CityMeasurement>> getMeasurementsForPosition(String position) {
         // Default cities to search - you might want to make this configurable
         String[] cities = {"skopje", "bitola", "ohrid", "veles"};
-        
-        // Search each city and combine results
-        return java.util.Arrays.stream(cities)
-                .flatMap(city -> {
-                    try {
-                        // Fetch data for this city, filter by position, convert format
-                        return pulseEcoClient.getCurrentData(city).stream()
-                                .filter(raw -> position.equalsIgnoreCase(raw.getPosition()))
-                                .map(raw -> toMeasurement(city, raw));
-                    } catch (Exception e) {
-                        // If one city fails, log warning but continue with other cities
-                        log.warn("Failed to fetch data for city {}: {}", city, e.getMessage());
-                        return java.util.stream.Stream.empty();
-                    }
-                })
+
+        // Fetch all cities at once, filter by position, convert format
+        List<CompletableFuture<List<CityMeasurement>>> perCity = java.util.Arrays.stream(cities)
+                .map(city -> getMeasurementsForCityAndPosition(city, position)
+                        .exceptionally(e -> {
+                            // If one city fails, log warning but continue with other cities
+                            log.warn("Failed to fetch data for city {}: {}", city, AsyncResults.unwrap(e).getMessage());
+                            return List.of();
+                        }))
                 .collect(Collectors.toList());
+
+        // Combine results once every city has answered
+        return CompletableFuture.allOf(perCity.toArray(new CompletableFuture<?>[0]))
+                .thenApplyAsync(done -> perCity.stream()
+                        .flatMap(f -> f.join().stream())
+                        .collect(Collectors.toList()), workExecutor);
     }
 
     /**
@@ -220,8 +246,8 @@ public class LocationController {
         return new CityMeasurement(
                 city.toUpperCase(),
                 "unknown",
-                raw.getSensorId(),
                 raw.getPosition(),
+                raw.getSensorId(),
                 ts,
                 raw.getType(),
                 value
@@ -0,0 +1,80 @@
+package mk.ukim.finki.producerservice.loadgen;
+
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * loadgen.* settings, only used with the "loadgen" profile
+ * (see application-loadgen.properties for defaults and descriptions).
+ */
+@ConfigurationProperties(prefix = "loadgen")
+public class LoadGenProperties {
+
+    // ---- input ----
+    private int cityCount = 4;
+    private int sensorsPerCity = 250;
+    private List<String> metrics = List.of("pm10", "pm25", "temperature", "humidity", "noise");
+    /** Directory with recorded polls, one <city>.jsonl per city. Empty = synthesize. */
+    private String replayDir;
+    /** Replace recorded stamps with "now" so latency stages stay meaningful. */
+    private boolean restamp = true;
+
+    // ---- rate ----
+    private double pollsPerSecond = 10;
+    private int burstEverySeconds = 30;
+    private int burstDurationSeconds = 5;
+    private double burstMultiplier = 5;
+    private int threads = 4;
+    private int durationSeconds = 120;
+    private int drainSeconds = 15;
+
+    // ---- reporting ----
+    private String aggregatorUrl = "http://localhost:8080";
+    private String gatewayUrl = "http://localhost:8081";
+    private boolean exitWhenDone = true;
+
+    public int getCityCount() { return cityCount; }
+    public void setCityCount(int cityCount) { this.cityCount = cityCount; }
+
+    public int getSensorsPerCity() { return sensorsPerCity; }
+    public void setSensorsPerCity(int sensorsPerCity) { this.sensorsPerCity = sensorsPerCity; }
+
+    public List<String> getMetrics() { return metrics; }
+    public void setMetrics(List<String> metrics) { this.metrics = metrics; }
+
+    public String getReplayDir() { return replayDir; }
+    public void setReplayDir(String replayDir) { this.replayDir = replayDir; }
+
+    public boolean isRestamp() { return restamp; }
+    public void setRestamp(boolean restamp) { this.restamp = restamp; }
+
+    public double getPollsPerSecond() { return pollsPerSecond; }
+    public void setPollsPerSecond(double pollsPerSecond) { this.pollsPerSecond = pollsPerSecond; }
+
+    public int getBurstEverySeconds() { return burstEverySeconds; }
+    public void setBurstEverySeconds(int burstEverySeconds) { this.burstEverySeconds = burstEverySeconds; }
+
+    public int getBurstDurationSeconds() { return burstDurationSeconds; }
+    public void setBurstDurationSeconds(int burstDurationSeconds) { this.burstDurationSeconds = burstDurationSeconds; }
+
+    public double getBurstMultiplier() { return burstMultiplier; }
+    public void setBurstMultiplier(double burstMultiplier) { this.burstMultiplier = burstMultiplier; }
+
+    public int getThreads() { return threads; }
+    public void setThreads(int threads) { this.threads = threads; }
+
+    public int getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(int durationSeconds) { this.durationSeconds = durationSeconds; }
+
+    public int getDrainSeconds() { return drainSeconds; }
+    public void setDrainSeconds(int drainSeconds) { this.drainSeconds = drainSeconds; }
+
+    public String getAggregatorUrl() { return aggregatorUrl; }
+    public void setAggregatorUrl(String aggregatorUrl) { this.aggregatorUrl = aggregatorUrl; }
+
+    public String getGatewayUrl() { return gatewayUrl; }
+    public void setGatewayUrl(String gatewayUrl) { this.gatewayUrl = gatewayUrl; }
+
+    public boolean isExitWhenDone() { return exitWhenDone; }
+    public void setExitWhenDone(boolean exitWhenDone) { this.exitWhenDone = exitWhenDone; }
+}
@@ -0,0 +1,179 @@
+package mk.ukim.finki.producerservice.loadgen;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import mk.ukim.finki.producerservice.service.CityProducerScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Standalone load-test driver for the full pipeline.
+ *
+ * Run the producer with the "loadgen" profile against a local RabbitMQ with
+ * aggregator-service and gateway-service running:
+ *
+ *   ./mvnw spring-boot:run -Dspring-boot.run.profiles=loadgen
+ *
+ * WHAT IT DOES:
+ * 1. Polls SyntheticPulseEcoClient cities round-robin at loadgen.polls-per-second,
+ *    multiplied by loadgen.burst-multiplier during periodic bursts
+ * 2. Every poll goes through the real CityProducerScheduler.fetchForCity,
+ *    so readings are parsed and published by the real MeasurementProducer
+ * 3. After loadgen.duration-seconds (+ drain time) prints a report with producer
+ *    throughput and aggregator/gateway throughput and latency, read from their
+ *    /actuator/metrics endpoints
+ *
+ * If the worker pool can't keep up, polls are skipped and counted - that
+ * number is the first sign the producer itself is the bottleneck.
+ */
+@Component
+@Profile("loadgen")
+public class LoadGeneratorRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadGeneratorRunner.class);
+
+    private static final long TICK_MS = 100;
+    private static final String LATENCY = "weather.pipeline.latency";
+
+    private final LoadGenProperties props;
+    private final SyntheticPulseEcoClient client;
+    private final CityProducerScheduler scheduler;
+    private final MeterRegistry registry;
+    private final ConfigurableApplicationContext context;
+
+    private final AtomicLong pollsIssued = new AtomicLong();
+    private final AtomicLong pollsSkipped = new AtomicLong();
+
+    public LoadGeneratorRunner(LoadGenProperties props,
+                               SyntheticPulseEcoClient client,
+                               CityProducerScheduler scheduler,
+                               MeterRegistry registry,
+                               ConfigurableApplicationContext context) {
+        this.props = props;
+        this.client = client;
+        this.scheduler = scheduler;
+        this.registry = registry;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> cities = client.cities();
+        if (cities.isEmpty()) {
+            log.error("Load generator has no cities to poll (check loadgen.replay-dir)");
+            return;
+        }
+
+        PipelineProbe aggregator = new PipelineProbe(props.getAggregatorUrl());
+        PipelineProbe gateway = new PipelineProbe(props.getGatewayUrl());
+
+        double aggStart = aggregator.count("aggregator.listener.duration");
+        double gwStart = gateway.count("gateway.alerts.forwarded");
+        double publishedStart = localCount("producer.readings.published");
+        double confirmedStart = localCount("producer.readings.confirmed");
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(props.getThreads(), props.getThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(props.getThreads() * 4),
+                (task, pool) -> pollsSkipped.incrementAndGet());
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+
+        log.info("Load test started: cities={}, pollsPerSecond={}, burst x{} for {}s every {}s, duration={}s",
+                cities.size(), props.getPollsPerSecond(), props.getBurstMultiplier(),
+                props.getBurstDurationSeconds(), props.getBurstEverySeconds(), props.getDurationSeconds());
+
+        long startedAt = System.currentTimeMillis();
+        long[] cursor = {0};
+        double[] credit = {0};
+        ticker.scheduleAtFixedRate(() -> {
+            long elapsedS = (System.currentTimeMillis() - startedAt) / 1000;
+            boolean burst = props.getBurstEverySeconds() > 0
+                    && elapsedS % props.getBurstEverySeconds() < props.getBurstDurationSeconds();
+            double rate = props.getPollsPerSecond() * (burst ? props.getBurstMultiplier() : 1.0);
+
+            credit[0] += rate * TICK_MS / 1000.0;
+            while (credit[0] >= 1.0) {
+                credit[0] -= 1.0;
+                String city = cities.get((int) (cursor[0]++ % cities.size()));
+                pollsIssued.incrementAndGet();
+                workers.execute(() -> scheduler.fetchForCity(city));
+            }
+        }, 0, TICK_MS, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(props.getDurationSeconds() * 1000L);
+        ticker.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(props.getDrainSeconds(), TimeUnit.SECONDS);
+        long loadEndedAt = System.currentTimeMillis();
+
+        // Let aggregator and gateway work through what is still queued
+        Thread.sleep(props.getDrainSeconds() * 1000L);
+        double seconds = (System.currentTimeMillis() - startedAt) / 1000.0;
+
+        StringBuilder report = new StringBuilder("\n===== Load test report =====\n");
+        line(report, "duration", "%.1fs load + %ds drain", (loadEndedAt - startedAt) / 1000.0, props.getDrainSeconds());
+        line(report, "polls issued / skipped", "%d / %d", pollsIssued.get(), pollsSkipped.get());
+
+        double published = localCount("producer.readings.published") - publishedStart;
+        double confirmed = localCount("producer.readings.confirmed") - confirmedStart;
+        line(report, "producer published", "%.0f (%.1f/s)", published, published / seconds);
+        line(report, "producer confirmed", "%.0f (%.1f/s)", confirmed, confirmed / seconds);
+        line(report, "producer fetch_to_publish p99", "%.2f ms", localPercentileMs("fetch_to_publish", 0.99));
+
+        double aggProcessed = aggregator.count("aggregator.listener.duration") - aggStart;
+        line(report, "aggregator processed", "%.0f (%.1f/s)", aggProcessed, aggProcessed / seconds);
+        stage(report, aggregator, "queue_dwell");
+        stage(report, aggregator, "aggregator_processing");
+
+        double gwForwarded = gateway.count("gateway.alerts.forwarded") - gwStart;
+        line(report, "gateway forwarded alerts", "%.0f (%.1f/s)", gwForwarded, gwForwarded / seconds);
+        stage(report, gateway, "alert_dwell");
+        stage(report, gateway, "sensor_to_client");
+        report.append("============================");
+        log.info(report.toString());
+
+        if (props.isExitWhenDone()) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    private static void stage(StringBuilder report, PipelineProbe probe, String stage) {
+        line(report, stage + " p50 / p99", "%.2f / %.2f ms",
+                probe.percentileMs(LATENCY, 0.5, "stage:" + stage),
+                probe.percentileMs(LATENCY, 0.99, "stage:" + stage));
+    }
+
+    private static void line(StringBuilder report, String label, String format, Object... args) {
+        report.append(String.format(Locale.ROOT, "  %-32s " + format + "%n", prepend(label, args)));
+    }
+
+    private static Object[] prepend(Object first, Object[] rest) {
+        Object[] out = new Object[rest.length + 1];
+        out[0] = first;
+        System.arraycopy(rest, 0, out, 1, rest.length);
+        return out;
+    }
+
+    private double localCount(String counter) {
+        return Search.in(registry).name(counter).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    private double localPercentileMs(String stage, double phi) {
+        var timer = registry.find(LATENCY).tag("stage", stage).timer();
+        if (timer == null) return Double.NaN;
+        for (var p : timer.takeSnapshot().percentileValues()) {
+            if (p.percentile() == phi) return p.value(TimeUnit.MILLISECONDS);
+        }
+        return Double.NaN;
+    }
+}
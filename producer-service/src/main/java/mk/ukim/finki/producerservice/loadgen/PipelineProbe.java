@@ -0,0 +1,59 @@
+package mk.ukim.finki.producerservice.loadgen;
+
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads meters from another service's /actuator/metrics endpoint.
+ *
+ * Used by the load generator to report aggregator and gateway throughput
+ * and latency without any extra wiring in those services.
+ * Returns NaN when the service or meter is not available.
+ */
+class PipelineProbe {
+
+    private final RestTemplate restTemplate = new RestTemplate();
+    private final String baseUrl;
+
+    PipelineProbe(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /** COUNT statistic of a counter or timer. */
+    double count(String meter, String... tags) {
+        return statistic(meter, "COUNT", tags);
+    }
+
+    /**
+     * Percentile of a timer published with publishPercentiles, in milliseconds.
+     * Micrometer exposes these as "<meter>.percentile" gauges tagged phi=<p>.
+     */
+    double percentileMs(String meter, double phi, String... tags) {
+        String[] withPhi = new String[tags.length + 1];
+        System.arraycopy(tags, 0, withPhi, 0, tags.length);
+        withPhi[tags.length] = "phi:" + phi;
+        return statistic(meter + ".percentile", "VALUE", withPhi) * 1000.0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private double statistic(String meter, String statistic, String... tags) {
+        StringBuilder url = new StringBuilder(baseUrl).append("/actuator/metrics/").append(meter);
+        for (int i = 0; i < tags.length; i++) {
+            url.append(i == 0 ? '?' : '&').append("tag=").append(tags[i]);
+        }
+        try {
+            Map<String, Object> body = restTemplate.getForObject(url.toString(), Map.class);
+            if (body == null) return Double.NaN;
+            for (Map<String, Object> m : (List<Map<String, Object>>) body.get("measurements")) {
+                if (statistic.equals(m.get("statistic"))) {
+                    return ((Number) m.get("value")).doubleValue();
+                }
+            }
+        } catch (Exception e) {
+            // service down or meter not registered yet
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,245 @@
+package mk.ukim.finki.producerservice.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+import mk.ukim.finki.producerservice.pulseeco.PulseEcoClient;
+import mk.ukim.finki.producerservice.pulseeco.PulseEcoResponseParser;
+import mk.ukim.finki.producerservice.pulseeco.RawDataView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Stub PulseEcoClient for load tests - never calls pulse.eco.
+ *
+ * Active with the "loadgen" profile and replaces PulseEcoClientImpl (@Primary).
+ *
+ * TWO MODES:
+ * - Synthetic (default): loadgen.sensors-per-city sensors per city, each
+ *   reporting every loadgen.metrics type. pm10 oscillates around the 50.0
+ *   alert threshold so the aggregator emits level transitions.
+ * - Replay: loadgen.replay-dir contains <city>.jsonl files, one recorded
+ *   /rest/current response (JSON array of RawDataView) per line. Each call
+ *   returns the next line, wrapping around at the end.
+ *
+ * getCurrentMeasurements serializes the poll and runs it through the real
+ * PulseEcoResponseParser, so load tests include the parsing cost.
+ */
+@Service
+@Primary
+@Profile("loadgen")
+public class SyntheticPulseEcoClient implements PulseEcoClient {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticPulseEcoClient.class);
+
+    // Real pulse.eco cities first, then synthetic names
+    private static final String[] KNOWN_CITIES = {
+            "skopje", "bitola", "ohrid", "veles", "shtip", "tetovo", "kumanovo", "strumica"
+    };
+    private static final double[][] KNOWN_CENTERS = {
+            {41.9981, 21.4254}, {41.0297, 21.3292}, {41.1231, 20.8016}, {41.7165, 21.7723},
+            {41.7458, 22.1958}, {42.0106, 20.9715}, {42.1322, 21.7144}, {41.4378, 22.6427}
+    };
+
+    private static final long PM10_PERIOD_MS = 120_000;
+
+    private final LoadGenProperties props;
+    private final ObjectMapper objectMapper;
+    private final PulseEcoResponseParser parser;
+
+    private final List<String> cities;
+    private final Map<String, List<Sensor>> sensorsByCity = new HashMap<>();
+    private final Map<String, List<RawDataView[]>> recordedByCity = new HashMap<>();
+    private final Map<String, AtomicInteger> replayCursor = new HashMap<>();
+
+    public SyntheticPulseEcoClient(LoadGenProperties props, ObjectMapper objectMapper, PulseEcoResponseParser parser) {
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.parser = parser;
+
+        if (props.getReplayDir() != null && !props.getReplayDir().isBlank()) {
+            loadRecordings(Path.of(props.getReplayDir()));
+            this.cities = List.copyOf(recordedByCity.keySet());
+        } else {
+            this.cities = buildCities(props.getCityCount());
+            for (int i = 0; i < cities.size(); i++) {
+                sensorsByCity.put(cities.get(i), buildSensors(cities.get(i), center(i)));
+            }
+        }
+        log.info("Load generator client ready: mode={}, cities={}",
+                recordedByCity.isEmpty() ? "synthetic" : "replay", cities);
+    }
+
+    /** Cities this stub can serve, in the order the driver should poll them. */
+    public List<String> cities() {
+        return cities;
+    }
+
+    @Override
+    public List<RawDataView> getCurrentData(String cityName) {
+        String city = cityName.toLowerCase();
+        if (!recordedByCity.isEmpty()) {
+            return replay(city);
+        }
+        List<Sensor> sensors = sensorsByCity.get(city);
+        if (sensors == null) return List.of();
+
+        long now = System.currentTimeMillis();
+        // One stamp per poll, like pulse.eco
+        String stamp = stampNow();
+        List<RawDataView> out = new ArrayList<>(sensors.size() * props.getMetrics().size());
+        for (Sensor sensor : sensors) {
+            for (String metric : props.getMetrics()) {
+                RawDataView raw = new RawDataView();
+                raw.setSensorId(sensor.id);
+                raw.setPosition(sensor.position);
+                raw.setStamp(stamp);
+                raw.setType(metric);
+                raw.setValue(Double.toString(sensor.value(metric, now)));
+                out.add(raw);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public CompletableFuture<List<RawDataView>> getCurrentDataAsync(String cityName) {
+        // In-memory and fast: completed on the caller's thread
+        return CompletableFuture.completedFuture(getCurrentData(cityName));
+    }
+
+    @Override
+    public CompletableFuture<List<CityMeasurement>> getCurrentMeasurementsAsync(String cityName) {
+        return CompletableFuture.completedFuture(getCurrentMeasurements(cityName));
+    }
+
+    @Override
+    public List<CityMeasurement> getCurrentMeasurements(String cityName) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(getCurrentData(cityName));
+            return parser.parse(cityName, new ByteArrayInputStream(body));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot serialize synthetic poll for " + cityName, e);
+        }
+    }
+
+    private List<RawDataView> replay(String city) {
+        List<RawDataView[]> polls = recordedByCity.get(city);
+        if (polls == null || polls.isEmpty()) return List.of();
+
+        int idx = Math.floorMod(replayCursor.get(city).getAndIncrement(), polls.size());
+        RawDataView[] recorded = polls.get(idx);
+        if (!props.isRestamp()) {
+            return Arrays.asList(recorded);
+        }
+
+        String stamp = stampNow();
+        List<RawDataView> out = new ArrayList<>(recorded.length);
+        for (RawDataView r : recorded) {
+            RawDataView copy = new RawDataView();
+            copy.setSensorId(r.getSensorId());
+            copy.setPosition(r.getPosition());
+            copy.setStamp(stamp);
+            copy.setYear(r.getYear());
+            copy.setType(r.getType());
+            copy.setValue(r.getValue());
+            out.add(copy);
+        }
+        return out;
+    }
+
+    private void loadRecordings(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(p -> p.getFileName().toString().endsWith(".jsonl")).toList()) {
+                String city = file.getFileName().toString().replace(".jsonl", "").toLowerCase();
+                List<RawDataView[]> polls = new ArrayList<>();
+                for (String line : Files.readAllLines(file)) {
+                    if (!line.isBlank()) {
+                        polls.add(objectMapper.readValue(line, RawDataView[].class));
+                    }
+                }
+                recordedByCity.put(city, polls);
+                replayCursor.put(city, new AtomicInteger());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read loadgen.replay-dir " + dir, e);
+        }
+    }
+
+    private static List<String> buildCities(int count) {
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            out.add(i < KNOWN_CITIES.length ? KNOWN_CITIES[i] : "city" + (i + 1));
+        }
+        return out;
+    }
+
+    private static double[] center(int i) {
+        if (i < KNOWN_CENTERS.length) return KNOWN_CENTERS[i];
+        // Somewhere in North Macedonia
+        Random r = new Random(i);
+        return new double[]{41.0 + r.nextDouble() * 1.2, 20.6 + r.nextDouble() * 2.2};
+    }
+
+    private List<Sensor> buildSensors(String city, double[] center) {
+        Random r = new Random(city.hashCode());
+        // Skopje spread covers all municipalities in SkopjeAreaResolver
+        double spread = "skopje".equals(city) ? 0.10 : 0.04;
+        List<Sensor> sensors = new ArrayList<>(props.getSensorsPerCity());
+        for (int i = 0; i < props.getSensorsPerCity(); i++) {
+            double lat = center[0] + (r.nextDouble() * 2 - 1) * spread;
+            double lon = center[1] + (r.nextDouble() * 2 - 1) * spread * 1.5;
+            sensors.add(new Sensor(city + "-" + i,
+                    String.format(Locale.ROOT, "%.6f,%.6f", lat, lon),
+                    r.nextDouble() * 2 * Math.PI));
+        }
+        return sensors;
+    }
+
+    private static String stampNow() {
+        return OffsetDateTime.now(ZoneOffset.ofHours(1)).withNano(0).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+    }
+
+    /** One synthetic sensor; values are a smooth wave plus noise. */
+    private static final class Sensor {
+        final String id;
+        final String position;
+        final double phase;
+
+        Sensor(String id, String position, double phase) {
+            this.id = id;
+            this.position = position;
+            this.phase = phase;
+        }
+
+        double value(String metric, long now) {
+            double wave = Math.sin(2 * Math.PI * now / PM10_PERIOD_MS + phase);
+            double noise = ThreadLocalRandom.current().nextGaussian();
+            double v = switch (metric) {
+                case "pm10" -> 50 + 35 * wave + 5 * noise;
+                case "pm25" -> 30 + 20 * wave + 3 * noise;
+                case "temperature" -> 10 + 5 * wave + noise;
+                case "humidity" -> 60 + 15 * wave + 2 * noise;
+                case "noise" -> 55 + 10 * wave + 2 * noise;
+                default -> 50 + 10 * wave + noise;
+            };
+            return Math.max(0, Math.round(v * 10) / 10.0);
+        }
+    }
+}
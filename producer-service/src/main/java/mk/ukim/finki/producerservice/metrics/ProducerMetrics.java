@@ -0,0 +1,141 @@
+package mk.ukim.finki.producerservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer meters for the producer hot path (see /actuator/metrics).
+ *
+ * METERS:
+ * - producer.fetch.duration{city}   time of one pulse.eco /rest/current call
+ * - producer.readings.parsed        raw readings converted to CityMeasurement
+ * - producer.readings.rejected      readings dropped because value is NaN/Infinite
+ * - producer.readings.summarized    readings folded into per-area summaries (pre-aggregate mode)
+ * - producer.readings.unchanged     readings left out of summaries, already summarized in an earlier poll
+ * - producer.readings.published     messages (readings or summaries) handed to RabbitTemplate
+ * - producer.readings.confirmed     publisher confirms with ack=true
+ * - producer.readings.nacked        publisher confirms with ack=false
+ * - producer.readings.returned      unroutable messages (ReturnsCallback)
+ * - producer.poll.delay{city}       planned delay until the city's next poll (ms)
+ * - producer.fetch.rejected{city,reason}  calls not made: circuit_open / bulkhead
+ * - producer.circuit.state{city}    0 closed, 1 half-open, 2 open
+ * - producer.outbox.queue           readings waiting in memory for the publisher thread
+ * - producer.outbox.spool.bytes     unread bytes in the on-disk spool
+ * - producer.outbox.spooling        1 while readings go to disk (broker down/slow)
+ * - producer.outbox.spooled         readings written to the spool
+ * - producer.outbox.inflight        sends waiting for a publisher confirm or a republish
+ * - producer.outbox.republished{reason}  nacked / returned readings sent again
+ * - producer.outbox.dropped         readings given up on after repeated returns
+ */
+@Component
+public class ProducerMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> fetchTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedFetches = new ConcurrentHashMap<>();
+    private final Map<String, Counter> republished = new ConcurrentHashMap<>();
+
+    private final Counter parsed;
+    private final Counter rejected;
+    private final Counter summarized;
+    private final Counter unchanged;
+    private final Counter published;
+    private final Counter confirmed;
+    private final Counter nacked;
+    private final Counter returned;
+    private final Counter spooled;
+    private final Counter dropped;
+
+    public ProducerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.parsed = counter("producer.readings.parsed", "Raw readings converted to measurements");
+        this.rejected = counter("producer.readings.rejected", "Readings dropped for NaN/Infinite value");
+        this.summarized = counter("producer.readings.summarized", "Readings folded into per-area summaries");
+        this.unchanged = counter("producer.readings.unchanged", "Readings already summarized in an earlier poll");
+        this.published = counter("producer.readings.published", "Readings sent to readings.topic");
+        this.confirmed = counter("producer.readings.confirmed", "Publisher confirms acked by the broker");
+        this.nacked = counter("producer.readings.nacked", "Publisher confirms nacked by the broker");
+        this.returned = counter("producer.readings.returned", "Readings returned as unroutable");
+        this.spooled = counter("producer.outbox.spooled", "Readings written to the outbox spool");
+        this.dropped = counter("producer.outbox.dropped", "Readings dropped after repeated returns");
+    }
+
+    public Timer fetchTimer(String city) {
+        return fetchTimers.computeIfAbsent(city.toLowerCase(), c -> Timer.builder("producer.fetch.duration")
+                .description("Duration of one pulse.eco fetch")
+                .tag("city", c)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry));
+    }
+
+    public <T> void pollDelayGauge(String city, T state, ToDoubleFunction<T> delayMs) {
+        Gauge.builder("producer.poll.delay", state, delayMs)
+                .description("Planned delay until the next poll of a city")
+                .tag("city", city.toLowerCase())
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    public <T> void circuitStateGauge(String city, T breaker, ToDoubleFunction<T> state) {
+        Gauge.builder("producer.circuit.state", breaker, state)
+                .description("pulse.eco circuit state: 0 closed, 1 half-open, 2 open")
+                .tag("city", city.toLowerCase())
+                .register(registry);
+    }
+
+    public void fetchRejected(String city, String reason) {
+        rejectedFetches.computeIfAbsent(city + "|" + reason, k -> Counter.builder("producer.fetch.rejected")
+                .description("pulse.eco calls not made because of circuit breaker or bulkhead")
+                .tag("city", city)
+                .tag("reason", reason)
+                .register(registry)).increment();
+    }
+
+    public void outboxGauges(Supplier<Number> queued, Supplier<Number> spoolBytes, Supplier<Number> spooling,
+                             Supplier<Number> inFlight) {
+        Gauge.builder("producer.outbox.queue", queued).description("Readings queued in memory for publishing").register(registry);
+        Gauge.builder("producer.outbox.spool.bytes", spoolBytes).description("Unread bytes in the outbox spool")
+                .baseUnit("bytes").register(registry);
+        Gauge.builder("producer.outbox.spooling", spooling).description("1 while readings are spooled to disk").register(registry);
+        Gauge.builder("producer.outbox.inflight", inFlight).description("Sends waiting for a confirm or a republish").register(registry);
+    }
+
+    public void republished(String reason) {
+        republished.computeIfAbsent(reason, r -> Counter.builder("producer.outbox.republished")
+                .description("Nacked or returned readings published again")
+                .tag("reason", r)
+                .register(registry)).increment();
+    }
+
+    public void parsed() { parsed.increment(); }
+
+    public void rejected() { rejected.increment(); }
+
+    public void summarized() { summarized.increment(); }
+
+    public void unchanged() { unchanged.increment(); }
+
+    public void published() { published.increment(); }
+
+    public void confirmed() { confirmed.increment(); }
+
+    public void nacked() { nacked.increment(); }
+
+    public void returned() { returned.increment(); }
+
+    public void spooled() { spooled.increment(); }
+
+    public void dropped() { dropped.increment(); }
+
+    private Counter counter(String name, String description) {
+        return Counter.builder(name).description(description).register(registry);
+    }
+}
@@ -0,0 +1,54 @@
+package mk.ukim.finki.producerservice.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Area Summary Model
+ *
+ * All readings of one (area, metric) from one poll of a city, folded together.
+ * Published instead of the individual CityMeasurements when
+ * producer.polling.pre-aggregate=true, on summary.{area}.{metric}.
+ *
+ *  - count/sum/min/max: over the valid readings of the poll (sum/count = mean)
+ *  - last: value of the reading with the newest timestamp
+ *  - timestamp: that newest reading timestamp
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class AreaSummary {
+
+    private String city;        // e.g. "SKOPJE"
+    private String area;        // e.g. "gazi_baba"
+    private String metric;      // e.g. "pm10"
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+    private double last;
+    private Instant timestamp;  // newest reading timestamp
+
+    public AreaSummary(String city, String area, String metric) {
+        this.city = city;
+        this.area = area;
+        this.metric = metric;
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+    }
+
+    /** Folds one reading into the summary. */
+    public void add(double value, Instant ts) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (timestamp == null || (ts != null && !ts.isBefore(timestamp))) {
+            timestamp = ts;
+            last = value;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package mk.ukim.finki.producerservice.outbox;
+
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Readings sent to RabbitMQ whose publisher confirm has not arrived yet,
+ * keyed by the CorrelationData id they were sent with.
+ *
+ * The number of entries is bounded: a send needs a permit, and the permit is
+ * only given back when the confirm (ack or nack) comes in. While the broker is
+ * slow to confirm, the publisher thread waits here, the outbox queue fills up
+ * and new readings go to the spool - no thread ever waits on a single confirm.
+ */
+final class InFlightPublishes {
+
+    /** One unconfirmed send; attempt is 0 for the first send, +1 per republish. */
+    record Pending(long seq, OutboundReading reading, int attempt) {}
+
+    private final Semaphore permits;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextSeq = new AtomicLong();
+
+    InFlightPublishes(int maxInFlight) {
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Takes a permit for one send, waiting up to timeoutMs for a confirm to free one.
+     *
+     * @return false if no permit became free in time
+     */
+    boolean acquire(long timeoutMs) throws InterruptedException {
+        return permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a send (caller holds a permit) and returns the CorrelationData to send it with.
+     */
+    CorrelationData track(OutboundReading reading, int attempt) {
+        long seq = nextSeq.incrementAndGet();
+        CorrelationData correlation = new CorrelationData(Long.toString(seq));
+        pending.put(correlation.getId(), new Pending(seq, reading, attempt));
+        return correlation;
+    }
+
+    /**
+     * Removes a send once its confirm arrived (or the send itself failed) and frees its permit.
+     *
+     * @return the send, or null if it was already completed or drained
+     */
+    Pending complete(String id) {
+        Pending p = pending.remove(id);
+        if (p != null) {
+            permits.release();
+        }
+        return p;
+    }
+
+    /**
+     * Removes every unconfirmed send, oldest first (used on shutdown to spool them).
+     */
+    List<Pending> drain() {
+        List<Pending> out = new ArrayList<>(pending.size());
+        for (String id : List.copyOf(pending.keySet())) {
+            Pending p = complete(id);
+            if (p != null) {
+                out.add(p);
+            }
+        }
+        out.sort(Comparator.comparingLong(Pending::seq));
+        return out;
+    }
+
+    int size() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,16 @@
+package mk.ukim.finki.producerservice.outbox;
+
+/**
+ * One reading ready to be published: the converted JSON body plus what is
+ * needed to rebuild the AMQP message (routing key, content type, type id,
+ * trace stamps). The publish-time trace header is set when it is actually sent.
+ *
+ * @param sensorTs sensor stamp in epoch ms, null if unknown
+ */
+public record OutboundReading(String routingKey,
+                              String contentType,
+                              String typeId,
+                              Long sensorTs,
+                              long fetchedAt,
+                              byte[] body) {
+}
@@ -0,0 +1,413 @@
+package mk.ukim.finki.producerservice.outbox;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import mk.ukim.finki.common.logging.LogSampler;
+import mk.ukim.finki.common.tracing.LatencyTracker;
+import mk.ukim.finki.common.tracing.TraceHeaders;
+import mk.ukim.finki.producerservice.config.RabbitMQConfig;
+import mk.ukim.finki.producerservice.metrics.ProducerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbox between polling and RabbitMQ.
+ *
+ * MeasurementProducer only submits readings here; one "outbox-publisher"
+ * thread does the actual RabbitTemplate sends. Polling threads never wait
+ * for the broker.
+ *
+ * WHAT THIS DOES:
+ * 1. Normal mode: readings go into a bounded in-memory queue and are sent in order
+ * 2. A send fails (broker down) or the queue is full (broker slow):
+ *    switch to spool mode - the queue is moved to the SpoolJournal on disk and
+ *    every new reading is appended there as well
+ * 3. Spool mode: the publisher replays the journal in order, backing off while
+ *    the broker is unreachable; once the journal is read to the end, back to normal mode
+ * 4. Every send carries CorrelationData and is kept in InFlightPublishes until
+ *    its publisher confirm arrives. A nack, or a return (no queue bound for the
+ *    routing key), puts the reading back in line for a republish with backoff.
+ *    At most producer.outbox.max-in-flight sends wait for a confirm; beyond that
+ *    the publisher waits, the queue fills and readings are spooled (step 2)
+ * 5. On shutdown the publisher thread is told to stop and waited for (it spools
+ *    a reading it was retrying), then whatever is still in memory (queued,
+ *    unconfirmed, waiting for a republish) is written to the journal and the
+ *    journal is closed; it is replayed on the next start
+ *
+ * The journal is forced to disk every producer.outbox.fsync-interval-ms by the
+ * publisher thread, also while it backs off during a broker outage.
+ *
+ * ORDER: everything is published in submit order. The exceptions are a
+ * reading that was already being sent when a queue-full spill happened and
+ * then failed (it is retried on its own and lands after the spilled ones),
+ * and republished readings, which land after whatever was sent meanwhile.
+ *
+ * Delivery is at-least-once (a crash can replay up to a journal checkpoint twice,
+ * a reading confirmed after shutdown spooled it is sent again). Only readings that
+ * are still returned after producer.outbox.max-return-republishes attempts are dropped.
+ */
+@Component
+public class Outbox {
+
+    private static final Logger log = LoggerFactory.getLogger(Outbox.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final LatencyTracker latencyTracker;
+    private final ProducerMetrics metrics;
+    private final OutboxProperties props;
+
+    private final SpoolJournal journal;
+    private final BlockingQueue<OutboundReading> queue;
+    private final InFlightPublishes inFlight;
+    private final DelayQueue<Republish> republishes = new DelayQueue<>();
+
+    // Guards the spooling flag together with queue -> journal moves, so order is kept
+    private final Object lock = new Object();
+    private volatile boolean spooling;
+    private volatile boolean running = true;
+
+    private final Thread publisher;
+    private final LogSampler failureLogSampler = new LogSampler(100);
+    private long lastFsyncAt;
+
+    public Outbox(RabbitTemplate rabbitTemplate,
+                  LatencyTracker latencyTracker,
+                  ProducerMetrics metrics,
+                  OutboxProperties props) throws IOException {
+        this.rabbitTemplate = rabbitTemplate;
+        this.latencyTracker = latencyTracker;
+        this.metrics = metrics;
+        this.props = props;
+
+        this.journal = SpoolJournal.open(Path.of(props.getDir()), props.getSegmentBytes());
+        this.queue = new ArrayBlockingQueue<>(props.getQueueCapacity());
+        this.inFlight = new InFlightPublishes(props.getMaxInFlight());
+        // Leftovers from the last run are replayed before anything new
+        this.spooling = !journal.isEmpty();
+
+        metrics.outboxGauges(queue::size, journal::unreadBytes, () -> spooling ? 1 : 0,
+                () -> inFlight.size() + republishes.size());
+        this.publisher = new Thread(this::run, "outbox-publisher");
+        this.publisher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        publisher.start();
+    }
+
+    /**
+     * Hands a reading over for publishing. Never waits for the broker;
+     * at worst the reading is appended to the spool file.
+     */
+    public void submit(OutboundReading reading) {
+        synchronized (lock) {
+            if (!spooling && queue.offer(reading)) {
+                return;
+            }
+            try {
+                if (!spooling) {
+                    log.warn("Outbox queue full ({} readings), spooling to {}", props.getQueueCapacity(), props.getDir());
+                    spoolQueue();
+                }
+                journal.append(reading);
+                metrics.spooled();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write reading to outbox spool", e);
+            }
+        }
+    }
+
+    private void run() {
+        long backoffMs = props.getRetryInitialMs();
+        while (running) {
+            try {
+                Republish due = republishes.poll();
+                if (due != null) {
+                    if (!send(due.reading(), due.attempt())) {
+                        onSendFailed(due.reading());
+                    }
+                    continue;
+                }
+
+                OutboundReading next = queue.poll(spooling ? 0 : 200, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    if (!send(next, 0)) {
+                        onSendFailed(next);
+                    }
+                    continue;
+                }
+
+                if (spooling) {
+                    if (replayJournal()) {
+                        backoffMs = props.getRetryInitialMs();
+                    } else {
+                        pause(backoffMs);
+                        backoffMs = Math.min(props.getRetryMaxMs(), backoffMs * 2);
+                    }
+                }
+                fsyncIfDue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Outbox publisher error", e);
+                sleepQuietly(props.getRetryInitialMs());
+            }
+        }
+    }
+
+    /**
+     * Sends spooled readings until the journal is empty or a send fails.
+     *
+     * @return false if the broker is still unavailable
+     */
+    private boolean replayJournal() throws IOException {
+        long replayed = 0;
+        while (running) {
+            OutboundReading reading = journal.peek();
+            if (reading == null) {
+                synchronized (lock) {
+                    // Nothing was appended in the meantime: back to the in-memory path
+                    if (journal.isEmpty()) {
+                        spooling = false;
+                        journal.flush();
+                        log.info("Outbox spool drained ({} readings replayed), publishing directly again", replayed);
+                    }
+                }
+                return true;
+            }
+            if (!send(reading, 0)) {
+                return false;
+            }
+            journal.advance();
+            replayed++;
+        }
+        return true;
+    }
+
+    private void onSendFailed(OutboundReading failed) throws IOException, InterruptedException {
+        boolean spooled;
+        synchronized (lock) {
+            if (!spooling) {
+                log.warn("RabbitMQ unavailable, spooling readings to {}", props.getDir());
+            }
+            spooling = true;
+            // Keep order: the failed reading goes first, unless newer readings are already on disk
+            spooled = journal.isEmpty();
+            if (spooled) {
+                journal.append(failed);
+                metrics.spooled();
+            }
+            spoolQueue();
+        }
+        if (!spooled) {
+            retryUntilSent(failed);
+        }
+    }
+
+    private void retryUntilSent(OutboundReading reading) throws IOException, InterruptedException {
+        long backoffMs = props.getRetryInitialMs();
+        try {
+            while (running) {
+                pause(backoffMs);
+                if (send(reading, 0)) return;
+                backoffMs = Math.min(props.getRetryMaxMs(), backoffMs * 2);
+            }
+        } finally {
+            if (!running) {
+                // Shutting down: keep it, even if out of order
+                synchronized (lock) {
+                    journal.append(reading);
+                    metrics.spooled();
+                }
+            }
+        }
+    }
+
+    // Caller holds lock
+    private void spoolQueue() throws IOException {
+        List<OutboundReading> pending = new ArrayList<>(queue.size());
+        queue.drainTo(pending);
+        for (OutboundReading reading : pending) {
+            journal.append(reading);
+            metrics.spooled();
+        }
+        spooling = true;
+    }
+
+    /**
+     * Sends one reading with CorrelationData; the confirm is handled in onConfirm.
+     *
+     * @return false if the send failed right away (broker unreachable, or stopping
+     *         while waiting for an in-flight slot)
+     */
+    private boolean send(OutboundReading reading, int attempt) {
+        try {
+            while (!inFlight.acquire(200)) {
+                if (!running) return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        long publishedAt = System.currentTimeMillis();
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(reading.contentType());
+        if (reading.typeId() != null) {
+            properties.setHeader("__TypeId__", reading.typeId());
+        }
+        if (reading.sensorTs() != null) {
+            properties.setHeader(TraceHeaders.SENSOR_TS, reading.sensorTs());
+        }
+        properties.setHeader(TraceHeaders.FETCHED_AT, reading.fetchedAt());
+        properties.setHeader(TraceHeaders.PUBLISHED_AT, publishedAt);
+
+        CorrelationData correlation = inFlight.track(reading, attempt);
+        try {
+            rabbitTemplate.send(RabbitMQConfig.EXCHANGE_NAME, reading.routingKey(),
+                    new Message(reading.body(), properties), correlation);
+        } catch (AmqpException e) {
+            inFlight.complete(correlation.getId());
+            if (failureLogSampler.sample()) {
+                log.warn("Publish failed (sampled 1/100): routingKey={}, error={}", reading.routingKey(), e.getMessage());
+            }
+            return false;
+        }
+
+        latencyTracker.record("sensor_to_fetch", reading.sensorTs(), reading.fetchedAt());
+        latencyTracker.record("fetch_to_publish", reading.fetchedAt(), publishedAt);
+        metrics.published();
+        correlation.getFuture().whenComplete((confirm, error) -> onConfirm(correlation,
+                error == null && confirm.isAck(), error != null ? error.getMessage() : confirm.getReason()));
+        return true;
+    }
+
+    /**
+     * Publisher confirm for one send (runs on the AMQP connection thread, so it only
+     * updates the in-flight table and queues republishes for the publisher thread).
+     * A returned message is still acked, so the return is checked first.
+     */
+    private void onConfirm(CorrelationData correlation, boolean ack, String reason) {
+        InFlightPublishes.Pending sent = inFlight.complete(correlation.getId());
+        ReturnedMessage returned = correlation.getReturned();
+        if (sent == null || (ack && returned == null)) {
+            // Confirmed, or already spooled by stop()
+            return;
+        }
+
+        int attempt = sent.attempt() + 1;
+        if (returned != null && attempt > props.getMaxReturnRepublishes()) {
+            metrics.dropped();
+            log.error("Dropping reading still unroutable after {} republishes: routingKey={}, replyText={}",
+                    sent.attempt(), returned.getRoutingKey(), returned.getReplyText());
+            return;
+        }
+
+        String cause = returned != null ? "returned" : "nacked";
+        metrics.republished(cause);
+        if (failureLogSampler.sample()) {
+            log.warn("Republishing {} reading (sampled 1/100): correlationId={}, routingKey={}, attempt={}, reason={}",
+                    cause, correlation.getId(), sent.reading().routingKey(), attempt,
+                    returned != null ? returned.getReplyText() : reason);
+        }
+        republishes.add(new Republish(sent.reading(), attempt, System.currentTimeMillis() + republishDelayMs(attempt)));
+    }
+
+    private long republishDelayMs(int attempt) {
+        long delay = props.getRetryInitialMs() << Math.min(attempt - 1, 20);
+        return Math.min(props.getRetryMaxMs(), delay);
+    }
+
+    /**
+     * Backoff sleep that wakes at least every fsync interval, so readings
+     * spooled by polling threads meanwhile still reach the disk in time.
+     */
+    private void pause(long ms) throws InterruptedException, IOException {
+        long until = System.currentTimeMillis() + ms;
+        long left;
+        while (running && (left = until - System.currentTimeMillis()) > 0) {
+            Thread.sleep(Math.max(1, Math.min(left, props.getFsyncIntervalMs())));
+            fsyncIfDue();
+        }
+    }
+
+    private void fsyncIfDue() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - lastFsyncAt >= props.getFsyncIntervalMs()) {
+            lastFsyncAt = now;
+            journal.flush();
+        }
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        // No interrupt: it would close the journal's FileChannel under a running append/fsync.
+        // No timeout: the publisher must not touch the journal once it is closed. Every wait of
+        // the publisher is short and checks running, or is bounded by the AMQP connection timeout.
+        publisher.join();
+        synchronized (lock) {
+            List<OutboundReading> unconfirmed = new ArrayList<>();
+            for (InFlightPublishes.Pending p : inFlight.drain()) {
+                unconfirmed.add(p.reading());
+            }
+            List<Republish> waiting = new ArrayList<>();
+            republishes.drainTo(waiting);
+            waiting.forEach(r -> unconfirmed.add(r.reading()));
+
+            if (!unconfirmed.isEmpty() || !queue.isEmpty()) {
+                log.info("Outbox stopping, spooling {} unsent and {} unconfirmed readings", queue.size(), unconfirmed.size());
+            }
+            for (OutboundReading reading : unconfirmed) {
+                journal.append(reading);
+                metrics.spooled();
+            }
+            if (!queue.isEmpty()) {
+                spoolQueue();
+            }
+            journal.close();
+        }
+    }
+
+    /** A nacked/returned reading waiting for its republish time. */
+    private record Republish(OutboundReading reading, int attempt, long dueAt) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((Republish) other).dueAt);
+        }
+    }
+}
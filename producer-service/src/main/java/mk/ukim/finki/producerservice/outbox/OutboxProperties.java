@@ -0,0 +1,56 @@
+package mk.ukim.finki.producerservice.outbox;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * producer.outbox.* - publish queue and on-disk spool (see Outbox).
+ */
+@ConfigurationProperties(prefix = "producer.outbox")
+public class OutboxProperties {
+
+    /** Directory for spool segments and the read cursor. */
+    private String dir = "./data/outbox";
+
+    /** Readings held in memory while the broker keeps up; when full, new readings go to disk. */
+    private int queueCapacity = 10_000;
+
+    /** A new segment file is started once the current one reaches this size. */
+    private long segmentBytes = 16 * 1024 * 1024;
+
+    /** Spool writes are forced to disk at this interval (process crashes lose nothing either way). */
+    private long fsyncIntervalMs = 1_000;
+
+    /** Sends allowed to wait for a publisher confirm at once; the publisher pauses beyond that. */
+    private int maxInFlight = 1_000;
+
+    /** Republishes of a reading the broker keeps returning as unroutable before it is dropped. */
+    private int maxReturnRepublishes = 5;
+
+    // Backoff between replay attempts while the broker is down (and between republishes)
+    private long retryInitialMs = 1_000;
+    private long retryMaxMs = 30_000;
+
+    public String getDir() { return dir; }
+    public void setDir(String dir) { this.dir = dir; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public long getSegmentBytes() { return segmentBytes; }
+    public void setSegmentBytes(long segmentBytes) { this.segmentBytes = segmentBytes; }
+
+    public long getFsyncIntervalMs() { return fsyncIntervalMs; }
+    public void setFsyncIntervalMs(long fsyncIntervalMs) { this.fsyncIntervalMs = fsyncIntervalMs; }
+
+    public int getMaxInFlight() { return maxInFlight; }
+    public void setMaxInFlight(int maxInFlight) { this.maxInFlight = maxInFlight; }
+
+    public int getMaxReturnRepublishes() { return maxReturnRepublishes; }
+    public void setMaxReturnRepublishes(int maxReturnRepublishes) { this.maxReturnRepublishes = maxReturnRepublishes; }
+
+    public long getRetryInitialMs() { return retryInitialMs; }
+    public void setRetryInitialMs(long retryInitialMs) { this.retryInitialMs = retryInitialMs; }
+
+    public long getRetryMaxMs() { return retryMaxMs; }
+    public void setRetryMaxMs(long retryMaxMs) { this.retryMaxMs = retryMaxMs; }
+}
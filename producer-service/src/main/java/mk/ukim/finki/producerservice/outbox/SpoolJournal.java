@@ -0,0 +1,287 @@
+package mk.ukim.finki.producerservice.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented file journal of OutboundReading records.
+ *
+ * LAYOUT (in producer.outbox.dir):
+ * - segment-00000000000000000001.log, ...  records, oldest segment first
+ * - cursor                                 "<segment> <offset>" of the next unread record
+ *
+ * RECORD: [int payload length][int CRC32 of payload][payload]
+ *
+ * Writes go to the newest segment; a new one is started when it exceeds
+ * segmentBytes, and on every startup (so a torn tail after a crash is never
+ * appended to). The reader walks segments in order and deletes each one once
+ * it has been read past. A record with a bad length/CRC ends its segment.
+ *
+ * The cursor is saved every CHECKPOINT_EVERY records and on flush, so after a
+ * crash up to that many records are replayed twice (delivery is at-least-once).
+ *
+ * All methods are synchronized: appends come from polling threads,
+ * reads from the Outbox publisher thread.
+ */
+class SpoolJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(SpoolJournal.class);
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+    private static final String CURSOR = "cursor";
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final int CHECKPOINT_EVERY = 100;
+
+    private final Path dir;
+    private final long segmentBytes;
+
+    private long writeSegment;
+    private FileChannel writeChannel;
+    private long writeSize;
+
+    private long readSegment;
+    private long readOffset;
+    private FileChannel readChannel;
+    private int peekedSize = -1;
+    private int sinceCheckpoint;
+
+    private long unreadBytes;
+
+    private SpoolJournal(Path dir, long segmentBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+    }
+
+    static SpoolJournal open(Path dir, long segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        SpoolJournal journal = new SpoolJournal(dir, segmentBytes);
+        journal.recover();
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        List<Long> segments = segments();
+        long[] cursor = readCursor();
+        long first = segments.isEmpty() ? 1 : segments.get(0);
+        if (cursor == null || cursor[0] < first) {
+            cursor = new long[]{first, 0};
+        }
+        readSegment = cursor[0];
+        readOffset = cursor[1];
+
+        for (long segment : segments) {
+            if (segment < readSegment) {
+                Files.deleteIfExists(segmentPath(segment));
+            } else {
+                unreadBytes += Files.size(segmentPath(segment));
+            }
+        }
+        unreadBytes = Math.max(0, unreadBytes - readOffset);
+
+        writeSegment = segments.isEmpty() ? readSegment : Math.max(readSegment, segments.get(segments.size() - 1) + 1);
+        openWriteSegment();
+
+        if (unreadBytes > 0) {
+            log.info("Outbox spool has {} unread bytes in {} from segment {} offset {}",
+                    unreadBytes, dir, readSegment, readOffset);
+        }
+    }
+
+    synchronized void append(OutboundReading reading) throws IOException {
+        byte[] payload = encode(reading);
+        if (writeSize > 0 && writeSize + HEADER_BYTES + payload.length > segmentBytes) {
+            writeChannel.close();
+            writeSegment++;
+            openWriteSegment();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buf.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buf.hasRemaining()) {
+            writeChannel.write(buf);
+        }
+        writeSize += HEADER_BYTES + payload.length;
+        unreadBytes += HEADER_BYTES + payload.length;
+    }
+
+    /** Next unread record without consuming it, null if the journal is fully read. */
+    synchronized OutboundReading peek() throws IOException {
+        while (true) {
+            if (readChannel == null) {
+                Path path = segmentPath(readSegment);
+                if (!Files.exists(path)) {
+                    if (readSegment >= writeSegment) return null;
+                    readSegment++;
+                    readOffset = 0;
+                    continue;
+                }
+                readChannel = FileChannel.open(path, StandardOpenOption.READ);
+            }
+
+            OutboundReading reading = readAt(readOffset);
+            if (reading != null) {
+                return reading;
+            }
+            if (readSegment >= writeSegment) {
+                // Caught up with the writer
+                return null;
+            }
+
+            // End (or damaged tail) of an older segment: move on and drop it
+            long leftover = readChannel.size() - readOffset;
+            if (leftover > 0) {
+                log.warn("Skipping {} unreadable bytes at the end of outbox segment {}", leftover, readSegment);
+            }
+            unreadBytes = Math.max(0, unreadBytes - leftover);
+            readChannel.close();
+            readChannel = null;
+            Files.deleteIfExists(segmentPath(readSegment));
+            readSegment++;
+            readOffset = 0;
+            saveCursor();
+        }
+    }
+
+    /** Consumes the record returned by the last peek. */
+    synchronized void advance() throws IOException {
+        if (peekedSize < 0) return;
+        readOffset += peekedSize;
+        unreadBytes = Math.max(0, unreadBytes - peekedSize);
+        peekedSize = -1;
+        if (++sinceCheckpoint >= CHECKPOINT_EVERY) {
+            saveCursor();
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return unreadBytes == 0;
+    }
+
+    synchronized long unreadBytes() {
+        return unreadBytes;
+    }
+
+    /** Forces written records to disk and saves the cursor. */
+    synchronized void flush() throws IOException {
+        writeChannel.force(false);
+        saveCursor();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        writeChannel.close();
+        if (readChannel != null) {
+            readChannel.close();
+        }
+    }
+
+    private OutboundReading readAt(long offset) throws IOException {
+        long size = readChannel.size();
+        if (size - offset < HEADER_BYTES) return null;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(header, offset);
+        int length = header.getInt(0);
+        int crc = header.getInt(4);
+        if (length <= 0 || length > MAX_RECORD_BYTES || size - offset - HEADER_BYTES < length) return null;
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, offset + HEADER_BYTES);
+        CRC32 check = new CRC32();
+        check.update(payload.array());
+        if ((int) check.getValue() != crc) return null;
+
+        peekedSize = HEADER_BYTES + length;
+        return decode(payload.array());
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (readChannel.read(buf, position + buf.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void openWriteSegment() throws IOException {
+        writeChannel = FileChannel.open(segmentPath(writeSegment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writeSize = writeChannel.size();
+    }
+
+    private void saveCursor() throws IOException {
+        sinceCheckpoint = 0;
+        Path tmp = dir.resolve(CURSOR + ".tmp");
+        Files.writeString(tmp, readSegment + " " + readOffset, StandardCharsets.US_ASCII);
+        Files.move(tmp, dir.resolve(CURSOR), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long[] readCursor() {
+        try {
+            String[] parts = Files.readString(dir.resolve(CURSOR), StandardCharsets.US_ASCII).trim().split(" ");
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> out = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIX) && n.endsWith(SUFFIX))
+                    .forEach(n -> out.add(Long.parseLong(n.substring(PREFIX.length(), n.length() - SUFFIX.length()))));
+        }
+        out.sort(null);
+        return out;
+    }
+
+    private Path segmentPath(long segment) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+    }
+
+    static byte[] encode(OutboundReading r) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(r.body().length + 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(r.routingKey());
+        out.writeUTF(r.contentType() == null ? "" : r.contentType());
+        out.writeUTF(r.typeId() == null ? "" : r.typeId());
+        out.writeLong(r.sensorTs() == null ? Long.MIN_VALUE : r.sensorTs());
+        out.writeLong(r.fetchedAt());
+        out.writeInt(r.body().length);
+        out.write(r.body());
+        return bytes.toByteArray();
+    }
+
+    static OutboundReading decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String routingKey = in.readUTF();
+        String contentType = in.readUTF();
+        String typeId = in.readUTF();
+        long sensorTs = in.readLong();
+        long fetchedAt = in.readLong();
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        return new OutboundReading(routingKey,
+                contentType.isEmpty() ? null : contentType,
+                typeId.isEmpty() ? null : typeId,
+                sensorTs == Long.MIN_VALUE ? null : sensorTs,
+                fetchedAt,
+                body);
+    }
+}
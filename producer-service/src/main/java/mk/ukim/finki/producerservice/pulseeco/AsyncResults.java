@@ -0,0 +1,38 @@
+package mk.ukim.finki.producerservice.pulseeco;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers for callers of the async PulseEcoClient methods.
+ */
+public final class AsyncResults {
+
+    private AsyncResults() {
+    }
+
+    /**
+     * Waits for the future and rethrows its failure as the original exception
+     * (HttpClientErrorException, UpstreamUnavailableException, ...), the way the
+     * old blocking client threw it.
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    /** Strips CompletionException / ExecutionException wrappers. */
+    public static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,114 @@
+package mk.ukim.finki.producerservice.pulseeco;
+
+import mk.ukim.finki.producerservice.config.UpstreamResilienceProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Count-based circuit breaker for one pulse.eco city.
+ *
+ * CLOSED:    calls go through; the outcome of the last windowSize calls is kept
+ *            and the breaker opens once the failure rate reaches the threshold
+ * OPEN:      calls are rejected for openDurationMs
+ * HALF_OPEN: up to halfOpenProbes calls go through; all succeed -> CLOSED,
+ *            any fails -> OPEN again
+ *
+ * Calls per city are a handful per minute, so plain synchronized is enough.
+ */
+class CityCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CityCircuitBreaker.class);
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String city;
+    private final UpstreamResilienceProperties props;
+
+    // Ring buffer of recent outcomes, true = failure
+    private final boolean[] window;
+    private int next;
+    private int calls;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    CityCircuitBreaker(String city, UpstreamResilienceProperties props) {
+        this.city = city;
+        this.props = props;
+        this.window = new boolean[Math.max(1, props.getWindowSize())];
+    }
+
+    /** @return true if the call may go ahead; must then be followed by onSuccess/onFailure */
+    synchronized boolean tryAcquire(long now) {
+        if (state == State.OPEN) {
+            if (now < openUntil) return false;
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+            log.info("Circuit for {} half-open, probing", city);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= props.getHalfOpenProbes()) return false;
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++probeSuccesses >= props.getHalfOpenProbes()) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    synchronized void onFailure(long now) {
+        if (state == State.HALF_OPEN) {
+            open(now);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls >= props.getMinimumCalls() && failures >= props.getFailureRateThreshold() * calls) {
+                open(now);
+            }
+        }
+    }
+
+    synchronized long retryAfterMs(long now) {
+        return state == State.OPEN ? Math.max(0, openUntil - now) : 0;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[next]) failures--;
+        } else {
+            calls++;
+        }
+        window[next] = failure;
+        if (failure) failures++;
+        next = (next + 1) % window.length;
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        openUntil = now + props.getOpenDurationMs();
+        log.warn("Circuit for {} opened for {} ms ({} of last {} calls failed)",
+                city, props.getOpenDurationMs(), failures, calls);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        calls = 0;
+        failures = 0;
+        log.info("Circuit for {} closed", city);
+    }
+}
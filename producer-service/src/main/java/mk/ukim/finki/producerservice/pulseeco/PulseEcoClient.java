@@ -1,8 +1,13 @@
 package mk.ukim.finki.producerservice.pulseeco;
 
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 // Interface for Pulse.eco API Client
+// The *Async methods are the real implementation; the blocking ones are adapters
+// that wait for them (see AsyncResults.join) for callers that need a plain result.
 public interface PulseEcoClient {
 
     /**
@@ -15,9 +20,33 @@ public interface PulseEcoClient {
      *         (one object per sensor reading - e.g., PM10, temperature, etc.)
      */
 
-    List<RawDataView> getCurrentData(String cityName);
+    default List<RawDataView> getCurrentData(String cityName) {
+        return AsyncResults.join(getCurrentDataAsync(cityName));
+    }
+
+    /**
+     * Non-blocking getCurrentData: returns immediately, the future completes
+     * when pulse.eco has answered. Failures complete the future exceptionally.
+     */
+    CompletableFuture<List<RawDataView>> getCurrentDataAsync(String cityName);
+
+    /**
+     * Same call as getCurrentData, but the response is streamed straight into
+     * CityMeasurement objects by PulseEcoResponseParser (no RawDataView in between).
+     *
+     * @param cityName City name (e.g., "skopje", "bitola", "ohrid")
+     * @return One CityMeasurement per sensor reading, area already resolved
+     */
+    default List<CityMeasurement> getCurrentMeasurements(String cityName) {
+        return AsyncResults.join(getCurrentMeasurementsAsync(cityName));
+    }
+
+    /**
+     * Non-blocking getCurrentMeasurements. This is what the scheduler uses on every poll.
+     */
+    CompletableFuture<List<CityMeasurement>> getCurrentMeasurementsAsync(String cityName);
 
     // You can add more methods later:
     // List<RawDataView> getDataRaw(...);  // For historical data
     // List<SensorView> getSensors(...);   // For sensor metadata
-}
\ No newline at end of file
+}
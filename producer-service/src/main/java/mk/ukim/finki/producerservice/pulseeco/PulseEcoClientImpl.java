@@ -1,30 +1,96 @@
 package mk.ukim.finki.producerservice.pulseeco;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import mk.ukim.finki.producerservice.config.PulseEcoProperties;
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 
 // makes HTTP req to pulse.eco to recieve env data
-// RestTemplate which is configured with Basic Authentication in RestTemplateConfig.
+// Non-blocking java.net.http.HttpClient (see PulseEcoHttpClientConfig) with Basic Authentication on every request.
 
 // API Endpoints:
 // https://skopje.pulse.eco/rest/current
 // https://bitola.pulse.eco/rest/current
 // https://ohrid.pulse.eco/rest/current
 
+// Every call goes through PulseEcoGuard (per-city circuit breaker + bulkhead).
+// While a city is unavailable getCurrentData serves the last response it got;
+// getCurrentMeasurements fails so the scheduler skips the poll instead of republishing old readings.
+
+// Errors are reported with the same exception types RestTemplate used
+// (HttpClientErrorException / HttpServerErrorException / ResourceAccessException),
+// so callers and PulseEcoGuard classify them the same way as before.
+
 @Service
 public class PulseEcoClientImpl implements PulseEcoClient {
 
-    /** RestTemplate is configured with authentication in RestTemplateConfig */
-    private final RestTemplate restTemplate;
+    private static final Logger log = LoggerFactory.getLogger(PulseEcoClientImpl.class);
+
+    /** Shared non-blocking client from PulseEcoHttpClientConfig */
+    private final HttpClient httpClient;
+
+    /** For the RawDataView[] responses of getCurrentData */
+    private final ObjectMapper objectMapper;
+
+    /** Turns response bodies into CityMeasurement without RawDataView */
+    private final PulseEcoResponseParser parser;
+
+    /** Circuit breaker + bulkhead per city */
+    private final PulseEcoGuard guard;
+
+    /** "Basic <base64(username:password)>" */
+    private final String authorization;
+
+    /** Whole-request timeout (pulseeco.read-timeout-ms) */
+    private final Duration requestTimeout;
+
+    /** Last successful getCurrentData response per city, served while the city is unavailable */
+    private final Map<String, List<RawDataView>> lastKnown = new ConcurrentHashMap<>();
 
     /**
-     * Constructor - Spring automatically injects RestTemplate
+     * Constructor - Spring automatically injects the HttpClient, credentials, parser and guard
      */
-    public PulseEcoClientImpl(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public PulseEcoClientImpl(HttpClient pulseEcoHttpClient,
+                              PulseEcoProperties props,
+                              ObjectMapper objectMapper,
+                              PulseEcoResponseParser parser,
+                              PulseEcoGuard guard) {
+        this.httpClient = pulseEcoHttpClient;
+        this.objectMapper = objectMapper;
+        this.parser = parser;
+        this.guard = guard;
+        this.requestTimeout = Duration.ofMillis(props.getReadTimeoutMs());
+
+        // Encode credentials in Base64 (required for HTTP Basic Authentication)
+        // Example: "bobi:DishiDlaboko" -> "Ym9iaTpEaXNoaURsYWJva28="
+        String creds = props.getUsername() + ":" + props.getPassword();
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString(creds.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -42,26 +108,108 @@ public class PulseEcoClientImpl implements PulseEcoClient {
     }
 
     /**
-     * Fetches current sensor data from pulse.eco API
+     * Fetches current sensor data from pulse.eco API without blocking
      * 
      * Makes a GET request to: https://{cityName}.pulse.eco/rest/current
      * The API returns a JSON array of sensor readings.
      * 
      * @param cityName City name (e.g., "skopje", "bitola", "ohrid")
-     * @return List of RawDataView objects (one per sensor reading)
-     *         Returns empty list if API call fails or returns null
+     * @return Future of RawDataView objects (one per sensor reading),
+     *         empty list if the body is empty, last-known data while the city is unavailable
+     */
+    @Override
+    public CompletableFuture<List<RawDataView>> getCurrentDataAsync(String cityName) {
+        String key = cityName.toLowerCase();
+
+        return guard.execute(cityName, () -> get(cityName))
+                .thenApply(body -> {
+                    List<RawDataView> data = body.length == 0 ? List.of() : Arrays.asList(readRaw(body));
+                    lastKnown.put(key, data);
+                    return data;
+                })
+                .exceptionally(e -> {
+                    // Circuit open or bulkhead full: last-known snapshot if we have one
+                    Throwable cause = AsyncResults.unwrap(e);
+                    List<RawDataView> snapshot = lastKnown.get(key);
+                    if (!(cause instanceof UpstreamUnavailableException) || snapshot == null) {
+                        throw e instanceof CompletionException ce ? ce : new CompletionException(cause);
+                    }
+                    log.debug("{} - serving last known data ({} readings)", cause.getMessage(), snapshot.size());
+                    return snapshot;
+                });
+    }
+
+    /**
+     * Fetches current sensor data and parses it straight into measurements
+     *
+     * Same GET request as getCurrentDataAsync, but the body is handed to
+     * PulseEcoResponseParser instead of being bound to RawDataView[].
+     * Fails with HttpClientErrorException / HttpServerErrorException on HTTP errors,
+     * ResourceAccessException on timeouts and UpstreamUnavailableException when the city's circuit is open.
+     *
+     * @param cityName City name (e.g., "skopje", "bitola", "ohrid")
+     * @return Future of measurements (one per sensor reading), empty if the body is empty
      */
     @Override
-    public List<RawDataView> getCurrentData(String cityName) {
-        // Build full URL: base URL + "/current"
-        // Example: "https://skopje.pulse.eco/rest/current"
-        String url = baseUrl(cityName) + "/current";
-        
-        // Make HTTP GET request and automatically deserialize JSON response to RawDataView array
-        // RestTemplate handles authentication automatically (via interceptor in RestTemplateConfig)
-        RawDataView[] response = restTemplate.getForObject(url, RawDataView[].class);
-        
-        // Return list (empty if response is null)
-        return response == null ? List.of() : Arrays.asList(response);
+    public CompletableFuture<List<CityMeasurement>> getCurrentMeasurementsAsync(String cityName) {
+        return guard.execute(cityName, () -> get(cityName))
+                .thenApply(body -> {
+                    try {
+                        return parser.parse(cityName, new ByteArrayInputStream(body));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * GET /rest/current for one city. The body is buffered as one byte[]
+     * (no thread blocks on the socket) and parsed once it is complete.
+     */
+    private CompletableFuture<byte[]> get(String cityName) {
+        URI uri = URI.create(baseUrl(cityName) + "/current");
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header(HttpHeaders.AUTHORIZATION, authorization)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .GET()
+                .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = AsyncResults.unwrap(error);
+                        if (cause instanceof IOException io) {
+                            String reason = io.getMessage() != null ? io.getMessage() : io.getClass().getSimpleName();
+                            throw new ResourceAccessException("I/O error on GET request for \"" + uri + "\": " + reason, io);
+                        }
+                        throw error instanceof CompletionException ce ? ce : new CompletionException(cause);
+                    }
+                    if (response.statusCode() >= 400) {
+                        throw statusException(response);
+                    }
+                    return response.body();
+                });
+    }
+
+    private RawDataView[] readRaw(byte[] body) {
+        try {
+            return objectMapper.readValue(body, RawDataView[].class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static RuntimeException statusException(HttpResponse<byte[]> response) {
+        HttpStatusCode status = HttpStatusCode.valueOf(response.statusCode());
+        HttpStatus known = HttpStatus.resolve(response.statusCode());
+        String statusText = known == null ? "" : known.getReasonPhrase();
+
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach(headers::addAll);
+
+        return status.is5xxServerError()
+                ? HttpServerErrorException.create(status, statusText, headers, response.body(), StandardCharsets.UTF_8)
+                : HttpClientErrorException.create(status, statusText, headers, response.body(), StandardCharsets.UTF_8);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package mk.ukim.finki.producerservice.pulseeco;
+
+import mk.ukim.finki.producerservice.config.UpstreamResilienceProperties;
+import mk.ukim.finki.producerservice.metrics.ProducerMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker + bulkhead per pulse.eco city, wrapped around every call
+ * PulseEcoClientImpl makes.
+ *
+ * WHAT THIS DOES:
+ * 1. Bulkhead: at most maxConcurrentCalls calls per city at a time; extra
+ *    callers are rejected (after maxWaitMs) instead of piling up on a hung subdomain
+ * 2. Circuit breaker (CityCircuitBreaker): a city that keeps failing is not
+ *    called at all for openDurationMs, then probed
+ * 3. Rejections fail with UpstreamUnavailableException; callers decide whether to
+ *    serve a snapshot (LocationController) or skip the poll (scheduler). A full
+ *    bulkhead is marked rejectedLocally with a fixed retry hint
+ *    (bulkheadRetryMs), so pollers retry shortly instead of backing off as if
+ *    pulse.eco had failed
+ *
+ * Failures are timeouts/IO errors, 5xx and 429. Other 4xx (bad city, bad
+ * credentials) are the caller's problem and don't open the circuit.
+ */
+@Component
+public class PulseEcoGuard {
+
+    private final UpstreamResilienceProperties props;
+    private final ProducerMetrics metrics;
+    private final Map<String, Upstream> upstreams = new ConcurrentHashMap<>();
+
+    public PulseEcoGuard(UpstreamResilienceProperties props, ProducerMetrics metrics) {
+        this.props = props;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Runs an async pulse.eco call for one city. The bulkhead slot is held
+     * until the returned future completes, not just while the request is sent.
+     *
+     * @return the call's future, or an already failed one with UpstreamUnavailableException
+     */
+    public <T> CompletableFuture<T> execute(String cityName, Supplier<CompletableFuture<T>> call) {
+        String city = cityName.toLowerCase();
+        Upstream upstream = upstreams.computeIfAbsent(city, this::newUpstream);
+
+        if (!acquire(upstream.bulkhead)) {
+            metrics.fetchRejected(city, "bulkhead");
+            return CompletableFuture.failedFuture(
+                    new UpstreamUnavailableException(city, "too many concurrent calls", props.getBulkheadRetryMs(), true));
+        }
+
+        long now = System.currentTimeMillis();
+        if (!upstream.breaker.tryAcquire(now)) {
+            upstream.bulkhead.release();
+            metrics.fetchRejected(city, "circuit_open");
+            return CompletableFuture.failedFuture(
+                    new UpstreamUnavailableException(city, "circuit open", upstream.breaker.retryAfterMs(now)));
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        return future.whenComplete((result, error) -> {
+            upstream.bulkhead.release();
+            if (error != null && isUpstreamFailure(AsyncResults.unwrap(error))) {
+                upstream.breaker.onFailure(System.currentTimeMillis());
+            } else {
+                upstream.breaker.onSuccess();
+            }
+        });
+    }
+
+    private boolean acquire(Semaphore bulkhead) {
+        try {
+            return bulkhead.tryAcquire(props.getMaxWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean isUpstreamFailure(Throwable e) {
+        if (e instanceof HttpClientErrorException client) {
+            return client.getStatusCode().value() == 429;
+        }
+        return true;
+    }
+
+    private Upstream newUpstream(String city) {
+        Upstream upstream = new Upstream(new CityCircuitBreaker(city, props), new Semaphore(props.getMaxConcurrentCalls()));
+        metrics.circuitStateGauge(city, upstream.breaker, b -> b.state().ordinal());
+        return upstream;
+    }
+
+    private record Upstream(CityCircuitBreaker breaker, Semaphore bulkhead) {
+    }
+}
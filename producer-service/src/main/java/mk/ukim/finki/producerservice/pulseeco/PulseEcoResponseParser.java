@@ -0,0 +1,279 @@
+package mk.ukim.finki.producerservice.pulseeco;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import mk.ukim.finki.producerservice.area.SkopjeAreaResolver;
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming parser for /rest/current responses.
+ *
+ * Goes straight from the response bytes to CityMeasurement with Jackson's
+ * JsonParser, instead of RawDataView[] (all Strings) + toMeasurement:
+ * - "value" is parsed from the parser's char buffer, no String per reading
+ * - "stamp" repeats a lot within one poll; repeated stamps reuse the Instant
+ *   parsed last time instead of calling OffsetDateTime.parse again
+ * - "position" is parsed (and the Skopje area resolved) once per sensorId;
+ *   later polls only compare the chars against the cached position
+ * - "type" strings are shared across readings of the same poll
+ *
+ * Parsing rules match the old toMeasurement: bad stamp -> now, bad value -> NaN,
+ * area only resolved for Skopje, everything else is "unknown_area".
+ */
+@Component
+public class PulseEcoResponseParser {
+
+    private static final String UNKNOWN_AREA = "unknown_area";
+
+    // A city with more distinct sensors than this is not a real pulse.eco city;
+    // the cache is dropped rather than allowed to grow
+    private static final int MAX_SENSORS_PER_CITY = 10_000;
+
+    private static final int STAMP_CACHE_SIZE = 8;
+    private static final int TYPE_CACHE_SIZE = 16;
+
+    // Exact powers of ten for the fast decimal path
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final SkopjeAreaResolver skopjeAreaResolver;
+
+    // city -> sensorId -> parsed position
+    private final Map<String, Map<String, SensorInfo>> sensorsByCity = new ConcurrentHashMap<>();
+
+    public PulseEcoResponseParser(SkopjeAreaResolver skopjeAreaResolver) {
+        this.skopjeAreaResolver = skopjeAreaResolver;
+    }
+
+    /**
+     * Parses one /rest/current body (a JSON array of readings).
+     *
+     * @param city city the response belongs to (e.g. "skopje")
+     * @param body response stream, not closed by this method
+     * @return measurements in response order; empty for null/non-array bodies
+     */
+    public List<CityMeasurement> parse(String city, InputStream body) throws IOException {
+        String cityKey = city.toLowerCase();
+        String cityUpper = city.toUpperCase();
+        boolean resolveArea = "skopje".equals(cityKey);
+        Map<String, SensorInfo> sensors = sensorsFor(cityKey);
+
+        // Per-call caches, so concurrent parses (scheduler + controller) don't share state
+        StampCache stamps = new StampCache();
+        String[] types = new String[TYPE_CACHE_SIZE];
+
+        List<CityMeasurement> out = new ArrayList<>();
+        try (JsonParser p = jsonFactory.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) {
+                return out;
+            }
+
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                String sensorId = null;
+                String position = null;
+                SensorInfo info = null;
+                Instant ts = null;
+                String type = null;
+                double value = Double.NaN;
+
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    JsonToken token = p.nextToken();
+                    if (token == JsonToken.VALUE_NULL) {
+                        continue;
+                    }
+                    switch (field) {
+                        case "sensorId" -> sensorId = p.getText();
+                        case "position" -> {
+                            // pulse.eco sends sensorId first, so the cached position can usually be checked in place
+                            SensorInfo cached = sensorId == null ? null : sensors.get(sensorId);
+                            if (cached != null && sameChars(cached.position, p)) {
+                                info = cached;
+                            } else {
+                                position = p.getText();
+                            }
+                        }
+                        case "stamp" -> ts = stamps.get(p);
+                        case "type" -> type = intern(types, p);
+                        case "value" -> value = token == JsonToken.VALUE_STRING
+                                ? parseDecimal(p.getTextCharacters(), p.getTextOffset(), p.getTextLength())
+                                : (token.isNumeric() ? p.getDoubleValue() : Double.NaN);
+                        default -> p.skipChildren();
+                    }
+                }
+
+                if (info == null) {
+                    info = sensorInfo(sensors, sensorId, position, resolveArea);
+                }
+                if (ts == null) {
+                    ts = Instant.now();
+                }
+
+                out.add(new CityMeasurement(cityUpper, info.area, info.position, sensorId, ts, type, value));
+            }
+        }
+        return out;
+    }
+
+    private Map<String, SensorInfo> sensorsFor(String cityKey) {
+        Map<String, SensorInfo> sensors = sensorsByCity.computeIfAbsent(cityKey, c -> new ConcurrentHashMap<>());
+        if (sensors.size() > MAX_SENSORS_PER_CITY) {
+            sensors.clear();
+        }
+        return sensors;
+    }
+
+    private SensorInfo sensorInfo(Map<String, SensorInfo> sensors, String sensorId, String position, boolean resolveArea) {
+        if (sensorId != null) {
+            SensorInfo cached = sensors.get(sensorId);
+            if (cached != null && (position == null ? cached.position == null : position.equals(cached.position))) {
+                return cached;
+            }
+        }
+        SensorInfo info = new SensorInfo(position, resolveArea ? resolveArea(position) : UNKNOWN_AREA);
+        if (sensorId != null) {
+            sensors.put(sensorId, info);
+        }
+        return info;
+    }
+
+    private String resolveArea(String position) {
+        if (position == null) return UNKNOWN_AREA;
+        int comma = position.indexOf(',');
+        if (comma < 0) return UNKNOWN_AREA;
+        try {
+            double lat = Double.parseDouble(position.substring(0, comma).trim());
+            double lon = Double.parseDouble(position.substring(comma + 1).trim());
+            return skopjeAreaResolver.resolve(lat, lon);
+        } catch (NumberFormatException e) {
+            return UNKNOWN_AREA;
+        }
+    }
+
+    private static boolean sameChars(String s, JsonParser p) throws IOException {
+        if (s == null) return false;
+        int len = p.getTextLength();
+        if (s.length() != len) return false;
+        char[] buf = p.getTextCharacters();
+        int off = p.getTextOffset();
+        for (int i = 0; i < len; i++) {
+            if (s.charAt(i) != buf[off + i]) return false;
+        }
+        return true;
+    }
+
+    private static String intern(String[] cache, JsonParser p) throws IOException {
+        for (int i = 0; i < cache.length; i++) {
+            if (cache[i] == null) {
+                return cache[i] = p.getText();
+            }
+            if (sameChars(cache[i], p)) {
+                return cache[i];
+            }
+        }
+        return p.getText();
+    }
+
+    /**
+     * Parses a plain decimal ("25.5", "-3", "0.125") without allocating.
+     * mantissa / 10^k is exact-rounded while mantissa < 2^53 and k <= 22;
+     * anything else (exponents, long values, junk) falls back to Double.parseDouble.
+     *
+     * @return the value, or NaN if it is not a number
+     */
+    static double parseDecimal(char[] buf, int off, int len) {
+        int i = off;
+        int end = off + len;
+        while (i < end && buf[i] == ' ') i++;
+        while (end > i && buf[end - 1] == ' ') end--;
+        if (i == end) return Double.NaN;
+
+        boolean negative = false;
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            char c = buf[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction >= 0) fraction++;
+            } else if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                return slowParse(buf, off, len);
+            }
+        }
+        if (digits == 0) return Double.NaN;
+        if (digits > 15 || fraction > 22) return slowParse(buf, off, len);
+
+        double v = fraction > 0 ? mantissa / POW10[fraction] : (double) mantissa;
+        return negative ? -v : v;
+    }
+
+    private static double slowParse(char[] buf, int off, int len) {
+        try {
+            return Double.parseDouble(new String(buf, off, len));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /** Parsed position of one sensor. */
+    private static final class SensorInfo {
+        final String position;
+        final String area;
+
+        SensorInfo(String position, String area) {
+            this.position = position;
+            this.area = area;
+        }
+    }
+
+    /** Last few distinct stamps of one response and their parsed Instants. */
+    private static final class StampCache {
+        private final String[] stamps = new String[STAMP_CACHE_SIZE];
+        private final Instant[] instants = new Instant[STAMP_CACHE_SIZE];
+        private int next;
+
+        Instant get(JsonParser p) throws IOException {
+            for (int i = 0; i < STAMP_CACHE_SIZE; i++) {
+                if (stamps[i] != null && sameChars(stamps[i], p)) {
+                    return instants[i];
+                }
+            }
+            String stamp = p.getText();
+            Instant ts;
+            try {
+                ts = OffsetDateTime.parse(stamp, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant();
+            } catch (Exception e) {
+                // Not cached: a bad stamp falls back to "now" every time, like before
+                return Instant.now();
+            }
+            stamps[next] = stamp;
+            instants[next] = ts;
+            next = (next + 1) % STAMP_CACHE_SIZE;
+            return ts;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package mk.ukim.finki.producerservice.pulseeco;
+
+/**
+ * Thrown instead of calling pulse.eco when a city's circuit is open or its
+ * bulkhead is full. No request was made.
+ *
+ * A full bulkhead is a local rejection (rejectedLocally): our own calls are
+ * still in flight, pulse.eco has not failed, so pollers should not back off.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMs;
+    private final boolean rejectedLocally;
+
+    public UpstreamUnavailableException(String city, String reason, long retryAfterMs) {
+        this(city, reason, retryAfterMs, false);
+    }
+
+    public UpstreamUnavailableException(String city, String reason, long retryAfterMs, boolean rejectedLocally) {
+        super("pulse.eco " + city + " unavailable: " + reason);
+        this.retryAfterMs = retryAfterMs;
+        this.rejectedLocally = rejectedLocally;
+    }
+
+    /** When to try again: when the circuit lets calls through, or a short fixed hint for a full bulkhead. */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    /** True for a full bulkhead (nothing wrong upstream), false for an open circuit. */
+    public boolean isRejectedLocally() {
+        return rejectedLocally;
+    }
+}
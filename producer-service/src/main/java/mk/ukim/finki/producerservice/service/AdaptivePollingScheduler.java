@@ -0,0 +1,120 @@
+package mk.ukim.finki.producerservice.service;
+
+import mk.ukim.finki.producerservice.config.PollingProperties;
+import mk.ukim.finki.producerservice.config.PulseEcoProperties;
+import mk.ukim.finki.producerservice.metrics.ProducerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Polls every configured city on its own schedule.
+ *
+ * Replaces the single fixed-delay loop over all cities: each city is a
+ * one-shot task on Spring's TaskScheduler that re-schedules itself after
+ * every poll, with the delay planned by its CityPollState. Polls are
+ * async (fetchForCityAsync), so a scheduler thread only starts the request.
+ *
+ * WHAT THIS DOES:
+ * 1. On startup polls every city once (like the old fixed-delay loop did)
+ * 2. After each poll:
+ *    - success -> next poll shortly after the city's next expected stamp update
+ *    - HTTP error / 429 / timeout -> exponential backoff (Retry-After respected)
+ * 3. Adds +/- producer.polling.jitter to each delay so cities drift apart
+ *
+ * With producer.polling.adaptive=false every city uses producer.poll-interval-ms.
+ * Current delay per city: producer.poll.delay{city} gauge.
+ */
+@Component
+public class AdaptivePollingScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptivePollingScheduler.class);
+
+    private final PulseEcoProperties pulseEcoProperties;
+    private final PollingProperties props;
+    private final CityProducerScheduler cityProducerScheduler;
+    private final TaskScheduler taskScheduler;
+    private final ProducerMetrics metrics;
+    private final long pollIntervalMs;
+
+    private final Map<String, CityPollState> states = new ConcurrentHashMap<>();
+
+    public AdaptivePollingScheduler(PulseEcoProperties pulseEcoProperties,
+                                    PollingProperties props,
+                                    CityProducerScheduler cityProducerScheduler,
+                                    TaskScheduler taskScheduler,
+                                    ProducerMetrics metrics,
+                                    @Value("${producer.poll-interval-ms:60000}") long pollIntervalMs) {
+        this.pulseEcoProperties = pulseEcoProperties;
+        this.props = props;
+        this.cityProducerScheduler = cityProducerScheduler;
+        this.taskScheduler = taskScheduler;
+        this.metrics = metrics;
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (String city : pulseEcoProperties.getCities()) {
+            CityPollState state = new CityPollState(props, pollIntervalMs);
+            states.put(city, state);
+            metrics.pollDelayGauge(city, state, CityPollState::lastDelayMs);
+            taskScheduler.schedule(() -> poll(city), Instant.now());
+        }
+        log.info("Polling {} cities (adaptive={}, initial interval {} ms)",
+                states.size(), props.isAdaptive(), pollIntervalMs);
+    }
+
+    private void poll(String city) {
+        CompletableFuture<FetchResult> poll;
+        try {
+            poll = cityProducerScheduler.fetchForCityAsync(city);
+        } catch (RuntimeException e) {
+            poll = CompletableFuture.failedFuture(e);
+        }
+        // The scheduler thread is free again right away; the next poll is planned when this one completes
+        poll.whenComplete((result, error) -> scheduleNext(city, result, error));
+    }
+
+    private void scheduleNext(String city, FetchResult result, Throwable error) {
+        CityPollState state = states.get(city);
+        long delayMs;
+        if (error != null) {
+            // fetchForCityAsync handles its own errors; this only keeps the chain alive
+            log.error("Poll task for city {} failed", city.toUpperCase(), error);
+            delayMs = state.onFailure(-1);
+        } else {
+            if (result.rejected()) {
+                delayMs = state.onRejected(result.retryAfterMs());
+            } else if (result.failed()) {
+                delayMs = state.onFailure(result.retryAfterMs());
+            } else {
+                delayMs = state.onSuccess(result.newestStamp(), System.currentTimeMillis());
+            }
+        }
+
+        long jittered = jitter(delayMs);
+        if (state.failures() > 0) {
+            log.warn("City {}: {} consecutive failures, next poll in {} ms",
+                    city.toUpperCase(), state.failures(), jittered);
+        } else {
+            log.debug("City {}: cadence {} ms, next poll in {} ms", city.toUpperCase(), state.cadenceMs(), jittered);
+        }
+        taskScheduler.schedule(() -> poll(city), Instant.now().plusMillis(jittered));
+    }
+
+    private long jitter(long delayMs) {
+        double factor = 1 + props.getJitter() * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Math.max(1, (long) (delayMs * factor));
+    }
+}
@@ -0,0 +1,38 @@
+package mk.ukim.finki.producerservice.service;
+
+import mk.ukim.finki.producerservice.model.AreaSummary;
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Folds the readings of one poll into one AreaSummary per (area, metric).
+ * One instance per poll; not thread-safe.
+ *
+ * Readings with a NaN/Infinite value are not added (same rule as
+ * MeasurementProducer applies to single readings).
+ */
+class AreaSummarizer {
+
+    private final Map<String, AreaSummary> summaries = new LinkedHashMap<>();
+
+    /**
+     * @return false if the reading was skipped for an invalid value
+     */
+    boolean add(CityMeasurement m) {
+        if (Double.isNaN(m.getValue()) || Double.isInfinite(m.getValue())) {
+            return false;
+        }
+        String key = m.getArea() + "|" + m.getMetric();
+        summaries.computeIfAbsent(key, k -> new AreaSummary(m.getCity(), m.getArea(), m.getMetric()))
+                .add(m.getValue(), m.getTimestamp());
+        return true;
+    }
+
+    /** Summaries in the order their series first appeared in the poll. */
+    Collection<AreaSummary> summaries() {
+        return summaries.values();
+    }
+}
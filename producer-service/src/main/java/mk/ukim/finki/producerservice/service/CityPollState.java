@@ -0,0 +1,98 @@
+package mk.ukim.finki.producerservice.service;
+
+import mk.ukim.finki.producerservice.config.PollingProperties;
+
+import java.time.Instant;
+
+/**
+ * Poll schedule of one city: learned update cadence and failure backoff.
+ *
+ * CADENCE:
+ * pulse.eco stamps say when sensors actually reported. Each time the newest
+ * stamp moves forward, the gap to the previous newest stamp is folded into an
+ * exponential moving average. The next poll is planned for
+ * "newest stamp + cadence", i.e. right after the next expected update.
+ * If a poll finds nothing new, the city is re-checked after cadence/4,
+ * cadence/2, ... so a late update is picked up without hammering the API.
+ *
+ * BACKOFF:
+ * After a failed call the delay is backoffInitial * 2^(failures-1), capped at
+ * backoffMax, or the Retry-After value when that is longer. A poll our own
+ * bulkhead turned away is not a failure: it is retried after the bulkhead's
+ * hint and leaves the failure count alone.
+ *
+ * Only touched from the poll task of its city, so no locking;
+ * lastDelayMs is volatile for the metrics gauge.
+ */
+class CityPollState {
+
+    private final PollingProperties props;
+    private final long initialIntervalMs;
+
+    private double cadenceMs;
+    private Instant newestStamp;
+    private int unchangedPolls;
+    private int failures;
+    private volatile long lastDelayMs;
+
+    CityPollState(PollingProperties props, long initialIntervalMs) {
+        this.props = props;
+        this.initialIntervalMs = initialIntervalMs;
+        this.cadenceMs = initialIntervalMs;
+        this.lastDelayMs = initialIntervalMs;
+    }
+
+    /** @return delay in ms until the next poll, before jitter */
+    long onSuccess(Instant newest, long nowMs) {
+        failures = 0;
+        if (!props.isAdaptive()) {
+            return remember(initialIntervalMs);
+        }
+
+        if (newest != null && (newestStamp == null || newest.isAfter(newestStamp))) {
+            if (newestStamp != null) {
+                double observed = newest.toEpochMilli() - newestStamp.toEpochMilli();
+                cadenceMs += props.getSmoothing() * (observed - cadenceMs);
+                cadenceMs = Math.max(props.getMinIntervalMs(), Math.min(props.getMaxIntervalMs(), cadenceMs));
+            }
+            newestStamp = newest;
+            unchangedPolls = 0;
+
+            // Small grace so the next poll lands after the update, not just before it
+            long nextExpected = newest.toEpochMilli() + (long) (cadenceMs * 1.1);
+            return remember(clamp(nextExpected - nowMs));
+        }
+
+        // Nothing new yet: the update is late, look again a bit later each time
+        unchangedPolls++;
+        return remember(clamp((long) (cadenceMs / 4 * unchangedPolls)));
+    }
+
+    /** @return delay in ms until the next poll, before jitter */
+    long onFailure(long retryAfterMs) {
+        failures++;
+        long backoff = props.getBackoffInitialMs() << Math.min(failures - 1, 20);
+        backoff = Math.min(props.getBackoffMaxMs(), backoff);
+        return remember(Math.min(props.getBackoffMaxMs(), Math.max(backoff, retryAfterMs)));
+    }
+
+    /** @return delay in ms until the next poll, before jitter */
+    long onRejected(long retryAfterMs) {
+        return remember(retryAfterMs > 0 ? Math.min(retryAfterMs, props.getMaxIntervalMs()) : props.getMinIntervalMs());
+    }
+
+    long cadenceMs() { return (long) cadenceMs; }
+
+    int failures() { return failures; }
+
+    long lastDelayMs() { return lastDelayMs; }
+
+    private long clamp(long delayMs) {
+        return Math.max(props.getMinIntervalMs(), Math.min(props.getMaxIntervalMs(), delayMs));
+    }
+
+    private long remember(long delayMs) {
+        lastDelayMs = delayMs;
+        return delayMs;
+    }
+}
@@ -1,124 +1,203 @@
 package mk.ukim.finki.producerservice.service;
 
-import mk.ukim.finki.producerservice.area.SkopjeAreaResolver;
+import mk.ukim.finki.common.logging.LogSampler;
 import mk.ukim.finki.producerservice.client.MeasurementProducer;
-import mk.ukim.finki.producerservice.config.PulseEcoProperties;
+import mk.ukim.finki.producerservice.config.PollingProperties;
+import mk.ukim.finki.producerservice.metrics.ProducerMetrics;
+import mk.ukim.finki.producerservice.model.AreaSummary;
 import mk.ukim.finki.producerservice.model.CityMeasurement;
+import io.micrometer.core.instrument.Timer;
+import mk.ukim.finki.producerservice.pulseeco.AsyncResults;
 import mk.ukim.finki.producerservice.pulseeco.PulseEcoClient;
-import mk.ukim.finki.producerservice.pulseeco.RawDataView;
+import mk.ukim.finki.producerservice.pulseeco.UpstreamUnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 
 import java.time.Instant;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 @Component
 public class CityProducerScheduler {
 
     private static final Logger log = LoggerFactory.getLogger(CityProducerScheduler.class);
 
-    private final PulseEcoProperties properties;
     private final PulseEcoClient pulseEcoClient;
     private final MeasurementProducer measurementProducer;
-    private final SkopjeAreaResolver skopjeAreaResolver;
+    private final ProducerMetrics metrics;
+    private final boolean preAggregate;
+    private final Executor workExecutor;
 
-    public CityProducerScheduler(PulseEcoProperties properties,
-                                 PulseEcoClient pulseEcoClient,
+    private final LogSampler publishLogSampler = new LogSampler(100);
+
+    // city -> readings already summarized (pre-aggregate mode only)
+    private final Map<String, ReadingCursor> summaryCursors = new ConcurrentHashMap<>();
+
+    public CityProducerScheduler(PulseEcoClient pulseEcoClient,
                                  MeasurementProducer measurementProducer,
-                                 SkopjeAreaResolver skopjeAreaResolver,
-                                 @Value("${producer.poll-interval-ms:60000}") long pollIntervalMs) {
-        this.properties = properties;
+                                 ProducerMetrics metrics,
+                                 PollingProperties pollingProperties,
+                                 @Qualifier("pulseEcoWorkExecutor") Executor workExecutor) {
         this.pulseEcoClient = pulseEcoClient;
+        this.workExecutor = workExecutor;
         this.measurementProducer = measurementProducer;
-        this.skopjeAreaResolver = skopjeAreaResolver;
+        this.metrics = metrics;
+        this.preAggregate = pollingProperties.isPreAggregate();
     }
 
-    @Scheduled(fixedDelayString = "${producer.poll-interval-ms:60000}")
-    public void fetchForAllCities() {
-        for (String city : properties.getCities()) {
-            fetchForCity(city);
-        }
+    /**
+     * Polls one city and publishes its readings, blocking until done.
+     * Public so the load generator (loadgen profile) can drive it at its own rate.
+     *
+     * @return what the poll saw
+     */
+    public FetchResult fetchForCity(String city) {
+        return fetchForCityAsync(city).join();
     }
 
-    private void fetchForCity(String city) {
+    /**
+     * Polls one city without blocking the caller and publishes its readings
+     * once the response is in (on the pulseeco-work- pool, not the HTTP client's
+     * threads). Called by AdaptivePollingScheduler for every city on its own
+     * schedule, so scheduler threads never wait on pulse.eco.
+     *
+     * Never completes exceptionally: fetch failures become FetchResult.failed,
+     * and a failure while publishing is logged (it is not pulse.eco's fault, so
+     * the poll still counts as a success for scheduling).
+     *
+     * @return what the poll saw, so the caller can plan the next one
+     */
+    public CompletableFuture<FetchResult> fetchForCityAsync(String city) {
+        Timer.Sample fetch = Timer.start();
+        CompletableFuture<List<CityMeasurement>> response;
         try {
-            List<RawDataView> rawList = pulseEcoClient.getCurrentData(city);
-
-            log.info("Fetched {} measurements for city {}", rawList.size(), city.toUpperCase());
-
-            rawList.stream()
-                    .map(raw -> toMeasurement(city, raw))
-                    .forEach(measurement -> {
-
-                        // Helpful log to verify area dividing works
-                        log.info("Publish: city={} area={} pos={} metric={} value={}",
-                                measurement.getCity(),
-                                measurement.getArea(),
-                                measurement.getPosition(),
-                                measurement.getMetric(),
-                                measurement.getValue());
+            // Parsed as soon as the response is in (PulseEcoResponseParser), area already resolved
+            response = pulseEcoClient.getCurrentMeasurementsAsync(city);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
 
-                        measurementProducer.publishMeasurement(measurement);
-                    });
+        return response.handleAsync((measurements, error) -> {
+            fetch.stop(metrics.fetchTimer(city));
+            if (error != null) {
+                return fetchFailed(city, AsyncResults.unwrap(error));
+            }
+            try {
+                return publish(city, measurements);
+            } catch (RuntimeException e) {
+                log.error("Unexpected error while publishing data for city {}", city.toUpperCase(), e);
+                return FetchResult.ok(0, null);
+            }
+        }, workExecutor);
+    }
 
-        } catch (HttpClientErrorException e) {
+    private FetchResult fetchFailed(String city, Throwable error) {
+        if (error instanceof UpstreamUnavailableException e && e.isRejectedLocally()) {
+            // Bulkhead full: our own calls are still running, pulse.eco did not fail
+            log.info("Skipping poll of city {}: {}", city.toUpperCase(), e.getMessage());
+            return FetchResult.rejected(e.getRetryAfterMs());
+        }
+        if (error instanceof UpstreamUnavailableException e) {
+            // Circuit open: no call was made, try again when the circuit allows
+            log.info("Skipping poll of city {}: {}", city.toUpperCase(), e.getMessage());
+            return FetchResult.failed(e.getRetryAfterMs());
+        }
+        if (error instanceof HttpStatusCodeException e) {
             log.warn("Failed to fetch data for city {}: HTTP {} {}",
                     city.toUpperCase(), e.getStatusCode().value(), e.getStatusText());
-        } catch (Exception e) {
-            log.error("Unexpected error while fetching data for city {}", city.toUpperCase(), e);
+            return FetchResult.failed(retryAfterMs(e));
         }
+        log.error("Unexpected error while fetching data for city {}", city.toUpperCase(), error);
+        return FetchResult.failed(-1);
     }
 
-    private CityMeasurement toMeasurement(String city, RawDataView raw) {
-        // ---- timestamp ----
-        Instant ts;
+    private FetchResult publish(String city, List<CityMeasurement> measurements) {
+        // Trace stamp: when this poll's data arrived (see TraceHeaders.FETCHED_AT)
+        long fetchedAt = System.currentTimeMillis();
+        log.info("Fetched {} measurements for city {}", measurements.size(), city.toUpperCase());
+
+        Instant newest = null;
+        // producer.polling.pre-aggregate: one summary per (area, metric) of the readings new since the last poll
+        AreaSummarizer summarizer = preAggregate ? new AreaSummarizer() : null;
+        ReadingCursor cursor = preAggregate
+                ? summaryCursors.computeIfAbsent(city.toLowerCase(), c -> new ReadingCursor())
+                : null;
+        List<CityMeasurement> summarized = new ArrayList<>();
         try {
-            OffsetDateTime odt = OffsetDateTime.parse(raw.getStamp(), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-            ts = odt.toInstant();
-        } catch (Exception e) {
-            ts = Instant.now();
-        }
+            for (CityMeasurement measurement : measurements) {
+                metrics.parsed();
+                if (newest == null || measurement.getTimestamp().isAfter(newest)) {
+                    newest = measurement.getTimestamp();
+                }
 
-        // ---- value ----
-        double value;
-        try {
-            value = Double.parseDouble(raw.getValue());
-        } catch (NumberFormatException ex) {
-            value = Double.NaN;
-        }
+                if (summarizer != null) {
+                    if (!cursor.isNew(measurement)) {
+                        // Sensor has not reported since the last poll
+                        metrics.unchanged();
+                    } else if (summarizer.add(measurement)) {
+                        summarized.add(measurement);
+                        metrics.summarized();
+                    } else {
+                        metrics.rejected();
+                        log.warn("Skipping measurement with invalid value: area={}, metric={}, value={}",
+                                measurement.getArea(), measurement.getMetric(), measurement.getValue());
+                    }
+                    continue;
+                }
 
-        // ---- resolve area (only for Skopje) ----
-        String area = "unknown_area";
-
-        if ("skopje".equalsIgnoreCase(city)) {
-            String pos = raw.getPosition(); // "lat,lon"
-            if (pos != null && pos.contains(",")) {
-                try {
-                    String[] parts = pos.split(",");
-                    double lat = Double.parseDouble(parts[0].trim());
-                    double lon = Double.parseDouble(parts[1].trim());
-                    area = skopjeAreaResolver.resolve(lat, lon);
-                } catch (Exception ignored) {
-                    area = "unknown_area";
+                // Helpful log to verify area dividing works (sampled, full detail at DEBUG)
+                if (publishLogSampler.sample()) {
+                    log.info("Publish: city={} area={} pos={} metric={} value={}",
+                            measurement.getCity(),
+                            measurement.getArea(),
+                            measurement.getPosition(),
+                            measurement.getMetric(),
+                            measurement.getValue());
+                } else if (log.isDebugEnabled()) {
+                    log.debug("Publish: city={} area={} pos={} metric={} value={}",
+                            measurement.getCity(),
+                            measurement.getArea(),
+                            measurement.getPosition(),
+                            measurement.getMetric(),
+                            measurement.getValue());
                 }
+
+                measurementProducer.publishMeasurement(measurement, fetchedAt);
             }
+
+            if (summarizer != null) {
+                for (AreaSummary summary : summarizer.summaries()) {
+                    measurementProducer.publishSummary(summary, fetchedAt);
+                }
+                cursor.advance(measurements, summarized, fetchedAt);
+                log.info("Published {} summaries for {} new of {} measurements of city {}",
+                        summarizer.summaries().size(), summarized.size(), measurements.size(), city.toUpperCase());
+            }
+        } catch (Exception e) {
+            // Broker trouble, not an upstream failure: no backoff for pulse.eco
+            log.error("Unexpected error while publishing data for city {}", city.toUpperCase(), e);
         }
 
-        // ---- build measurement ----
-        return new CityMeasurement(
-                city.toUpperCase(),
-                area,
-                raw.getSensorId(),
-                raw.getPosition(),
-                ts,
-                raw.getType(),
-                value
-        );
+        return FetchResult.ok(measurements.size(), newest);
+    }
+
+    // Retry-After in seconds (the form pulse.eco / nginx send), -1 if missing
+    private static long retryAfterMs(HttpStatusCodeException e) {
+        if (e.getResponseHeaders() == null) return -1;
+        String retryAfter = e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) return -1;
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
     }
 }
@@ -0,0 +1,27 @@
+package mk.ukim.finki.producerservice.service;
+
+import java.time.Instant;
+
+/**
+ * Outcome of one CityProducerScheduler.fetchForCity call, used to plan the next poll.
+ *
+ * @param readings     measurements received (0 on failure)
+ * @param newestStamp  latest reading timestamp in the response, null if none
+ * @param failed       the upstream call failed (HTTP error, timeout, ...)
+ * @param rejected     no call was made because our own bulkhead was full (not a failure)
+ * @param retryAfterMs Retry-After sent by pulse.eco (or the bulkhead's retry hint) in ms, -1 if absent
+ */
+public record FetchResult(int readings, Instant newestStamp, boolean failed, boolean rejected, long retryAfterMs) {
+
+    static FetchResult ok(int readings, Instant newestStamp) {
+        return new FetchResult(readings, newestStamp, false, false, -1);
+    }
+
+    static FetchResult failed(long retryAfterMs) {
+        return new FetchResult(0, null, true, false, retryAfterMs);
+    }
+
+    static FetchResult rejected(long retryAfterMs) {
+        return new FetchResult(0, null, false, true, retryAfterMs);
+    }
+}
@@ -0,0 +1,56 @@
+package mk.ukim.finki.producerservice.service;
+
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Newest reading timestamp already summarized per (sensor, metric) of one city.
+ *
+ * pulse.eco's /rest/current returns every sensor's latest reading on each
+ * poll, also when the sensor has not reported since. Raw readings are
+ * deduplicated by the aggregator (sensorId, metric, timestamp), but a summary
+ * has no sensor to check, so only readings newer than the cursor go into
+ * AreaSummarizer; otherwise a quiet sensor's last value would be counted again
+ * on every poll.
+ *
+ * Sensors not in a poll for FORGET_AFTER_MS are dropped (a removed sensor
+ * would otherwise stay forever).
+ */
+class ReadingCursor {
+
+    static final long FORGET_AFTER_MS = 86_400_000L;
+
+    private record Seen(Instant newest, long polledAtMs) {
+    }
+
+    private final Map<String, Seen> seen = new HashMap<>();
+
+    /** @return true if the reading is newer than what was summarized for its sensor and metric */
+    synchronized boolean isNew(CityMeasurement m) {
+        Seen last = seen.get(key(m));
+        return last == null || m.getTimestamp().isAfter(last.newest());
+    }
+
+    /**
+     * Records a poll once its summaries are published: summarized readings move
+     * their sensor's cursor, every reading of the poll keeps its sensor known.
+     */
+    synchronized void advance(Iterable<CityMeasurement> polled, Iterable<CityMeasurement> summarized, long nowMs) {
+        for (CityMeasurement m : summarized) {
+            seen.merge(key(m), new Seen(m.getTimestamp(), nowMs),
+                    (a, b) -> a.newest().isAfter(b.newest()) ? a : b);
+        }
+        for (CityMeasurement m : polled) {
+            seen.computeIfPresent(key(m), (k, last) -> new Seen(last.newest(), nowMs));
+        }
+        long cutoff = nowMs - FORGET_AFTER_MS;
+        seen.values().removeIf(last -> last.polledAtMs() < cutoff);
+    }
+
+    private static String key(CityMeasurement m) {
+        return m.getSensorId() + "|" + m.getMetric();
+    }
+}
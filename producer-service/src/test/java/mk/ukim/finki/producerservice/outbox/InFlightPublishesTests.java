@@ -0,0 +1,49 @@
+package mk.ukim.finki.producerservice.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightPublishesTests {
+
+    private static OutboundReading reading(String routingKey) {
+        return new OutboundReading(routingKey, "application/json", null, null, 0L, new byte[0]);
+    }
+
+    @Test
+    void permitsAreHeldUntilTheConfirmArrives() throws Exception {
+        InFlightPublishes inFlight = new InFlightPublishes(2);
+
+        assertTrue(inFlight.acquire(0));
+        CorrelationData first = inFlight.track(reading("reading.a.pm10"), 0);
+        assertTrue(inFlight.acquire(0));
+        CorrelationData second = inFlight.track(reading("reading.b.pm10"), 3);
+        assertNotEquals(first.getId(), second.getId());
+        assertFalse(inFlight.acquire(0));
+
+        InFlightPublishes.Pending done = inFlight.complete(second.getId());
+        assertEquals("reading.b.pm10", done.reading().routingKey());
+        assertEquals(3, done.attempt());
+        assertNull(inFlight.complete(second.getId()));
+        assertTrue(inFlight.acquire(0));
+        assertEquals(1, inFlight.size());
+    }
+
+    @Test
+    void drainReturnsOldestFirstAndFreesPermits() throws Exception {
+        InFlightPublishes inFlight = new InFlightPublishes(3);
+        for (String key : List.of("reading.a.pm10", "reading.b.pm10", "reading.c.pm10")) {
+            assertTrue(inFlight.acquire(0));
+            inFlight.track(reading(key), 0);
+        }
+
+        List<InFlightPublishes.Pending> drained = inFlight.drain();
+        assertEquals(List.of("reading.a.pm10", "reading.b.pm10", "reading.c.pm10"),
+                drained.stream().map(p -> p.reading().routingKey()).toList());
+        assertEquals(0, inFlight.size());
+        assertTrue(inFlight.acquire(0));
+    }
+}
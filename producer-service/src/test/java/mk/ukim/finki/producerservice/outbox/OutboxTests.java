@@ -0,0 +1,162 @@
+package mk.ukim.finki.producerservice.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.common.tracing.LatencyTracker;
+import mk.ukim.finki.producerservice.metrics.ProducerMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxTests {
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /** Stand-in broker: accepts, refuses, or accepts without ever confirming. */
+    private enum Broker { UP, DOWN, SILENT }
+
+    private volatile Broker broker = Broker.UP;
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private final List<String> unconfirmed = new CopyOnWriteArrayList<>();
+
+    private Outbox outbox() throws Exception {
+        OutboxProperties props = new OutboxProperties();
+        props.setDir(dir.toString());
+        props.setQueueCapacity(100);
+        props.setFsyncIntervalMs(50);
+        props.setRetryInitialMs(20);
+        props.setRetryMaxMs(50);
+
+        RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+        doAnswer(inv -> {
+            String body = new String(inv.<Message>getArgument(2).getBody(), StandardCharsets.UTF_8);
+            CorrelationData correlation = inv.getArgument(3);
+            switch (broker) {
+                case DOWN -> throw new AmqpConnectException(new ConnectException("broker down"));
+                case SILENT -> unconfirmed.add(body);
+                case UP -> {
+                    delivered.add(body);
+                    correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+                }
+            }
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        return new Outbox(rabbitTemplate, new LatencyTracker(registry), new ProducerMetrics(registry), props);
+    }
+
+    private static OutboundReading reading(int i) {
+        return new OutboundReading("reading.centar.pm10", "application/json", null, null, 1_000L,
+                String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> range(int from, int to) {
+        return IntStream.range(from, to).mapToObj(String::valueOf).toList();
+    }
+
+    private double spooling() {
+        return registry.get("producer.outbox.spooling").gauge().value();
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), what);
+    }
+
+    @Test
+    void spoolsWhileTheBrokerIsDownAndGoesBackToMemoryInOrder() throws Exception {
+        Outbox outbox = outbox();
+        outbox.start();
+        try {
+            for (int i = 0; i < 5; i++) {
+                outbox.submit(reading(i));
+            }
+            await(() -> delivered.size() == 5, "normal mode delivers");
+            assertEquals(0.0, spooling());
+
+            broker = Broker.DOWN;
+            for (int i = 5; i < 10; i++) {
+                outbox.submit(reading(i));
+            }
+            await(() -> registry.counter("producer.outbox.spooled").count() == 5, "a failed send switches to the spool");
+            assertEquals(1.0, spooling());
+            for (int i = 10; i < 15; i++) {
+                outbox.submit(reading(i));
+            }
+
+            broker = Broker.UP;
+            await(() -> delivered.size() == 15, "the spool is replayed once the broker is back");
+            await(() -> spooling() == 0.0, "back to the in-memory path");
+            for (int i = 15; i < 20; i++) {
+                outbox.submit(reading(i));
+            }
+            await(() -> delivered.size() == 20, "normal mode again");
+        } finally {
+            outbox.stop();
+        }
+        assertEquals(range(0, 20), delivered);
+    }
+
+    @Test
+    void stopSpoolsQueuedAndUnconfirmedReadingsForTheNextStart() throws Exception {
+        broker = Broker.SILENT;
+        Outbox first = outbox();
+        first.start();
+        for (int i = 0; i < 3; i++) {
+            first.submit(reading(i));
+        }
+        await(() -> unconfirmed.size() == 3, "sent, waiting for confirms");
+        first.stop();
+
+        broker = Broker.UP;
+        Outbox second = outbox();
+        second.submit(reading(3));
+        second.start();
+        try {
+            await(() -> delivered.size() == 4, "spooled readings are replayed");
+        } finally {
+            second.stop();
+        }
+        assertEquals(range(0, 4), delivered);
+    }
+
+    @Test
+    void stopDuringAnOutageWaitsForThePublisherAndKeepsEverything() throws Exception {
+        broker = Broker.DOWN;
+        Outbox first = outbox();
+        first.start();
+        for (int i = 0; i < 10; i++) {
+            first.submit(reading(i));
+        }
+        await(() -> spooling() == 1.0, "spooling");
+        first.stop();
+
+        broker = Broker.UP;
+        Outbox second = outbox();
+        second.start();
+        try {
+            await(() -> delivered.size() == 10, "nothing was lost on shutdown");
+        } finally {
+            second.stop();
+        }
+        assertEquals(range(0, 10), delivered);
+    }
+}
@@ -0,0 +1,96 @@
+package mk.ukim.finki.producerservice.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpoolJournalTests {
+
+    @TempDir
+    Path dir;
+
+    private static OutboundReading reading(int i) {
+        return new OutboundReading("reading.centar.pm10", "application/json", "x.CityMeasurement",
+                i % 2 == 0 ? null : 1_000L + i, 2_000L + i, ("{\"value\":" + i + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void replaysInOrderAcrossSegmentsAndDeletesReadOnes() throws Exception {
+        try (SpoolJournal journal = SpoolJournal.open(dir, 200)) {
+            assertTrue(journal.isEmpty());
+            for (int i = 0; i < 20; i++) {
+                journal.append(reading(i));
+            }
+            assertTrue(segmentCount() > 1);
+
+            for (int i = 0; i < 20; i++) {
+                OutboundReading r = journal.peek();
+                assertNotNull(r);
+                assertEquals(new String(reading(i).body(), StandardCharsets.UTF_8), new String(r.body(), StandardCharsets.UTF_8));
+                assertEquals(reading(i).sensorTs(), r.sensorTs());
+                assertEquals(reading(i).fetchedAt(), r.fetchedAt());
+                journal.advance();
+            }
+            assertNull(journal.peek());
+            assertTrue(journal.isEmpty());
+            assertEquals(1, segmentCount());
+        }
+    }
+
+    @Test
+    void resumesFromCursorAfterRestart() throws Exception {
+        try (SpoolJournal journal = SpoolJournal.open(dir, 1_000_000)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(reading(i));
+            }
+            journal.peek();
+            journal.advance();
+            journal.peek();
+            journal.advance();
+        }
+
+        try (SpoolJournal journal = SpoolJournal.open(dir, 1_000_000)) {
+            assertFalse(journal.isEmpty());
+            journal.append(reading(5));
+            for (int i = 2; i <= 5; i++) {
+                assertEquals(reading(i).fetchedAt(), journal.peek().fetchedAt());
+                journal.advance();
+            }
+            assertNull(journal.peek());
+        }
+    }
+
+    @Test
+    void skipsTornTailOfOldSegment() throws Exception {
+        try (SpoolJournal journal = SpoolJournal.open(dir, 1_000_000)) {
+            journal.append(reading(0));
+        }
+        // Simulate a crash in the middle of a write
+        try (Stream<Path> files = Files.list(dir)) {
+            Path segment = files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().findFirst().orElseThrow();
+            Files.write(segment, new byte[]{0, 0, 0, 50, 1, 2}, java.nio.file.StandardOpenOption.APPEND);
+        }
+
+        try (SpoolJournal journal = SpoolJournal.open(dir, 1_000_000)) {
+            journal.append(reading(1));
+            assertEquals(reading(0).fetchedAt(), journal.peek().fetchedAt());
+            journal.advance();
+            assertEquals(reading(1).fetchedAt(), journal.peek().fetchedAt());
+            journal.advance();
+            assertNull(journal.peek());
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package mk.ukim.finki.producerservice.pulseeco;
+
+import mk.ukim.finki.producerservice.config.UpstreamResilienceProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CityCircuitBreakerTests {
+
+    private static CityCircuitBreaker breaker() {
+        UpstreamResilienceProperties props = new UpstreamResilienceProperties();
+        props.setWindowSize(4);
+        props.setMinimumCalls(4);
+        props.setFailureRateThreshold(0.5);
+        props.setOpenDurationMs(1_000);
+        return new CityCircuitBreaker("skopje", props);
+    }
+
+    @Test
+    void opensAtFailureRateAndProbesAfterOpenDuration() {
+        CityCircuitBreaker breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire(0));
+            breaker.onSuccess();
+        }
+        assertTrue(breaker.tryAcquire(0));
+        breaker.onFailure(0);
+        assertEquals(CityCircuitBreaker.State.CLOSED, breaker.state());
+
+        // Window now holds [ok, ok, fail, fail] -> 50%
+        breaker.tryAcquire(0);
+        breaker.onFailure(0);
+        assertEquals(CityCircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire(500));
+        assertEquals(500, breaker.retryAfterMs(500));
+
+        // One probe allowed once the open duration is over
+        assertTrue(breaker.tryAcquire(1_000));
+        assertFalse(breaker.tryAcquire(1_000));
+        breaker.onSuccess();
+        assertEquals(CityCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void failedProbeReopens() {
+        CityCircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire(0);
+            breaker.onFailure(0);
+        }
+        assertEquals(CityCircuitBreaker.State.OPEN, breaker.state());
+        assertTrue(breaker.tryAcquire(2_000));
+        breaker.onFailure(2_000);
+        assertEquals(CityCircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire(2_500));
+    }
+}
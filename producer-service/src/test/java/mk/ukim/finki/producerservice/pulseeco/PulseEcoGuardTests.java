@@ -0,0 +1,34 @@
+package mk.ukim.finki.producerservice.pulseeco;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.producerservice.config.UpstreamResilienceProperties;
+import mk.ukim.finki.producerservice.metrics.ProducerMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PulseEcoGuardTests {
+
+    @Test
+    void fullBulkheadIsRejectedLocallyWithAShortRetryHint() {
+        UpstreamResilienceProperties props = new UpstreamResilienceProperties();
+        props.setMaxConcurrentCalls(1);
+        props.setBulkheadRetryMs(5_000);
+        PulseEcoGuard guard = new PulseEcoGuard(props, new ProducerMetrics(new SimpleMeterRegistry()));
+
+        CompletableFuture<String> inFlight = new CompletableFuture<>();
+        guard.execute("skopje", () -> inFlight);
+        CompletableFuture<String> second = guard.execute("skopje", () -> CompletableFuture.completedFuture("x"));
+
+        UpstreamUnavailableException e = assertInstanceOf(UpstreamUnavailableException.class,
+                AsyncResults.unwrap(assertThrows(Exception.class, second::join)));
+        assertTrue(e.isRejectedLocally());
+        assertEquals(5_000, e.getRetryAfterMs());
+
+        // The slot is free again once the first call completes
+        inFlight.complete("done");
+        assertEquals("x", guard.execute("skopje", () -> CompletableFuture.completedFuture("x")).join());
+    }
+}
@@ -0,0 +1,78 @@
+package mk.ukim.finki.producerservice.pulseeco;
+
+import mk.ukim.finki.producerservice.area.SkopjeAreaResolver;
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PulseEcoResponseParserTests {
+
+    private final PulseEcoResponseParser parser = new PulseEcoResponseParser(new SkopjeAreaResolver());
+
+    private List<CityMeasurement> parse(String city, String json) throws Exception {
+        return parser.parse(city, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void parsesReadingsLikeTheOldMapping() throws Exception {
+        List<CityMeasurement> out = parse("skopje", """
+                [{"sensorId":"s1","position":"41.9981,21.4254","stamp":"2024-12-10T21:00:00+01:00",
+                  "year":2024,"type":"pm10","value":"25.5"},
+                 {"sensorId":"s1","position":"41.9981,21.4254","stamp":"2024-12-10T21:00:00+01:00",
+                  "type":"noise","value":"n/a","extra":{"nested":[1,2]}}]
+                """);
+
+        assertEquals(2, out.size());
+        CityMeasurement m = out.get(0);
+        assertEquals("SKOPJE", m.getCity());
+        assertEquals("s1", m.getSensorId());
+        assertEquals("41.9981,21.4254", m.getPosition());
+        assertEquals(new SkopjeAreaResolver().resolve(41.9981, 21.4254), m.getArea());
+        assertEquals(Instant.parse("2024-12-10T20:00:00Z"), m.getTimestamp());
+        assertEquals("pm10", m.getMetric());
+        assertEquals(25.5, m.getValue());
+
+        assertTrue(Double.isNaN(out.get(1).getValue()));
+        // Repeated stamp reuses the parsed Instant
+        assertSame(m.getTimestamp(), out.get(1).getTimestamp());
+    }
+
+    @Test
+    void otherCitiesAndMovedSensors() throws Exception {
+        assertEquals("unknown_area", parse("ohrid", """
+                [{"sensorId":"o1","position":"41.1231,20.8016","type":"pm10","value":"1"}]
+                """).get(0).getArea());
+
+        parse("skopje", """
+                [{"sensorId":"s2","position":"41.9981,21.4254","type":"pm10","value":"1"}]
+                """);
+        CityMeasurement moved = parse("skopje", """
+                [{"sensorId":"s2","position":"1.0,1.0","type":"pm10","value":"1"}]
+                """).get(0);
+        assertEquals("1.0,1.0", moved.getPosition());
+        assertEquals(new SkopjeAreaResolver().resolve(1.0, 1.0), moved.getArea());
+    }
+
+    @Test
+    void emptyOrNonArrayBodies() throws Exception {
+        assertTrue(parse("skopje", "").isEmpty());
+        assertTrue(parse("skopje", "{}").isEmpty());
+    }
+
+    @Test
+    void parseDecimalMatchesDoubleParseDouble() {
+        String[] inputs = {"25.5", "-3", "0.125", "120.00001", "+7.0", " 4.2 ", "1e3", "123456789012345678", "0.1"};
+        for (String in : inputs) {
+            char[] buf = ("xx" + in + "yy").toCharArray();
+            assertEquals(Double.parseDouble(in), PulseEcoResponseParser.parseDecimal(buf, 2, in.length()), in);
+        }
+        assertTrue(Double.isNaN(PulseEcoResponseParser.parseDecimal("abc".toCharArray(), 0, 3)));
+        assertTrue(Double.isNaN(PulseEcoResponseParser.parseDecimal("-".toCharArray(), 0, 1)));
+    }
+}
@@ -0,0 +1,45 @@
+package mk.ukim.finki.producerservice.service;
+
+import mk.ukim.finki.producerservice.model.AreaSummary;
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AreaSummarizerTests {
+
+    private static CityMeasurement reading(String area, String metric, String sensor, long ts, double value) {
+        return new CityMeasurement("SKOPJE", area, "41.99,21.42", sensor, Instant.ofEpochSecond(ts), metric, value);
+    }
+
+    @Test
+    void foldsReadingsPerAreaAndMetric() {
+        AreaSummarizer summarizer = new AreaSummarizer();
+        assertTrue(summarizer.add(reading("centar", "pm10", "s1", 100, 20)));
+        assertTrue(summarizer.add(reading("aerodrom", "pm10", "s2", 100, 5)));
+        assertTrue(summarizer.add(reading("centar", "pm10", "s3", 300, 60)));
+        assertTrue(summarizer.add(reading("centar", "pm10", "s4", 200, 10)));
+        assertTrue(summarizer.add(reading("centar", "noise", "s1", 100, 40)));
+        assertFalse(summarizer.add(reading("centar", "pm10", "s5", 400, Double.NaN)));
+
+        List<AreaSummary> out = List.copyOf(summarizer.summaries());
+        assertEquals(3, out.size());
+
+        AreaSummary centar = out.get(0);
+        assertEquals("centar", centar.getArea());
+        assertEquals("pm10", centar.getMetric());
+        assertEquals(3, centar.getCount());
+        assertEquals(90, centar.getSum());
+        assertEquals(10, centar.getMin());
+        assertEquals(60, centar.getMax());
+        // last = newest timestamp, not arrival order
+        assertEquals(60, centar.getLast());
+        assertEquals(Instant.ofEpochSecond(300), centar.getTimestamp());
+
+        assertEquals("aerodrom", out.get(1).getArea());
+        assertEquals("noise", out.get(2).getMetric());
+    }
+}
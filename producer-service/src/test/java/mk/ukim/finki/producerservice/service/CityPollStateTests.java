@@ -0,0 +1,85 @@
+package mk.ukim.finki.producerservice.service;
+
+import mk.ukim.finki.producerservice.config.PollingProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CityPollStateTests {
+
+    private static final long MIN = 60_000;
+
+    @Test
+    void learnsCadenceFromStampChanges() {
+        PollingProperties props = new PollingProperties();
+        props.setSmoothing(0.5);
+        CityPollState state = new CityPollState(props, 60_000);
+
+        Instant t0 = Instant.parse("2024-12-10T20:00:00Z");
+        state.onSuccess(t0, t0.toEpochMilli());
+        // City updates every 5 minutes: cadence moves from 60s towards 300s
+        for (int i = 1; i <= 10; i++) {
+            Instant stamp = t0.plusSeconds(300L * i);
+            state.onSuccess(stamp, stamp.toEpochMilli() + 1_000);
+        }
+        assertEquals(300_000, state.cadenceMs(), 1_000);
+        // Next poll planned right after the next expected update
+        assertEquals(330_000 - 1_000, state.lastDelayMs(), 2_000);
+    }
+
+    @Test
+    void unchangedStampsRecheckSoonerThanCadence() {
+        PollingProperties props = new PollingProperties();
+        props.setMinIntervalMs(MIN);
+        CityPollState state = new CityPollState(props, 600_000);
+
+        Instant t0 = Instant.parse("2024-12-10T20:00:00Z");
+        state.onSuccess(t0, t0.toEpochMilli());
+        long first = state.onSuccess(t0, t0.toEpochMilli() + 700_000);
+        long second = state.onSuccess(t0, t0.toEpochMilli() + 900_000);
+        assertEquals(150_000, first);
+        assertEquals(300_000, second);
+    }
+
+    @Test
+    void backsOffExponentiallyAndHonoursRetryAfter() {
+        PollingProperties props = new PollingProperties();
+        props.setBackoffInitialMs(10_000);
+        props.setBackoffMaxMs(100_000);
+        CityPollState state = new CityPollState(props, 60_000);
+
+        assertEquals(10_000, state.onFailure(-1));
+        assertEquals(20_000, state.onFailure(-1));
+        assertEquals(40_000, state.onFailure(-1));
+        assertEquals(90_000, state.onFailure(90_000));
+        assertEquals(100_000, state.onFailure(-1));
+        assertEquals(100_000, state.onFailure(500_000));
+
+        state.onSuccess(null, 0);
+        assertEquals(0, state.failures());
+    }
+
+    @Test
+    void bulkheadRejectionIsRetriedShortlyWithoutBackoff() {
+        PollingProperties props = new PollingProperties();
+        props.setBackoffInitialMs(10_000);
+        CityPollState state = new CityPollState(props, 60_000);
+        state.onFailure(-1);
+
+        assertEquals(5_000, state.onRejected(5_000));
+        assertEquals(5_000, state.onRejected(5_000));
+        assertEquals(1, state.failures());
+        // The next real failure continues the backoff where it was
+        assertEquals(20_000, state.onFailure(-1));
+    }
+
+    @Test
+    void fixedIntervalWhenNotAdaptive() {
+        PollingProperties props = new PollingProperties();
+        props.setAdaptive(false);
+        CityPollState state = new CityPollState(props, 45_000);
+        assertEquals(45_000, state.onSuccess(Instant.now(), System.currentTimeMillis()));
+    }
+}
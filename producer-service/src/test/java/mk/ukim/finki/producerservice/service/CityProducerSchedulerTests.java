@@ -0,0 +1,126 @@
+package mk.ukim.finki.producerservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mk.ukim.finki.producerservice.client.MeasurementProducer;
+import mk.ukim.finki.producerservice.config.PollingProperties;
+import mk.ukim.finki.producerservice.metrics.ProducerMetrics;
+import mk.ukim.finki.producerservice.model.AreaSummary;
+import mk.ukim.finki.producerservice.model.CityMeasurement;
+import mk.ukim.finki.producerservice.pulseeco.PulseEcoClient;
+import mk.ukim.finki.producerservice.pulseeco.UpstreamUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CityProducerSchedulerTests {
+
+    private final PulseEcoClient client = mock(PulseEcoClient.class);
+    private final MeasurementProducer producer = mock(MeasurementProducer.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService workExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("pulseeco-work-"));
+
+    private CityProducerScheduler scheduler(boolean preAggregate) {
+        PollingProperties props = new PollingProperties();
+        props.setPreAggregate(preAggregate);
+        return new CityProducerScheduler(client, producer, new ProducerMetrics(registry), props,
+                workExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workExecutor.shutdownNow();
+    }
+
+    private static CityMeasurement reading(String sensor, long ts, double value) {
+        return new CityMeasurement("SKOPJE", "centar", "41.99,21.42", sensor, Instant.ofEpochSecond(ts), "pm10", value);
+    }
+
+    @Test
+    void publishesOnTheWorkPoolAndAFailedPublishDoesNotFailThePoll() {
+        AtomicReference<String> publishThread = new AtomicReference<>();
+        doAnswer(inv -> {
+            publishThread.set(Thread.currentThread().getName());
+            throw new AmqpException("broker down");
+        }).when(producer).publishMeasurement(any(), anyLong());
+        when(client.getCurrentMeasurementsAsync("skopje"))
+                .thenReturn(CompletableFuture.completedFuture(List.of(reading("s1", 100, 20))));
+
+        FetchResult result = scheduler(false).fetchForCityAsync("skopje").join();
+
+        assertFalse(result.failed());
+        assertTrue(publishThread.get().startsWith("pulseeco-work-"), publishThread.get());
+    }
+
+    @Test
+    void upstreamFailureBecomesAFailedResult() {
+        when(client.getCurrentMeasurementsAsync("skopje"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")));
+
+        FetchResult result = scheduler(false).fetchForCityAsync("skopje").join();
+
+        assertTrue(result.failed());
+        verifyNoInteractions(producer);
+    }
+
+    @Test
+    void fullBulkheadIsARejectionNotAFailure() {
+        when(client.getCurrentMeasurementsAsync("skopje")).thenReturn(CompletableFuture.failedFuture(
+                new UpstreamUnavailableException("skopje", "too many concurrent calls", 5_000, true)));
+
+        FetchResult result = scheduler(false).fetchForCityAsync("skopje").join();
+
+        assertTrue(result.rejected());
+        assertFalse(result.failed());
+        assertEquals(5_000, result.retryAfterMs());
+    }
+
+    @Test
+    void summariesOnlyCountReadingsNewSinceTheLastPoll() {
+        CityProducerScheduler scheduler = scheduler(true);
+        when(client.getCurrentMeasurementsAsync("skopje"))
+                .thenReturn(CompletableFuture.completedFuture(List.of(reading("s1", 100, 20), reading("s2", 100, 40))))
+                // s1 has not reported since, s2 has
+                .thenReturn(CompletableFuture.completedFuture(List.of(reading("s1", 100, 20), reading("s2", 160, 60))))
+                .thenReturn(CompletableFuture.completedFuture(List.of(reading("s1", 100, 20), reading("s2", 160, 60))));
+
+        for (int poll = 0; poll < 3; poll++) {
+            scheduler.fetchForCityAsync("skopje").join();
+        }
+
+        ArgumentCaptor<AreaSummary> summaries = ArgumentCaptor.forClass(AreaSummary.class);
+        verify(producer, times(2)).publishSummary(summaries.capture(), anyLong());
+        AreaSummary first = summaries.getAllValues().get(0);
+        assertEquals(2, first.getCount());
+        assertEquals(60, first.getSum());
+        AreaSummary second = summaries.getAllValues().get(1);
+        assertEquals(1, second.getCount());
+        assertEquals(60, second.getSum());
+        verify(producer, never()).publishMeasurement(any(), anyLong());
+    }
+
+    @Test
+    void invalidValuesAreCountedAndLeftOutOfSummaries() {
+        when(client.getCurrentMeasurementsAsync("skopje")).thenReturn(CompletableFuture.completedFuture(
+                List.of(reading("s1", 100, 20), reading("s2", 100, Double.NaN))));
+
+        scheduler(true).fetchForCityAsync("skopje").join();
+
+        ArgumentCaptor<AreaSummary> summary = ArgumentCaptor.forClass(AreaSummary.class);
+        verify(producer).publishSummary(summary.capture(), anyLong());
+        assertEquals(1, summary.getValue().getCount());
+        assertEquals(1.0, registry.counter("producer.readings.rejected").count());
+    }
+}
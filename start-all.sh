@@ -43,6 +43,14 @@ echo ""
 echo -e "${BLUE}🚀 Step 2: Starting Spring Boot Services...${NC}"
 echo ""
 
+# Shared definitions the services build against
+echo -e "${YELLOW}📦 Installing weather-common...${NC}"
+(cd weather-common && ./mvnw -q install -DskipTests)
+if [ $? -ne 0 ]; then
+    echo -e "${RED}❌ Failed to install weather-common${NC}"
+    exit 1
+fi
+
 # Start Gateway Service
 echo -e "${YELLOW}📡 Starting Gateway Service (port 8081)...${NC}"
 (cd gateway-service && ./mvnw spring-boot:run > ../logs/gateway.log 2>&1) &
@@ -0,0 +1,94 @@
+package mk.ukim.finki.common.area;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounding boxes of the Skopje areas, the one definition both services use.
+ *
+ * producer-service assigns each sensor to the first box containing it
+ * (SkopjeAreaResolver); gateway-service matches geo-fences against the same
+ * boxes, because alerts only carry the area name.
+ *
+ * Order matters because boxes overlap: more "specific" areas come before
+ * broader ones.
+ */
+public final class SkopjeAreas {
+
+    public static final String UNKNOWN_AREA = "unknown_area";
+
+    /** Bounding box around all of Skopje (quick reject). */
+    public static final Box CITY = new Box(41.88, 42.12, 21.20, 21.70);
+
+    private static final Map<String, Box> BOXES = new LinkedHashMap<>();
+
+    static {
+        // Aerodrom (SE, near airport / south of Vardar)
+        BOXES.put("aerodrom", new Box(41.93, 42.00, 21.44, 21.54));
+        // Kisela Voda (S / SE, below Aerodrom)
+        BOXES.put("kisela_voda", new Box(41.88, 41.97, 21.41, 21.56));
+        // Centar (central)
+        BOXES.put("centar", new Box(41.98, 42.02, 21.40, 21.47));
+        // Čair (north of Centar)
+        BOXES.put("cair", new Box(42.01, 42.06, 21.43, 21.50));
+        // Šuto Orizari (north / north-west of Čair)
+        BOXES.put("suto_orizari", new Box(42.05, 42.10, 21.40, 21.50));
+        // Butel (north / north-east)
+        BOXES.put("butel", new Box(42.04, 42.10, 21.49, 21.58));
+        // Gazi Baba (east / north-east, larger)
+        BOXES.put("gazi_baba", new Box(41.99, 42.09, 21.50, 21.66));
+        // Karposh (west-central)
+        BOXES.put("karposh", new Box(41.99, 42.07, 21.33, 21.43));
+        // Gjorce Petrov (north-west)
+        BOXES.put("gjorce_petrov", new Box(42.02, 42.12, 21.20, 21.36));
+        // Saraj (west / south-west, broad)
+        BOXES.put("saraj", new Box(41.92, 42.08, 21.20, 21.33));
+    }
+
+    private static final Map<String, Box> VIEW = Collections.unmodifiableMap(BOXES);
+
+    private SkopjeAreas() {
+    }
+
+    /** areaKey -> box, for every known area, in resolution order. */
+    public static Map<String, Box> all() {
+        return VIEW;
+    }
+
+    /** @return the key of the first area whose box contains the point, or UNKNOWN_AREA */
+    public static String resolve(double lat, double lon) {
+        if (!CITY.contains(lat, lon)) {
+            return UNKNOWN_AREA;
+        }
+        for (Map.Entry<String, Box> e : BOXES.entrySet()) {
+            if (e.getValue().contains(lat, lon)) {
+                return e.getKey();
+            }
+        }
+        return UNKNOWN_AREA;
+    }
+
+    public record Box(double minLat, double maxLat, double minLon, double maxLon) {
+
+        public boolean contains(double lat, double lon) {
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+        }
+
+        /** Distance in km from (lat, lon) to the nearest point of the box; 0 inside it. */
+        public double distanceKm(double lat, double lon) {
+            double nearLat = Math.max(minLat, Math.min(maxLat, lat));
+            double nearLon = Math.max(minLon, Math.min(maxLon, lon));
+            return haversineKm(lat, lon, nearLat, nearLon);
+        }
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * 6371.0 * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,29 @@
+package mk.ukim.finki.common.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets one in every N calls through, for per-message log lines.
+ *
+ * Usage:
+ *   if (sampler.sample()) log.info(...); else log.debug(...);
+ *
+ * At production rates logging every message costs more than the work itself;
+ * sampled lines keep the log readable while DEBUG still shows everything.
+ *
+ * Only for routine per-message lines. Dropped or rejected data (e.g. a NaN
+ * reading) is logged at WARN every time and counted in a metric.
+ */
+public class LogSampler {
+
+    private final long every;
+    private final AtomicLong counter = new AtomicLong();
+
+    public LogSampler(long every) {
+        this.every = Math.max(1L, every);
+    }
+
+    public boolean sample() {
+        return counter.getAndIncrement() % every == 0;
+    }
+}
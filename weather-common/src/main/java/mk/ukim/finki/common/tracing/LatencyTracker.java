@@ -0,0 +1,53 @@
+package mk.ukim.finki.common.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records pipeline stage latencies as the Micrometer timer
+ * "weather.pipeline.latency" tagged with stage=<name>.
+ *
+ * Timers publish a percentile histogram plus p50/p90/p99, visible under
+ * /actuator/metrics/weather.pipeline.latency?tag=stage:<name>.
+ *
+ * Stages span services, so they rely on wall clocks being in sync (NTP).
+ * Negative durations caused by clock skew are clamped to zero.
+ *
+ * A plain class: each service registers it as a bean (config/TracingConfig).
+ */
+public class LatencyTracker {
+
+    public static final String METRIC = "weather.pipeline.latency";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public LatencyTracker(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records the time between two epoch-millis stamps.
+     * Does nothing if either stamp is missing (e.g. message published without trace headers).
+     */
+    public void record(String stage, Long fromMillis, Long toMillis) {
+        if (fromMillis == null || toMillis == null) return;
+        timer(stage).record(Math.max(0L, toMillis - fromMillis), TimeUnit.MILLISECONDS);
+    }
+
+    private Timer timer(String stage) {
+        return timers.computeIfAbsent(stage, s -> Timer.builder(METRIC)
+                .description("Latency of one pipeline stage from sensor stamp to client delivery")
+                .tag("stage", s)
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .publishPercentileHistogram()
+                // sensor stamps can be several minutes old by the time pulse.eco serves them
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(registry));
+    }
+}
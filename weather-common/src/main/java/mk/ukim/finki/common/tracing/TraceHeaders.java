@@ -0,0 +1,34 @@
+package mk.ukim.finki.common.tracing;
+
+/**
+ * AMQP header names used to trace a reading from pulse.eco to the WebSocket client.
+ *
+ * All values are epoch milliseconds (Long). Each hop copies the headers it
+ * received and adds its own stamp, so the last hop can compute every stage:
+ *
+ *   sensor stamp -> producer fetch -> producer publish
+ *     -> aggregator receive -> aggregator emit -> gateway forward
+ *
+ * The one definition all three services build against (weather-common), so a
+ * renamed header changes producer, aggregator and gateway together.
+ */
+public final class TraceHeaders {
+
+    /** Reading timestamp reported by the sensor (pulse.eco "stamp"). */
+    public static final String SENSOR_TS = "x-trace-sensor-ts";
+
+    /** When the producer received the pulse.eco response. */
+    public static final String FETCHED_AT = "x-trace-fetched-at";
+
+    /** When the producer handed the reading to RabbitMQ. */
+    public static final String PUBLISHED_AT = "x-trace-published-at";
+
+    /** When the aggregator listener received the reading. */
+    public static final String AGG_RECEIVED_AT = "x-trace-agg-received-at";
+
+    /** When the aggregator published the alert. */
+    public static final String AGG_EMITTED_AT = "x-trace-agg-emitted-at";
+
+    private TraceHeaders() {
+    }
+}
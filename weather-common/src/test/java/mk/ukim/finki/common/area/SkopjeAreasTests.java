@@ -0,0 +1,32 @@
+package mk.ukim.finki.common.area;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SkopjeAreasTests {
+
+    @Test
+    void pointsResolveToTheFirstBoxContainingThem() {
+        assertEquals("centar", SkopjeAreas.resolve(41.9981, 21.4254));
+        assertEquals("karposh", SkopjeAreas.resolve(42.03, 21.37));
+        // Inside both Aerodrom and Kisela Voda: the earlier box wins
+        assertEquals("aerodrom", SkopjeAreas.resolve(41.95, 21.50));
+    }
+
+    @Test
+    void pointsOutsideEveryBoxAreUnknown() {
+        assertEquals(SkopjeAreas.UNKNOWN_AREA, SkopjeAreas.resolve(1.0, 1.0));
+        // Inside the city box but in no area (far east)
+        assertEquals(SkopjeAreas.UNKNOWN_AREA, SkopjeAreas.resolve(41.90, 21.69));
+    }
+
+    @Test
+    void distanceIsZeroInsideABoxAndGrowsOutside() {
+        SkopjeAreas.Box centar = SkopjeAreas.all().get("centar");
+
+        assertEquals(0.0, centar.distanceKm(42.00, 21.43));
+        // 0.01 degrees of latitude is about 1.1 km
+        assertEquals(1.11, centar.distanceKm(42.03, 21.43), 0.01);
+    }
+}
@@ -0,0 +1,28 @@
+package mk.ukim.finki.common.logging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSamplerTests {
+
+    @Test
+    void letsTheFirstOfEveryNCallsThrough() {
+        LogSampler sampler = new LogSampler(3);
+
+        boolean[] sampled = new boolean[7];
+        for (int i = 0; i < sampled.length; i++) {
+            sampled[i] = sampler.sample();
+        }
+
+        assertArrayEquals(new boolean[]{true, false, false, true, false, false, true}, sampled);
+    }
+
+    @Test
+    void everyBelowOneSamplesEverything() {
+        LogSampler sampler = new LogSampler(0);
+
+        assertTrue(sampler.sample());
+        assertTrue(sampler.sample());
+    }
+}